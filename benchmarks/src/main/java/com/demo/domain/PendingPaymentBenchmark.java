@@ -0,0 +1,38 @@
+package com.demo.domain;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The card expiry options rendered by the payment step.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PendingPaymentBenchmark {
+
+    private PendingPayment pendingPayment;
+
+    @Setup
+    public void setup() {
+        pendingPayment = new PendingPayment(LocalDateTime.of(2030, 4, 15, 10, 30));
+    }
+
+    @Benchmark
+    public List<Year> validExpiryYears() {
+        return pendingPayment.validExpiryYears();
+    }
+
+    @Benchmark
+    public List<Month> validExpiryMonths() {
+        return pendingPayment.validExpiryMonths();
+    }
+}
@@ -0,0 +1,170 @@
+package com.demo.domain;
+
+import com.demo.domain.location.Address;
+import com.demo.domain.location.Postcode;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prices a 4 guest reservation with general extras and a full meal plan for each guest.
+ *
+ * <p>{@code bigDecimalTotal} repeats the {@code BigDecimal} arithmetic the reservation used before {@code Money},
+ * including summing the total excluding tax twice, as the baseline for {@code moneyQuote}. Lives in the domain
+ * package to call {@code PriceQuote.of} directly rather than through the memoized {@code Reservation} getters.</p>
+ *
+ * <p>Compare {@code gc.alloc.rate.norm} for the bytes each approach allocates per total.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PricingBenchmark {
+
+    private Reservation reservation;
+    private LegacyPricing legacy;
+
+    @Setup
+    public void setup() {
+        Address address = new Address("Royal Hotel", "166 Albert Road", null,
+                com.demo.domain.location.State.VIC, "Melbourne", new Postcode("3000"));
+        Room room = new Room("G1", RoomType.Economy, 4, Money.of("65.12"));
+        room.setHotel(new Hotel("Royal Hotel", address, 4, "royal@hotel.com"));
+
+        reservation = new Reservation();
+        reservation.setRoom(room);
+        reservation.setDates(new ReservationDates(LocalDate.of(2030, 1, 1), LocalDate.of(2030, 1, 6),
+                LocalTime.of(12, 0), true, true));
+        reservation.setGeneralExtras(new HashSet<>(List.of(
+                new Extra("Foxtel", Money.of("1.20"), Extra.Type.Basic, Extra.Category.General),
+                new Extra("Unlimited Internet", Money.of("2.00"), Extra.Type.Basic, Extra.Category.General),
+                new Extra("Laundry", Money.of("2.50"), Extra.Type.Basic, Extra.Category.General))));
+
+        reservation.addGuest(new Guest("john", "smith", false));
+        reservation.addGuest(new Guest("marie", "smith", false));
+        reservation.addGuest(new Guest("sara", "smith", true));
+        reservation.addGuest(new Guest("ryan", "smith", true));
+        reservation.createMealPlans();
+
+        List<Extra> meals = List.of(
+                new Extra("Breakfast", Money.of("2.00"), Extra.Type.Basic, Extra.Category.Food),
+                new Extra("Lunch", Money.of("4.00"), Extra.Type.Basic, Extra.Category.Food),
+                new Extra("Dinner", Money.of("5.60"), Extra.Type.Basic, Extra.Category.Food));
+        reservation.getMealPlans().forEach(mealPlan -> mealPlan.setFoodExtras(new ArrayList<>(meals)));
+
+        legacy = new LegacyPricing(reservation);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalTotal() {
+        return legacy.getTotalCostIncludingTax();
+    }
+
+    @Benchmark
+    public PriceQuote moneyQuote() {
+        return PriceQuote.of(reservation);
+    }
+
+    /**
+     * What each template read costs once the quote is built.
+     */
+    @Benchmark
+    public Money memoizedTotal() {
+        return reservation.getTotalCostIncludingTax();
+    }
+
+    /**
+     * The reservation pricing as it was written against {@code BigDecimal} amounts.
+     */
+    static final class LegacyPricing {
+        private static final double TAX_AMOUNT = 0.10;
+        private static final double CHILD_DISCOUNT_PERCENT = 0.60;
+
+        private final BigDecimal costPerNight;
+        private final BigDecimal lateCheckoutFee;
+        private final long nights;
+        private final Set<BigDecimal> generalExtras = new HashSet<>();
+        private final List<LegacyMealPlan> mealPlans = new ArrayList<>();
+
+        LegacyPricing(Reservation reservation) {
+            costPerNight = reservation.getRoom().getCostPerNight().toBigDecimal();
+            lateCheckoutFee = reservation.getChargeableLateCheckoutFee().toBigDecimal();
+            nights = reservation.getDates().totalNights();
+            reservation.getGeneralExtras().forEach(extra -> generalExtras.add(extra.getPerNightPrice().toBigDecimal()));
+            for (MealPlan mealPlan : reservation.getMealPlans()) {
+                List<BigDecimal> foodExtras = new ArrayList<>();
+                mealPlan.getFoodExtras().forEach(extra -> foodExtras.add(extra.getPerNightPrice().toBigDecimal()));
+                mealPlans.add(new LegacyMealPlan(foodExtras, mealPlan.getGuest().isChild()));
+            }
+        }
+
+        BigDecimal getTotalRoomCost() {
+            if (nights == 0) {
+                return BigDecimal.ZERO;
+            }
+            return costPerNight.multiply(BigDecimal.valueOf(nights));
+        }
+
+        BigDecimal getTotalRoomCostWithLateCheckoutFee() {
+            return getTotalRoomCost().add(lateCheckoutFee);
+        }
+
+        BigDecimal getTotalGeneralExtrasCost() {
+            return generalExtras.stream().reduce(
+                    BigDecimal.ZERO,
+                    (acc, next) -> acc.add(next.multiply(BigDecimal.valueOf(nights))),
+                    BigDecimal::add);
+        }
+
+        BigDecimal getTotalMealPlansCost() {
+            return mealPlans.stream()
+                    .map(this::getTotalMealPlanCost)
+                    .reduce(BigDecimal.ZERO, BigDecimal::add, BigDecimal::add);
+        }
+
+        BigDecimal getTotalMealPlanCost(LegacyMealPlan mealPlan) {
+            return mealPlan.foodExtras.stream()
+                    .map(price -> {
+                        BigDecimal total = price.multiply(BigDecimal.valueOf(nights));
+                        if (mealPlan.child) {
+                            return total.subtract(total.multiply(BigDecimal.valueOf(CHILD_DISCOUNT_PERCENT)));
+                        }
+                        return total;
+                    })
+                    .reduce(BigDecimal.ZERO, BigDecimal::add, BigDecimal::add);
+        }
+
+        BigDecimal getTotalCostExcludingTax() {
+            return getTotalRoomCostWithLateCheckoutFee()
+                    .add(getTotalGeneralExtrasCost())
+                    .add(getTotalMealPlansCost());
+        }
+
+        BigDecimal getTaxableAmount() {
+            return getTotalCostExcludingTax().multiply(BigDecimal.valueOf(TAX_AMOUNT));
+        }
+
+        BigDecimal getTotalCostIncludingTax() {
+            return getTotalCostExcludingTax().add(getTaxableAmount());
+        }
+    }
+
+    private static final class LegacyMealPlan {
+        private final List<BigDecimal> foodExtras;
+        private final boolean child;
+
+        private LegacyMealPlan(List<BigDecimal> foodExtras, boolean child) {
+            this.foodExtras = foodExtras;
+            this.child = child;
+        }
+    }
+}
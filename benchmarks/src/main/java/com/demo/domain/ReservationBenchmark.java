@@ -0,0 +1,87 @@
+package com.demo.domain;
+
+import com.demo.domain.location.Address;
+import com.demo.domain.location.Postcode;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The reservation operations each flow step and Ajax summary render performs, over a range of party sizes.
+ *
+ * <p>{@code totalAfterChange} is a summary render following a form post that changed the reservation, so the
+ * quote is rebuilt. {@code totalUnchanged} is every further read of the same quote.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ReservationBenchmark {
+
+    @Param({"1", "4", "8"})
+    private int guests;
+
+    /**
+     * Food extras in each guest's meal plan.
+     */
+    @Param({"0", "3"})
+    private int mealsPerPlan;
+
+    private Reservation reservation;
+    private boolean lateCheckout;
+
+    @Setup
+    public void setup() {
+        Address address = new Address("Royal Hotel", "166 Albert Road", null,
+                com.demo.domain.location.State.VIC, "Melbourne", new Postcode("3000"));
+        Room room = new Room("G1", RoomType.Economy, guests, Money.of("65.12"));
+        room.setHotel(new Hotel("Royal Hotel", address, 4, "royal@hotel.com"));
+
+        reservation = new Reservation();
+        reservation.setRoom(room);
+        reservation.setDates(new ReservationDates(LocalDate.of(2030, 1, 1), LocalDate.of(2030, 1, 6),
+                LocalTime.of(12, 0), lateCheckout, true));
+        reservation.setGeneralExtras(new HashSet<>(List.of(
+                new Extra("Foxtel", Money.of("1.20"), Extra.Type.Basic, Extra.Category.General),
+                new Extra("Laundry", Money.of("2.50"), Extra.Type.Basic, Extra.Category.General))));
+
+        for (int i = 0; i < guests; i++) {
+            reservation.addGuest(new Guest("guest" + i, "smith", i % 2 == 1));
+        }
+        reservation.createMealPlans();
+
+        List<Extra> meals = new ArrayList<>();
+        for (int i = 0; i < mealsPerPlan; i++) {
+            meals.add(new Extra("Meal " + i, Money.of("4.25"), Extra.Type.Basic, Extra.Category.Food));
+        }
+        reservation.getMealPlans().forEach(mealPlan -> mealPlan.setFoodExtras(new ArrayList<>(meals)));
+    }
+
+    @Benchmark
+    public Money totalAfterChange() {
+        lateCheckout = !lateCheckout;
+        reservation.getDates().setLateCheckout(lateCheckout);
+        return reservation.getTotalCostIncludingTax();
+    }
+
+    @Benchmark
+    public Money totalUnchanged() {
+        return reservation.getTotalCostIncludingTax();
+    }
+
+    /**
+     * Runs each time the meal plan step is shown.
+     */
+    @Benchmark
+    public List<MealPlan> createMealPlans() {
+        reservation.createMealPlans();
+        return reservation.getMealPlans();
+    }
+}
@@ -0,0 +1,42 @@
+package com.demo.domain;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validation run on every post of the dates step and every Ajax room cost refresh.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ReservationDatesBenchmark {
+
+    private final LocalDate now = LocalDate.of(2030, 1, 1);
+
+    private ReservationDates valid;
+    private ReservationDates checkOutBeforeCheckIn;
+
+    @Setup
+    public void setup() {
+        valid = new ReservationDates(now.plusDays(7), now.plusDays(10), LocalTime.of(12, 0), false, true);
+        checkOutBeforeCheckIn = new ReservationDates(now.plusDays(7), now.plusDays(5), LocalTime.of(12, 0),
+                false, true);
+    }
+
+    @Benchmark
+    public Optional<ReservationDates.ValidationError> validateValid() {
+        return valid.validate(now);
+    }
+
+    @Benchmark
+    public Optional<ReservationDates.ValidationError> validateInvalid() {
+        return checkOutBeforeCheckIn.validate(now);
+    }
+}
@@ -0,0 +1,28 @@
+package com.demo.persistance.predicates;
+
+import com.querydsl.core.types.Predicate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the location search predicate, which happens on every hotel search before any query is run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class HotelPredicatesBenchmark {
+
+    @Benchmark
+    public Predicate byLocationStateOnly() {
+        return HotelPredicates.byLocation("vic", null, null);
+    }
+
+    @Benchmark
+    public Predicate byLocationAllParts() {
+        return HotelPredicates.byLocation("vic", " North Melbourne ", "3051");
+    }
+}
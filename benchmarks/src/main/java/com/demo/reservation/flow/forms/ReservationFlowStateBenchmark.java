@@ -0,0 +1,127 @@
+package com.demo.reservation.flow.forms;
+
+import com.demo.domain.*;
+import com.demo.domain.location.Address;
+import com.demo.domain.location.Postcode;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per request cost of keeping a reservation flow outside the JVM. Each request restores the flow from its
+ * stored attributes and, when the flow changed, snapshots and encodes it again.
+ *
+ * <p>{@code javaSerialization} is the same state written with Java serialization, which is what the
+ * {@code HttpSession} does when sessions are replicated or persisted.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ReservationFlowStateBenchmark {
+
+    @Param({"1", "4", "8"})
+    private int guests;
+
+    private ReservationFlow flow;
+    private ReservationFlowState state;
+    private Map<String, byte[]> attributes;
+    private ReservationFlowState.Entities entities;
+
+    @Setup
+    public void setup() {
+        Address address = new Address("Royal Hotel", "166 Albert Road", null,
+                com.demo.domain.location.State.VIC, "Melbourne", new Postcode("3000"));
+        Room room = new Room("G1", RoomType.Economy, guests, Money.of("65.12"));
+        room.setId(1L);
+        room.setHotel(new Hotel("Royal Hotel", address, 4, "royal@hotel.com"));
+
+        Extra foxtel = new Extra("Foxtel", Money.of("1.20"), Extra.Type.Basic, Extra.Category.General);
+        foxtel.setId(10L);
+        Extra breakfast = new Extra("Breakfast", Money.of("4.25"), Extra.Type.Basic, Extra.Category.Food);
+        breakfast.setId(20L);
+        Map<Long, Extra> extras = Map.of(foxtel.getId(), foxtel, breakfast.getId(), breakfast);
+
+        Reservation reservation = new Reservation();
+        reservation.setRoom(room);
+        reservation.setDates(new ReservationDates(LocalDate.of(2030, 1, 1), LocalDate.of(2030, 1, 6),
+                LocalTime.of(12, 0), false, true));
+        reservation.setGeneralExtras(new HashSet<>(List.of(foxtel)));
+        for (int i = 0; i < guests; i++) {
+            reservation.addGuest(new Guest("guest" + i, "smith", i % 2 == 1));
+        }
+        reservation.createMealPlans();
+        reservation.getMealPlans().forEach(mealPlan -> mealPlan.setFoodExtras(new ArrayList<>(List.of(breakfast))));
+
+        flow = new ReservationFlow();
+        flow.setReservation(reservation);
+        flow.completeStep(ReservationFlow.Step.Dates);
+        flow.completeStep(ReservationFlow.Step.Guests);
+        flow.completeStep(ReservationFlow.Step.Extras);
+        flow.setActive(ReservationFlow.Step.Meals);
+
+        state = ReservationFlowState.of(flow);
+        attributes = state.toAttributes();
+        entities = new ReservationFlowState.Entities() {
+            @Override
+            public Optional<Room> findRoom(long roomId) {
+                return Optional.of(room);
+            }
+
+            @Override
+            public List<Extra> findExtras(long[] extraIds) {
+                List<Extra> found = new ArrayList<>(extraIds.length);
+                for (long extraId : extraIds) {
+                    found.add(extras.get(extraId));
+                }
+                return found;
+            }
+        };
+    }
+
+    @Benchmark
+    public ReservationFlowState snapshot() {
+        return ReservationFlowState.of(flow);
+    }
+
+    @Benchmark
+    public Map<String, byte[]> encode() {
+        return state.toAttributes();
+    }
+
+    @Benchmark
+    public ReservationFlowState decode() {
+        return ReservationFlowState.fromAttributes(attributes);
+    }
+
+    @Benchmark
+    public Optional<ReservationFlow> restore() {
+        return state.restore(entities);
+    }
+
+    /**
+     * A whole request that changed the flow: decode and restore the stored flow, then snapshot and encode it.
+     */
+    @Benchmark
+    public Map<String, byte[]> roundTrip() {
+        ReservationFlow restored = ReservationFlowState.fromAttributes(attributes).restore(entities).get();
+        return ReservationFlowState.of(restored).toAttributes();
+    }
+
+    @Benchmark
+    public byte[] javaSerialization() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(state);
+        }
+        return bytes.toByteArray();
+    }
+}
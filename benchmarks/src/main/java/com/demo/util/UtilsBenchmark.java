@@ -0,0 +1,25 @@
+package com.demo.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Guest and hotel names are capitalized as they are displayed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class UtilsBenchmark {
+
+    @Param({"marie", "the GRAND hotel of north melbourne"})
+    private String words;
+
+    @Benchmark
+    public String capitalizeWords() {
+        return Utils.capitalizeWords(words);
+    }
+}
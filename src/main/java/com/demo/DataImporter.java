@@ -2,6 +2,7 @@ package com.demo;
 
 import com.demo.domain.Extra;
 import com.demo.domain.Hotel;
+import com.demo.domain.Money;
 import com.demo.domain.Room;
 import com.demo.domain.RoomType;
 import com.demo.domain.location.Address;
@@ -9,64 +10,160 @@ import com.demo.domain.location.Postcode;
 import com.demo.domain.location.State;
 import com.demo.persistance.HotelRepository;
 import com.demo.reservation.ExtraRepository;
-import org.springframework.boot.CommandLineRunner;
-import org.springframework.context.annotation.Bean;
+import com.demo.startup.StartupTimeline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
 import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
-import java.math.BigDecimal;
+import javax.annotation.PreDestroy;
 import java.time.LocalTime;
-
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the extras and demo hotels in the background once the context has started, so start up does not wait on
+ * the data. {@code DataImporterHealthIndicator} reports the application out of service until the load completes.
+ *
+ * <p>Extras and hotels do not depend on each other, so the extras and {@code threads} partitions of the hotels are
+ * each saved in a transaction of their own on a pool of at most {@code threads} threads. How long each took is
+ * recorded on the {@code StartupTimeline}.</p>
+ */
 @Component
 @Profile({"!test", "!integration"})
 public class DataImporter {
-    private HotelRepository hotelRepository;
-    private ExtraRepository extraRepository;
+    private static final Logger log = LoggerFactory.getLogger(DataImporter.class);
+
+    private final HotelRepository hotelRepository;
+    private final ExtraRepository extraRepository;
+    private final StartupTimeline timeline;
+    private final int threads;
+    private final ExecutorService loaders;
 
-    public DataImporter(HotelRepository hotelRepository, ExtraRepository extraRepository) {
+    private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+    private final AtomicInteger hotelsLoaded = new AtomicInteger();
+
+    @Autowired
+    public DataImporter(HotelRepository hotelRepository, ExtraRepository extraRepository, StartupTimeline timeline,
+                        @Value("${startup.import.threads:4}") int threads) {
         this.hotelRepository = hotelRepository;
         this.extraRepository = extraRepository;
+        this.timeline = timeline;
+        this.threads = threads;
+
+        AtomicInteger count = new AtomicInteger();
+        this.loaders = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "startup-import-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        loaders.shutdownNow();
+    }
+
+    /**
+     * @return Completes once every extra and hotel has been saved, exceptionally if any could not be.
+     */
+    public CompletableFuture<Void> loaded() {
+        return loaded;
+    }
+
+    public int getHotelsLoaded() {
+        return hotelsLoaded.get();
     }
 
-    @Bean
-    public CommandLineRunner insertTestData() {
-        return args -> {
+    @EventListener(ApplicationStartedEvent.class)
+    public void start() {
+        long start = System.nanoTime();
+        log.info("Loading start up data on {} threads", threads);
+
+        CompletableFuture<Void> extras = CompletableFuture.runAsync(() -> {
             // For simplicity every hotel will have the same extras.
-            System.out.println("-------------------CommandLineRunner");
-            // basic
-            extraRepository.save(new Extra("Foxtel", new BigDecimal("1.20"), Extra.Type.Basic, Extra.Category.General));
-            extraRepository.save(new Extra("Unlimited Internet", new BigDecimal("2.00"), Extra.Type.Basic, Extra.Category.General));
-            extraRepository.save(new Extra("Laundry", new BigDecimal("2.50"), Extra.Type.Basic, Extra.Category.General));
-            extraRepository.save(new Extra("Upgraded mini bar", new BigDecimal("12.00"), Extra.Type.Basic, Extra.Category.General));
-
-            extraRepository.save(new Extra("Breakfast", new BigDecimal("2.00"), Extra.Type.Basic, Extra.Category.Food));
-            extraRepository.save(new Extra("Lunch", new BigDecimal("4.00"), Extra.Type.Basic, Extra.Category.Food));
-            extraRepository.save(new Extra("Dinner", new BigDecimal("5.60"), Extra.Type.Basic, Extra.Category.Food));
-
-            // premium
-            extraRepository.save(new Extra("Foxtel", new BigDecimal("0.20"), Extra.Type.Premium, Extra.Category.General));
-            extraRepository.save(new Extra("Upgraded mini bar", new BigDecimal("1.50"), Extra.Type.Premium, Extra.Category.General));
-            extraRepository.save(new Extra("Massage", new BigDecimal("6.00"), Extra.Type.Premium, Extra.Category.General));
-
-            extraRepository.save(new Extra("Breakfast", new BigDecimal("1.50"), Extra.Type.Premium, Extra.Category.Food));
-            extraRepository.save(new Extra("Lunch", new BigDecimal("3.20"), Extra.Type.Premium, Extra.Category.Food));
-            extraRepository.save(new Extra("Dinner", new BigDecimal("5.00"), Extra.Type.Premium, Extra.Category.Food));
-
-            createHotel1();
-            createHotel2();
-            createHotel3();
-            createHotel4();
-            createHotel5();
-            createHotel6();
-        };
+            extraRepository.saveAll(extras());
+            timeline.record(StartupTimeline.IMPORT_EXTRAS, start);
+        }, loaders);
+
+        List<CompletableFuture<Void>> partitions = new ArrayList<>();
+        for (List<Hotel> partition : partition(hotels())) {
+            partitions.add(CompletableFuture.runAsync(() -> {
+                hotelRepository.saveAll(partition);
+                hotelsLoaded.addAndGet(partition.size());
+            }, loaders));
+        }
+        CompletableFuture<Void> hotels = CompletableFuture.allOf(partitions.toArray(new CompletableFuture[0]))
+                .thenRun(() -> timeline.record(StartupTimeline.IMPORT_HOTELS, start));
+
+        CompletableFuture.allOf(extras, hotels).whenComplete((done, failure) -> {
+            timeline.record(StartupTimeline.IMPORT, start);
+            timeline.reached(StartupTimeline.DATA_LOADED);
+            if (failure == null) {
+                log.info("Loaded start up data, {} hotels", hotelsLoaded.get());
+                loaded.complete(null);
+            } else {
+                log.error("Failed to load start up data", failure);
+                loaded.completeExceptionally(failure);
+            }
+        });
+    }
+
+    /**
+     * @return Up to {@code threads} partitions, dealt out in turn so they are of about the same size.
+     */
+    private List<List<Hotel>> partition(List<Hotel> hotels) {
+        List<List<Hotel>> partitions = new ArrayList<>();
+        for (int i = 0; i < hotels.size(); i++) {
+            if (i < threads) {
+                partitions.add(new ArrayList<>());
+            }
+            partitions.get(i % threads).add(hotels.get(i));
+        }
+        return partitions;
+    }
+
+    private List<Extra> extras() {
+        return List.of(
+                // basic
+                new Extra("Foxtel", Money.of("1.20"), Extra.Type.Basic, Extra.Category.General),
+                new Extra("Unlimited Internet", Money.of("2.00"), Extra.Type.Basic, Extra.Category.General),
+                new Extra("Laundry", Money.of("2.50"), Extra.Type.Basic, Extra.Category.General),
+                new Extra("Upgraded mini bar", Money.of("12.00"), Extra.Type.Basic, Extra.Category.General),
+
+                new Extra("Breakfast", Money.of("2.00"), Extra.Type.Basic, Extra.Category.Food),
+                new Extra("Lunch", Money.of("4.00"), Extra.Type.Basic, Extra.Category.Food),
+                new Extra("Dinner", Money.of("5.60"), Extra.Type.Basic, Extra.Category.Food),
+
+                // premium
+                new Extra("Foxtel", Money.of("0.20"), Extra.Type.Premium, Extra.Category.General),
+                new Extra("Upgraded mini bar", Money.of("1.50"), Extra.Type.Premium, Extra.Category.General),
+                new Extra("Massage", Money.of("6.00"), Extra.Type.Premium, Extra.Category.General),
+
+                new Extra("Breakfast", Money.of("1.50"), Extra.Type.Premium, Extra.Category.Food),
+                new Extra("Lunch", Money.of("3.20"), Extra.Type.Premium, Extra.Category.Food),
+                new Extra("Dinner", Money.of("5.00"), Extra.Type.Premium, Extra.Category.Food));
+    }
+
+    private List<Hotel> hotels() {
+        return List.of(createHotel1(), createHotel2(), createHotel3(), createHotel4(), createHotel5(),
+                createHotel6());
     }
 
-    private void createHotel1() {
+    private Hotel createHotel1() {
         LocalTime earliestCheckInTime = LocalTime.of(9, 0);
         LocalTime latestCheckInTime = LocalTime.of(20, 0);
         LocalTime earliestCheckOutTime = LocalTime.of(12, 0);
         LocalTime latestCheckOutTime = LocalTime.of(14, 0);
-        BigDecimal lateCheckoutFee = BigDecimal.valueOf(45.60);
+        Money lateCheckoutFee = Money.of("45.60");
 
         Address address = new Address("The Grand Hotel", "166 Albert Road", null,
                 State.VIC, "Melbourne", new Postcode("3000"));
@@ -78,25 +175,25 @@ public class DataImporter {
                 latestCheckOutTime,
                 lateCheckoutFee);
 
-        Room room1 = new Room("G1", RoomType.Economy, 1, BigDecimal.valueOf(65.12));
-        Room room2 = new Room("G2", RoomType.Business, 2, BigDecimal.valueOf(105.45));
-        Room room3 = new Room("G3", RoomType.Luxury, 4, BigDecimal.valueOf(205.66));
-        Room room4 = new Room("G4", RoomType.Economy, 2, BigDecimal.valueOf(35.40));
+        Room room1 = new Room("G1", RoomType.Economy, 1, Money.of("65.12"));
+        Room room2 = new Room("G2", RoomType.Business, 2, Money.of("105.45"));
+        Room room3 = new Room("G3", RoomType.Luxury, 4, Money.of("205.66"));
+        Room room4 = new Room("G4", RoomType.Economy, 2, Money.of("35.40"));
 
         grandHotel.addRoom(room1);
         grandHotel.addRoom(room2);
         grandHotel.addRoom(room3);
         grandHotel.addRoom(room4);
 
-        hotelRepository.save(grandHotel);
+        return grandHotel;
     }
 
-    private void createHotel2() {
+    private Hotel createHotel2() {
         LocalTime earliestCheckInTime = LocalTime.of(8, 0);
         LocalTime latestCheckInTime = LocalTime.of(19, 0);
         LocalTime earliestCheckOutTime = LocalTime.of(13, 0);
         LocalTime latestCheckOutTime = LocalTime.of(15, 0);
-        BigDecimal lateCheckoutFee = BigDecimal.valueOf(29.40);
+        Money lateCheckoutFee = Money.of("29.40");
 
         Address address2 = new Address("Glen Iris", "99A Glen Road", null,
                 State.VIC, "Glen Waverley", new Postcode("3150"));
@@ -108,25 +205,25 @@ public class DataImporter {
                 latestCheckOutTime,
                 lateCheckoutFee);
 
-        Room room1 = new Room("H1", RoomType.Economy, 5, BigDecimal.valueOf(85.12));
-        Room room2 = new Room("H2", RoomType.Business, 2, BigDecimal.valueOf(105.45));
-        Room room3 = new Room("H3", RoomType.Luxury, 4, BigDecimal.valueOf(205.66));
-        Room room4 = new Room("H4", RoomType.Economy, 2, BigDecimal.valueOf(35.40));
+        Room room1 = new Room("H1", RoomType.Economy, 5, Money.of("85.12"));
+        Room room2 = new Room("H2", RoomType.Business, 2, Money.of("105.45"));
+        Room room3 = new Room("H3", RoomType.Luxury, 4, Money.of("205.66"));
+        Room room4 = new Room("H4", RoomType.Economy, 2, Money.of("35.40"));
 
         hotel.addRoom(room1);
         hotel.addRoom(room2);
         hotel.addRoom(room3);
         hotel.addRoom(room4);
 
-        hotelRepository.save(hotel);
+        return hotel;
     }
 
-    private void createHotel3() {
+    private Hotel createHotel3() {
         LocalTime earliestCheckInTime = LocalTime.of(9, 0);
         LocalTime latestCheckInTime = LocalTime.of(20, 0);
         LocalTime earliestCheckOutTime = LocalTime.of(12, 0);
         LocalTime latestCheckOutTime = LocalTime.of(14, 0);
-        BigDecimal lateCheckoutFee = BigDecimal.valueOf(45.60);
+        Money lateCheckoutFee = Money.of("45.60");
 
         Address address = new Address("Cevello Blanca", "2 smith street", null,
                 State.VIC, "Carlton", new Postcode("3053"));
@@ -138,25 +235,25 @@ public class DataImporter {
                 latestCheckOutTime,
                 lateCheckoutFee);
 
-        Room room1 = new Room("C1", RoomType.Economy, 4, BigDecimal.valueOf(65.12));
-        Room room2 = new Room("C2", RoomType.Business, 4, BigDecimal.valueOf(105.45));
-        Room room3 = new Room("C3", RoomType.Luxury, 4, BigDecimal.valueOf(205.66));
-        Room room4 = new Room("C4", RoomType.Economy, 1, BigDecimal.valueOf(35.40));
+        Room room1 = new Room("C1", RoomType.Economy, 4, Money.of("65.12"));
+        Room room2 = new Room("C2", RoomType.Business, 4, Money.of("105.45"));
+        Room room3 = new Room("C3", RoomType.Luxury, 4, Money.of("205.66"));
+        Room room4 = new Room("C4", RoomType.Economy, 1, Money.of("35.40"));
 
         hotel.addRoom(room1);
         hotel.addRoom(room2);
         hotel.addRoom(room3);
         hotel.addRoom(room4);
 
-        hotelRepository.save(hotel);
+        return hotel;
     }
 
-    private void createHotel4() {
+    private Hotel createHotel4() {
         LocalTime earliestCheckInTime = LocalTime.of(9, 0);
         LocalTime latestCheckInTime = LocalTime.of(20, 0);
         LocalTime earliestCheckOutTime = LocalTime.of(12, 0);
         LocalTime latestCheckOutTime = LocalTime.of(14, 0);
-        BigDecimal lateCheckoutFee = BigDecimal.valueOf(45.60);
+        Money lateCheckoutFee = Money.of("45.60");
 
         Address address = new Address("Bravo", "7 apple avenue", null,
                 State.VIC, "Docklands", new Postcode("3008"));
@@ -168,25 +265,25 @@ public class DataImporter {
                 latestCheckOutTime,
                 lateCheckoutFee);
 
-        Room room1 = new Room("B1", RoomType.Economy, 4, BigDecimal.valueOf(35.12));
-        Room room2 = new Room("B2", RoomType.Business, 5, BigDecimal.valueOf(115.35));
-        Room room3 = new Room("B3", RoomType.Luxury, 4, BigDecimal.valueOf(215.36));
-        Room room4 = new Room("B4", RoomType.Economy, 2, BigDecimal.valueOf(135.40));
+        Room room1 = new Room("B1", RoomType.Economy, 4, Money.of("35.12"));
+        Room room2 = new Room("B2", RoomType.Business, 5, Money.of("115.35"));
+        Room room3 = new Room("B3", RoomType.Luxury, 4, Money.of("215.36"));
+        Room room4 = new Room("B4", RoomType.Economy, 2, Money.of("135.40"));
 
         hotel.addRoom(room1);
         hotel.addRoom(room2);
         hotel.addRoom(room3);
         hotel.addRoom(room4);
 
-        hotelRepository.save(hotel);
+        return hotel;
     }
 
-    private void createHotel5() {
+    private Hotel createHotel5() {
         LocalTime earliestCheckInTime = LocalTime.of(9, 0);
         LocalTime latestCheckInTime = LocalTime.of(20, 0);
         LocalTime earliestCheckOutTime = LocalTime.of(12, 0);
         LocalTime latestCheckOutTime = LocalTime.of(14, 0);
-        BigDecimal lateCheckoutFee = BigDecimal.valueOf(45.60);
+        Money lateCheckoutFee = Money.of("45.60");
 
         Address address = new Address("Zamza", "7 zamza avenue", null,
                 State.VIC, "Melbourne", new Postcode("3000"));
@@ -198,25 +295,25 @@ public class DataImporter {
                 latestCheckOutTime,
                 lateCheckoutFee);
 
-        Room room1 = new Room("Z1", RoomType.Economy, 4, BigDecimal.valueOf(35.12));
-        Room room2 = new Room("Z2", RoomType.Economy, 5, BigDecimal.valueOf(115.35));
-        Room room3 = new Room("Z3", RoomType.Luxury, 4, BigDecimal.valueOf(215.36));
-        Room room4 = new Room("Z4", RoomType.Economy, 2, BigDecimal.valueOf(135.40));
+        Room room1 = new Room("Z1", RoomType.Economy, 4, Money.of("35.12"));
+        Room room2 = new Room("Z2", RoomType.Economy, 5, Money.of("115.35"));
+        Room room3 = new Room("Z3", RoomType.Luxury, 4, Money.of("215.36"));
+        Room room4 = new Room("Z4", RoomType.Economy, 2, Money.of("135.40"));
 
         hotel.addRoom(room1);
         hotel.addRoom(room2);
         hotel.addRoom(room3);
         hotel.addRoom(room4);
 
-        hotelRepository.save(hotel);
+        return hotel;
     }
 
-    private void createHotel6() {
+    private Hotel createHotel6() {
         LocalTime earliestCheckInTime = LocalTime.of(9, 0);
         LocalTime latestCheckInTime = LocalTime.of(20, 0);
         LocalTime earliestCheckOutTime = LocalTime.of(12, 0);
         LocalTime latestCheckOutTime = LocalTime.of(14, 0);
-        BigDecimal lateCheckoutFee = BigDecimal.valueOf(45.60);
+        Money lateCheckoutFee = Money.of("45.60");
 
         Address address = new Address("Xavier Hotel", "7 xavier road", null,
                 State.VIC, "Melbourne", new Postcode("3000"));
@@ -228,16 +325,16 @@ public class DataImporter {
                 latestCheckOutTime,
                 lateCheckoutFee);
 
-        Room room1 = new Room("X1", RoomType.Economy, 4, BigDecimal.valueOf(13.12));
-        Room room2 = new Room("X2", RoomType.Economy, 5, BigDecimal.valueOf(94.35));
-        Room room3 = new Room("X3", RoomType.Luxury, 4, BigDecimal.valueOf(193.16));
-        Room room4 = new Room("X4", RoomType.Economy, 2, BigDecimal.valueOf(19.40));
+        Room room1 = new Room("X1", RoomType.Economy, 4, Money.of("13.12"));
+        Room room2 = new Room("X2", RoomType.Economy, 5, Money.of("94.35"));
+        Room room3 = new Room("X3", RoomType.Luxury, 4, Money.of("193.16"));
+        Room room4 = new Room("X4", RoomType.Economy, 2, Money.of("19.40"));
 
         hotel.addRoom(room1);
         hotel.addRoom(room2);
         hotel.addRoom(room3);
         hotel.addRoom(room4);
 
-        hotelRepository.save(hotel);
+        return hotel;
     }
 }
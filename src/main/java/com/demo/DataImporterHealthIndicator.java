@@ -0,0 +1,40 @@
+package com.demo;
+
+import org.springframework.boot.actuate.health.AbstractHealthIndicator;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Gates readiness on the start up data. {@code /actuator/health} is {@code OUT_OF_SERVICE}, answered with a 503,
+ * while {@code DataImporter} is still loading and {@code DOWN} if the load failed.
+ */
+@Component
+@Profile({"!test", "!integration"})
+public class DataImporterHealthIndicator extends AbstractHealthIndicator {
+    private final DataImporter dataImporter;
+
+    public DataImporterHealthIndicator(DataImporter dataImporter) {
+        this.dataImporter = dataImporter;
+    }
+
+    @Override
+    protected void doHealthCheck(Health.Builder builder) throws Exception {
+        builder.withDetail("hotels", dataImporter.getHotelsLoaded());
+        CompletableFuture<Void> loaded = dataImporter.loaded();
+        if (!loaded.isDone()) {
+            builder.outOfService();
+        } else if (loaded.isCompletedExceptionally()) {
+            try {
+                loaded.get();
+            } catch (ExecutionException e) {
+                builder.down(e.getCause());
+            }
+        } else {
+            builder.up();
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.demo.availability;
+
+import com.demo.TimeProvider;
+import com.demo.domain.QRoom;
+import com.demo.domain.Reservation;
+import com.demo.domain.ReservationDates;
+import com.demo.domain.Room;
+import com.demo.domain.RoomNight;
+import com.demo.outbox.Outbox;
+import com.demo.persistance.ListingRepository;
+import com.demo.persistance.RoomNightRepository;
+import com.demo.persistance.keyset.KeysetQueryExecutor;
+import com.demo.persistance.keyset.KeysetRequest;
+import com.demo.persistance.keyset.KeysetSlice;
+import com.demo.persistance.predicates.RoomPredicates;
+import com.demo.persistance.predicates.SortKeys;
+import com.demo.persistance.projections.RoomListing;
+import com.demo.reservation.ReservationRepository;
+import com.querydsl.core.types.Predicate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Answers which rooms are free for a date range using the {@code RoomNight} ledger and records the nights
+ * taken by a completed {@code Reservation}.
+ */
+@Service
+public class AvailabilityService {
+
+    private ListingRepository listingRepository;
+    private RoomNightRepository roomNightRepository;
+    private ReservationRepository reservationRepository;
+    private RoomStayIndex roomStayIndex;
+    private KeysetQueryExecutor keysetQueryExecutor;
+    private ApplicationEventPublisher eventPublisher;
+    private Outbox outbox;
+    private TimeProvider timeProvider;
+
+    public AvailabilityService(ListingRepository listingRepository,
+                               RoomNightRepository roomNightRepository,
+                               ReservationRepository reservationRepository,
+                               RoomStayIndex roomStayIndex,
+                               KeysetQueryExecutor keysetQueryExecutor,
+                               ApplicationEventPublisher eventPublisher,
+                               Outbox outbox,
+                               TimeProvider timeProvider) {
+        this.listingRepository = listingRepository;
+        this.roomNightRepository = roomNightRepository;
+        this.reservationRepository = reservationRepository;
+        this.roomStayIndex = roomStayIndex;
+        this.keysetQueryExecutor = keysetQueryExecutor;
+        this.eventPublisher = eventPublisher;
+        this.outbox = outbox;
+        this.timeProvider = timeProvider;
+    }
+
+    /**
+     * When no dates are supplied the search defaults to tonight. A missing check out date defaults to a 1 night
+     * stay from check in.
+     *
+     * @return The page of rooms in the hotel that have no booked nights within {@code [checkIn, checkOut)}.
+     */
+    public Page<RoomListing> findAvailableRooms(Long hotelId, LocalDate checkIn, LocalDate checkOut,
+                                                Pageable pageable) {
+        return listingRepository.findRooms(availableRoom(hotelId, checkIn, checkOut), pageable);
+    }
+
+    /**
+     * Keyset paged alternative of {@link #findAvailableRooms(Long, LocalDate, LocalDate, Pageable)} with the same
+     * date defaults.
+     */
+    public KeysetSlice<RoomListing> findAvailableRooms(Long hotelId, LocalDate checkIn, LocalDate checkOut,
+                                                       KeysetRequest request) {
+        return keysetQueryExecutor.find(QRoom.room, RoomListing.PROJECTION, availableRoom(hotelId, checkIn, checkOut),
+                SortKeys.ROOMS, request);
+    }
+
+    private Predicate availableRoom(Long hotelId, LocalDate checkIn, LocalDate checkOut) {
+        LocalDate from = checkIn == null ? timeProvider.localDate() : checkIn;
+        LocalDate to = checkOut == null || !checkOut.isAfter(from) ? from.plusDays(1) : checkOut;
+        return RoomPredicates.availableRoom(hotelId, from, to);
+    }
+
+    /**
+     * Answered from the in memory {@code RoomStayIndex}, falling back to the room night ledger while the index is
+     * still being built.
+     *
+     * @return {@code true} if any night within the supplied dates has already been booked for the room.
+     */
+    public boolean hasBookedNights(Long roomId, ReservationDates dates) {
+        if (dates.totalNights() < 1) {
+            return false;
+        }
+        LocalDate checkIn = dates.getCheckInDate();
+        LocalDate checkOut = dates.getCheckOutDate();
+        return roomStayIndex.overlaps(roomId, checkIn, checkOut)
+                .orElseGet(() -> roomNightRepository.existsBookedNight(roomId, checkIn, checkOut));
+    }
+
+    /**
+     * Persists the {@code Reservation} and writes a {@code RoomNight} for each night of the stay in the same
+     * transaction. If another booking has taken any of the nights in the meantime, the unique room night
+     * constraint rejects the whole transaction.
+     *
+     * <p>A {@code RoomBookedEvent} is published so in memory views are updated once the transaction commits. The
+     * booking is also written to the outbox within the transaction for delivery to downstream systems.</p>
+     *
+     * <p>Nothing is queried once the reservation is persisted, so all of its rows are flushed together at commit and
+     * written in a jdbc batch per table. A query in between would flush early and split the batches.</p>
+     *
+     * @return The persisted {@code Reservation}.
+     */
+    @Transactional
+    public Reservation book(Reservation reservation) {
+        Reservation saved = reservationRepository.save(reservation);
+
+        List<RoomNight> nights = saved.getDates().nights().stream()
+                .map(night -> new RoomNight(saved.getRoom(), night, saved))
+                .collect(Collectors.toList());
+        roomNightRepository.saveAll(nights);
+
+        Room room = saved.getRoom();
+        eventPublisher.publishEvent(new RoomBookedEvent(saved.getReservationId(), room.getId(),
+                room.getHotel().getId(), saved.getDates().getCheckInDate(), saved.getDates().getCheckOutDate()));
+        outbox.bookingConfirmed(saved);
+        return saved;
+    }
+}
@@ -0,0 +1,192 @@
+package com.demo.availability;
+
+import com.demo.domain.Reservation;
+import com.demo.domain.Room;
+import com.demo.exceptions.BookingConflictException;
+import com.demo.persistance.RoomNightRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceException;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Commits a paid {@code Reservation} so that concurrent payments for the same room resolve to exactly one booking.
+ *
+ * <p>Each attempt runs in its own transaction and first claims the room by reading it with
+ * {@code PESSIMISTIC_FORCE_INCREMENT}, which locks the row and increments its {@code @Version} through the managed
+ * entity straight away. A concurrent commit of the same room waits for the claim and then checks the room night
+ * ledger, so if the winning commit took any of the same nights it is rejected with a
+ * {@code BookingConflictException} instead of an opaque persistence error. A commit that cannot take the claim at all
+ * has not written anything yet so it is safe to retry after a short backoff.</p>
+ *
+ * <p>Unlike a bulk update, which drops the whole {@code room} region, only the entry of the booked room is evicted
+ * from the second level cache.</p>
+ *
+ * <p>Conflicts are counted per hotel under {@code booking.conflicts} and the final outcome of each commit under
+ * {@code booking.commits} so the conflict rate of a hotel is the ratio of the two.</p>
+ */
+@Service
+public class BookingService {
+    private static final Logger log = LoggerFactory.getLogger(BookingService.class);
+
+    // H2 reports a row updated by another open transaction with its own error code which hibernate does not map.
+    private static final int H2_CONCURRENT_UPDATE = 90131;
+    private static final String SERIALIZATION_FAILURE = "40001";
+
+    private final AvailabilityService availabilityService;
+    private final EntityManager entityManager;
+    private final RoomNightRepository roomNightRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long backoffMillis;
+
+    public BookingService(AvailabilityService availabilityService,
+                          EntityManager entityManager,
+                          RoomNightRepository roomNightRepository,
+                          PlatformTransactionManager transactionManager,
+                          MeterRegistry meterRegistry,
+                          @Value("${booking.max-attempts:4}") int maxAttempts,
+                          @Value("${booking.backoff-millis:20}") long backoffMillis) {
+        this.availabilityService = availabilityService;
+        this.entityManager = entityManager;
+        this.roomNightRepository = roomNightRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.backoffMillis = backoffMillis;
+    }
+
+    /**
+     * @return The persisted {@code Reservation}, which is not necessarily the argument. An attempt rolled back after
+     * writing may have left ids and a version on the argument, so use the returned instance once booked.
+     * @throws BookingConflictException If the nights are no longer free or the room stayed contended for every
+     *                                  attempt.
+     */
+    public Reservation book(Reservation reservation) {
+        String hotel = hotelTag(reservation.getRoom());
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Reservation booked = transactionTemplate.execute(status -> commit(reservation));
+                evictRoom(reservation.getRoom().getId());
+                outcome(hotel, "booked");
+                return booked;
+            } catch (BookingConflictException e) {
+                outcome(hotel, "rejected");
+                throw e;
+            } catch (DataIntegrityViolationException e) {
+                // the unique room night constraint caught a booking that bypassed the room claim
+                conflict(hotel);
+                outcome(hotel, "rejected");
+                throw new BookingConflictException("Some of the selected nights have just been booked", e);
+            } catch (DataAccessException e) {
+                if (!isConcurrentUpdate(e)) {
+                    throw e;
+                }
+                conflict(hotel);
+                if (attempt >= maxAttempts) {
+                    outcome(hotel, "contended");
+                    throw new BookingConflictException("The room is being booked by another guest, please try again",
+                            e);
+                }
+                log.debug("Room {} claimed by another booking, retrying attempt {}", reservation.getRoom().getId(),
+                        attempt + 1);
+                backoff(attempt);
+            }
+        }
+    }
+
+    private Reservation commit(Reservation reservation) {
+        Long roomId = reservation.getRoom().getId();
+        LocalDate checkIn = reservation.getDates().getCheckInDate();
+        LocalDate checkOut = reservation.getDates().getCheckOutDate();
+
+        if (claim(roomId) == null) {
+            throw new BookingConflictException("The room is no longer available");
+        }
+        if (roomNightRepository.existsBookedNight(roomId, checkIn, checkOut)) {
+            conflict(hotelTag(reservation.getRoom()));
+            throw new BookingConflictException("Some of the selected nights have just been booked");
+        }
+        return availabilityService.book(reservation);
+    }
+
+    /**
+     * Locked reads skip the room region so the claim is always on the current version. Calls on the entity manager
+     * are not translated by spring, so a failed claim is translated here for {@link #isConcurrentUpdate} to see.
+     *
+     * @return The claimed room, or {@code null} if it no longer exists.
+     */
+    private Room claim(Long roomId) {
+        try {
+            return entityManager.find(Room.class, roomId, LockModeType.PESSIMISTIC_FORCE_INCREMENT);
+        } catch (PersistenceException e) {
+            DataAccessException translated = EntityManagerFactoryUtils.convertJpaAccessExceptionIfPossible(e);
+            throw translated == null ? e : translated;
+        }
+    }
+
+    /**
+     * The forced increment is written to the row without going through the region, so the now stale entry of the
+     * booked room is dropped. Every other room stays cached.
+     */
+    private void evictRoom(Long roomId) {
+        entityManager.getEntityManagerFactory().getCache().evict(Room.class, roomId);
+    }
+
+    private static boolean isConcurrentUpdate(DataAccessException e) {
+        if (e instanceof ConcurrencyFailureException) {
+            return true;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                SQLException sqlException = (SQLException) cause;
+                if (sqlException.getErrorCode() == H2_CONCURRENT_UPDATE
+                        || SERIALIZATION_FAILURE.equals(sqlException.getSQLState())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Exponential backoff with jitter so contending commits do not retry in lock step.
+     */
+    private void backoff(int attempt) {
+        long ceiling = backoffMillis << (attempt - 1);
+        try {
+            Thread.sleep(ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BookingConflictException("Interrupted while waiting to retry the booking", e);
+        }
+    }
+
+    private void conflict(String hotel) {
+        meterRegistry.counter("booking.conflicts", "hotel", hotel).increment();
+    }
+
+    private void outcome(String hotel, String outcome) {
+        meterRegistry.counter("booking.commits", "hotel", hotel, "outcome", outcome).increment();
+    }
+
+    private static String hotelTag(Room room) {
+        return room.getHotel() == null ? "none" : String.valueOf(room.getHotel().getId());
+    }
+}
@@ -0,0 +1,59 @@
+package com.demo.availability;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Published once a {@code Reservation} and its room nights have been written. Listeners that keep in memory views
+ * of availability should react after the transaction commits.
+ */
+public class RoomBookedEvent {
+    private final UUID reservationId;
+    private final Long roomId;
+    private final Long hotelId;
+    private final LocalDate checkIn;
+    private final LocalDate checkOut;
+
+    public RoomBookedEvent(UUID reservationId, Long roomId, Long hotelId, LocalDate checkIn, LocalDate checkOut) {
+        this.reservationId = reservationId;
+        this.roomId = roomId;
+        this.hotelId = hotelId;
+        this.checkIn = checkIn;
+        this.checkOut = checkOut;
+    }
+
+    public UUID getReservationId() {
+        return reservationId;
+    }
+
+    public Long getRoomId() {
+        return roomId;
+    }
+
+    public Long getHotelId() {
+        return hotelId;
+    }
+
+    public LocalDate getCheckIn() {
+        return checkIn;
+    }
+
+    public LocalDate getCheckOut() {
+        return checkOut;
+    }
+
+    public RoomStay toRoomStay() {
+        return new RoomStay(roomId, checkIn, checkOut);
+    }
+
+    @Override
+    public String toString() {
+        return "RoomBookedEvent{" +
+                "reservationId=" + reservationId +
+                ", roomId=" + roomId +
+                ", hotelId=" + hotelId +
+                ", checkIn=" + checkIn +
+                ", checkOut=" + checkOut +
+                '}';
+    }
+}
@@ -0,0 +1,272 @@
+package com.demo.availability;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Temporarily holds a room for a date range while a guest works through the reservation flow so two guests cannot
+ * both reach payment for the same nights.
+ *
+ * <p>Holds are bucketed by room id in a {@code ConcurrentHashMap}. Every change to the hold of a flow runs under the
+ * lock of that flow's entry, so a double submitted form cannot leave a hold behind that only its room knows about.
+ * Acquiring a hold then only locks the bucket of its room, so flows for different rooms never contend, and keeping a
+ * hold alive takes no lock but that of its own flow.</p>
+ *
+ * <p>A background sweeper releases holds whose flow has been idle for longer than the hold ttl.</p>
+ */
+@Service
+public class RoomHoldService {
+
+    private final Map<Long, List<RoomHold>> holdsByRoom = new ConcurrentHashMap<>();
+    private final Map<UUID, RoomHold> holdsByHolder = new ConcurrentHashMap<>();
+
+    private final Duration ttl;
+    private final Duration sweepInterval;
+    private final Clock clock;
+
+    private final Counter held;
+    private final Counter rejected;
+    private final Counter expired;
+    private final Counter converted;
+    private final Counter released;
+
+    private ScheduledExecutorService sweeper;
+
+    @Autowired
+    public RoomHoldService(@Value("${reservation.hold.ttl-seconds:900}") long ttlSeconds,
+                           @Value("${reservation.hold.sweep-interval-seconds:30}") long sweepIntervalSeconds,
+                           MeterRegistry meterRegistry) {
+        this(Duration.ofSeconds(ttlSeconds), Duration.ofSeconds(sweepIntervalSeconds), meterRegistry,
+                Clock.systemUTC());
+    }
+
+    /**
+     * @param clock Decides when holds expire, a fixed or adjustable clock lets a hold be expired on demand.
+     */
+    public RoomHoldService(Duration ttl, Duration sweepInterval, MeterRegistry meterRegistry, Clock clock) {
+        this.ttl = ttl;
+        this.sweepInterval = sweepInterval;
+        this.clock = clock;
+        this.held = meterRegistry.counter("reservation.holds", "outcome", "held");
+        this.rejected = meterRegistry.counter("reservation.holds", "outcome", "rejected");
+        this.expired = meterRegistry.counter("reservation.holds", "outcome", "expired");
+        this.converted = meterRegistry.counter("reservation.holds", "outcome", "converted");
+        this.released = meterRegistry.counter("reservation.holds", "outcome", "released");
+        Gauge.builder("reservation.holds.active", holdsByHolder, Map::size).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "room-hold-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = sweepInterval.toMillis();
+        sweeper.scheduleWithFixedDelay(this::sweep, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    /**
+     * Acquires a hold on the room for {@code [checkIn, checkOut)}. Any hold the holder already has is replaced, which
+     * covers a guest going back and changing their dates or room.
+     *
+     * @param holderId Identifies the flow, the {@code Reservation.reservationId} is used.
+     * @return {@code true} if the hold was acquired, {@code false} if another holder has any of the nights.
+     */
+    public boolean tryHold(Long roomId, UUID holderId, LocalDate checkIn, LocalDate checkOut) {
+        RoomHold candidate = new RoomHold(roomId, holderId, checkIn.toEpochDay(), checkOut.toEpochDay(),
+                expiryFromNow());
+        boolean[] acquired = {false};
+        holdsByHolder.compute(holderId, (id, previous) -> {
+            acquired[0] = acquire(candidate, previous);
+            if (!acquired[0]) {
+                // a rejected change of dates keeps the nights already held
+                return previous;
+            }
+            if (previous != null && !previous.getRoomId().equals(roomId)) {
+                removeFromRoom(previous);
+            }
+            return candidate;
+        });
+
+        if (acquired[0]) {
+            held.increment();
+        } else {
+            rejected.increment();
+        }
+        return acquired[0];
+    }
+
+    /**
+     * Adds the candidate to its room unless another holder has any of its nights. The previous hold of the same holder
+     * does not conflict and is swapped out in the same step if it is on this room.
+     */
+    private boolean acquire(RoomHold candidate, RoomHold previous) {
+        boolean[] acquired = {false};
+        holdsByRoom.compute(candidate.getRoomId(), (id, holds) -> {
+            List<RoomHold> current = holds == null ? new ArrayList<>() : holds;
+            long now = clock.millis();
+            boolean conflict = current.stream()
+                    .anyMatch(hold -> !hold.getHolderId().equals(candidate.getHolderId())
+                            && !hold.isExpired(now) && hold.overlaps(candidate));
+            if (!conflict) {
+                current.remove(previous);
+                current.add(candidate);
+                acquired[0] = true;
+            }
+            return current.isEmpty() ? null : current;
+        });
+        return acquired[0];
+    }
+
+    /**
+     * Extends the hold on flow activity. If the hold has already expired, an attempt is made to acquire it again.
+     *
+     * @return {@code true} if the holder still holds the room afterwards.
+     */
+    public boolean keepAlive(Long roomId, UUID holderId, LocalDate checkIn, LocalDate checkOut) {
+        boolean[] kept = {false};
+        // under the lock of the holder so the sweeper cannot remove the hold as it is being extended
+        holdsByHolder.computeIfPresent(holderId, (id, hold) -> {
+            if (!hold.isExpired(clock.millis()) && hold.matches(roomId, checkIn.toEpochDay(), checkOut.toEpochDay())) {
+                hold.extendUntil(expiryFromNow());
+                kept[0] = true;
+            }
+            return hold;
+        });
+        return kept[0] || tryHold(roomId, holderId, checkIn, checkOut);
+    }
+
+    /**
+     * Called once the reservation has been paid for and persisted, the booking itself now blocks the nights.
+     */
+    public void convert(UUID holderId) {
+        if (remove(holderId) != null) {
+            converted.increment();
+        }
+    }
+
+    /**
+     * Called when the guest abandons the flow.
+     */
+    public void release(UUID holderId) {
+        if (remove(holderId) != null) {
+            released.increment();
+        }
+    }
+
+    /**
+     * Removes every hold whose flow has been idle longer than the ttl. Each hold is checked again under the lock of
+     * its holder, so one kept alive since it was found expired stays. Expired holds left on a room without a holder
+     * pointing at them are then purged from the rooms directly.
+     */
+    void sweep() {
+        for (UUID holderId : holdsByHolder.keySet()) {
+            holdsByHolder.computeIfPresent(holderId, (id, hold) -> {
+                if (!hold.isExpired(clock.millis())) {
+                    return hold;
+                }
+                removeFromRoom(hold);
+                expired.increment();
+                return null;
+            });
+        }
+        for (Long roomId : holdsByRoom.keySet()) {
+            holdsByRoom.computeIfPresent(roomId, (id, holds) -> {
+                long now = clock.millis();
+                holds.removeIf(hold -> hold.isExpired(now) && holdsByHolder.get(hold.getHolderId()) != hold);
+                return holds.isEmpty() ? null : holds;
+            });
+        }
+    }
+
+    public int activeHolds() {
+        return holdsByHolder.size();
+    }
+
+    private RoomHold remove(UUID holderId) {
+        RoomHold[] removed = {null};
+        holdsByHolder.computeIfPresent(holderId, (id, hold) -> {
+            removeFromRoom(hold);
+            removed[0] = hold;
+            return null;
+        });
+        return removed[0];
+    }
+
+    private void removeFromRoom(RoomHold hold) {
+        holdsByRoom.computeIfPresent(hold.getRoomId(), (id, holds) -> {
+            holds.remove(hold);
+            return holds.isEmpty() ? null : holds;
+        });
+    }
+
+    private long expiryFromNow() {
+        return clock.millis() + ttl.toMillis();
+    }
+
+    static class RoomHold {
+        private final Long roomId;
+        private final UUID holderId;
+        private final long checkIn;
+        private final long checkOut;
+        private volatile long expiresAtMillis;
+
+        RoomHold(Long roomId, UUID holderId, long checkIn, long checkOut, long expiresAtMillis) {
+            this.roomId = roomId;
+            this.holderId = holderId;
+            this.checkIn = checkIn;
+            this.checkOut = checkOut;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        Long getRoomId() {
+            return roomId;
+        }
+
+        UUID getHolderId() {
+            return holderId;
+        }
+
+        boolean overlaps(RoomHold other) {
+            return checkIn < other.checkOut && other.checkIn < checkOut;
+        }
+
+        boolean matches(Long roomId, long checkIn, long checkOut) {
+            return this.roomId.equals(roomId) && this.checkIn == checkIn && this.checkOut == checkOut;
+        }
+
+        boolean isExpired(long nowMillis) {
+            return nowMillis >= expiresAtMillis;
+        }
+
+        void extendUntil(long expiresAtMillis) {
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.demo.availability;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * The nights {@code [checkIn, checkOut)} a room is occupied by a single reservation. Loaded through a JPQL
+ * constructor expression so building the index does not materialize full {@code Reservation} graphs.
+ */
+public class RoomStay {
+    private final Long roomId;
+    private final LocalDate checkIn;
+    private final LocalDate checkOut;
+
+    public RoomStay(Long roomId, LocalDate checkIn, LocalDate checkOut) {
+        this.roomId = roomId;
+        this.checkIn = checkIn;
+        this.checkOut = checkOut;
+    }
+
+    public Long getRoomId() {
+        return roomId;
+    }
+
+    public LocalDate getCheckIn() {
+        return checkIn;
+    }
+
+    public LocalDate getCheckOut() {
+        return checkOut;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RoomStay roomStay = (RoomStay) o;
+        return Objects.equals(roomId, roomStay.roomId) &&
+                Objects.equals(checkIn, roomStay.checkIn) &&
+                Objects.equals(checkOut, roomStay.checkOut);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(roomId, checkIn, checkOut);
+    }
+
+    @Override
+    public String toString() {
+        return "RoomStay{" +
+                "roomId=" + roomId +
+                ", checkIn=" + checkIn +
+                ", checkOut=" + checkOut +
+                '}';
+    }
+}
@@ -0,0 +1,198 @@
+package com.demo.availability;
+
+import com.demo.reservation.ReservationRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In process index of every room's booked stays so date range overlap checks are answered in {@code O(log n)} per
+ * room without a database round trip.
+ *
+ * <p>The index is built from {@code ReservationRepository} once the application is ready and updated after each
+ * booking commits. Until the first build completes, lookups report a miss and callers fall back to the database.</p>
+ *
+ * <p>Bookings that commit while a rebuild is loading from the database are queued and replayed onto the rebuilt
+ * index before it is published, so no booking is lost between the load and the swap.</p>
+ */
+@Component
+public class RoomStayIndex {
+    private static final Logger log = LoggerFactory.getLogger(RoomStayIndex.class);
+
+    private final ReservationRepository reservationRepository;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer rebuildTimer;
+
+    private final ReentrantLock rebuildMutex = new ReentrantLock();
+    private final Object publishLock = new Object();
+    private final List<RoomStay> addedDuringRebuild = new ArrayList<>();
+    private boolean rebuilding = false;
+
+    private volatile Map<Long, StaySchedule> schedules = new ConcurrentHashMap<>();
+    private volatile boolean ready = false;
+
+    public RoomStayIndex(ReservationRepository reservationRepository, MeterRegistry meterRegistry) {
+        this.reservationRepository = reservationRepository;
+        this.hits = meterRegistry.counter("availability.index.lookups", "result", "hit");
+        this.misses = meterRegistry.counter("availability.index.lookups", "result", "miss");
+        this.rebuildTimer = meterRegistry.timer("availability.index.rebuild");
+        Gauge.builder("availability.index.rooms", this, index -> index.schedules.size())
+                .register(meterRegistry);
+        Gauge.builder("availability.index.stays", this, RoomStayIndex::totalStays)
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @TransactionalEventListener
+    public void onRoomBooked(RoomBookedEvent event) {
+        add(event.toRoomStay());
+    }
+
+    /**
+     * @return Empty if the index is not ready, otherwise whether any night within {@code [checkIn, checkOut)}
+     * is booked for the room.
+     */
+    public Optional<Boolean> overlaps(Long roomId, LocalDate checkIn, LocalDate checkOut) {
+        if (!ready) {
+            misses.increment();
+            return Optional.empty();
+        }
+        hits.increment();
+        StaySchedule schedule = schedules.getOrDefault(roomId, StaySchedule.EMPTY);
+        return Optional.of(schedule.overlaps(checkIn.toEpochDay(), checkOut.toEpochDay()));
+    }
+
+    public void add(RoomStay stay) {
+        synchronized (publishLock) {
+            apply(schedules, stay);
+            if (rebuilding) {
+                addedDuringRebuild.add(stay);
+            }
+        }
+    }
+
+    /**
+     * Reloads every stay from the database and atomically publishes the new index. Concurrent rebuild requests
+     * are serialized.
+     */
+    public void rebuild() {
+        rebuildMutex.lock();
+        try {
+            long start = System.nanoTime();
+            synchronized (publishLock) {
+                rebuilding = true;
+                addedDuringRebuild.clear();
+            }
+
+            Map<Long, StaySchedule> rebuilt = build(reservationRepository.findAllStays());
+
+            synchronized (publishLock) {
+                addedDuringRebuild.forEach(stay -> apply(rebuilt, stay));
+                addedDuringRebuild.clear();
+                rebuilding = false;
+                schedules = rebuilt;
+                ready = true;
+            }
+
+            long elapsed = System.nanoTime() - start;
+            rebuildTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            log.info("Rebuilt room stay index with {} rooms in {} ms",
+                    rebuilt.size(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+        } finally {
+            rebuildMutex.unlock();
+        }
+    }
+
+    /**
+     * Compares the index against a fresh load from the database. Bookings committing while the check runs can show
+     * up as transient differences, so a mismatch is only meaningful if it persists across checks.
+     */
+    public ConsistencyReport verify() {
+        Map<Long, StaySchedule> expected = build(reservationRepository.findAllStays());
+        Map<Long, StaySchedule> actual = schedules;
+
+        Set<Long> roomIds = new TreeSet<>(expected.keySet());
+        roomIds.addAll(actual.keySet());
+
+        List<Long> mismatchedRoomIds = new ArrayList<>();
+        for (Long roomId : roomIds) {
+            StaySchedule expectedSchedule = expected.getOrDefault(roomId, StaySchedule.EMPTY);
+            StaySchedule actualSchedule = actual.getOrDefault(roomId, StaySchedule.EMPTY);
+            if (!expectedSchedule.equals(actualSchedule)) {
+                mismatchedRoomIds.add(roomId);
+            }
+        }
+        return new ConsistencyReport(ready, roomIds.size(), mismatchedRoomIds);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private int totalStays() {
+        return schedules.values().stream().mapToInt(StaySchedule::size).sum();
+    }
+
+    private static Map<Long, StaySchedule> build(List<RoomStay> stays) {
+        Map<Long, StaySchedule> result = new ConcurrentHashMap<>();
+        stays.forEach(stay -> apply(result, stay));
+        return result;
+    }
+
+    private static void apply(Map<Long, StaySchedule> target, RoomStay stay) {
+        try {
+            target.compute(stay.getRoomId(), (roomId, schedule) ->
+                    (schedule == null ? StaySchedule.EMPTY : schedule)
+                            .with(stay.getCheckIn().toEpochDay(), stay.getCheckOut().toEpochDay()));
+        } catch (IllegalArgumentException e) {
+            log.warn("Ignoring {} which overlaps an existing stay", stay);
+        }
+    }
+
+    public static class ConsistencyReport {
+        private final boolean ready;
+        private final int roomsChecked;
+        private final List<Long> mismatchedRoomIds;
+
+        public ConsistencyReport(boolean ready, int roomsChecked, List<Long> mismatchedRoomIds) {
+            this.ready = ready;
+            this.roomsChecked = roomsChecked;
+            this.mismatchedRoomIds = mismatchedRoomIds;
+        }
+
+        public boolean isReady() {
+            return ready;
+        }
+
+        public int getRoomsChecked() {
+            return roomsChecked;
+        }
+
+        public List<Long> getMismatchedRoomIds() {
+            return mismatchedRoomIds;
+        }
+
+        public boolean isConsistent() {
+            return mismatchedRoomIds.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.demo.availability;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code GET /actuator/roomstays} checks the {@code RoomStayIndex} against the database.
+ * {@code POST /actuator/roomstays} rebuilds it.
+ */
+@Component
+@Endpoint(id = "roomstays")
+public class RoomStayIndexEndpoint {
+
+    private RoomStayIndex roomStayIndex;
+
+    public RoomStayIndexEndpoint(RoomStayIndex roomStayIndex) {
+        this.roomStayIndex = roomStayIndex;
+    }
+
+    @ReadOperation
+    public RoomStayIndex.ConsistencyReport verify() {
+        return roomStayIndex.verify();
+    }
+
+    @WriteOperation
+    public RoomStayIndex.ConsistencyReport rebuild() {
+        roomStayIndex.rebuild();
+        return roomStayIndex.verify();
+    }
+}
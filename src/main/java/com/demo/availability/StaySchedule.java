@@ -0,0 +1,96 @@
+package com.demo.availability;
+
+import java.util.Arrays;
+
+/**
+ * Immutable schedule of the non overlapping stays of a single room stored as parallel sorted arrays of epoch days.
+ *
+ * <p>Since stays never overlap, sorting by check in also sorts by check out. An overlap query only needs to look at
+ * the last stay that starts before the requested check out, which is found by binary search in {@code O(log n)}.</p>
+ *
+ * <p>Adding a stay copies the arrays which is fine given bookings are rare compared to availability lookups.</p>
+ */
+final class StaySchedule {
+    static final StaySchedule EMPTY = new StaySchedule(new long[0], new long[0]);
+
+    private final long[] checkIns;
+    private final long[] checkOuts;
+
+    private StaySchedule(long[] checkIns, long[] checkOuts) {
+        this.checkIns = checkIns;
+        this.checkOuts = checkOuts;
+    }
+
+    /**
+     * @param checkIn  Epoch day of the first night.
+     * @param checkOut Epoch day of check out, exclusive.
+     * @return {@code true} if any stay occupies a night within {@code [checkIn, checkOut)}.
+     */
+    boolean overlaps(long checkIn, long checkOut) {
+        int i = lastStartingBefore(checkOut);
+        return i >= 0 && checkOuts[i] > checkIn;
+    }
+
+    /**
+     * Returns a new schedule containing the stay. Adding a stay that is already present returns this schedule so
+     * replaying the same booking is harmless.
+     *
+     * @throws IllegalArgumentException if the stay overlaps a different stay already in the schedule.
+     */
+    StaySchedule with(long checkIn, long checkOut) {
+        int i = lastStartingBefore(checkOut);
+        if (i >= 0 && checkIns[i] == checkIn && checkOuts[i] == checkOut) {
+            return this;
+        }
+        if (i >= 0 && checkOuts[i] > checkIn) {
+            throw new IllegalArgumentException("Stay overlaps an existing stay");
+        }
+        int insertAt = i + 1;
+        long[] newCheckIns = new long[checkIns.length + 1];
+        long[] newCheckOuts = new long[checkOuts.length + 1];
+        System.arraycopy(checkIns, 0, newCheckIns, 0, insertAt);
+        System.arraycopy(checkOuts, 0, newCheckOuts, 0, insertAt);
+        newCheckIns[insertAt] = checkIn;
+        newCheckOuts[insertAt] = checkOut;
+        System.arraycopy(checkIns, insertAt, newCheckIns, insertAt + 1, checkIns.length - insertAt);
+        System.arraycopy(checkOuts, insertAt, newCheckOuts, insertAt + 1, checkOuts.length - insertAt);
+        return new StaySchedule(newCheckIns, newCheckOuts);
+    }
+
+    int size() {
+        return checkIns.length;
+    }
+
+    /**
+     * @return Index of the last stay with a check in before {@code day}, otherwise -1.
+     */
+    private int lastStartingBefore(long day) {
+        int low = 0;
+        int high = checkIns.length - 1;
+        int result = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (checkIns[mid] < day) {
+                result = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        StaySchedule that = (StaySchedule) o;
+        return Arrays.equals(checkIns, that.checkIns) &&
+                Arrays.equals(checkOuts, that.checkOuts);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(checkIns) + Arrays.hashCode(checkOuts);
+    }
+}
@@ -1,7 +1,13 @@
 package com.demo.domain;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.springframework.data.domain.DomainEvents;
+
 import javax.persistence.*;
 import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Objects;
 
@@ -11,17 +17,21 @@ import java.util.Objects;
  * <p>The {@code Category} allows the {@code Extra} concept to be used for general extras such as foxtel and food which
  * get added to meal plans.</p>
  */
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "extra")
 @Entity
 public class Extra {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "extra_seq")
+    @SequenceGenerator(name = "extra_seq", sequenceName = "extra_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
     private String description;
 
     @Column(nullable = false)
-    private BigDecimal perNightPrice;
+    @Convert(converter = MoneyConverter.class)
+    private Money perNightPrice;
 
     @Column(nullable = false)
     @Enumerated(EnumType.STRING)
@@ -45,13 +55,17 @@ public class Extra {
         General, Food
     }
 
-    public Extra(String description, BigDecimal perNightPrice, Type type, Category category) {
+    public Extra(String description, Money perNightPrice, Type type, Category category) {
         this.description = description;
         this.perNightPrice = perNightPrice;
         this.type = type;
         this.category = category;
     }
 
+    public Extra(String description, BigDecimal perNightPrice, Type type, Category category) {
+        this(description, Money.of(perNightPrice), type, category);
+    }
+
     public Extra() {
     }
 
@@ -71,15 +85,27 @@ public class Extra {
         this.description = description;
     }
 
-    public BigDecimal getPerNightPrice() {
+    public Money getPerNightPrice() {
         return perNightPrice;
     }
 
-    public BigDecimal getTotalPrice(long totalNights) {
-        return perNightPrice.multiply(BigDecimal.valueOf(totalNights));
+    /**
+     * Every save through {@code ExtraRepository} tells the extras catalog to reload.
+     */
+    @DomainEvents
+    Collection<ExtraChangedEvent> domainEvents() {
+        return Collections.singletonList(new ExtraChangedEvent(id));
+    }
+
+    public Money getTotalPrice(long totalNights) {
+        return Money.ofMinorUnits(getTotalPriceMinorUnits(totalNights));
+    }
+
+    long getTotalPriceMinorUnits(long totalNights) {
+        return Math.multiplyExact(perNightPrice.getMinorUnits(), totalNights);
     }
 
-    public void setPerNightPrice(BigDecimal perNightPrice) {
+    public void setPerNightPrice(Money perNightPrice) {
         this.perNightPrice = perNightPrice;
     }
 
@@ -0,0 +1,24 @@
+package com.demo.domain;
+
+/**
+ * Published by the repository whenever an {@code Extra} is saved so in memory copies of the extras catalog can be
+ * reloaded.
+ */
+public class ExtraChangedEvent {
+    private final Long extraId;
+
+    public ExtraChangedEvent(Long extraId) {
+        this.extraId = extraId;
+    }
+
+    public Long getExtraId() {
+        return extraId;
+    }
+
+    @Override
+    public String toString() {
+        return "ExtraChangedEvent{" +
+                "extraId=" + extraId +
+                '}';
+    }
+}
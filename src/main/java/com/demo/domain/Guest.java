@@ -16,7 +16,8 @@ public class Guest {
     private UUID tempId = UUID.randomUUID();
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "guest_seq")
+    @SequenceGenerator(name = "guest_seq", sequenceName = "guest_seq", allocationSize = 50)
     private Long id;
 
     @Size(min = 2, max = 20)
@@ -37,6 +38,15 @@ public class Guest {
         this.child = child;
     }
 
+    /**
+     * Recreates a guest kept outside of the reservation while the flow is in progress. The temporary id is kept so
+     * the UI can still remove the guest by it.
+     */
+    public Guest(UUID tempId, String firstName, String lastName, boolean child) {
+        this(firstName, lastName, child);
+        this.tempId = tempId;
+    }
+
     public Guest() {
     }
 
@@ -48,7 +58,7 @@ public class Guest {
      * Converts to lowercase for consistent equality checks
      */
     public void setFirstName(String firstName) {
-        this.firstName = firstName.toLowerCase();
+        this.firstName = firstName == null ? null : firstName.toLowerCase();
     }
 
     public String getLastName() {
@@ -59,7 +69,7 @@ public class Guest {
      * Converts to lowercase for consistent equality checks
      */
     public void setLastName(String lastName) {
-        this.lastName = lastName.toLowerCase();
+        this.lastName = lastName == null ? null : lastName.toLowerCase();
     }
 
     public boolean isChild() {
@@ -3,23 +3,37 @@ package com.demo.domain;
 import com.demo.domain.location.Address;
 import com.demo.util.Utils;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.springframework.data.domain.AfterDomainEventPublication;
+import org.springframework.data.domain.DomainEvents;
 
 import javax.persistence.*;
 import java.io.Serializable;
-import java.math.BigDecimal;
 import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "hotel")
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_hotel_search_location", columnList = "search_state, search_suburb, search_postcode"),
+        @Index(name = "idx_hotel_search_suburb", columnList = "search_suburb, search_postcode"),
+        @Index(name = "idx_hotel_search_postcode", columnList = "search_postcode")
+})
 public class Hotel implements Serializable {
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "hotel_seq")
+    @SequenceGenerator(name = "hotel_seq", sequenceName = "hotel_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -52,13 +66,42 @@ public class Hotel implements Serializable {
     private LocalTime latestCheckOutTime;
 
     @Column(nullable = false)
-    private BigDecimal lateCheckoutFee;
+    @Convert(converter = MoneyConverter.class)
+    private Money lateCheckoutFee;
+
+    /*
+     * Normalized copies of the address maintained on write so location search can compare plain columns and be
+     * served by the search indexes rather than scanning every hotel to apply upper().
+     */
+    @JsonIgnore
+    @Column(name = "search_state", nullable = false, length = 3)
+    private String searchState;
+
+    @JsonIgnore
+    @Column(name = "search_suburb", nullable = false)
+    private String searchSuburb;
+
+    @JsonIgnore
+    @Column(name = "search_postcode", nullable = false, length = 4)
+    private String searchPostcode;
+
+    /*
+     * The searchable location last loaded or published so change events can say where the hotel moved from.
+     */
+    @Transient
+    private String previousSearchState;
+
+    @Transient
+    private String previousSearchSuburb;
+
+    @Transient
+    private String previousSearchPostcode;
 
     private final static LocalTime DEFAULT_EARLIEST_CHECK_IN = LocalTime.of(7, 0);
     private final static LocalTime DEFAULT_LATEST_CHECK_IN = LocalTime.of(22, 0);
     private final static LocalTime DEFAULT_STANDARD_CHECKOUT = LocalTime.of(11, 0);
     private final static LocalTime DEFAULT_LATEST_CHECKOUT = LocalTime.of(22, 0);
-    private final static BigDecimal DEFAULT_LATE_CHECKOUT_FEE = BigDecimal.valueOf(15.95);
+    private final static Money DEFAULT_LATE_CHECKOUT_FEE = Money.of("15.95");
 
     public Hotel(String name, Address address, int stars, String email) {
         this(name, address, stars, email,
@@ -74,7 +117,7 @@ public class Hotel implements Serializable {
                  LocalTime latestCheckInTime,
                  LocalTime standardCheckOutTime,
                  LocalTime latestCheckOutTime,
-                 BigDecimal lateCheckoutFee) {
+                 Money lateCheckoutFee) {
         this.name = name;
         this.address = address;
         this.stars = stars;
@@ -99,6 +142,72 @@ public class Hotel implements Serializable {
         room.setHotel(this);
     }
 
+    /**
+     * Every save through {@code HotelRepository} publishes the current searchable details of this hotel.
+     */
+    @DomainEvents
+    Collection<HotelChangedEvent> domainEvents() {
+        return Collections.singletonList(HotelChangedEvent.of(this));
+    }
+
+    @AfterDomainEventPublication
+    void domainEventsPublished() {
+        previousSearchState = address.getState().name();
+        previousSearchSuburb = normalizeSearchTerm(address.getSuburb());
+        previousSearchPostcode = normalizeSearchTerm(address.getPostcode().getValue());
+    }
+
+    @PostLoad
+    void rememberSearchColumns() {
+        previousSearchState = searchState;
+        previousSearchSuburb = searchSuburb;
+        previousSearchPostcode = searchPostcode;
+    }
+
+    @PrePersist
+    @PreUpdate
+    void normalizeSearchColumns() {
+        searchState = address.getState().name();
+        searchSuburb = normalizeSearchTerm(address.getSuburb());
+        searchPostcode = normalizeSearchTerm(address.getPostcode().getValue());
+    }
+
+    /**
+     * The same normalization is applied to the stored search columns and the search terms supplied by users.
+     *
+     * @return The trimmed upper case term or {@code null} if the term is empty.
+     */
+    public static String normalizeSearchTerm(String term) {
+        if (term == null || term.trim().isEmpty()) {
+            return null;
+        }
+        return term.trim().toUpperCase(Locale.ROOT);
+    }
+
+    public String getSearchState() {
+        return searchState;
+    }
+
+    public String getSearchSuburb() {
+        return searchSuburb;
+    }
+
+    public String getSearchPostcode() {
+        return searchPostcode;
+    }
+
+    String getPreviousSearchState() {
+        return previousSearchState;
+    }
+
+    String getPreviousSearchSuburb() {
+        return previousSearchSuburb;
+    }
+
+    String getPreviousSearchPostcode() {
+        return previousSearchPostcode;
+    }
+
     public String getName() {
         return name;
     }
@@ -175,11 +284,11 @@ public class Hotel implements Serializable {
         this.latestCheckOutTime = latestCheckOutTime;
     }
 
-    public BigDecimal getLateCheckoutFee() {
+    public Money getLateCheckoutFee() {
         return lateCheckoutFee;
     }
 
-    public void setLateCheckoutFee(BigDecimal lateCheckoutFee) {
+    public void setLateCheckoutFee(Money lateCheckoutFee) {
         this.lateCheckoutFee = lateCheckoutFee;
     }
 
@@ -0,0 +1,81 @@
+package com.demo.domain;
+
+/**
+ * Published by the repository whenever a {@code Hotel} is saved. It carries a copy of the searchable details so
+ * in memory views of hotels can be updated without going back to the database.
+ *
+ * <p>The previous location is the normalized state, suburb and postcode the hotel had when it was loaded, or
+ * {@code null} for a new hotel.</p>
+ */
+public class HotelChangedEvent {
+    private final Long hotelId;
+    private final String name;
+    private final String state;
+    private final String suburb;
+    private final String postcode;
+    private final String previousState;
+    private final String previousSuburb;
+    private final String previousPostcode;
+
+    public HotelChangedEvent(Long hotelId, String name, String state, String suburb, String postcode) {
+        this(hotelId, name, state, suburb, postcode, null, null, null);
+    }
+
+    public HotelChangedEvent(Long hotelId, String name, String state, String suburb, String postcode,
+                             String previousState, String previousSuburb, String previousPostcode) {
+        this.hotelId = hotelId;
+        this.name = name;
+        this.state = state;
+        this.suburb = suburb;
+        this.postcode = postcode;
+        this.previousState = previousState;
+        this.previousSuburb = previousSuburb;
+        this.previousPostcode = previousPostcode;
+    }
+
+    public static HotelChangedEvent of(Hotel hotel) {
+        return new HotelChangedEvent(hotel.getId(), hotel.getName(), hotel.getAddress().getState().name(),
+                hotel.getAddress().getSuburb(), hotel.getAddress().getPostcode().getValue(),
+                hotel.getPreviousSearchState(), hotel.getPreviousSearchSuburb(), hotel.getPreviousSearchPostcode());
+    }
+
+    public Long getHotelId() {
+        return hotelId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public String getSuburb() {
+        return suburb;
+    }
+
+    public String getPostcode() {
+        return postcode;
+    }
+
+    public String getPreviousState() {
+        return previousState;
+    }
+
+    public String getPreviousSuburb() {
+        return previousSuburb;
+    }
+
+    public String getPreviousPostcode() {
+        return previousPostcode;
+    }
+
+    @Override
+    public String toString() {
+        return "HotelChangedEvent{" +
+                "hotelId=" + hotelId +
+                ", name='" + name + '\'' +
+                '}';
+    }
+}
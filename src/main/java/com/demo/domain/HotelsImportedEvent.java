@@ -0,0 +1,17 @@
+package com.demo.domain;
+
+/**
+ * Published once a bulk import or the dataset generator has written hotels without going through the repository,
+ * so no {@code HotelChangedEvent} was published per hotel. In memory views of hotels should be rebuilt or dropped.
+ */
+public class HotelsImportedEvent {
+    private final long hotels;
+
+    public HotelsImportedEvent(long hotels) {
+        this.hotels = hotels;
+    }
+
+    public long getHotels() {
+        return hotels;
+    }
+}
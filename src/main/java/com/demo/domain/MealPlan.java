@@ -4,7 +4,6 @@ import com.demo.util.Utils;
 
 import javax.persistence.*;
 import java.io.Serializable;
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
@@ -12,19 +11,20 @@ import java.util.UUID;
 
 @Entity
 public class MealPlan implements Serializable {
-    public static final double CHILD_DISCOUNT_PERCENT = 0.60;
+    public static final int CHILD_DISCOUNT_PERCENT = 60;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "meal_plan_seq")
+    @SequenceGenerator(name = "meal_plan_seq", sequenceName = "meal_plan_seq", allocationSize = 50)
     private Long id;
 
     // Simplifies equal/hashCode
     private UUID mealPlanId = UUID.randomUUID();
 
-    @OneToOne
+    @OneToOne(fetch = FetchType.LAZY)
     private Guest guest;
 
-    @OneToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Reservation reservation;
 
     @ManyToMany
@@ -33,6 +33,10 @@ public class MealPlan implements Serializable {
     @ElementCollection
     private List<DietaryRequirement> dietaryRequirements;
 
+    // Stamped whenever the guest, reservation or food extras are replaced, see PriceQuote.
+    @Transient
+    private transient long revision;
+
     public MealPlan() {
     }
 
@@ -62,6 +66,7 @@ public class MealPlan implements Serializable {
 
     public void setGuest(Guest guest) {
         this.guest = guest;
+        revision = PriceQuote.nextRevision();
     }
 
     public Reservation getReservation() {
@@ -70,6 +75,7 @@ public class MealPlan implements Serializable {
 
     public void setReservation(Reservation reservation) {
         this.reservation = reservation;
+        revision = PriceQuote.nextRevision();
     }
 
     public List<Extra> getFoodExtras() {
@@ -83,6 +89,7 @@ public class MealPlan implements Serializable {
             throw new IllegalArgumentException("Contains invalid categories that are not Extra.Category.Food");
         }
         this.foodExtras = foodExtras;
+        revision = PriceQuote.nextRevision();
     }
 
     public List<DietaryRequirement> getDietaryRequirements() {
@@ -93,6 +100,10 @@ public class MealPlan implements Serializable {
         this.dietaryRequirements = dietaryRequirements;
     }
 
+    long getRevision() {
+        return revision;
+    }
+
     public boolean isEmpty() {
         return foodExtras.isEmpty() && dietaryRequirements.isEmpty();
     }
@@ -110,26 +121,36 @@ public class MealPlan implements Serializable {
     /**
      * @return The sum of calculating the total extra cost including total nights and child discounts for each extra.
      */
-    public BigDecimal getTotalMealPlanCost() {
-        return foodExtras.stream()
-                .map(this::calculateExtraCost)
-                .reduce(BigDecimal.ZERO, BigDecimal::add, BigDecimal::add);
+    public Money getTotalMealPlanCost() {
+        return Money.ofMinorUnits(getTotalMealPlanMinorUnits(reservation.getDates().totalNights()));
+    }
+
+    long getTotalMealPlanMinorUnits(long totalNights) {
+        long total = 0;
+        for (int i = 0; i < foodExtras.size(); i++) {
+            total = Math.addExact(total, calculateExtraMinorUnits(foodExtras.get(i), totalNights));
+        }
+        return total;
     }
 
     /**
      * @param foodExtra The food extra
-     * @return The food extra cost multiplied by total nights with child discounts applied if applicable.
+     * @return The food extra cost multiplied by total nights with child discounts applied if applicable. The
+     * discount is rounded to the cent before it is taken off.
      * @throws IllegalArgumentException if Extra is not {@code Extra.Category.Food}
      */
-    public BigDecimal calculateExtraCost(Extra foodExtra) throws IllegalArgumentException {
+    public Money calculateExtraCost(Extra foodExtra) throws IllegalArgumentException {
+        return Money.ofMinorUnits(calculateExtraMinorUnits(foodExtra, reservation.getDates().totalNights()));
+    }
+
+    private long calculateExtraMinorUnits(Extra foodExtra, long totalNights) {
         if (foodExtra.getCategory() != Extra.Category.Food) {
             throw new IllegalArgumentException("Extra is not of type Extra.Category.Food");
         }
 
-        BigDecimal total = foodExtra.getTotalPrice(reservation.getDates().totalNights());
+        long total = foodExtra.getTotalPriceMinorUnits(totalNights);
         if (guest.isChild()) {
-            BigDecimal discount = total.multiply(BigDecimal.valueOf(CHILD_DISCOUNT_PERCENT));
-            return total.subtract(discount);
+            return total - Money.percentOf(total, CHILD_DISCOUNT_PERCENT);
         }
         return total;
     }
@@ -0,0 +1,148 @@
+package com.demo.domain;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount of dollars held as a whole number of cents.
+ *
+ * <p>Every price is stored to the cent. Amounts given with more decimal places and percentages of an amount are
+ * rounded half up, away from zero, to the nearest cent. Arithmetic is exact otherwise and throws
+ * {@code ArithmeticException} rather than overflowing.</p>
+ *
+ * <p>Extends {@code Number} so templates can format it with {@code #numbers.formatCurrency} like any other
+ * amount.</p>
+ */
+public final class Money extends Number implements Comparable<Money> {
+    public static final int SCALE = 2;
+    public static final RoundingMode ROUNDING = RoundingMode.HALF_UP;
+
+    public static final Money ZERO = new Money(0);
+
+    private static final long MINOR_UNITS_PER_MAJOR = 100;
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    public static Money ofMinorUnits(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * @param amount The amount in dollars, rounded to the cent if it has more than 2 decimal places.
+     */
+    public static Money of(BigDecimal amount) {
+        return ofMinorUnits(amount.setScale(SCALE, ROUNDING).unscaledValue().longValueExact());
+    }
+
+    /**
+     * @param amount The amount in dollars such as {@code "12.50"}.
+     * @throws NumberFormatException if the amount is not a decimal number.
+     */
+    public static Money of(String amount) {
+        return of(new BigDecimal(amount));
+    }
+
+    /**
+     * The rounding rule for every percentage in pricing. Works on plain cents so callers summing many amounts do
+     * not need to create a {@code Money} for each one.
+     *
+     * @return {@code percent}% of {@code minorUnits} rounded half up to the nearest cent.
+     */
+    public static long percentOf(long minorUnits, long percent) {
+        long product = Math.multiplyExact(minorUnits, percent);
+        long quotient = product / 100;
+        long remainder = Math.abs(product % 100);
+        return remainder >= 50 ? quotient + Long.signum(product) : quotient;
+    }
+
+    public long getMinorUnits() {
+        return minorUnits;
+    }
+
+    public Money plus(Money other) {
+        return ofMinorUnits(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinorUnits(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public Money times(long quantity) {
+        return ofMinorUnits(Math.multiplyExact(minorUnits, quantity));
+    }
+
+    /**
+     * @return {@code percent}% of this amount, see {@link #percentOf(long, long)} for rounding.
+     */
+    public Money percent(long percent) {
+        return ofMinorUnits(percentOf(minorUnits, percent));
+    }
+
+    public boolean isZero() {
+        return minorUnits == 0;
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    /**
+     * @return The amount in dollars with a scale of 2.
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    /**
+     * @return Whole dollars, the cents are truncated.
+     */
+    @Override
+    public long longValue() {
+        return minorUnits / MINOR_UNITS_PER_MAJOR;
+    }
+
+    @Override
+    public int intValue() {
+        return (int) longValue();
+    }
+
+    @Override
+    public double doubleValue() {
+        return (double) minorUnits / MINOR_UNITS_PER_MAJOR;
+    }
+
+    @Override
+    public float floatValue() {
+        return (float) doubleValue();
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Money money = (Money) o;
+        return minorUnits == money.minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    /**
+     * @return The amount in dollars such as {@code "12.50"}, parsable by {@link #of(String)}.
+     */
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,165 @@
+package com.demo.domain;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable cost breakdown of a {@code Reservation} at a point in time.
+ *
+ * <p>Every sub total is calculated once when the quote is created so rendering the invoice tables reads fields
+ * rather than re-summing the extras and meal plans for each line. Use {@link Reservation#getPriceQuote()} which
+ * only builds a new quote after the reservation has changed.</p>
+ */
+public final class PriceQuote {
+
+    /*
+     * Source of the revision stamps recorded by each priced component when it is mutated. A quote is current while
+     * no component has a stamp newer than the one taken when the quote was built.
+     */
+    private static final AtomicLong REVISIONS = new AtomicLong();
+
+    private final long revision;
+
+    private final Money roomCost;
+    private final Money lateCheckoutFee;
+    private final Money roomCostWithLateCheckoutFee;
+    private final Money generalExtrasCost;
+    private final Money mealPlansCost;
+    private final Money costExcludingTax;
+    private final Money taxableAmount;
+    private final Money costIncludingTax;
+
+    private PriceQuote(long revision, long roomCost, long lateCheckoutFee, long generalExtrasCost,
+                       long mealPlansCost) {
+        long roomCostWithLateCheckoutFee = Math.addExact(roomCost, lateCheckoutFee);
+        long costExcludingTax = Math.addExact(Math.addExact(roomCostWithLateCheckoutFee, generalExtrasCost),
+                mealPlansCost);
+        long taxableAmount = Money.percentOf(costExcludingTax, Reservation.TAX_PERCENT);
+
+        this.revision = revision;
+        this.roomCost = Money.ofMinorUnits(roomCost);
+        this.lateCheckoutFee = Money.ofMinorUnits(lateCheckoutFee);
+        this.roomCostWithLateCheckoutFee = Money.ofMinorUnits(roomCostWithLateCheckoutFee);
+        this.generalExtrasCost = Money.ofMinorUnits(generalExtrasCost);
+        this.mealPlansCost = Money.ofMinorUnits(mealPlansCost);
+        this.costExcludingTax = Money.ofMinorUnits(costExcludingTax);
+        this.taxableAmount = Money.ofMinorUnits(taxableAmount);
+        this.costIncludingTax = Money.ofMinorUnits(Math.addExact(costExcludingTax, taxableAmount));
+    }
+
+    static long nextRevision() {
+        return REVISIONS.incrementAndGet();
+    }
+
+    /**
+     * Sums plain cents so nothing is allocated per extra or meal plan, only the amounts held by the quote.
+     *
+     * <p>The revision is taken before reading the reservation, so a change made while pricing leaves the quote stale
+     * rather than marking it current.</p>
+     */
+    static PriceQuote of(Reservation reservation) {
+        long revision = REVISIONS.get();
+        ReservationDates dates = reservation.getDates();
+        Room room = reservation.getRoom();
+        long nights = dates.totalNights();
+
+        // The extras and meals can be priced before a room is chosen.
+        long roomCost = room == null || nights == 0
+                ? 0
+                : Math.multiplyExact(room.getCostPerNight().getMinorUnits(), nights);
+
+        long lateCheckoutFee = room != null && dates.isLateCheckout()
+                ? reservation.getLateCheckoutFee().getMinorUnits()
+                : 0;
+
+        long generalExtrasCost = 0;
+        for (Extra extra : reservation.getGeneralExtras()) {
+            generalExtrasCost = Math.addExact(generalExtrasCost, extra.getTotalPriceMinorUnits(nights));
+        }
+
+        long mealPlansCost = 0;
+        List<MealPlan> mealPlans = reservation.getMealPlans();
+        for (int i = 0; i < mealPlans.size(); i++) {
+            mealPlansCost = Math.addExact(mealPlansCost, mealPlans.get(i).getTotalMealPlanMinorUnits(nights));
+        }
+
+        return new PriceQuote(revision, roomCost, lateCheckoutFee, generalExtrasCost, mealPlansCost);
+    }
+
+    /**
+     * @return {@code true} if none of the components were mutated after this quote was created.
+     */
+    boolean isCurrent(Reservation reservation) {
+        if (reservation.getRevision() > revision || reservation.getDates().getRevision() > revision) {
+            return false;
+        }
+        List<MealPlan> mealPlans = reservation.getMealPlans();
+        for (int i = 0; i < mealPlans.size(); i++) {
+            if (mealPlans.get(i).getRevision() > revision) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Total nights * per night cost, no late fee is considered.
+     */
+    public Money getRoomCost() {
+        return roomCost;
+    }
+
+    /**
+     * @return The late checkout fee if the option is selected otherwise zero.
+     */
+    public Money getLateCheckoutFee() {
+        return lateCheckoutFee;
+    }
+
+    public Money getRoomCostWithLateCheckoutFee() {
+        return roomCostWithLateCheckoutFee;
+    }
+
+    public Money getGeneralExtrasCost() {
+        return generalExtrasCost;
+    }
+
+    public Money getMealPlansCost() {
+        return mealPlansCost;
+    }
+
+    /**
+     * A {@code MealPlan} is created for every guest so empty is defined by the meal plans costing nothing.
+     */
+    public boolean hasEmptyMealPlans() {
+        return mealPlansCost.isZero();
+    }
+
+    public Money getCostExcludingTax() {
+        return costExcludingTax;
+    }
+
+    /**
+     * @return The tax on the total cost rounded to the cent. Eg 10% of $100 = $10.
+     */
+    public Money getTaxableAmount() {
+        return taxableAmount;
+    }
+
+    public Money getCostIncludingTax() {
+        return costIncludingTax;
+    }
+
+    @Override
+    public String toString() {
+        return "PriceQuote{" +
+                "roomCost=" + roomCost +
+                ", lateCheckoutFee=" + lateCheckoutFee +
+                ", generalExtrasCost=" + generalExtrasCost +
+                ", mealPlansCost=" + mealPlansCost +
+                ", costExcludingTax=" + costExcludingTax +
+                ", taxableAmount=" + taxableAmount +
+                ", costIncludingTax=" + costIncludingTax +
+                '}';
+    }
+}
@@ -2,22 +2,30 @@ package com.demo.domain;
 
 import javax.persistence.*;
 import javax.validation.Valid;
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
 @Entity
 public class Reservation {
-    public static final double TAX_AMOUNT = 0.10;
+    public static final int TAX_PERCENT = 10;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservation_seq")
+    @SequenceGenerator(name = "reservation_seq", sequenceName = "reservation_seq", allocationSize = 50)
     private Long id;
 
+    @Version
+    private Long version;
+
     private UUID reservationId = UUID.randomUUID();
 
-    @OneToOne(mappedBy = "reservation")
+    /*
+     * A room holds many reservations over time. The nights each reservation occupies are recorded in the
+     * RoomNight ledger which is what availability is checked against.
+     */
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(nullable = false)
     private Room room;
 
     @ManyToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE})
@@ -40,16 +48,27 @@ public class Reservation {
     )
     private Set<Extra> generalExtras = new HashSet<>();
 
-    // List because the UI should display plans by Guest order.
-    @OneToMany(cascade = CascadeType.ALL)
+    // List because the UI should display plans by Guest order. Each plan carries the reservation key itself so
+    // persisting them needs no join table rows.
+    @OneToMany(mappedBy = "reservation", cascade = CascadeType.ALL)
     private List<MealPlan> mealPlans = new ArrayList<>();
 
-    @OneToOne(cascade = CascadeType.ALL)
+    @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private CompletedPayment completedPayment;
 
     @Column(nullable = false)
     private LocalDateTime createdTime;
 
+    /*
+     * The quote is rebuilt lazily once the room, dates, extras or meal plans have been replaced. Each of those
+     * setters records a new revision, see PriceQuote.
+     */
+    @Transient
+    private transient long revision;
+
+    @Transient
+    private transient PriceQuote priceQuote;
+
     /**
      * @return The time this {@code Reservation} was successfully paid for and persisted.
      */
@@ -60,6 +79,13 @@ public class Reservation {
     public Reservation() {
     }
 
+    /**
+     * @param reservationId The id of a reservation still being made, room holds are keyed on it.
+     */
+    public Reservation(UUID reservationId) {
+        this.reservationId = reservationId;
+    }
+
     public Long getId() {
         return id;
     }
@@ -68,12 +94,17 @@ public class Reservation {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     public Room getRoom() {
         return room;
     }
 
     public void setRoom(Room room) {
         this.room = room;
+        revision = PriceQuote.nextRevision();
     }
 
     public CompletedPayment getCompletedPayment() {
@@ -145,6 +176,7 @@ public class Reservation {
             throw new IllegalArgumentException("Contains invalid categories that are not Extra.Category.General");
         }
         this.generalExtras = generalExtras;
+        revision = PriceQuote.nextRevision();
     }
 
     public List<MealPlan> getMealPlans() {
@@ -153,6 +185,7 @@ public class Reservation {
 
     public void setMealPlans(List<MealPlan> mealPlans) {
         this.mealPlans = mealPlans;
+        revision = PriceQuote.nextRevision();
     }
 
     public ReservationDates getDates() {
@@ -161,6 +194,7 @@ public class Reservation {
 
     public void setDates(ReservationDates dates) {
         this.dates = dates;
+        revision = PriceQuote.nextRevision();
     }
 
     public boolean isRoomFull() {
@@ -190,22 +224,42 @@ public class Reservation {
         }
     }
 
+    long getRevision() {
+        return revision;
+    }
+
+    /**
+     * The quote is reused until the room, dates, general extras or meal plans change through their setters. The
+     * collections returned by {@link #getGeneralExtras()} and {@link #getMealPlans()} must be replaced rather than
+     * modified in place for the change to be priced.
+     *
+     * @return The cost breakdown of this reservation as it currently stands.
+     */
+    public PriceQuote getPriceQuote() {
+        PriceQuote quote = priceQuote;
+        if (quote == null || !quote.isCurrent(this)) {
+            quote = PriceQuote.of(this);
+            priceQuote = quote;
+        }
+        return quote;
+    }
+
     /**
      * Calculates the chargeable late fee price only if the user has selected the late checkout option.
      */
-    public BigDecimal getChargeableLateCheckoutFee() {
-        return dates.isLateCheckout() ? getLateCheckoutFee() : BigDecimal.ZERO;
+    public Money getChargeableLateCheckoutFee() {
+        return getPriceQuote().getLateCheckoutFee();
     }
 
     /**
      * The late checkout fee depending on the type of room.
      * For the actual chargeable fee, use {@link #getChargeableLateCheckoutFee()}
      */
-    public BigDecimal getLateCheckoutFee() {
+    public Money getLateCheckoutFee() {
         switch (room.getRoomType()) {
             case Luxury:
             case Business:
-                return BigDecimal.ZERO;
+                return Money.ZERO;
             default:
                 return room.getHotel().getLateCheckoutFee();
         }
@@ -217,12 +271,8 @@ public class Reservation {
      *
      * @return Total nights * per night cost
      */
-    public BigDecimal getTotalRoomCost() {
-        long nights = dates.totalNights();
-        if (nights == 0) {
-            return BigDecimal.ZERO;
-        }
-        return room.getCostPerNight().multiply(BigDecimal.valueOf(nights));
+    public Money getTotalRoomCost() {
+        return getPriceQuote().getRoomCost();
     }
 
     /**
@@ -230,8 +280,8 @@ public class Reservation {
      *
      * @return {@link #getTotalRoomCost} + {@link #getChargeableLateCheckoutFee}
      */
-    public BigDecimal getTotalRoomCostWithLateCheckoutFee() {
-        return getTotalRoomCost().add(getChargeableLateCheckoutFee());
+    public Money getTotalRoomCostWithLateCheckoutFee() {
+        return getPriceQuote().getRoomCostWithLateCheckoutFee();
     }
 
     /**
@@ -240,13 +290,8 @@ public class Reservation {
      * <p>
      * {@code Daily extra cost * total nights}
      */
-    public BigDecimal getTotalGeneralExtrasCost() {
-        long totalNights = dates.totalNights();
-        return generalExtras.stream().reduce(
-                BigDecimal.ZERO,
-                (acc, next) -> acc.add(next.getTotalPrice(totalNights))
-                , BigDecimal::add
-        );
+    public Money getTotalGeneralExtrasCost() {
+        return getPriceQuote().getGeneralExtrasCost();
     }
 
     /**
@@ -254,20 +299,16 @@ public class Reservation {
      *
      * @return Total cost of all guests meal plans
      */
-    public BigDecimal getTotalMealPlansCost() {
-        return mealPlans.stream()
-                .map(MealPlan::getTotalMealPlanCost)
-                .reduce(BigDecimal.ZERO, BigDecimal::add, BigDecimal::add);
+    public Money getTotalMealPlansCost() {
+        return getPriceQuote().getMealPlansCost();
     }
 
     /**
      * Total cost including everything!
      * Provided separately to allow break down to sub totals on invoices.
      */
-    public BigDecimal getTotalCostExcludingTax() {
-        return getTotalRoomCostWithLateCheckoutFee()
-                .add(getTotalGeneralExtrasCost())
-                .add(getTotalMealPlansCost());
+    public Money getTotalCostExcludingTax() {
+        return getPriceQuote().getCostExcludingTax();
     }
 
     /**
@@ -275,8 +316,8 @@ public class Reservation {
      *
      * @return The taxable amount from the total cost. Eg 10% of $100 = $10.
      */
-    public BigDecimal getTaxableAmount() {
-        return getTotalCostExcludingTax().multiply(BigDecimal.valueOf(TAX_AMOUNT));
+    public Money getTaxableAmount() {
+        return getPriceQuote().getTaxableAmount();
     }
 
     /**
@@ -284,8 +325,8 @@ public class Reservation {
      *
      * @return The total cost including tax.
      */
-    public BigDecimal getTotalCostIncludingTax() {
-        return getTotalCostExcludingTax().add(getTaxableAmount());
+    public Money getTotalCostIncludingTax() {
+        return getPriceQuote().getCostIncludingTax();
     }
 
 
@@ -301,6 +342,7 @@ public class Reservation {
                 .map(guest -> new MealPlan(guest, this))
                 .sorted(Comparator.comparing(MealPlan::getGuest, Guest.comparator()))
                 .collect(Collectors.toList());
+        revision = PriceQuote.nextRevision();
     }
 
     /**
@@ -310,10 +352,7 @@ public class Reservation {
      * @return {@code true} if all meal plans add up to 0.
      */
     public boolean hasEmptyMealPlans() {
-        return mealPlans.stream()
-                .map(MealPlan::getTotalMealPlanCost)
-                .reduce(BigDecimal.ZERO, BigDecimal::add, BigDecimal::add)
-                .equals(BigDecimal.ZERO);
+        return getPriceQuote().hasEmptyMealPlans();
     }
 
     @Override
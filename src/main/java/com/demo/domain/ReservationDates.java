@@ -4,12 +4,17 @@ import org.springframework.format.annotation.DateTimeFormat;
 
 import javax.persistence.Column;
 import javax.persistence.Embeddable;
+import javax.persistence.Transient;
 import javax.validation.constraints.AssertTrue;
 import javax.validation.constraints.NotNull;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Embeddable
 public class ReservationDates {
@@ -35,6 +40,10 @@ public class ReservationDates {
     @AssertTrue(message = "Please acknowledge policy")
     private boolean policyAcknowledged = false;
 
+    // Stamped whenever the stay dates or late checkout option change, see PriceQuote.
+    @Transient
+    private transient long revision;
+
     public ReservationDates() {
     }
 
@@ -54,6 +63,7 @@ public class ReservationDates {
 
     public void setCheckInDate(LocalDate checkInDate) {
         this.checkInDate = checkInDate;
+        revision = PriceQuote.nextRevision();
     }
 
     public LocalDate getCheckOutDate() {
@@ -62,6 +72,7 @@ public class ReservationDates {
 
     public void setCheckOutDate(LocalDate checkOutDate) {
         this.checkOutDate = checkOutDate;
+        revision = PriceQuote.nextRevision();
     }
 
     public LocalTime getEstimatedCheckInTime() {
@@ -81,6 +92,7 @@ public class ReservationDates {
 
     public void setLateCheckout(boolean lateCheckout) {
         this.lateCheckout = lateCheckout;
+        revision = PriceQuote.nextRevision();
     }
 
     /**
@@ -94,6 +106,10 @@ public class ReservationDates {
         this.policyAcknowledged = policyAcknowledged;
     }
 
+    long getRevision() {
+        return revision;
+    }
+
     public long totalNights() {
         if (checkInDate == null || checkOutDate == null) {
             return 0;
@@ -101,6 +117,21 @@ public class ReservationDates {
         return ChronoUnit.DAYS.between(checkInDate, checkOutDate);
     }
 
+    /**
+     * Each night is identified by the date it starts on, so the check out date itself is not included.
+     *
+     * @return Every night from check in up to but excluding check out, or an empty list if the dates are incomplete.
+     */
+    public List<LocalDate> nights() {
+        long totalNights = totalNights();
+        if (totalNights < 1) {
+            return Collections.emptyList();
+        }
+        return Stream.iterate(checkInDate, date -> date.plusDays(1))
+                .limit(totalNights)
+                .collect(Collectors.toList());
+    }
+
     public Optional<ValidationError> validate(LocalDate now) {
         if (checkInDate == null) {
             return Optional.of(new ValidationError("checkInDate.missing", "Missing check in date"));
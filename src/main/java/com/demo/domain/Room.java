@@ -1,5 +1,7 @@
 package com.demo.domain;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.NaturalId;
 
 import javax.persistence.*;
@@ -7,13 +9,30 @@ import java.io.Serializable;
 import java.math.BigDecimal;
 import java.util.Objects;
 
+/**
+ * Cached in the second level cache. Booking commits claim a room by locking it and incrementing its version through
+ * the entity manager. The increment does not go through the region, so the booking then evicts the entry of that room
+ * alone and every other room stays cached.
+ *
+ * <p>The hotel is loaded lazily. Use cases that show it, such as the reservation flow, load the room through the
+ * {@value #WITH_HOTEL} fetch plan.</p>
+ */
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "room")
 @Entity
+@NamedEntityGraph(name = Room.WITH_HOTEL, attributeNodes = @NamedAttributeNode("hotel"))
 public class Room {
+    public static final String WITH_HOTEL = "Room.withHotel";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "room_seq")
+    @SequenceGenerator(name = "room_seq", sequenceName = "room_seq", allocationSize = 50)
     private Long id;
 
-    @ManyToOne
+    @Version
+    private Long version;
+
+    @ManyToOne(fetch = FetchType.LAZY)
     private Hotel hotel;
 
     @NaturalId
@@ -28,18 +47,20 @@ public class Room {
     private int beds;
 
     @Column(nullable = false)
-    private BigDecimal costPerNight;
+    @Convert(converter = MoneyConverter.class)
+    private Money costPerNight;
 
-    @OneToOne(cascade = CascadeType.ALL)
-    private Reservation reservation;
-
-    public Room(String roomNumber, RoomType roomType, int beds, BigDecimal costPerNight) {
+    public Room(String roomNumber, RoomType roomType, int beds, Money costPerNight) {
         this.roomNumber = roomNumber;
         this.roomType = roomType;
         this.beds = beds;
         this.costPerNight = costPerNight;
     }
 
+    public Room(String roomNumber, RoomType roomType, int beds, BigDecimal costPerNight) {
+        this(roomNumber, roomType, beds, Money.of(costPerNight));
+    }
+
     public Room() {
     }
 
@@ -51,6 +72,10 @@ public class Room {
         this.id = id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     public Hotel getHotel() {
         return hotel;
     }
@@ -83,29 +108,14 @@ public class Room {
         this.beds = beds;
     }
 
-    public BigDecimal getCostPerNight() {
+    public Money getCostPerNight() {
         return costPerNight;
     }
 
-    public void setCostPerNight(BigDecimal costPerNight) {
+    public void setCostPerNight(Money costPerNight) {
         this.costPerNight = costPerNight;
     }
 
-    public Reservation getReservation() {
-        return reservation;
-    }
-
-    public void setReservation(Reservation reservation) {
-        if (reservation != null) {
-            this.reservation = reservation;
-            reservation.setRoom(this);
-        }
-    }
-
-    public boolean isReserved() {
-        return reservation != null;
-    }
-
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
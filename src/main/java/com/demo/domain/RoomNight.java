@@ -0,0 +1,80 @@
+package com.demo.domain;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * A single night a {@code Room} is occupied by a {@code Reservation}. Together these rows form the inventory ledger
+ * that availability is checked against.
+ *
+ * <p>The unique constraint on room and night guarantees a room can never be sold twice for the same night, and its
+ * index serves the 'is this room free between check in and check out' lookup.</p>
+ */
+@Entity
+@Table(name = "room_night",
+        uniqueConstraints = @UniqueConstraint(name = "uk_room_night", columnNames = {"room_id", "night"}))
+public class RoomNight {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "room_night_seq")
+    @SequenceGenerator(name = "room_night_seq", sequenceName = "room_night_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "room_id", nullable = false)
+    private Room room;
+
+    @Column(name = "night", nullable = false)
+    private LocalDate night;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(nullable = false)
+    private Reservation reservation;
+
+    public RoomNight(Room room, LocalDate night, Reservation reservation) {
+        this.room = room;
+        this.night = night;
+        this.reservation = reservation;
+    }
+
+    public RoomNight() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Room getRoom() {
+        return room;
+    }
+
+    public LocalDate getNight() {
+        return night;
+    }
+
+    public Reservation getReservation() {
+        return reservation;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RoomNight roomNight = (RoomNight) o;
+        return Objects.equals(room, roomNight.room) &&
+                Objects.equals(night, roomNight.night);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(room, night);
+    }
+
+    @Override
+    public String toString() {
+        return "RoomNight{" +
+                "room=" + room +
+                ", night=" + night +
+                '}';
+    }
+}
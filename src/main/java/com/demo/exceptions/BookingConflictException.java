@@ -0,0 +1,20 @@
+package com.demo.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The room could not be booked because another reservation has taken some of the requested nights, or the room was
+ * still contended after all retries were used up.
+ */
+@ResponseStatus(value = HttpStatus.CONFLICT)
+public class BookingConflictException extends RuntimeException {
+
+    public BookingConflictException(String message) {
+        super(message);
+    }
+
+    public BookingConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
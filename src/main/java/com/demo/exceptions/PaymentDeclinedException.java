@@ -0,0 +1,12 @@
+package com.demo.exceptions;
+
+/**
+ * The payment provider refused the payment, eg the card was declined. The provider itself is working so this does
+ * not count against it.
+ */
+public class PaymentDeclinedException extends RuntimeException {
+
+    public PaymentDeclinedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,20 @@
+package com.demo.exceptions;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The payment could not be attempted or its outcome is unknown, because the payment provider failed, did not answer
+ * in time or is not being called while it recovers. Nothing has been booked so the payment can be submitted again.
+ */
+@ResponseStatus(value = HttpStatus.SERVICE_UNAVAILABLE)
+public class PaymentUnavailableException extends RuntimeException {
+
+    public PaymentUnavailableException(String message) {
+        super(message);
+    }
+
+    public PaymentUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
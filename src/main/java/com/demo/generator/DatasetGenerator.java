@@ -0,0 +1,361 @@
+package com.demo.generator;
+
+import com.demo.domain.DietaryRequirement;
+import com.demo.domain.Extra;
+import com.demo.domain.Hotel;
+import com.demo.domain.HotelsImportedEvent;
+import com.demo.reservation.ExtraRepository;
+import org.hibernate.Cache;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.internal.util.SerializationHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.nio.ByteBuffer;
+import java.sql.Date;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Fills a database with a synthetic portfolio of hotels, rooms and historical reservations for load and benchmark
+ * environments.
+ *
+ * <p>What is generated is planned by {@code DatasetPlanner} from the spec seed alone. It is written with plain jdbc
+ * batches rather than through the entity manager, as building, flushing and clearing millions of entities would
+ * dominate the run. Writer threads each take the next chunk of {@code chunkSize} hotels, plan it and insert its rows
+ * table by table in a transaction of its own, {@code batchSize} rows to a statement.</p>
+ *
+ * <p>Ids are taken from the entity sequences a block of {@value #ALLOCATION_SIZE} at a time the same way the pooled-lo
+ * optimizer does, so hibernate and the generator never hand out the same id. Which ids rows get depends on the order
+ * chunks are written in, everything else depends only on the seed.</p>
+ *
+ * <p>The rows bypass hibernate, so the query cache is dropped and a {@code HotelsImportedEvent} published once done.
+ * Room numbers start with the hotel number, so a spec is meant to be generated once into an empty portfolio.</p>
+ */
+@Service
+@Profile("generator")
+public class DatasetGenerator {
+    private static final Logger log = LoggerFactory.getLogger(DatasetGenerator.class);
+
+    // the allocationSize of every entity @SequenceGenerator
+    static final int ALLOCATION_SIZE = 50;
+
+    private static final String INSERT_HOTEL = "insert into hotel (id, name, business, street_line1, state, suburb, "
+            + "value, stars, email, earliest_check_in_time, latest_check_in_time, standard_check_out_time, "
+            + "latest_check_out_time, late_checkout_fee, search_state, search_suburb, search_postcode) "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_ROOM = "insert into room (id, version, hotel_id, room_number, room_type, beds, "
+            + "cost_per_night) values (?, 0, ?, ?, ?, ?, ?)";
+    private static final String INSERT_GUEST = "insert into guest (id, first_name, last_name, child) "
+            + "values (?, ?, ?, ?)";
+    private static final String INSERT_PAYMENT = "insert into completed_payment (id, transaction_id, "
+            + "credit_card_type, last4credit_card_digits, cvv, card_expiry) values (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_RESERVATION = "insert into reservation (id, version, reservation_id, room_id, "
+            + "check_in_date, check_out_date, estimated_check_in_time, late_checkout, policy_acknowledged, "
+            + "completed_payment_id, created_time) values (?, 0, ?, ?, ?, ?, ?, ?, true, ?, ?)";
+    private static final String INSERT_RESERVATION_GUEST = "insert into reservation_guests (reservation_id, guest_id) "
+            + "values (?, ?)";
+    private static final String INSERT_RESERVATION_EXTRA = "insert into reservation_general_extras (reservation_id, "
+            + "general_extra_id) values (?, ?)";
+    private static final String INSERT_MEAL_PLAN = "insert into meal_plan (id, meal_plan_id, guest_id, reservation_id) "
+            + "values (?, ?, ?, ?)";
+    private static final String INSERT_MEAL_PLAN_EXTRA = "insert into meal_plan_food_extras (meal_plan_id, "
+            + "food_extras_id) values (?, ?)";
+    private static final String INSERT_MEAL_PLAN_DIET = "insert into meal_plan_dietary_requirements (meal_plan_id, "
+            + "dietary_requirements) values (?, ?)";
+    private static final String INSERT_ROOM_NIGHT = "insert into room_night (id, room_id, night, reservation_id) "
+            + "values (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final Dialect dialect;
+    private final ExtraRepository extraRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+    private final int batchSize;
+    private final int threads;
+    private final Duration progressInterval;
+
+    @Autowired
+    public DatasetGenerator(DataSource dataSource, PlatformTransactionManager transactionManager,
+                            EntityManagerFactory entityManagerFactory, ExtraRepository extraRepository,
+                            ApplicationEventPublisher eventPublisher,
+                            @Value("${generator.chunk-size:20}") int chunkSize,
+                            @Value("${generator.batch-size:1000}") int batchSize,
+                            @Value("${generator.threads:0}") int threads,
+                            @Value("${generator.progress-interval-seconds:10}") long progressIntervalSeconds) {
+        this(dataSource, transactionManager, entityManagerFactory, extraRepository, eventPublisher, chunkSize,
+                batchSize, threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+                Duration.ofSeconds(progressIntervalSeconds));
+    }
+
+    public DatasetGenerator(DataSource dataSource, PlatformTransactionManager transactionManager,
+                            EntityManagerFactory entityManagerFactory, ExtraRepository extraRepository,
+                            ApplicationEventPublisher eventPublisher, int chunkSize, int batchSize, int threads,
+                            Duration progressInterval) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManagerFactory = entityManagerFactory;
+        this.dialect = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        this.extraRepository = extraRepository;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+        this.batchSize = batchSize;
+        this.threads = threads;
+        this.progressInterval = progressInterval;
+    }
+
+    public DatasetReport generate(DatasetSpec spec) {
+        log.info("Generating {} on {} threads", spec, threads);
+        DatasetPlanner planner = new DatasetPlanner(spec, extras(Extra.Category.General), extras(Extra.Category.Food));
+        DatasetReport report = new DatasetReport(spec);
+        Progress progress = new Progress(report);
+
+        int chunks = (spec.getHotels() + chunkSize - 1) / chunkSize;
+        AtomicInteger nextChunk = new AtomicInteger();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService writers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "dataset-writer-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> running = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                running.add(writers.submit(() -> {
+                    Ids ids = new Ids();
+                    int chunk;
+                    while ((chunk = nextChunk.getAndIncrement()) < chunks) {
+                        try {
+                            int from = chunk * chunkSize;
+                            int to = Math.min(from + chunkSize, spec.getHotels());
+                            write(planner, from, to, ids, report);
+                            progress.logIfDue();
+                        } catch (RuntimeException e) {
+                            // the other writers finish the chunk they are on and stop
+                            nextChunk.set(chunks);
+                            throw e;
+                        }
+                    }
+                }));
+            }
+            for (Future<?> writer : running) {
+                try {
+                    writer.get();
+                } catch (ExecutionException e) {
+                    log.error("Stopped generating", e.getCause());
+                    report.aborted(e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            nextChunk.set(chunks);
+            report.aborted("interrupted");
+        } finally {
+            writers.shutdownNow();
+        }
+
+        report.finished(progress.elapsed());
+        if (report.isComplete()) {
+            log.info("Generated {}", report);
+        } else {
+            log.warn("Generated {}", report);
+        }
+        if (report.getHotels() > 0) {
+            // cached query results predate the generated rows, which hibernate never saw being written
+            Cache cache = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getCache();
+            cache.evictDefaultQueryRegion();
+            cache.evictQueryRegions();
+            eventPublisher.publishEvent(new HotelsImportedEvent(report.getHotels()));
+        }
+        return report;
+    }
+
+    private Map<Extra.Type, List<Long>> extras(Extra.Category category) {
+        Map<Extra.Type, List<Long>> extras = new EnumMap<>(Extra.Type.class);
+        for (Extra.Type type : Extra.Type.values()) {
+            extras.put(type, extraRepository.findAllByTypeAndCategory(type, category).stream()
+                    .map(Extra::getId)
+                    .sorted()
+                    .collect(Collectors.toList()));
+        }
+        return extras;
+    }
+
+    private void write(DatasetPlanner planner, int from, int to, Ids ids, DatasetReport report) {
+        Rows rows = new Rows();
+        long rooms = 0;
+        long reservations = 0;
+        long guests = 0;
+        long roomNights = 0;
+
+        for (int index = from; index < to; index++) {
+            HotelPlan hotel = planner.plan(index);
+            long hotelId = ids.next("hotel_seq");
+            rows.add(INSERT_HOTEL, hotelId, hotel.name, hotel.name, hotel.streetLine1, hotel.state.name(),
+                    hotel.suburb, hotel.postcode, hotel.stars, hotel.email, Time.valueOf(hotel.earliestCheckInTime),
+                    Time.valueOf(hotel.latestCheckInTime), Time.valueOf(hotel.standardCheckOutTime),
+                    Time.valueOf(hotel.latestCheckOutTime), hotel.lateCheckoutFee,
+                    hotel.state.name(), Hotel.normalizeSearchTerm(hotel.suburb),
+                    Hotel.normalizeSearchTerm(hotel.postcode));
+
+            for (HotelPlan.RoomPlan room : hotel.rooms) {
+                long roomId = ids.next("room_seq");
+                rows.add(INSERT_ROOM, roomId, hotelId, room.roomNumber, room.roomType.name(), room.beds,
+                        room.costPerNight);
+                rooms++;
+
+                for (HotelPlan.StayPlan stay : room.stays) {
+                    long paymentId = ids.next("completed_payment_seq");
+                    rows.add(INSERT_PAYMENT, paymentId, bytes(stay.transactionId), stay.creditCardType.name(),
+                            stay.last4CreditCardDigits, stay.cvv, SerializationHelper.serialize(stay.cardExpiry));
+
+                    long reservationId = ids.next("reservation_seq");
+                    rows.add(INSERT_RESERVATION, reservationId, bytes(stay.reservationId), roomId,
+                            Date.valueOf(stay.checkInDate), Date.valueOf(stay.checkOutDate),
+                            Time.valueOf(stay.estimatedCheckInTime), stay.lateCheckout, paymentId,
+                            Timestamp.valueOf(stay.createdTime));
+                    reservations++;
+
+                    for (Long extra : stay.generalExtras) {
+                        rows.add(INSERT_RESERVATION_EXTRA, reservationId, extra);
+                    }
+
+                    for (HotelPlan.GuestPlan guest : stay.guests) {
+                        long guestId = ids.next("guest_seq");
+                        rows.add(INSERT_GUEST, guestId, guest.firstName, guest.lastName, guest.child);
+                        rows.add(INSERT_RESERVATION_GUEST, reservationId, guestId);
+                        guests++;
+
+                        long mealPlanId = ids.next("meal_plan_seq");
+                        rows.add(INSERT_MEAL_PLAN, mealPlanId, bytes(guest.mealPlanId), guestId, reservationId);
+                        for (Long extra : guest.foodExtras) {
+                            rows.add(INSERT_MEAL_PLAN_EXTRA, mealPlanId, extra);
+                        }
+                        for (DietaryRequirement requirement : guest.dietaryRequirements) {
+                            rows.add(INSERT_MEAL_PLAN_DIET, mealPlanId, requirement.ordinal());
+                        }
+                    }
+
+                    for (LocalDate night = stay.checkInDate; night.isBefore(stay.checkOutDate);
+                         night = night.plusDays(1)) {
+                        rows.add(INSERT_ROOM_NIGHT, ids.next("room_night_seq"), roomId, Date.valueOf(night),
+                                reservationId);
+                        roomNights++;
+                    }
+                }
+            }
+        }
+
+        transactionTemplate.execute(status -> {
+            rows.insert();
+            return null;
+        });
+        report.written(to - from, rooms, reservations, guests, roomNights, rows.count());
+    }
+
+    /**
+     * @return The 16 bytes hibernate stores a {@code UUID} as in a binary column.
+     */
+    private static byte[] bytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits())
+                .putLong(uuid.getLeastSignificantBits())
+                .array();
+    }
+
+    /**
+     * The rows of a chunk by insert statement. Statements are run in the order their first row was added, which
+     * puts every table after the tables its foreign keys refer to.
+     */
+    private class Rows {
+        private final Map<String, List<Object[]>> statements = new LinkedHashMap<>();
+
+        void add(String sql, Object... values) {
+            statements.computeIfAbsent(sql, key -> new ArrayList<>()).add(values);
+        }
+
+        void insert() {
+            statements.forEach((sql, rows) -> {
+                for (int from = 0; from < rows.size(); from += batchSize) {
+                    jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(from + batchSize, rows.size())));
+                }
+            });
+        }
+
+        long count() {
+            return statements.values().stream().mapToLong(List::size).sum();
+        }
+    }
+
+    /**
+     * The id blocks of one writer thread, a block of {@value #ALLOCATION_SIZE} ids per sequence value.
+     */
+    private class Ids {
+        private final Map<String, long[]> blocks = new HashMap<>();
+
+        long next(String sequence) {
+            // next id and the end of its block
+            long[] block = blocks.computeIfAbsent(sequence, key -> new long[2]);
+            if (block[0] == block[1]) {
+                Long value = jdbcTemplate.queryForObject(dialect.getSequenceNextValString(sequence), Long.class);
+                block[0] = value;
+                block[1] = value + ALLOCATION_SIZE;
+            }
+            return block[0]++;
+        }
+    }
+
+    private class Progress {
+        private final DatasetReport report;
+        private final long start = System.nanoTime();
+        private long lastLogged = start;
+
+        Progress(DatasetReport report) {
+            this.report = report;
+        }
+
+        synchronized void logIfDue() {
+            long now = System.nanoTime();
+            if (now - lastLogged < progressInterval.toNanos()) {
+                return;
+            }
+            lastLogged = now;
+            double seconds = (now - start) / 1e9;
+            log.info("Generating: {} of {} hotels, {} rooms and {} reservations so far, {} rows/s",
+                    report.getHotels(), report.getSpec().getHotels(), report.getRooms(), report.getReservations(),
+                    Math.round(report.getRows() / seconds));
+        }
+
+        Duration elapsed() {
+            return Duration.ofNanos(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.demo.generator;
+
+import com.demo.DataImporter;
+import com.demo.TimeProvider;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Generates the dataset described by the {@code generator.*} properties on start up of the {@code generator}
+ * profile, for example {@code --spring.profiles.active=generator --generator.hotels=10000} for about a million rooms.
+ *
+ * <p>Runners complete before the application is ready, so views built on start up such as the room stay index
+ * already include the generated reservations. Generating waits for the start up data loaded in the background, as
+ * reservations take their extras from it.</p>
+ */
+@Component
+@Profile("generator")
+public class DatasetGeneratorRunner implements ApplicationRunner {
+    private final DatasetGenerator generator;
+    private final ObjectProvider<DataImporter> dataImporter;
+    private final DatasetSpec spec;
+
+    /**
+     * @param historyEnd Defaults to today. Set it to generate the same reservations whenever the runner is run.
+     */
+    public DatasetGeneratorRunner(DatasetGenerator generator, ObjectProvider<DataImporter> dataImporter,
+                                  TimeProvider timeProvider,
+                                  @Value("${generator.seed:1}") long seed,
+                                  @Value("${generator.hotels:1000}") int hotels,
+                                  @Value("${generator.rooms-per-hotel.min:20}") int minRoomsPerHotel,
+                                  @Value("${generator.rooms-per-hotel.max:180}") int maxRoomsPerHotel,
+                                  @Value("${generator.room-type-mix:Economy:40,Balcony:20,Business:25,Luxury:15}")
+                                          String roomTypeMix,
+                                  @Value("${generator.history-days:30}") int historyDays,
+                                  @Value("${generator.occupancy:0.6}") double occupancy,
+                                  @Value("${generator.history-end:}") String historyEnd) {
+        this.generator = generator;
+        this.dataImporter = dataImporter;
+        this.spec = new DatasetSpec(seed, hotels, minRoomsPerHotel, maxRoomsPerHotel,
+                DatasetSpec.parseRoomTypeMix(roomTypeMix), historyDays, occupancy,
+                historyEnd.isEmpty() ? timeProvider.localDate() : LocalDate.parse(historyEnd));
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        DataImporter importer = dataImporter.getIfAvailable();
+        if (importer != null) {
+            importer.loaded().join();
+        }
+        generator.generate(spec);
+    }
+}
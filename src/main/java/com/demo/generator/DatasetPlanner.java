@@ -0,0 +1,226 @@
+package com.demo.generator;
+
+import com.demo.domain.DietaryRequirement;
+import com.demo.domain.Extra;
+import com.demo.domain.PendingPayment;
+import com.demo.domain.RoomType;
+import com.demo.domain.location.State;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Plans each hotel from a random of its own seeded by the spec seed and the hotel index, so a hotel is the same
+ * however many hotels are generated, in whichever order and on whichever thread.
+ *
+ * <p>The first hotels are placed one in each {@code State} so every state is covered, the rest by the state and
+ * suburb weights of {@code Locations}. Each room is booked for back to back stays with gaps sized to reach the
+ * spec occupancy, so no two reservations of a room share a night.</p>
+ */
+final class DatasetPlanner {
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private static final String[] HOTEL_PREFIXES = {"Grand", "Royal", "Harbour", "Park", "City", "Riverside",
+            "Bayview", "Heritage", "Central", "Ocean", "Garden", "Summit"};
+    private static final String[] HOTEL_SUFFIXES = {"Hotel", "Inn", "Suites", "Resort", "Lodge", "Apartments",
+            "Motel", "Retreat"};
+    private static final String[] STREET_NAMES = {"George", "Collins", "Queen", "King", "Elizabeth", "Victoria",
+            "Albert", "Smith", "Station", "Beach", "Park", "Church", "High", "William", "Market"};
+    private static final String[] STREET_TYPES = {"Street", "Road", "Avenue", "Parade", "Terrace", "Lane"};
+    // 20 names, stepping through them by 7 gives distinct first names within a reservation
+    private static final String[] FIRST_NAMES = {"Olivia", "Jack", "Charlotte", "William", "Amelia", "Noah", "Isla",
+            "Oliver", "Mia", "Thomas", "Ava", "James", "Grace", "Lucas", "Chloe", "Henry", "Zoe", "Ethan", "Ruby",
+            "Liam"};
+    private static final String[] LAST_NAMES = {"Smith", "Jones", "Williams", "Brown", "Wilson", "Taylor", "Nguyen",
+            "Johnson", "Martin", "White", "Anderson", "Walker", "Thompson", "Ryan", "Chen", "Kelly", "Lee", "Harris",
+            "Clarke", "Singh"};
+
+    // weights of 1 to 5 stars
+    private static final int[] STAR_WEIGHTS = {5, 15, 40, 30, 10};
+    // weights of 1 to 7 night stays
+    private static final int[] STAY_WEIGHTS = {30, 25, 18, 10, 7, 5, 5};
+    private static final double MEAN_STAY;
+
+    private static final Map<RoomType, BigDecimal> BASE_RATES = new EnumMap<>(RoomType.class);
+    private static final Map<RoomType, int[]> BED_RANGES = new EnumMap<>(RoomType.class);
+
+    static {
+        int stays = 0;
+        int nights = 0;
+        for (int i = 0; i < STAY_WEIGHTS.length; i++) {
+            stays += STAY_WEIGHTS[i];
+            nights += STAY_WEIGHTS[i] * (i + 1);
+        }
+        MEAN_STAY = (double) nights / stays;
+
+        BASE_RATES.put(RoomType.Economy, BigDecimal.valueOf(70));
+        BASE_RATES.put(RoomType.Balcony, BigDecimal.valueOf(110));
+        BASE_RATES.put(RoomType.Business, BigDecimal.valueOf(150));
+        BASE_RATES.put(RoomType.Luxury, BigDecimal.valueOf(260));
+
+        BED_RANGES.put(RoomType.Economy, new int[]{1, 2});
+        BED_RANGES.put(RoomType.Balcony, new int[]{2, 3});
+        BED_RANGES.put(RoomType.Business, new int[]{1, 2});
+        BED_RANGES.put(RoomType.Luxury, new int[]{2, 4});
+    }
+
+    private final DatasetSpec spec;
+    private final Map<Extra.Type, List<Long>> generalExtras;
+    private final Map<Extra.Type, List<Long>> foodExtras;
+    private final double meanGap;
+
+    /**
+     * @param generalExtras Ids of the general extras reservations can take, by pricing type.
+     * @param foodExtras    Ids of the food extras meal plans can take, by pricing type.
+     */
+    DatasetPlanner(DatasetSpec spec, Map<Extra.Type, List<Long>> generalExtras,
+                   Map<Extra.Type, List<Long>> foodExtras) {
+        this.spec = spec;
+        this.generalExtras = generalExtras;
+        this.foodExtras = foodExtras;
+        // free nights between stays so that stays / (stays + gaps) is the occupancy
+        this.meanGap = spec.getOccupancy() == 0 ? Double.POSITIVE_INFINITY
+                : MEAN_STAY * (1 - spec.getOccupancy()) / spec.getOccupancy();
+    }
+
+    HotelPlan plan(int index) {
+        SplittableRandom random = new SplittableRandom(spec.getSeed() ^ (index + 1) * GOLDEN_GAMMA);
+
+        HotelPlan hotel = new HotelPlan();
+        hotel.index = index;
+        State[] states = State.values();
+        hotel.state = index < states.length ? states[index] : Locations.state(random);
+        Locations.Location location = Locations.suburb(hotel.state, random);
+        hotel.suburb = location.suburb;
+        hotel.postcode = location.postcode;
+        hotel.name = pick(random, HOTEL_PREFIXES) + " " + location.suburb + " " + pick(random, HOTEL_SUFFIXES);
+        hotel.streetLine1 = (1 + random.nextInt(400)) + " " + pick(random, STREET_NAMES) + " "
+                + pick(random, STREET_TYPES);
+        hotel.stars = 1 + Weighted.pick(random, STAR_WEIGHTS);
+        hotel.email = "stay" + (index + 1) + "@" + hotel.name.toLowerCase().replace(' ', '-') + ".example.com";
+        hotel.earliestCheckInTime = LocalTime.of(7 + random.nextInt(4), 0);
+        hotel.latestCheckInTime = LocalTime.of(20 + random.nextInt(4), 0);
+        hotel.standardCheckOutTime = LocalTime.of(10 + random.nextInt(3), 0);
+        hotel.latestCheckOutTime = hotel.standardCheckOutTime.plusHours(2 + random.nextInt(8));
+        hotel.lateCheckoutFee = price(random, 10, 60);
+
+        int rooms = spec.getMinRoomsPerHotel()
+                + random.nextInt(spec.getMaxRoomsPerHotel() - spec.getMinRoomsPerHotel() + 1);
+        for (int i = 0; i < rooms; i++) {
+            hotel.rooms.add(room(random, hotel, i));
+        }
+        return hotel;
+    }
+
+    private HotelPlan.RoomPlan room(SplittableRandom random, HotelPlan hotel, int index) {
+        HotelPlan.RoomPlan room = new HotelPlan.RoomPlan();
+        // floors of 20 rooms, unique across hotels as the number starts with the hotel
+        room.roomNumber = "H" + (hotel.index + 1) + "-" + ((1 + index / 20) * 100 + index % 20 + 1);
+        room.roomType = Weighted.pick(random, spec.getRoomTypeMix());
+        int[] beds = BED_RANGES.get(room.roomType);
+        room.beds = beds[0] + random.nextInt(beds[1] - beds[0] + 1);
+        room.costPerNight = BASE_RATES.get(room.roomType)
+                .multiply(BigDecimal.valueOf((0.55 + 0.15 * hotel.stars) * (0.9 + 0.2 * random.nextDouble())))
+                .setScale(2, RoundingMode.HALF_UP);
+
+        LocalDate end = spec.getHistoryEnd();
+        LocalDate night = end.minusDays(spec.getHistoryDays()).plusDays(gap(random));
+        while (true) {
+            LocalDate checkOut = night.plusDays(1 + Weighted.pick(random, STAY_WEIGHTS));
+            if (checkOut.isAfter(end)) {
+                break;
+            }
+            room.stays.add(stay(random, hotel, room, night, checkOut));
+            night = checkOut.plusDays(gap(random));
+        }
+        return room;
+    }
+
+    private HotelPlan.StayPlan stay(SplittableRandom random, HotelPlan hotel, HotelPlan.RoomPlan room,
+                                    LocalDate checkIn, LocalDate checkOut) {
+        HotelPlan.StayPlan stay = new HotelPlan.StayPlan();
+        stay.reservationId = uuid(random);
+        stay.checkInDate = checkIn;
+        stay.checkOutDate = checkOut;
+        int checkInHours = hotel.latestCheckInTime.getHour() - hotel.earliestCheckInTime.getHour();
+        stay.estimatedCheckInTime = hotel.earliestCheckInTime.plusHours(random.nextInt(checkInHours + 1));
+        stay.lateCheckout = random.nextInt(10) == 0;
+        stay.createdTime = checkIn.minusDays(random.nextInt(61))
+                .atTime(LocalTime.ofSecondOfDay(random.nextInt(24 * 60 * 60)));
+
+        Extra.Type pricing = room.roomType == RoomType.Luxury || room.roomType == RoomType.Business
+                ? Extra.Type.Premium : Extra.Type.Basic;
+        for (Long extra : generalExtras.getOrDefault(pricing, Collections.emptyList())) {
+            if (random.nextInt(5) == 0) {
+                stay.generalExtras.add(extra);
+            }
+        }
+
+        int guests = 1 + random.nextInt(room.beds);
+        String lastName = pick(random, LAST_NAMES);
+        int firstName = random.nextInt(FIRST_NAMES.length);
+        for (int i = 0; i < guests; i++) {
+            HotelPlan.GuestPlan guest = new HotelPlan.GuestPlan();
+            guest.firstName = FIRST_NAMES[(firstName + i * 7) % FIRST_NAMES.length];
+            guest.lastName = lastName;
+            guest.child = i > 0 && random.nextInt(10) < 3;
+            guest.mealPlanId = uuid(random);
+            for (Long extra : foodExtras.getOrDefault(pricing, Collections.emptyList())) {
+                if (random.nextInt(20) < 7) {
+                    guest.foodExtras.add(extra);
+                }
+            }
+            if (random.nextInt(20) < 3) {
+                guest.dietaryRequirements.add(pick(random, DietaryRequirement.values()));
+            }
+            stay.guests.add(guest);
+        }
+
+        stay.transactionId = uuid(random);
+        stay.creditCardType = pick(random, PendingPayment.CreditCardType.values());
+        stay.last4CreditCardDigits = String.format("%04d", random.nextInt(10_000));
+        stay.cvv = String.format("%03d", random.nextInt(1_000));
+        stay.cardExpiry = YearMonth.from(checkIn).plusMonths(6 + random.nextInt(43));
+        return stay;
+    }
+
+    /**
+     * @return Free nights before the next stay, geometrically distributed around the mean gap.
+     */
+    private long gap(SplittableRandom random) {
+        if (Double.isInfinite(meanGap)) {
+            return Integer.MAX_VALUE;
+        }
+        if (meanGap <= 0) {
+            return 0;
+        }
+        double p = 1 / (meanGap + 1);
+        return (long) Math.floor(Math.log(1 - random.nextDouble()) / Math.log(1 - p));
+    }
+
+    private static BigDecimal price(SplittableRandom random, int min, int max) {
+        return BigDecimal.valueOf(min * 100 + random.nextInt((max - min) * 100 + 1), 2);
+    }
+
+    private static <T> T pick(SplittableRandom random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * @return A version 4 uuid drawn from {@code random} rather than the shared secure random.
+     */
+    private static UUID uuid(SplittableRandom random) {
+        long mostSignificant = (random.nextLong() & ~0xF000L) | 0x4000L;
+        long leastSignificant = (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSignificant, leastSignificant);
+    }
+}
@@ -0,0 +1,101 @@
+package com.demo.generator;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * What a generator run wrote. Counts are updated by the writer threads as each chunk of hotels commits.
+ */
+public class DatasetReport {
+    private final DatasetSpec spec;
+    private final AtomicLong hotels = new AtomicLong();
+    private final AtomicLong rooms = new AtomicLong();
+    private final AtomicLong reservations = new AtomicLong();
+    private final AtomicLong guests = new AtomicLong();
+    private final AtomicLong roomNights = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private volatile String abortedBy;
+    private volatile Duration elapsed = Duration.ZERO;
+
+    DatasetReport(DatasetSpec spec) {
+        this.spec = spec;
+    }
+
+    void written(long hotels, long rooms, long reservations, long guests, long roomNights, long rows) {
+        this.hotels.addAndGet(hotels);
+        this.rooms.addAndGet(rooms);
+        this.reservations.addAndGet(reservations);
+        this.guests.addAndGet(guests);
+        this.roomNights.addAndGet(roomNights);
+        this.rows.addAndGet(rows);
+    }
+
+    void aborted(String reason) {
+        abortedBy = reason;
+    }
+
+    void finished(Duration elapsed) {
+        this.elapsed = elapsed;
+    }
+
+    public DatasetSpec getSpec() {
+        return spec;
+    }
+
+    public long getHotels() {
+        return hotels.get();
+    }
+
+    public long getRooms() {
+        return rooms.get();
+    }
+
+    public long getReservations() {
+        return reservations.get();
+    }
+
+    public long getGuests() {
+        return guests.get();
+    }
+
+    public long getRoomNights() {
+        return roomNights.get();
+    }
+
+    /**
+     * @return Rows inserted into every table, join tables included.
+     */
+    public long getRows() {
+        return rows.get();
+    }
+
+    /**
+     * @return Why generating stopped early, or {@code null} if every hotel was written. The chunks of hotels
+     * committed before then stay written.
+     */
+    public String getAbortedBy() {
+        return abortedBy;
+    }
+
+    public boolean isComplete() {
+        return abortedBy == null;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    public double getRowsPerSecond() {
+        long millis = elapsed.toMillis();
+        return millis == 0 ? 0 : getRows() * 1000.0 / millis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d hotels, %d rooms, %d reservations, %d guests and %d room nights generated%s "
+                        + "in %d ms (%d rows, %.0f rows/s)",
+                getHotels(), getRooms(), getReservations(), getGuests(), getRoomNights(),
+                abortedBy == null ? "" : ", aborted by " + abortedBy, elapsed.toMillis(), getRows(),
+                getRowsPerSecond());
+    }
+}
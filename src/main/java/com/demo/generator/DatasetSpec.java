@@ -0,0 +1,114 @@
+package com.demo.generator;
+
+import com.demo.domain.RoomType;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * What to generate. The same spec, including the seed and the date history runs up to, always plans the same
+ * hotels, rooms and reservations.
+ */
+public class DatasetSpec {
+    private final long seed;
+    private final int hotels;
+    private final int minRoomsPerHotel;
+    private final int maxRoomsPerHotel;
+    private final Map<RoomType, Integer> roomTypeMix;
+    private final int historyDays;
+    private final double occupancy;
+    private final LocalDate historyEnd;
+
+    /**
+     * @param roomTypeMix Relative weight of each room type, types left out are not generated.
+     * @param historyDays Reservations are generated for the nights in {@code [historyEnd - historyDays, historyEnd)}.
+     * @param occupancy   The share of those nights each room is booked for on average, from 0 to 1.
+     */
+    public DatasetSpec(long seed, int hotels, int minRoomsPerHotel, int maxRoomsPerHotel,
+                       Map<RoomType, Integer> roomTypeMix, int historyDays, double occupancy, LocalDate historyEnd) {
+        if (hotels < 0 || minRoomsPerHotel < 0 || maxRoomsPerHotel < minRoomsPerHotel) {
+            throw new IllegalArgumentException("Invalid hotel or rooms per hotel counts");
+        }
+        if (roomTypeMix.isEmpty() || roomTypeMix.values().stream().anyMatch(weight -> weight < 0)
+                || roomTypeMix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("Room type mix needs a positive weight: " + roomTypeMix);
+        }
+        if (historyDays < 0 || occupancy < 0 || occupancy >= 1) {
+            throw new IllegalArgumentException("Occupancy must be at least 0 and less than 1");
+        }
+        this.seed = seed;
+        this.hotels = hotels;
+        this.minRoomsPerHotel = minRoomsPerHotel;
+        this.maxRoomsPerHotel = maxRoomsPerHotel;
+        this.roomTypeMix = Collections.unmodifiableMap(new EnumMap<>(roomTypeMix));
+        this.historyDays = historyDays;
+        this.occupancy = occupancy;
+        this.historyEnd = historyEnd;
+    }
+
+    /**
+     * @param mix For example {@code Economy:40,Balcony:20,Business:25,Luxury:15}.
+     */
+    public static Map<RoomType, Integer> parseRoomTypeMix(String mix) {
+        Map<RoomType, Integer> weights = new EnumMap<>(RoomType.class);
+        Arrays.stream(mix.split(","))
+                .map(String::trim)
+                .filter(weight -> !weight.isEmpty())
+                .forEach(weight -> {
+                    String[] parts = weight.split(":");
+                    if (parts.length != 2) {
+                        throw new IllegalArgumentException("Expected type:weight but was '" + weight + "'");
+                    }
+                    weights.put(RoomType.valueOf(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+                });
+        return weights;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getHotels() {
+        return hotels;
+    }
+
+    public int getMinRoomsPerHotel() {
+        return minRoomsPerHotel;
+    }
+
+    public int getMaxRoomsPerHotel() {
+        return maxRoomsPerHotel;
+    }
+
+    public Map<RoomType, Integer> getRoomTypeMix() {
+        return roomTypeMix;
+    }
+
+    public int getHistoryDays() {
+        return historyDays;
+    }
+
+    public double getOccupancy() {
+        return occupancy;
+    }
+
+    public LocalDate getHistoryEnd() {
+        return historyEnd;
+    }
+
+    @Override
+    public String toString() {
+        return "DatasetSpec{" +
+                "seed=" + seed +
+                ", hotels=" + hotels +
+                ", roomsPerHotel=" + minRoomsPerHotel + "-" + maxRoomsPerHotel +
+                ", roomTypeMix=" + roomTypeMix +
+                ", historyDays=" + historyDays +
+                ", occupancy=" + occupancy +
+                ", historyEnd=" + historyEnd +
+                '}';
+    }
+}
@@ -0,0 +1,77 @@
+package com.demo.generator;
+
+import com.demo.domain.DietaryRequirement;
+import com.demo.domain.PendingPayment;
+import com.demo.domain.RoomType;
+import com.demo.domain.location.State;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Everything planned for one generated hotel, down to the guests of each historical reservation. Plain values rather
+ * than entities so planning has no side effects, such as the random ids entities assign themselves, and the plan
+ * is exactly what the seed determines.
+ */
+final class HotelPlan {
+    int index;
+    String name;
+    String streetLine1;
+    State state;
+    String suburb;
+    String postcode;
+    int stars;
+    String email;
+    LocalTime earliestCheckInTime;
+    LocalTime latestCheckInTime;
+    LocalTime standardCheckOutTime;
+    LocalTime latestCheckOutTime;
+    BigDecimal lateCheckoutFee;
+    final List<RoomPlan> rooms = new ArrayList<>();
+
+    static final class RoomPlan {
+        String roomNumber;
+        RoomType roomType;
+        int beds;
+        BigDecimal costPerNight;
+        final List<StayPlan> stays = new ArrayList<>();
+    }
+
+    /**
+     * A paid reservation along with the room nights it took.
+     */
+    static final class StayPlan {
+        UUID reservationId;
+        LocalDate checkInDate;
+        LocalDate checkOutDate;
+        LocalTime estimatedCheckInTime;
+        boolean lateCheckout;
+        LocalDateTime createdTime;
+        final List<Long> generalExtras = new ArrayList<>();
+        final List<GuestPlan> guests = new ArrayList<>();
+
+        UUID transactionId;
+        PendingPayment.CreditCardType creditCardType;
+        String last4CreditCardDigits;
+        String cvv;
+        YearMonth cardExpiry;
+    }
+
+    /**
+     * A guest and their meal plan, every guest of a completed reservation has one even if it is empty.
+     */
+    static final class GuestPlan {
+        String firstName;
+        String lastName;
+        boolean child;
+        UUID mealPlanId;
+        final List<Long> foodExtras = new ArrayList<>();
+        final List<DietaryRequirement> dietaryRequirements = new ArrayList<>();
+    }
+}
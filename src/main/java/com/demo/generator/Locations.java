@@ -0,0 +1,133 @@
+package com.demo.generator;
+
+import com.demo.domain.location.State;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Suburbs hotels are generated in, weighted so generated hotels cluster in the capitals and holiday destinations the
+ * way a real portfolio does. States are weighted by their share of visitor nights.
+ */
+final class Locations {
+    private static final Map<State, Integer> STATE_WEIGHTS = new EnumMap<>(State.class);
+    private static final Map<State, List<Location>> SUBURBS = new EnumMap<>(State.class);
+
+    static {
+        state(State.NSW, 32,
+                "Sydney", "2000", 30,
+                "Parramatta", "2150", 10,
+                "Bondi Beach", "2026", 8,
+                "Newcastle", "2300", 8,
+                "Manly", "2095", 6,
+                "Wollongong", "2500", 6,
+                "Byron Bay", "2481", 5,
+                "Katoomba", "2780", 4,
+                "Coffs Harbour", "2450", 4,
+                "Port Macquarie", "2444", 3,
+                "Albury", "2640", 2,
+                "Dubbo", "2830", 2);
+        state(State.VIC, 26,
+                "Melbourne", "3000", 30,
+                "Southbank", "3006", 10,
+                "Docklands", "3008", 8,
+                "St Kilda", "3182", 8,
+                "Carlton", "3053", 6,
+                "Geelong", "3220", 6,
+                "Ballarat", "3350", 4,
+                "Bendigo", "3550", 4,
+                "Lorne", "3232", 3,
+                "Torquay", "3228", 3,
+                "Glen Waverley", "3150", 3);
+        state(State.QLD, 20,
+                "Brisbane City", "4000", 25,
+                "Surfers Paradise", "4217", 15,
+                "Cairns", "4870", 10,
+                "Fortitude Valley", "4006", 6,
+                "Broadbeach", "4218", 6,
+                "Noosa Heads", "4567", 6,
+                "Townsville", "4810", 5,
+                "Airlie Beach", "4802", 4,
+                "Toowoomba", "4350", 3,
+                "Hervey Bay", "4655", 3);
+        state(State.WA, 11,
+                "Perth", "6000", 30,
+                "Fremantle", "6160", 10,
+                "Scarborough", "6019", 5,
+                "Margaret River", "6285", 5,
+                "Broome", "6725", 4,
+                "Albany", "6330", 3,
+                "Bunbury", "6230", 3,
+                "Kalgoorlie", "6430", 2);
+        state(State.SA, 7,
+                "Adelaide", "5000", 30,
+                "Glenelg", "5045", 8,
+                "North Adelaide", "5006", 5,
+                "Victor Harbor", "5211", 3,
+                "Hahndorf", "5245", 3,
+                "Mount Gambier", "5290", 2,
+                "Port Lincoln", "5606", 2);
+        state(State.TAS, 2,
+                "Hobart", "7000", 20,
+                "Launceston", "7250", 10,
+                "Devonport", "7310", 3,
+                "Coles Bay", "7215", 2,
+                "Strahan", "7468", 2);
+        state(State.ACT, 2,
+                "Canberra", "2601", 20,
+                "Barton", "2600", 5,
+                "Braddon", "2612", 5,
+                "Kingston", "2604", 4);
+        state(State.NT, 1,
+                "Darwin", "0800", 20,
+                "Alice Springs", "0870", 10,
+                "Yulara", "0872", 4,
+                "Katherine", "0850", 3);
+    }
+
+    private Locations() {
+    }
+
+    private static void state(State state, int weight, Object... suburbs) {
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < suburbs.length; i += 3) {
+            locations.add(new Location(state, (String) suburbs[i], (String) suburbs[i + 1], (Integer) suburbs[i + 2]));
+        }
+        STATE_WEIGHTS.put(state, weight);
+        SUBURBS.put(state, locations);
+    }
+
+    static State state(SplittableRandom random) {
+        return Weighted.pick(random, STATE_WEIGHTS);
+    }
+
+    static Location suburb(State state, SplittableRandom random) {
+        List<Location> locations = SUBURBS.get(state);
+        int total = locations.stream().mapToInt(location -> location.weight).sum();
+        int pick = random.nextInt(total);
+        for (Location location : locations) {
+            pick -= location.weight;
+            if (pick < 0) {
+                return location;
+            }
+        }
+        throw new IllegalStateException("No suburb picked for " + state);
+    }
+
+    static final class Location {
+        final State state;
+        final String suburb;
+        final String postcode;
+        final int weight;
+
+        private Location(State state, String suburb, String postcode, int weight) {
+            this.state = state;
+            this.suburb = suburb;
+            this.postcode = postcode;
+            this.weight = weight;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.demo.generator;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+
+final class Weighted {
+
+    private Weighted() {
+    }
+
+    /**
+     * @param weights Iterated in a fixed order, such as an {@code EnumMap}, so the same random picks the same key.
+     */
+    static <K> K pick(SplittableRandom random, Map<K, Integer> weights) {
+        int total = weights.values().stream().mapToInt(Integer::intValue).sum();
+        int pick = random.nextInt(total);
+        for (Map.Entry<K, Integer> weight : weights.entrySet()) {
+            pick -= weight.getValue();
+            if (pick < 0) {
+                return weight.getKey();
+            }
+        }
+        throw new IllegalStateException("No key picked from " + weights);
+    }
+
+    /**
+     * @return An index into {@code weights}.
+     */
+    static int pick(SplittableRandom random, int... weights) {
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        int pick = random.nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            pick -= weights[i];
+            if (pick < 0) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("No index picked");
+    }
+}
@@ -0,0 +1,171 @@
+package com.demo.hotel;
+
+import com.demo.availability.RoomBookedEvent;
+import com.demo.domain.Hotel;
+import com.demo.domain.HotelChangedEvent;
+import com.demo.domain.HotelsImportedEvent;
+import com.demo.persistance.ListingRepository;
+import com.demo.persistance.projections.HotelListing;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+
+/**
+ * Caches pages of {@code ListingRepository#findHotelsByLocation} keyed on the normalized location, page and sort.
+ *
+ * <p>Entries are bounded by count and expire after a fixed time. They are also invalidated once a hotel change or
+ * booking commits, but only the entries that could have changed: a hotel change drops every page whose location
+ * filter matches where the hotel was or now is, a booking drops the pages listing that hotel.</p>
+ *
+ * <p>Concurrent misses for the same key wait on a single load so a burst of identical searches only queries the
+ * database once.</p>
+ */
+@Component
+public class HotelSearchCache {
+    private final ListingRepository listingRepository;
+
+    private final Cache<SearchKey, Page<HotelListing>> cache;
+    private final Timer loadTimer;
+
+    /*
+     * Bumped on every invalidation. A load that started before an invalidation may have read the old rows, so its
+     * result is dropped rather than left to be served until it expires.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public HotelSearchCache(ListingRepository listingRepository, MeterRegistry meterRegistry,
+                            @Value("${hotel.search-cache.maximum-size:1000}") long maximumSize,
+                            @Value("${hotel.search-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.listingRepository = listingRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        this.loadTimer = meterRegistry.timer("hotel.search.cache.load");
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "hotel.search");
+        Gauge.builder("hotel.search.cache.hit.ratio", cache, c -> c.stats().hitRate())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Same contract as {@code ListingRepository#findHotelsByLocation}.
+     */
+    public Page<HotelListing> findHotelsByLocation(String state, String suburb, String postcode, Pageable pageable) {
+        if (pageable.isUnpaged()) {
+            return listingRepository.findHotelsByLocation(state, suburb, postcode, pageable);
+        }
+
+        SearchKey key = new SearchKey(Hotel.normalizeSearchTerm(state), Hotel.normalizeSearchTerm(suburb),
+                Hotel.normalizeSearchTerm(postcode),
+                PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), pageable.getSort()));
+
+        long generation = invalidations.get();
+        Page<HotelListing> page = cache.get(key, k -> loadTimer.record(() ->
+                listingRepository.findHotelsByLocation(k.state, k.suburb, k.postcode, k.pageable)));
+
+        if (page != null && invalidations.get() != generation) {
+            cache.asMap().remove(key, page);
+        }
+        return page;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHotelChanged(HotelChangedEvent event) {
+        String state = Hotel.normalizeSearchTerm(event.getState());
+        String suburb = Hotel.normalizeSearchTerm(event.getSuburb());
+        String postcode = Hotel.normalizeSearchTerm(event.getPostcode());
+
+        invalidateIf((key, page) -> key.matches(state, suburb, postcode)
+                || key.matches(event.getPreviousState(), event.getPreviousSuburb(), event.getPreviousPostcode())
+                || lists(page, event.getHotelId()));
+    }
+
+    @EventListener
+    public void onHotelsImported(HotelsImportedEvent event) {
+        invalidateAll();
+    }
+
+    @TransactionalEventListener
+    public void onRoomBooked(RoomBookedEvent event) {
+        invalidateIf((key, page) -> lists(page, event.getHotelId()));
+    }
+
+    public void invalidateAll() {
+        invalidations.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private void invalidateIf(BiPredicate<SearchKey, Page<HotelListing>> affected) {
+        invalidations.incrementAndGet();
+        cache.asMap().entrySet().removeIf(entry -> affected.test(entry.getKey(), entry.getValue()));
+    }
+
+    private static boolean lists(Page<HotelListing> page, Long hotelId) {
+        return page.getContent().stream().anyMatch(hotel -> Objects.equals(hotel.getId(), hotelId));
+    }
+
+    private static final class SearchKey {
+        private final String state;
+        private final String suburb;
+        private final String postcode;
+        private final Pageable pageable;
+
+        private SearchKey(String state, String suburb, String postcode, Pageable pageable) {
+            this.state = state;
+            this.suburb = suburb;
+            this.postcode = postcode;
+            this.pageable = pageable;
+        }
+
+        /**
+         * Mirrors {@code HotelPredicates#byLocation}, a {@code null} term does not filter.
+         *
+         * @return {@code true} if a hotel at the given normalized location belongs in this search.
+         */
+        private boolean matches(String hotelState, String hotelSuburb, String hotelPostcode) {
+            if (hotelState == null) {
+                return false;
+            }
+            return (state == null || state.equals(hotelState))
+                    && (suburb == null || suburb.equals(hotelSuburb))
+                    && (postcode == null || postcode.equals(hotelPostcode));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            SearchKey that = (SearchKey) o;
+            return Objects.equals(state, that.state) &&
+                    Objects.equals(suburb, that.suburb) &&
+                    Objects.equals(postcode, that.postcode) &&
+                    Objects.equals(pageable, that.pageable);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(state, suburb, postcode, pageable);
+        }
+    }
+}
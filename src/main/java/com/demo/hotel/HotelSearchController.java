@@ -1,62 +1,154 @@
 package com.demo.hotel;
 
-import com.demo.domain.Hotel;
-import com.demo.domain.Room;
+import com.demo.availability.AvailabilityService;
+import com.demo.domain.QHotel;
 import com.demo.exceptions.NotFoundException;
-import com.demo.persistance.HotelRepository;
-import com.demo.persistance.predicates.RoomPredicates;
-import com.demo.persistance.RoomRepository;
+import com.demo.persistance.ListingRepository;
+import com.demo.persistance.budget.SqlBudget;
+import com.demo.persistance.keyset.KeysetQueryExecutor;
+import com.demo.persistance.keyset.KeysetRequest;
+import com.demo.persistance.keyset.KeysetSlice;
+import com.demo.persistance.predicates.HotelPredicates;
+import com.demo.persistance.predicates.SortKeys;
+import com.demo.persistance.projections.HotelHeader;
+import com.demo.persistance.projections.HotelListing;
+import com.demo.persistance.projections.RoomListing;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.util.UriComponentsBuilder;
 
-import javax.persistence.EntityNotFoundException;
+import javax.servlet.http.HttpServletRequest;
+import java.time.LocalDate;
+import java.util.List;
 
 @Controller
 public class HotelSearchController {
 
-    private HotelRepository hotelRepository;
-    private RoomRepository roomRepository;
+    private static final String KEYSET_MODE = "keyset";
 
-    public HotelSearchController(HotelRepository hotelRepository,
-                                 RoomRepository roomRepository) {
-        this.hotelRepository = hotelRepository;
-        this.roomRepository = roomRepository;
+    private ListingRepository listingRepository;
+    private HotelSearchCache hotelSearchCache;
+    private AvailabilityService availabilityService;
+    private KeysetQueryExecutor keysetQueryExecutor;
+
+    public HotelSearchController(ListingRepository listingRepository,
+                                 HotelSearchCache hotelSearchCache,
+                                 AvailabilityService availabilityService,
+                                 KeysetQueryExecutor keysetQueryExecutor) {
+        this.listingRepository = listingRepository;
+        this.hotelSearchCache = hotelSearchCache;
+        this.availabilityService = availabilityService;
+        this.keysetQueryExecutor = keysetQueryExecutor;
     }
 
+    /**
+     * {@code mode=keyset} pages with an opaque {@code cursor} instead of a page number which keeps deep pages as
+     * cheap as the first. The total is only counted when {@code count=true}.
+     */
+    @SqlBudget(2)
     @GetMapping(value = "/hotel/search")
     public String getHotels(@RequestParam(value = "state", required = false) String state,
                             @RequestParam(value = "suburb", required = false) String suburb,
                             @RequestParam(value = "postcode", required = false) String postcode,
-                            Pageable pageable, Model model) {
-        Page<Hotel> results = hotelRepository.findAllByLocation(state, suburb, postcode, pageable);
+                            @RequestParam(value = "mode", required = false) String mode,
+                            @RequestParam(value = "cursor", required = false) String cursor,
+                            @RequestParam(value = "count", defaultValue = "false") boolean count,
+                            Pageable pageable, Model model, HttpServletRequest request) {
+        if (KEYSET_MODE.equals(mode)) {
+            KeysetSlice<HotelListing> results = keysetQueryExecutor.find(QHotel.hotel, HotelListing.PROJECTION,
+                    HotelPredicates.byLocation(state, suburb, postcode), SortKeys.HOTELS,
+                    KeysetRequest.of(pageable, cursor, count));
+            model.addAttribute("hotels", results);
+            addKeysetNavigation(model, request, cursor, results);
+            return "/hotel/hotels";
+        }
+
+        Page<HotelListing> results = hotelSearchCache.findHotelsByLocation(state, suburb, postcode, pageable);
         model.addAttribute("hotels", results == null ? Page.empty() : results);
+        model.addAttribute("keyset", false);
         return "/hotel/hotels";
     }
 
+    /**
+     * Rooms are available when none of their nights between check in and check out are booked. Without dates the
+     * rooms available tonight are shown.
+     *
+     * <p>A page of rooms is a single select of projections which also carry the hotel shown above them, so nothing
+     * is loaded lazily while they are rendered. The count and, when no room is available, the hotel are only
+     * selected when needed.</p>
+     */
+    @SqlBudget(3)
     @GetMapping(value = "/hotel/{id}/rooms")
-    public String getHotelRooms(@PathVariable("id") Long id, Pageable pageable, Model model) throws NotFoundException {
-        Hotel hotel = hotelRepository.findById(id).orElseThrow(NotFoundException::new);
-        Page<Room> availableRooms = roomRepository.findAll(RoomPredicates.availableRoom(id), pageable);
+    public String getHotelRooms(@PathVariable("id") Long id,
+                                @RequestParam(value = "checkIn", required = false)
+                                @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkIn,
+                                @RequestParam(value = "checkOut", required = false)
+                                @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOut,
+                                @RequestParam(value = "mode", required = false) String mode,
+                                @RequestParam(value = "cursor", required = false) String cursor,
+                                @RequestParam(value = "count", defaultValue = "false") boolean count,
+                                Pageable pageable, Model model, HttpServletRequest request)
+            throws NotFoundException {
+        if (KEYSET_MODE.equals(mode)) {
+            KeysetSlice<RoomListing> availableRooms = availabilityService.findAvailableRooms(id, checkIn, checkOut,
+                    KeysetRequest.of(pageable, cursor, count));
+            model.addAttribute("hotel", hotelHeader(id, availableRooms.getContent()));
+            model.addAttribute("rooms", availableRooms);
+            addKeysetNavigation(model, request, cursor, availableRooms);
+            return "/hotel/rooms";
+        }
+
+        Page<RoomListing> availableRooms = availabilityService.findAvailableRooms(id, checkIn, checkOut, pageable);
+        model.addAttribute("hotel", hotelHeader(id, availableRooms.getContent()));
         model.addAttribute("rooms", availableRooms);
-        model.addAttribute("hotel", hotel);
+        model.addAttribute("keyset", false);
         return "/hotel/rooms";
     }
 
+    /**
+     * Every room listed carries the same hotel header, it is only selected when no room is available.
+     */
+    private HotelHeader hotelHeader(Long hotelId, List<RoomListing> rooms) throws NotFoundException {
+        if (!rooms.isEmpty()) {
+            return rooms.get(0).getHotel();
+        }
+        return listingRepository.findHotelHeader(hotelId).orElseThrow(NotFoundException::new);
+    }
+
+    /**
+     * The next and first page links keep every other query parameter, including the sort, and only swap the cursor.
+     * Cursors are url safe so the already encoded query string can be reused as is.
+     */
+    private void addKeysetNavigation(Model model, HttpServletRequest request, String cursor, KeysetSlice<?> slice) {
+        UriComponentsBuilder current = UriComponentsBuilder.fromPath(request.getRequestURI())
+                .query(request.getQueryString())
+                .replaceQueryParam("page");
+
+        model.addAttribute("keyset", true);
+        model.addAttribute("firstPageUrl", cursor == null ? null
+                : current.cloneBuilder().replaceQueryParam("cursor").build(true).toUriString());
+        model.addAttribute("nextPageUrl", slice.hasNext()
+                ? current.cloneBuilder().replaceQueryParam("cursor", slice.getNextCursor()).build(true).toUriString()
+                : null);
+    }
+
 
 
 
 
 
     // TODO: for testing
+    @SqlBudget(2)
     @GetMapping(value = "/hotels")
     public String getHotels(Pageable pageable, Model model) {
-        Page<Hotel> results = hotelRepository.findAll(pageable);
+        Page<HotelListing> results = hotelSearchCache.findHotelsByLocation(null, null, null, pageable);
         model.addAttribute("hotels", results);
         return "/hotel/hotels";
     }
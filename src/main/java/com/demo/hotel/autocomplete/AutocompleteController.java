@@ -0,0 +1,29 @@
+package com.demo.hotel.autocomplete;
+
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.List;
+
+@Controller
+public class AutocompleteController {
+
+    static final int MAX_SUGGESTIONS = 10;
+
+    private LocationAutocompleteIndex autocompleteIndex;
+
+    public AutocompleteController(LocationAutocompleteIndex autocompleteIndex) {
+        this.autocompleteIndex = autocompleteIndex;
+    }
+
+    /**
+     * Called on each keystroke of the search page. Answered entirely from memory.
+     */
+    @GetMapping("/hotel/autocomplete")
+    @ResponseBody
+    public List<LocationSuggestion> autocomplete(@RequestParam(value = "q", required = false) String query) {
+        return autocompleteIndex.lookup(query, MAX_SUGGESTIONS);
+    }
+}
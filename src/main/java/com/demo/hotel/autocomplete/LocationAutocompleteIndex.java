@@ -0,0 +1,165 @@
+package com.demo.hotel.autocomplete;
+
+import com.demo.domain.Hotel;
+import com.demo.domain.HotelChangedEvent;
+import com.demo.domain.HotelsImportedEvent;
+import com.demo.persistance.HotelRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In memory autocomplete over hotel names, suburbs and postcodes.
+ *
+ * <p>Lookups only read the current immutable {@code PrefixIndex} through a volatile field so they never block and
+ * never touch the database. Hotel changes are applied incrementally under a lock, the suburb and postcode entries
+ * are reference counted since many hotels share them.</p>
+ *
+ * <p>Hotels may store the same suburb in different casing. A suburb or postcode is suggested once per normalized
+ * term and state, in the display form of the first hotel seen there.</p>
+ */
+@Component
+public class LocationAutocompleteIndex {
+    private static final Logger log = LoggerFactory.getLogger(LocationAutocompleteIndex.class);
+
+    private final HotelRepository hotelRepository;
+
+    private final Object writeLock = new Object();
+    private final Map<Long, List<PrefixIndex.Entry>> entriesByHotel = new HashMap<>();
+    private final Map<PrefixIndex.Entry, Integer> references = new HashMap<>();
+    private final Map<String, LocationSuggestion> locationSuggestions = new HashMap<>();
+
+    private volatile PrefixIndex index = PrefixIndex.EMPTY;
+
+    public LocationAutocompleteIndex(HotelRepository hotelRepository, MeterRegistry meterRegistry) {
+        this.hotelRepository = hotelRepository;
+        Gauge.builder("hotel.autocomplete.keys", this, autocomplete -> autocomplete.index.size())
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param query What the user has typed so far, case and surrounding whitespace are ignored.
+     * @return Up to {@code limit} suggestions whose name, suburb or postcode starts with the query.
+     */
+    public List<LocationSuggestion> lookup(String query, int limit) {
+        String prefix = Hotel.normalizeSearchTerm(query);
+        if (prefix == null || limit < 1) {
+            return Collections.emptyList();
+        }
+        return index.lookup(prefix, limit);
+    }
+
+    /**
+     * Replaces the whole index with every hotel currently in the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        synchronized (writeLock) {
+            entriesByHotel.clear();
+            references.clear();
+            locationSuggestions.clear();
+            for (Hotel hotel : hotelRepository.findAll()) {
+                apply(HotelChangedEvent.of(hotel), false);
+            }
+            index = PrefixIndex.of(references.keySet());
+            log.info("Built location autocomplete index of {} keys for {} hotels", index.size(),
+                    entriesByHotel.size());
+        }
+    }
+
+    /**
+     * An import writes hotels without publishing a change for each of them, so the whole index is built again.
+     */
+    @EventListener
+    public void onHotelsImported(HotelsImportedEvent event) {
+        rebuild();
+    }
+
+    /**
+     * Applied once the saving transaction commits, or straight away when the hotel was saved outside of one.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHotelChanged(HotelChangedEvent event) {
+        synchronized (writeLock) {
+            apply(event, true);
+        }
+    }
+
+    private void apply(HotelChangedEvent event, boolean publish) {
+        List<PrefixIndex.Entry> previous = entriesByHotel.getOrDefault(event.getHotelId(), List.of());
+        List<PrefixIndex.Entry> current = entries(event);
+        entriesByHotel.put(event.getHotelId(), current);
+
+        Map<PrefixIndex.Entry, Integer> delta = new HashMap<>();
+        previous.forEach(entry -> delta.merge(entry, -1, Integer::sum));
+        current.forEach(entry -> delta.merge(entry, 1, Integer::sum));
+
+        List<PrefixIndex.Entry> removed = new ArrayList<>();
+        List<PrefixIndex.Entry> added = new ArrayList<>();
+        delta.forEach((entry, change) -> {
+            if (change == 0) {
+                return;
+            }
+            int before = references.getOrDefault(entry, 0);
+            int after = before + change;
+            if (after <= 0) {
+                references.remove(entry);
+                locationSuggestions.remove(locationKey(entry.getSuggestion()), entry.getSuggestion());
+                removed.add(entry);
+            } else {
+                references.put(entry, after);
+                if (before == 0) {
+                    added.add(entry);
+                }
+            }
+        });
+
+        if (publish && (!removed.isEmpty() || !added.isEmpty())) {
+            index = index.update(removed, added);
+        }
+    }
+
+    private List<PrefixIndex.Entry> entries(HotelChangedEvent event) {
+        List<PrefixIndex.Entry> entries = new ArrayList<>(3);
+        add(entries, event.getName(), LocationSuggestion.hotel(event.getHotelId(), event.getName(),
+                event.getState(), event.getSuburb(), event.getPostcode()));
+        add(entries, event.getSuburb(), location(LocationSuggestion.suburb(event.getSuburb(), event.getState())));
+        add(entries, event.getPostcode(),
+                location(LocationSuggestion.postcode(event.getPostcode(), event.getState())));
+        return entries;
+    }
+
+    /**
+     * @return The suggestion already indexed for the same location, so hotels storing the suburb in another casing
+     * share its entry.
+     */
+    private LocationSuggestion location(LocationSuggestion suggestion) {
+        if (Hotel.normalizeSearchTerm(suggestion.getTitle()) == null) {
+            return suggestion;
+        }
+        return locationSuggestions.computeIfAbsent(locationKey(suggestion), key -> suggestion);
+    }
+
+    private static String locationKey(LocationSuggestion suggestion) {
+        return suggestion.getType() + ":" + Hotel.normalizeSearchTerm(suggestion.getTitle()) + ":" +
+                Hotel.normalizeSearchTerm(suggestion.getState());
+    }
+
+    private static void add(List<PrefixIndex.Entry> entries, String term, LocationSuggestion suggestion) {
+        String key = Hotel.normalizeSearchTerm(term);
+        if (key != null) {
+            entries.add(new PrefixIndex.Entry(key, suggestion));
+        }
+    }
+}
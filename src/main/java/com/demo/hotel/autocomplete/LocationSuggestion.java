@@ -0,0 +1,112 @@
+package com.demo.hotel.autocomplete;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * A single autocomplete result. Suburb and postcode suggestions are shared by every hotel at that location while a
+ * hotel suggestion identifies exactly one hotel.
+ */
+public class LocationSuggestion {
+
+    public enum Type {
+        Suburb, Postcode, Hotel
+    }
+
+    static final Comparator<LocationSuggestion> ORDER = Comparator
+            .comparing(LocationSuggestion::getType)
+            .thenComparing(LocationSuggestion::getTitle)
+            .thenComparing(LocationSuggestion::getState)
+            .thenComparing(suggestion -> suggestion.hotelId == null ? 0L : suggestion.hotelId);
+
+    private final Type type;
+    private final String title;
+    private final String state;
+    private final String suburb;
+    private final String postcode;
+    private final Long hotelId;
+
+    private LocationSuggestion(Type type, String title, String state, String suburb, String postcode, Long hotelId) {
+        this.type = type;
+        this.title = title;
+        this.state = state;
+        this.suburb = suburb;
+        this.postcode = postcode;
+        this.hotelId = hotelId;
+    }
+
+    public static LocationSuggestion suburb(String suburb, String state) {
+        return new LocationSuggestion(Type.Suburb, suburb, state, suburb, null, null);
+    }
+
+    public static LocationSuggestion postcode(String postcode, String state) {
+        return new LocationSuggestion(Type.Postcode, postcode, state, null, postcode, null);
+    }
+
+    public static LocationSuggestion hotel(Long hotelId, String name, String state, String suburb, String postcode) {
+        return new LocationSuggestion(Type.Hotel, name, state, suburb, postcode, hotelId);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return The secondary line shown under the title in the search results.
+     */
+    public String getDescription() {
+        switch (type) {
+            case Hotel:
+                return suburb + " " + state + " " + postcode;
+            default:
+                return state;
+        }
+    }
+
+    public String getState() {
+        return state;
+    }
+
+    public String getSuburb() {
+        return suburb;
+    }
+
+    public String getPostcode() {
+        return postcode;
+    }
+
+    public Long getHotelId() {
+        return hotelId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        LocationSuggestion that = (LocationSuggestion) o;
+        return type == that.type &&
+                Objects.equals(title, that.title) &&
+                Objects.equals(state, that.state) &&
+                Objects.equals(suburb, that.suburb) &&
+                Objects.equals(postcode, that.postcode) &&
+                Objects.equals(hotelId, that.hotelId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, title, state, suburb, postcode, hotelId);
+    }
+
+    @Override
+    public String toString() {
+        return "LocationSuggestion{" +
+                "type=" + type +
+                ", title='" + title + '\'' +
+                ", state='" + state + '\'' +
+                '}';
+    }
+}
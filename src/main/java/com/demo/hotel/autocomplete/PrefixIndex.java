@@ -0,0 +1,144 @@
+package com.demo.hotel.autocomplete;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable sorted array of normalized keys with the suggestion each key maps to. A prefix lookup is a binary search
+ * for the first key not less than the prefix followed by a scan while keys still start with it.
+ *
+ * <p>Updates produce a new index by merging the sorted changes into the existing arrays in a single pass so a change
+ * to one hotel does not require sorting every key again.</p>
+ */
+final class PrefixIndex {
+
+    static final PrefixIndex EMPTY = new PrefixIndex(new String[0], new LocationSuggestion[0]);
+
+    static final Comparator<Entry> ENTRY_ORDER = Comparator
+            .comparing((Entry entry) -> entry.key)
+            .thenComparing(entry -> entry.suggestion, LocationSuggestion.ORDER);
+
+    private final String[] keys;
+    private final LocationSuggestion[] suggestions;
+
+    private PrefixIndex(String[] keys, LocationSuggestion[] suggestions) {
+        this.keys = keys;
+        this.suggestions = suggestions;
+    }
+
+    static PrefixIndex of(Collection<Entry> entries) {
+        return EMPTY.update(List.of(), entries);
+    }
+
+    int size() {
+        return keys.length;
+    }
+
+    /**
+     * @param prefix Already normalized prefix.
+     */
+    List<LocationSuggestion> lookup(String prefix, int limit) {
+        List<LocationSuggestion> results = new ArrayList<>(Math.min(limit, 16));
+        for (int i = lowerBound(prefix); i < keys.length && results.size() < limit; i++) {
+            if (!keys[i].startsWith(prefix)) {
+                break;
+            }
+            results.add(suggestions[i]);
+        }
+        return results;
+    }
+
+    /**
+     * @param removed Entries currently in the index that should be removed.
+     * @param added   Entries that are not yet in the index.
+     * @return A new index, this index is not modified.
+     */
+    PrefixIndex update(Collection<Entry> removed, Collection<Entry> added) {
+        List<Entry> removals = sorted(removed);
+        List<Entry> additions = sorted(added);
+
+        int length = keys.length - removals.size() + additions.size();
+        String[] newKeys = new String[length];
+        LocationSuggestion[] newSuggestions = new LocationSuggestion[length];
+
+        int existing = 0;
+        int removal = 0;
+        int addition = 0;
+        int out = 0;
+        while (existing < keys.length || addition < additions.size()) {
+            if (existing < keys.length && removal < removals.size()
+                    && removals.get(removal).matches(keys[existing], suggestions[existing])) {
+                existing++;
+                removal++;
+                continue;
+            }
+            boolean takeAddition = existing == keys.length || (addition < additions.size()
+                    && ENTRY_ORDER.compare(additions.get(addition), new Entry(keys[existing], suggestions[existing])) < 0);
+            if (takeAddition) {
+                Entry entry = additions.get(addition++);
+                newKeys[out] = entry.key;
+                newSuggestions[out++] = entry.suggestion;
+            } else {
+                newKeys[out] = keys[existing];
+                newSuggestions[out++] = suggestions[existing++];
+            }
+        }
+        if (removal != removals.size()) {
+            throw new IllegalArgumentException("Removed entries must exist in the index");
+        }
+        return new PrefixIndex(newKeys, newSuggestions);
+    }
+
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static List<Entry> sorted(Collection<Entry> entries) {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(ENTRY_ORDER);
+        return sorted;
+    }
+
+    static final class Entry {
+        private final String key;
+        private final LocationSuggestion suggestion;
+
+        Entry(String key, LocationSuggestion suggestion) {
+            this.key = key;
+            this.suggestion = suggestion;
+        }
+
+        LocationSuggestion getSuggestion() {
+            return suggestion;
+        }
+
+        boolean matches(String key, LocationSuggestion suggestion) {
+            return this.key.equals(key) && this.suggestion.equals(suggestion);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Entry entry = (Entry) o;
+            return key.equals(entry.key) && suggestion.equals(entry.suggestion);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * key.hashCode() + suggestion.hashCode();
+        }
+    }
+}
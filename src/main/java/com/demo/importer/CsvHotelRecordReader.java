@@ -0,0 +1,84 @@
+package com.demo.importer;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Objects;
+
+/**
+ * Reads a CSV file with a header and a row per room. Each row repeats the columns of its hotel, and the rows of a
+ * hotel are consecutive. Rows belong to the same hotel when they share its {@code ref}, or without one its name,
+ * first street line and postcode. A hotel without rooms is a single row with the room columns left empty.
+ */
+class CsvHotelRecordReader implements HotelRecordReader {
+    private static final CsvMapper mapper = HotelRecordReader.configure(new CsvMapper());
+
+    private final MappingIterator<Row> rows;
+
+    // the first row of the next hotel, already read while looking for the end of the previous one
+    private Row pending;
+
+    CsvHotelRecordReader(Reader reader) throws IOException {
+        this.rows = mapper.readerFor(Row.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .readValues(reader);
+    }
+
+    @Override
+    public HotelRecord next() throws IOException {
+        if (pending == null && !advance()) {
+            return null;
+        }
+        Row hotel = pending;
+        hotel.addRoom(hotel);
+        while (advance() && Objects.equals(pending.key(), hotel.key())) {
+            hotel.addRoom(pending);
+        }
+        return hotel;
+    }
+
+    private boolean advance() throws IOException {
+        if (!rows.hasNextValue()) {
+            pending = null;
+            return false;
+        }
+        long line = rows.getParser().getTokenLocation().getLineNr();
+        pending = rows.nextValue();
+        pending.line = line;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        rows.close();
+    }
+
+    /**
+     * The first row of a hotel doubles as its record.
+     */
+    static class Row extends HotelRecord {
+        String roomNumber;
+        String roomType;
+        String beds;
+        String costPerNight;
+
+        String key() {
+            return ref != null && !ref.trim().isEmpty() ? ref : String.join("|", name, streetLine1, postcode);
+        }
+
+        void addRoom(Row row) {
+            if (row.roomNumber == null || row.roomNumber.trim().isEmpty()) {
+                return;
+            }
+            RoomRecord room = new RoomRecord();
+            room.roomNumber = row.roomNumber;
+            room.roomType = row.roomType;
+            room.beds = row.beds;
+            room.costPerNight = row.costPerNight;
+            rooms.add(room);
+        }
+    }
+}
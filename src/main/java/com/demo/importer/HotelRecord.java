@@ -0,0 +1,122 @@
+package com.demo.importer;
+
+import com.demo.domain.Hotel;
+import com.demo.domain.Money;
+import com.demo.domain.Room;
+import com.demo.domain.location.Address;
+import com.demo.domain.location.Postcode;
+import com.demo.domain.location.State;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A hotel and its rooms as they appear in an import file. Every value is read as text and only converted by
+ * {@link #toHotel()}, so a bad value fails its hotel rather than the file.
+ *
+ * <p>The check in and check out times and the late check out fee are optional, but are given either all together
+ * or not at all in which case the hotel defaults apply.</p>
+ */
+class HotelRecord {
+    String ref;
+    String name;
+    String email;
+    String stars;
+    String business;
+    String streetLine1;
+    String streetLine2;
+    String state;
+    String suburb;
+    String postcode;
+    String earliestCheckInTime;
+    String latestCheckInTime;
+    String standardCheckOutTime;
+    String latestCheckOutTime;
+    String lateCheckoutFee;
+    List<RoomRecord> rooms = new ArrayList<>();
+
+    // where the hotel starts in its file
+    @JsonIgnore
+    long line;
+
+    /**
+     * @return How the hotel is referred to in reports, its {@code ref} if it has one, otherwise its name.
+     */
+    String describe() {
+        return !isBlank(ref) ? ref : name;
+    }
+
+    /**
+     * @return The rows this record takes up in the database, the hotel and each of its rooms.
+     */
+    int rows() {
+        return 1 + rooms.size();
+    }
+
+    /**
+     * @throws InvalidRecordException If a value is missing or cannot be converted.
+     */
+    Hotel toHotel() {
+        int starRating = parse(stars, "stars", Integer::parseInt);
+        if (starRating < 1 || starRating > 5) {
+            throw new InvalidRecordException("stars must be between 1 and 5");
+        }
+        Address address = new Address(blankToNull(business), required(streetLine1, "street_line1"),
+                blankToNull(streetLine2), parse(state, "state", value -> State.valueOf(value.toUpperCase(Locale.ROOT))),
+                required(suburb, "suburb"), new Postcode(required(postcode, "postcode")));
+
+        Hotel hotel;
+        if (Stream.of(earliestCheckInTime, latestCheckInTime, standardCheckOutTime, latestCheckOutTime,
+                lateCheckoutFee).allMatch(HotelRecord::isBlank)) {
+            hotel = new Hotel(required(name, "name"), address, starRating, required(email, "email"));
+        } else {
+            hotel = new Hotel(required(name, "name"), address, starRating, required(email, "email"),
+                    parse(earliestCheckInTime, "earliest_check_in_time", LocalTime::parse),
+                    parse(latestCheckInTime, "latest_check_in_time", LocalTime::parse),
+                    parse(standardCheckOutTime, "standard_check_out_time", LocalTime::parse),
+                    parse(latestCheckOutTime, "latest_check_out_time", LocalTime::parse),
+                    parse(lateCheckoutFee, "late_checkout_fee", Money::of));
+        }
+
+        Set<String> roomNumbers = new HashSet<>();
+        for (RoomRecord record : rooms) {
+            Room room = record.toRoom();
+            if (!roomNumbers.add(room.getRoomNumber())) {
+                throw new InvalidRecordException("Room " + room.getRoomNumber() + " is listed more than once");
+            }
+            hotel.addRoom(room);
+        }
+        return hotel;
+    }
+
+    static String required(String value, String column) {
+        if (isBlank(value)) {
+            throw new InvalidRecordException(column + " is required");
+        }
+        return value.trim();
+    }
+
+    static <T> T parse(String value, String column, Function<String, T> parser) {
+        String text = required(value, column);
+        try {
+            return parser.apply(text);
+        } catch (RuntimeException e) {
+            throw new InvalidRecordException(column + " '" + text + "' is not valid");
+        }
+    }
+
+    private static String blankToNull(String value) {
+        return isBlank(value) ? null : value.trim();
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.trim().isEmpty();
+    }
+}
@@ -0,0 +1,48 @@
+package com.demo.importer;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Reads the hotels of an import file one at a time, so only the hotel being read is held in memory however large
+ * the file is.
+ *
+ * <p>Columns and properties are named in snake case, {@code street_line1} or {@code cost_per_night}.</p>
+ */
+interface HotelRecordReader extends Closeable {
+
+    /**
+     * @return The next hotel, or {@code null} once the file has been read.
+     * @throws IOException If the file cannot be read or is not well formed, after which nothing more can be read.
+     */
+    HotelRecord next() throws IOException;
+
+    /**
+     * Opens a {@code .csv} or {@code .json} file.
+     */
+    static HotelRecordReader open(Path file) throws IOException {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return new CsvHotelRecordReader(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+        }
+        if (name.endsWith(".json")) {
+            return new JsonHotelRecordReader(Files.newBufferedReader(file, StandardCharsets.UTF_8));
+        }
+        throw new IOException("Only .csv and .json files can be imported: " + file);
+    }
+
+    static <T extends ObjectMapper> T configure(T mapper) {
+        mapper.setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE);
+        mapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        return mapper;
+    }
+}
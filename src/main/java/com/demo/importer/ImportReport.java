@@ -0,0 +1,130 @@
+package com.demo.importer;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of importing a single file. Only the first {@value #MAX_FAILURES} failures are kept, the rest are only
+ * counted.
+ */
+public class ImportReport {
+    static final int MAX_FAILURES = 100;
+
+    private final Path file;
+    private long hotels;
+    private long rooms;
+    private long failedHotels;
+    private final List<Failure> failures = new ArrayList<>();
+    private String abortedBy;
+    private Duration elapsed = Duration.ZERO;
+
+    ImportReport(Path file) {
+        this.file = file;
+    }
+
+    void imported(HotelRecord record) {
+        hotels++;
+        rooms += record.rooms.size();
+    }
+
+    void failed(HotelRecord record, String reason) {
+        failedHotels++;
+        if (failures.size() < MAX_FAILURES) {
+            failures.add(new Failure(record.line, record.describe(), reason));
+        }
+    }
+
+    void aborted(String reason) {
+        abortedBy = reason;
+    }
+
+    void finished(Duration elapsed) {
+        this.elapsed = elapsed;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public long getHotels() {
+        return hotels;
+    }
+
+    public long getRooms() {
+        return rooms;
+    }
+
+    public long getFailedHotels() {
+        return failedHotels;
+    }
+
+    public List<Failure> getFailures() {
+        return Collections.unmodifiableList(failures);
+    }
+
+    /**
+     * @return Why the rest of the file could not be read, such as a syntax error, or {@code null} if it was read to
+     * the end. Everything imported before then stays imported.
+     */
+    public String getAbortedBy() {
+        return abortedBy;
+    }
+
+    public boolean isComplete() {
+        return abortedBy == null && failedHotels == 0;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return Hotels and rooms written per second.
+     */
+    public double getRowsPerSecond() {
+        long millis = elapsed.toMillis();
+        return millis == 0 ? 0 : (hotels + rooms) * 1000.0 / millis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d hotels and %d rooms imported, %d hotels failed%s in %d ms (%.0f rows/s)",
+                file, hotels, rooms, failedHotels, abortedBy == null ? "" : ", aborted by " + abortedBy,
+                elapsed.toMillis(), getRowsPerSecond());
+    }
+
+    public static final class Failure {
+        private final long line;
+        private final String hotel;
+        private final String reason;
+
+        Failure(long line, String hotel, String reason) {
+            this.line = line;
+            this.hotel = hotel;
+            this.reason = reason;
+        }
+
+        /**
+         * @return The line of the file the hotel starts on.
+         */
+        public long getLine() {
+            return line;
+        }
+
+        public String getHotel() {
+            return hotel;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + line + " (" + hotel + "): " + reason;
+        }
+    }
+}
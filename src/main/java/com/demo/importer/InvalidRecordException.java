@@ -0,0 +1,11 @@
+package com.demo.importer;
+
+/**
+ * A hotel in an import file is missing a value or has one that cannot be converted. Only that hotel is skipped.
+ */
+class InvalidRecordException extends RuntimeException {
+
+    InvalidRecordException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,36 @@
+package com.demo.importer;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads a JSON array of hotels, each with an array of its {@code rooms}, one hotel at a time.
+ */
+class JsonHotelRecordReader implements HotelRecordReader {
+    private static final ObjectMapper mapper = HotelRecordReader.configure(new ObjectMapper());
+
+    private final MappingIterator<HotelRecord> records;
+
+    JsonHotelRecordReader(Reader reader) throws IOException {
+        this.records = mapper.readerFor(HotelRecord.class).readValues(reader);
+    }
+
+    @Override
+    public HotelRecord next() throws IOException {
+        if (!records.hasNextValue()) {
+            return null;
+        }
+        long line = records.getParser().getTokenLocation().getLineNr();
+        HotelRecord record = records.nextValue();
+        record.line = line;
+        return record;
+    }
+
+    @Override
+    public void close() throws IOException {
+        records.close();
+    }
+}
@@ -0,0 +1,38 @@
+package com.demo.importer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Imports the files listed in {@code importer.files} on start up, for example
+ * {@code --importer.files=hotels-vic.csv,hotels-nsw.json}. Nothing is imported when it is empty.
+ */
+@Component
+public class PortfolioImportRunner implements ApplicationRunner {
+    private final PortfolioImporter importer;
+    private final List<Path> files;
+
+    public PortfolioImportRunner(PortfolioImporter importer, @Value("${importer.files:}") String[] files) {
+        this.importer = importer;
+        this.files = Arrays.stream(files)
+                .map(String::trim)
+                .filter(file -> !file.isEmpty())
+                .map(Paths::get)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!files.isEmpty()) {
+            importer.importFiles(files);
+        }
+    }
+}
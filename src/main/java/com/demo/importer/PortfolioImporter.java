@@ -0,0 +1,316 @@
+package com.demo.importer;
+
+import com.demo.domain.Hotel;
+import com.demo.domain.HotelsImportedEvent;
+import com.demo.domain.location.Address;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Imports hotels and their rooms from CSV or JSON files too large to hold in memory.
+ *
+ * <p>Each file is read a chunk of {@code chunkSize} hotels at a time. The hotels of a chunk are validated in parallel
+ * on the validation threads while the previous chunk is written, so at most two chunks are held however large the
+ * file is. A hotel that fails validation is reported and skipped.</p>
+ *
+ * <p>Each chunk is written in a transaction of its own with jdbc batching, flushing and clearing the persistence
+ * context every {@code flushSize} hotels and bypassing the second level cache. If a chunk is rejected by the
+ * database, for example for a room number that is already taken, its hotels are written again one at a time so
+ * only the offending hotels fail.</p>
+ *
+ * <p>Imported and failed hotels are counted under {@code importer.hotels} by outcome. Progress is logged every
+ * {@code progressInterval}.</p>
+ */
+@Service
+public class PortfolioImporter {
+    private static final Logger log = LoggerFactory.getLogger(PortfolioImporter.class);
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+    private final int flushSize;
+    private final Duration progressInterval;
+    private final ExecutorService validators;
+
+    private final Counter imported;
+    private final Counter failed;
+
+    @Autowired
+    public PortfolioImporter(EntityManager entityManager, PlatformTransactionManager transactionManager,
+                             Validator validator, ApplicationEventPublisher eventPublisher,
+                             MeterRegistry meterRegistry,
+                             @Value("${importer.chunk-size:1000}") int chunkSize,
+                             @Value("${importer.flush-size:100}") int flushSize,
+                             @Value("${importer.validation-threads:0}") int validationThreads,
+                             @Value("${importer.progress-interval-seconds:10}") long progressIntervalSeconds) {
+        this(entityManager, transactionManager, validator, eventPublisher, meterRegistry, chunkSize, flushSize,
+                validationThreads > 0 ? validationThreads : Runtime.getRuntime().availableProcessors(),
+                Duration.ofSeconds(progressIntervalSeconds));
+    }
+
+    public PortfolioImporter(EntityManager entityManager, PlatformTransactionManager transactionManager,
+                             Validator validator, ApplicationEventPublisher eventPublisher,
+                             MeterRegistry meterRegistry, int chunkSize, int flushSize, int validationThreads,
+                             Duration progressInterval) {
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+        this.flushSize = flushSize;
+        this.progressInterval = progressInterval;
+
+        AtomicInteger threads = new AtomicInteger();
+        this.validators = Executors.newFixedThreadPool(validationThreads, runnable -> {
+            Thread thread = new Thread(runnable, "import-validator-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.imported = meterRegistry.counter("importer.hotels", "outcome", "imported");
+        this.failed = meterRegistry.counter("importer.hotels", "outcome", "failed");
+    }
+
+    @PreDestroy
+    public void stop() {
+        validators.shutdownNow();
+    }
+
+    /**
+     * Imports every file in turn. A file that cannot be read or fails part way through does not stop the others.
+     *
+     * @return A report per file, in order.
+     */
+    public List<ImportReport> importFiles(List<Path> files) {
+        List<ImportReport> reports = new ArrayList<>();
+        for (Path file : files) {
+            reports.add(importFile(file));
+        }
+        return reports;
+    }
+
+    public ImportReport importFile(Path file) {
+        ImportReport report = new ImportReport(file);
+        Progress progress = new Progress(report);
+        log.info("Importing hotels from {}", file);
+
+        try (HotelRecordReader reader = HotelRecordReader.open(file)) {
+            CompletableFuture<List<Validated>> writable = null;
+            do {
+                List<HotelRecord> chunk = read(reader, report);
+                CompletableFuture<List<Validated>> validating = chunk.isEmpty() ? null : validate(chunk);
+                if (writable != null) {
+                    write(writable.join(), report);
+                    progress.logIfDue();
+                }
+                writable = validating;
+            } while (writable != null);
+        } catch (IOException | RuntimeException e) {
+            log.error("Stopped importing {}", file, e);
+            report.aborted(e.getMessage());
+        }
+
+        report.finished(progress.elapsed());
+        if (report.isComplete()) {
+            log.info("Imported {}", report);
+        } else {
+            log.warn("Imported {}, failures:\n{}", report, report.getFailures().stream()
+                    .map(ImportReport.Failure::toString)
+                    .collect(Collectors.joining("\n")));
+        }
+        if (report.getHotels() > 0) {
+            eventPublisher.publishEvent(new HotelsImportedEvent(report.getHotels()));
+        }
+        return report;
+    }
+
+    /**
+     * @return Up to {@code chunkSize} hotels, empty once the file has been read. If the file turns out to be
+     * malformed the hotels read before then are still returned and nothing more is read.
+     */
+    private List<HotelRecord> read(HotelRecordReader reader, ImportReport report) {
+        List<HotelRecord> chunk = new ArrayList<>(chunkSize);
+        if (report.getAbortedBy() != null) {
+            return chunk;
+        }
+        try {
+            HotelRecord record;
+            while (chunk.size() < chunkSize && (record = reader.next()) != null) {
+                chunk.add(record);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("Stopped reading {}", report.getFile(), e);
+            report.aborted(e.getMessage());
+        }
+        return chunk;
+    }
+
+    private CompletableFuture<List<Validated>> validate(List<HotelRecord> chunk) {
+        List<CompletableFuture<Validated>> validations = chunk.stream()
+                .map(record -> CompletableFuture.supplyAsync(() -> validate(record), validators))
+                .collect(Collectors.toList());
+        return CompletableFuture.allOf(validations.toArray(new CompletableFuture[0]))
+                .thenApply(done -> validations.stream()
+                        .map(CompletableFuture::join)
+                        .collect(Collectors.toList()));
+    }
+
+    private Validated validate(HotelRecord record) {
+        try {
+            Hotel hotel = record.toHotel();
+            Set<ConstraintViolation<Address>> violations = validator.validate(hotel.getAddress());
+            if (!violations.isEmpty()) {
+                return Validated.invalid(record, violations.stream()
+                        .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                        .sorted()
+                        .collect(Collectors.joining(", ")));
+            }
+            return Validated.valid(record, hotel);
+        } catch (InvalidRecordException e) {
+            return Validated.invalid(record, e.getMessage());
+        } catch (RuntimeException e) {
+            return Validated.invalid(record, e.toString());
+        }
+    }
+
+    private void write(List<Validated> chunk, ImportReport report) {
+        List<Validated> valid = new ArrayList<>(chunk.size());
+        for (Validated validated : chunk) {
+            if (validated.hotel == null) {
+                fail(report, validated.record, validated.reason);
+            } else {
+                valid.add(validated);
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        try {
+            persist(valid.stream().map(validated -> validated.hotel).collect(Collectors.toList()));
+            valid.forEach(validated -> succeed(report, validated.record));
+        } catch (RuntimeException e) {
+            log.debug("Chunk of {} hotels rejected, writing them one at a time", valid.size(), e);
+            for (Validated validated : valid) {
+                // the rejected chunk already assigned ids to its entities, so each hotel is converted afresh
+                try {
+                    persist(List.of(validated.record.toHotel()));
+                    succeed(report, validated.record);
+                } catch (RuntimeException hotelFailure) {
+                    fail(report, validated.record, rootCause(hotelFailure).getMessage());
+                }
+            }
+        }
+    }
+
+    private void persist(List<Hotel> hotels) {
+        transactionTemplate.execute(status -> {
+            // imported hotels are not about to be read, caching them would only evict the ones that are
+            entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+            int pending = 0;
+            for (Hotel hotel : hotels) {
+                entityManager.persist(hotel);
+                if (++pending == flushSize) {
+                    entityManager.flush();
+                    entityManager.clear();
+                    pending = 0;
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+            return null;
+        });
+    }
+
+    private void succeed(ImportReport report, HotelRecord record) {
+        report.imported(record);
+        imported.increment();
+    }
+
+    private void fail(ImportReport report, HotelRecord record, String reason) {
+        report.failed(record, reason);
+        failed.increment();
+    }
+
+    private static Throwable rootCause(Throwable throwable) {
+        Throwable cause = throwable;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static final class Validated {
+        private final HotelRecord record;
+        private final Hotel hotel;
+        private final String reason;
+
+        private Validated(HotelRecord record, Hotel hotel, String reason) {
+            this.record = record;
+            this.hotel = hotel;
+            this.reason = reason;
+        }
+
+        static Validated valid(HotelRecord record, Hotel hotel) {
+            return new Validated(record, hotel, null);
+        }
+
+        static Validated invalid(HotelRecord record, String reason) {
+            return new Validated(record, null, reason);
+        }
+    }
+
+    private class Progress {
+        private final ImportReport report;
+        private final long start = System.nanoTime();
+        private long lastLogged = start;
+
+        Progress(ImportReport report) {
+            this.report = report;
+        }
+
+        void logIfDue() {
+            long now = System.nanoTime();
+            if (now - lastLogged < progressInterval.toNanos()) {
+                return;
+            }
+            lastLogged = now;
+            double seconds = (now - start) / 1e9;
+            log.info("Importing {}: {} hotels and {} rooms so far, {} failed, {} rows/s", report.getFile(),
+                    report.getHotels(), report.getRooms(), report.getFailedHotels(),
+                    Math.round((report.getHotels() + report.getRooms()) / seconds));
+        }
+
+        Duration elapsed() {
+            return Duration.ofNanos(System.nanoTime() - start);
+        }
+    }
+}
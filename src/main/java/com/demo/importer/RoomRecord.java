@@ -0,0 +1,33 @@
+package com.demo.importer;
+
+import com.demo.domain.Money;
+import com.demo.domain.Room;
+import com.demo.domain.RoomType;
+
+/**
+ * A room as it appears in an import file. Every value is read as text and only converted by {@link #toRoom()}, so a
+ * bad value fails its hotel rather than the file.
+ */
+class RoomRecord {
+    String roomNumber;
+    String roomType;
+    String beds;
+    String costPerNight;
+
+    /**
+     * @throws InvalidRecordException If a value is missing or cannot be converted.
+     */
+    Room toRoom() {
+        String number = HotelRecord.required(roomNumber, "room_number");
+        RoomType type = HotelRecord.parse(roomType, "room_type", RoomType::valueOf);
+        int bedCount = HotelRecord.parse(beds, "beds", Integer::parseInt);
+        if (bedCount < 1) {
+            throw new InvalidRecordException("Room " + number + " beds must be at least 1");
+        }
+        Money cost = HotelRecord.parse(costPerNight, "cost_per_night", Money::of);
+        if (cost.compareTo(Money.ZERO) < 0) {
+            throw new InvalidRecordException("Room " + number + " cost_per_night must not be negative");
+        }
+        return new Room(number, type, bedCount, cost);
+    }
+}
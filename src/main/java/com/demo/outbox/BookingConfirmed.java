@@ -0,0 +1,75 @@
+package com.demo.outbox;
+
+import com.demo.domain.Reservation;
+import com.demo.domain.Room;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Payload of the outbox message written when a reservation is booked. Only holds what downstream systems need, the
+ * card details stay behind.
+ */
+public final class BookingConfirmed {
+    public static final String TYPE = "BookingConfirmed";
+
+    private final UUID reservationId;
+    private final UUID transactionId;
+    private final Long hotelId;
+    private final Long roomId;
+    private final LocalDate checkIn;
+    private final LocalDate checkOut;
+    private final int guests;
+    private final BigDecimal totalCostIncludingTax;
+
+    private BookingConfirmed(Reservation reservation) {
+        Room room = reservation.getRoom();
+        this.reservationId = reservation.getReservationId();
+        this.transactionId = reservation.getCompletedPayment() == null
+                ? null
+                : reservation.getCompletedPayment().getTransactionId();
+        this.hotelId = room.getHotel() == null ? null : room.getHotel().getId();
+        this.roomId = room.getId();
+        this.checkIn = reservation.getDates().getCheckInDate();
+        this.checkOut = reservation.getDates().getCheckOutDate();
+        this.guests = reservation.getGuests().size();
+        this.totalCostIncludingTax = reservation.getTotalCostIncludingTax().toBigDecimal();
+    }
+
+    public static BookingConfirmed of(Reservation reservation) {
+        return new BookingConfirmed(reservation);
+    }
+
+    public UUID getReservationId() {
+        return reservationId;
+    }
+
+    public UUID getTransactionId() {
+        return transactionId;
+    }
+
+    public Long getHotelId() {
+        return hotelId;
+    }
+
+    public Long getRoomId() {
+        return roomId;
+    }
+
+    public LocalDate getCheckIn() {
+        return checkIn;
+    }
+
+    public LocalDate getCheckOut() {
+        return checkOut;
+    }
+
+    public int getGuests() {
+        return guests;
+    }
+
+    public BigDecimal getTotalCostIncludingTax() {
+        return totalCostIncludingTax;
+    }
+}
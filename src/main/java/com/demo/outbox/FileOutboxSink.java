@@ -0,0 +1,47 @@
+package com.demo.outbox;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends each message as a line of {@code <destination>.log} in a local directory. Stands in for the mail server,
+ * property management system and analytics until real sinks are plugged in.
+ */
+public class FileOutboxSink implements OutboxSink {
+
+    private final String destination;
+    private final Path file;
+
+    public FileOutboxSink(String destination, Path directory) {
+        this.destination = destination;
+        this.file = directory.resolve(destination + ".log");
+    }
+
+    @Override
+    public String getDestination() {
+        return destination;
+    }
+
+    @Override
+    public void deliver(List<OutboxMessage> messages) {
+        StringBuilder lines = new StringBuilder();
+        for (OutboxMessage message : messages) {
+            lines.append(message.getId()).append('\t')
+                    .append(message.getType()).append('\t')
+                    .append(message.getAggregateId()).append('\t')
+                    .append(message.getPayload()).append('\n');
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(file, lines.toString().getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write outbox messages to " + file, e);
+        }
+    }
+}
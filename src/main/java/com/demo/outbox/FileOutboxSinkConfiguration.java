@@ -0,0 +1,40 @@
+package com.demo.outbox;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * A file sink for each downstream system a confirmed booking fans out to. Replace a bean with a real sink of the
+ * same destination to deliver to that system instead.
+ */
+@Configuration
+@ConditionalOnProperty(name = "outbox.sink", havingValue = "file", matchIfMissing = true)
+public class FileOutboxSinkConfiguration {
+
+    private final Path directory;
+
+    public FileOutboxSinkConfiguration(
+            @Value("${outbox.file-sink.directory:${java.io.tmpdir}/hotel-outbox}") String directory) {
+        this.directory = Paths.get(directory);
+    }
+
+    @Bean
+    public OutboxSink confirmationEmailSink() {
+        return new FileOutboxSink("confirmation-email", directory);
+    }
+
+    @Bean
+    public OutboxSink propertyManagementSink() {
+        return new FileOutboxSink("property-management", directory);
+    }
+
+    @Bean
+    public OutboxSink analyticsSink() {
+        return new FileOutboxSink("analytics", directory);
+    }
+}
@@ -0,0 +1,59 @@
+package com.demo.outbox;
+
+import com.demo.domain.Reservation;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Records events for downstream systems as part of the transaction that caused them. Nothing is sent here, the
+ * {@code OutboxDispatcher} delivers the messages in the background once they have committed, so the guest never waits
+ * on a downstream system and a rolled back booking never announces itself.
+ */
+@Service
+public class Outbox {
+
+    private static final ObjectMapper PAYLOADS = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    private final OutboxRepository outboxRepository;
+    private final List<String> destinations;
+    private final Clock clock;
+
+    public Outbox(OutboxRepository outboxRepository, List<OutboxSink> sinks) {
+        this.outboxRepository = outboxRepository;
+        this.destinations = sinks.stream().map(OutboxSink::getDestination).collect(Collectors.toList());
+        this.clock = Clock.systemUTC();
+    }
+
+    /**
+     * Must be called within the transaction that books the reservation.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void bookingConfirmed(Reservation reservation) {
+        write(BookingConfirmed.TYPE, reservation.getReservationId(), BookingConfirmed.of(reservation));
+    }
+
+    private void write(String type, UUID aggregateId, Object payload) {
+        String json;
+        try {
+            json = PAYLOADS.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not write " + type + " payload", e);
+        }
+        long now = clock.millis();
+        outboxRepository.saveAll(destinations.stream()
+                .map(destination -> new OutboxMessage(destination, type, aggregateId, json, now))
+                .collect(Collectors.toList()));
+    }
+}
@@ -0,0 +1,192 @@
+package com.demo.outbox;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Drains the outbox on a background thread, delivering the due messages of each destination to its
+ * {@code OutboxSink} in batches of up to {@code batchSize}.
+ *
+ * <p>Messages are only deleted once their sink has accepted the batch, so a crash in between delivers them again.
+ * A batch that fails is pushed back with an exponential backoff capped at {@code maxBackoff} and the destination is
+ * not drained further until the next run, which leaves the other destinations unaffected.</p>
+ *
+ * <p>Delivered and failed messages are counted under {@code outbox.messages}, the time each batch took under
+ * {@code outbox.batches} and the time from commit to delivery under {@code outbox.delivery.lag}, all by
+ * destination.</p>
+ */
+@Service
+public class OutboxDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    private final OutboxRepository outboxRepository;
+    private final Map<String, OutboxSink> sinks = new LinkedHashMap<>();
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final int batchSize;
+    private final Duration interval;
+    private final Duration backoff;
+    private final Duration maxBackoff;
+    private final Clock clock;
+
+    private ScheduledExecutorService dispatcher;
+
+    @Autowired
+    public OutboxDispatcher(OutboxRepository outboxRepository, List<OutboxSink> sinks,
+                            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                            @Value("${outbox.batch-size:100}") int batchSize,
+                            @Value("${outbox.dispatch-interval-millis:500}") long intervalMillis,
+                            @Value("${outbox.backoff-millis:1000}") long backoffMillis,
+                            @Value("${outbox.max-backoff-seconds:300}") long maxBackoffSeconds) {
+        this(outboxRepository, sinks, transactionManager, meterRegistry, batchSize, Duration.ofMillis(intervalMillis),
+                Duration.ofMillis(backoffMillis), Duration.ofSeconds(maxBackoffSeconds), Clock.systemUTC());
+    }
+
+    public OutboxDispatcher(OutboxRepository outboxRepository, List<OutboxSink> sinks,
+                            PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+                            int batchSize, Duration interval, Duration backoff, Duration maxBackoff, Clock clock) {
+        this.outboxRepository = outboxRepository;
+        for (OutboxSink sink : sinks) {
+            this.sinks.put(sink.getDestination(), sink);
+        }
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.batchSize = batchSize;
+        this.interval = interval;
+        this.backoff = backoff;
+        this.maxBackoff = maxBackoff;
+        this.clock = clock;
+
+        Gauge.builder("outbox.pending", outboxRepository, OutboxRepository::count)
+                .description("Messages waiting to be delivered")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        dispatcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = interval.toMillis();
+        dispatcher.scheduleWithFixedDelay(this::dispatchSafely, intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (dispatcher != null) {
+            dispatcher.shutdownNow();
+        }
+    }
+
+    private void dispatchSafely() {
+        try {
+            dispatch();
+        } catch (RuntimeException e) {
+            // an escaping exception would cancel the schedule
+            log.warn("Outbox dispatch failed", e);
+        }
+    }
+
+    /**
+     * Keeps draining a destination while it returns full batches.
+     *
+     * @return The number of messages delivered.
+     */
+    public int dispatch() {
+        int delivered = 0;
+        for (OutboxSink sink : sinks.values()) {
+            while (true) {
+                List<OutboxMessage> batch = outboxRepository.findDue(sink.getDestination(), clock.millis(),
+                        PageRequest.of(0, batchSize));
+                if (batch.isEmpty() || !deliver(sink, batch)) {
+                    break;
+                }
+                delivered += batch.size();
+                if (batch.size() < batchSize) {
+                    break;
+                }
+            }
+        }
+        return delivered;
+    }
+
+    private boolean deliver(OutboxSink sink, List<OutboxMessage> batch) {
+        String destination = sink.getDestination();
+        long start = System.nanoTime();
+        try {
+            sink.deliver(batch);
+        } catch (RuntimeException e) {
+            record(destination, "failed", start, batch.size());
+            log.warn("Delivering {} outbox messages to {} failed", batch.size(), destination, e);
+            retryLater(batch);
+            return false;
+        }
+        record(destination, "delivered", start, batch.size());
+
+        transactionTemplate.execute(status -> outboxRepository.deleteByIdIn(batch.stream()
+                .map(OutboxMessage::getId)
+                .collect(Collectors.toList())));
+
+        long now = clock.millis();
+        Timer lag = Timer.builder("outbox.delivery.lag")
+                .description("Time from a message being committed to its delivery")
+                .tag("destination", destination)
+                .register(meterRegistry);
+        for (OutboxMessage message : batch) {
+            lag.record(Math.max(0, now - message.getCreatedAt()), TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    private void retryLater(List<OutboxMessage> batch) {
+        long now = clock.millis();
+        for (OutboxMessage message : batch) {
+            message.failedAttempt(now + backoff(message.getAttempts() + 1).toMillis());
+        }
+        transactionTemplate.execute(status -> outboxRepository.saveAll(batch));
+    }
+
+    /**
+     * @param attempt Starting at 1 for the first failed attempt.
+     */
+    Duration backoff(int attempt) {
+        // capped before shifting so a long outage cannot overflow
+        int doublings = Math.min(attempt - 1, 30);
+        long millis = backoff.toMillis() << doublings;
+        return millis <= 0 || millis > maxBackoff.toMillis() ? maxBackoff : Duration.ofMillis(millis);
+    }
+
+    private void record(String destination, String outcome, long start, int messages) {
+        Timer.builder("outbox.batches")
+                .description("Time taken to deliver a batch to its sink")
+                .tags("destination", destination, "outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("outbox.messages", "destination", destination, "outcome", outcome)
+                .increment(messages);
+    }
+}
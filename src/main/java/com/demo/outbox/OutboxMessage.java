@@ -0,0 +1,105 @@
+package com.demo.outbox;
+
+import javax.persistence.*;
+import java.util.UUID;
+
+/**
+ * An event waiting to be delivered to one destination. It is written in the same transaction as the change it
+ * describes, so it exists if and only if that change committed, and it is deleted once the destination has it.
+ *
+ * <p>Each destination gets its own row so a destination that is down only delays its own messages. The index on
+ * destination and due time serves the dispatcher picking the next batch of a destination.</p>
+ */
+@Entity
+@Table(name = "outbox_message",
+        indexes = @Index(name = "ix_outbox_message_due", columnList = "destination, available_at"))
+public class OutboxMessage {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "outbox_message_seq")
+    @SequenceGenerator(name = "outbox_message_seq", sequenceName = "outbox_message_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String destination;
+
+    @Column(nullable = false, length = 64)
+    private String type;
+
+    // the reservation id of booking events
+    @Column(nullable = false)
+    private UUID aggregateId;
+
+    @Lob
+    @Column(nullable = false)
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private long createdAt;
+
+    // not delivered before this time, pushed back each time delivery fails
+    @Column(name = "available_at", nullable = false)
+    private long availableAt;
+
+    @Column(nullable = false)
+    private int attempts;
+
+    public OutboxMessage(String destination, String type, UUID aggregateId, String payload, long createdAt) {
+        this.destination = destination;
+        this.type = type;
+        this.aggregateId = aggregateId;
+        this.payload = payload;
+        this.createdAt = createdAt;
+        this.availableAt = createdAt;
+    }
+
+    public OutboxMessage() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getDestination() {
+        return destination;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public UUID getAggregateId() {
+        return aggregateId;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+
+    public long getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getAvailableAt() {
+        return availableAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    void failedAttempt(long retryAt) {
+        attempts++;
+        availableAt = retryAt;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxMessage{" +
+                "id=" + id +
+                ", destination='" + destination + '\'' +
+                ", type='" + type + '\'' +
+                ", aggregateId=" + aggregateId +
+                ", attempts=" + attempts +
+                '}';
+    }
+}
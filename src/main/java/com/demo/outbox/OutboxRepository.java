@@ -0,0 +1,30 @@
+package com.demo.outbox;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxRepository extends CrudRepository<OutboxMessage, Long> {
+
+    /**
+     * Served by the (destination, available_at) index, oldest first.
+     */
+    @Query("select m from OutboxMessage m where m.destination = :destination and m.availableAt <= :now " +
+            "order by m.availableAt, m.id")
+    List<OutboxMessage> findDue(@Param("destination") String destination, @Param("now") long now,
+                                Pageable pageable);
+
+    List<OutboxMessage> findByAggregateId(UUID aggregateId);
+
+    @Modifying
+    @Query("delete from OutboxMessage m where m.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+}
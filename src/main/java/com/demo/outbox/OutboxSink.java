@@ -0,0 +1,23 @@
+package com.demo.outbox;
+
+import java.util.List;
+
+/**
+ * Somewhere outbox messages are delivered to, such as the mail server sending confirmation emails or the property
+ * management system.
+ *
+ * <p>Delivery is at least once. A batch that throws is delivered again in full later, including any messages the
+ * sink had already accepted, so sinks should ignore a message id they have already seen.</p>
+ */
+public interface OutboxSink {
+
+    /**
+     * @return The destination of the messages this sink delivers.
+     */
+    String getDestination();
+
+    /**
+     * @throws RuntimeException If the batch could not be delivered, it is retried after a backoff.
+     */
+    void deliver(List<OutboxMessage> messages);
+}
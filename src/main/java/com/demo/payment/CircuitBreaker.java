@@ -0,0 +1,132 @@
+package com.demo.payment;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Stops calling a failing dependency for a while so requests fail fast instead of each waiting out a timeout.
+ *
+ * <p>The outcomes of the last {@code windowSize} calls are kept. Once the window is full and the share of failures
+ * in it reaches the threshold the breaker opens and no calls are permitted. After {@code openDuration} a single trial
+ * call is permitted, which closes the breaker if it succeeds or opens it again if it fails.</p>
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        Closed,
+        Open,
+        HalfOpen
+    }
+
+    private final boolean[] failures;
+    private final double failureRateThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+
+    // guarded by this
+    private State state = State.Closed;
+    private int next;
+    private int recorded;
+    private int failed;
+    private long openedAtMillis;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int windowSize, double failureRateThreshold, Duration openDuration, Clock clock) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize must be at least 1");
+        }
+        this.failures = new boolean[windowSize];
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration;
+        this.clock = clock;
+    }
+
+    /**
+     * Every permitted call must be followed by exactly one of {@link #onSuccess}, {@link #onFailure} or
+     * {@link #onAbandoned}.
+     *
+     * @return {@code true} if the call may go ahead.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case Closed:
+                return true;
+            case Open:
+                if (clock.millis() - openedAtMillis < openDuration.toMillis()) {
+                    return false;
+                }
+                state = State.HalfOpen;
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HalfOpen) {
+            close();
+        } else if (state == State.Closed) {
+            record(false);
+        }
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HalfOpen) {
+            open();
+        } else if (state == State.Closed) {
+            record(true);
+        }
+    }
+
+    /**
+     * The permitted call never reached the dependency so says nothing about its health.
+     */
+    public synchronized void onAbandoned() {
+        if (state == State.HalfOpen) {
+            trialInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (recorded == failures.length) {
+            if (failures[next]) {
+                failed--;
+            }
+        } else {
+            recorded++;
+        }
+        failures[next] = failure;
+        if (failure) {
+            failed++;
+        }
+        next = (next + 1) % failures.length;
+
+        // judged as soon as the window is full, which may be on a success
+        if (recorded == failures.length && (double) failed / recorded >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    private void open() {
+        state = State.Open;
+        openedAtMillis = clock.millis();
+        trialInFlight = false;
+    }
+
+    private void close() {
+        state = State.Closed;
+        trialInFlight = false;
+        next = 0;
+        recorded = 0;
+        failed = 0;
+    }
+}
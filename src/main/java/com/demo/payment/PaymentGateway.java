@@ -0,0 +1,25 @@
+package com.demo.payment;
+
+import com.demo.exceptions.PaymentDeclinedException;
+
+/**
+ * The payment provider. Calls block for as long as the provider takes to answer, {@code PaymentProcessor} runs them
+ * off the request thread and bounds how long and how many.
+ */
+public interface PaymentGateway {
+
+    /**
+     * Charging again with the idempotency key of an earlier charge returns the receipt of that charge rather than
+     * charging twice, so a charge whose outcome is unknown can be retried.
+     *
+     * @throws PaymentDeclinedException If the provider refused the payment. Any other exception means the outcome
+     *                                  is unknown.
+     */
+    PaymentReceipt charge(PaymentRequest request);
+
+    /**
+     * Returns a charge that could not be honoured, eg the nights were booked by someone else in the meantime.
+     * Refunding the same receipt again must not refund it twice, a refund whose outcome is unknown is retried.
+     */
+    void refund(PaymentReceipt receipt);
+}
@@ -0,0 +1,252 @@
+package com.demo.payment;
+
+import com.demo.exceptions.PaymentDeclinedException;
+import com.demo.exceptions.PaymentUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Calls the {@code PaymentGateway} off the request thread so a slow provider ties up payment threads rather than
+ * the servlet threads that serve every other page.
+ *
+ * <ul>
+ * <li>Bulkhead - at most {@code maxConcurrentCalls} charges are in flight. Any further charge is rejected straight
+ * away rather than queued behind them.</li>
+ * <li>Timeout - a charge that has not answered within {@code callTimeout} is abandoned and its thread interrupted.
+ * Its outcome is unknown, the gateway idempotency key makes it safe to charge again.</li>
+ * <li>Circuit breaker - once enough charges fail or time out the provider is not called at all for a while.</li>
+ * </ul>
+ *
+ * <p>Whatever the caller chains on a charge, such as booking the reservation, runs on the callback threads. A slow
+ * booking never keeps a payment thread busy after its permit has been released.</p>
+ *
+ * <p>Refunds have a thread of their own so a bulkhead full of charges cannot turn them away. A failed refund is
+ * retried with an exponential backoff and only logged for the charge to be reconciled once {@code refundAttempts}
+ * are used up.</p>
+ *
+ * <p>The latency of every charge is recorded under {@code payment.gateway.calls} by outcome: approved, declined,
+ * failed, timeout, rejected by the bulkhead or rejected by an open circuit. Refunds are counted under
+ * {@code payment.refunds} by outcome.</p>
+ */
+@Service
+public class PaymentProcessor {
+    private static final Logger log = LoggerFactory.getLogger(PaymentProcessor.class);
+
+    private final PaymentGateway gateway;
+    private final Duration callTimeout;
+    private final CircuitBreaker circuitBreaker;
+    private final Semaphore bulkhead;
+    private final ThreadPoolExecutor executor;
+    private final ExecutorService callbackExecutor;
+    private final ScheduledExecutorService refundExecutor;
+    private final int refundAttempts;
+    private final Duration refundBackoff;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public PaymentProcessor(PaymentGateway gateway, MeterRegistry meterRegistry,
+                            @Value("${payment.max-concurrent-calls:16}") int maxConcurrentCalls,
+                            @Value("${payment.timeout-millis:10000}") long timeoutMillis,
+                            @Value("${payment.circuit-breaker.window-size:20}") int windowSize,
+                            @Value("${payment.circuit-breaker.failure-rate:0.5}") double failureRate,
+                            @Value("${payment.circuit-breaker.open-seconds:30}") long openSeconds,
+                            @Value("${payment.refund.max-attempts:8}") int refundAttempts,
+                            @Value("${payment.refund.backoff-millis:1000}") long refundBackoffMillis) {
+        this(gateway, meterRegistry, maxConcurrentCalls, Duration.ofMillis(timeoutMillis),
+                new CircuitBreaker(windowSize, failureRate, Duration.ofSeconds(openSeconds), Clock.systemUTC()),
+                refundAttempts, Duration.ofMillis(refundBackoffMillis));
+    }
+
+    public PaymentProcessor(PaymentGateway gateway, MeterRegistry meterRegistry, int maxConcurrentCalls,
+                            Duration callTimeout, CircuitBreaker circuitBreaker, int refundAttempts,
+                            Duration refundBackoff) {
+        this.gateway = gateway;
+        this.callTimeout = callTimeout;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = new Semaphore(maxConcurrentCalls);
+        this.refundAttempts = refundAttempts;
+        this.refundBackoff = refundBackoff;
+        this.meterRegistry = meterRegistry;
+
+        AtomicInteger threads = new AtomicInteger();
+        // the bulkhead keeps the calls to the pool size, the queue only covers a thread that has released its
+        // permit but not yet returned to the pool
+        this.executor = new ThreadPoolExecutor(maxConcurrentCalls, maxConcurrentCalls, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxConcurrentCalls), runnable -> {
+            Thread thread = new Thread(runnable, "payment-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger callbackThreads = new AtomicInteger();
+        // unbounded so a completed charge is never dropped, the bookings it runs are bounded by the connection pool
+        this.callbackExecutor = Executors.newFixedThreadPool(maxConcurrentCalls, runnable -> {
+            Thread thread = new Thread(runnable, "payment-callback-" + callbackThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.refundExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "payment-refund");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("payment.bulkhead.available", bulkhead, Semaphore::availablePermits)
+                .description("Charges that can be started before the bulkhead rejects them")
+                .register(meterRegistry);
+        Gauge.builder("payment.circuit.open", circuitBreaker,
+                breaker -> breaker.getState() == CircuitBreaker.State.Closed ? 0 : 1)
+                .description("1 while the payment provider is not being called")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+        callbackExecutor.shutdownNow();
+        List<Runnable> pendingRefunds = refundExecutor.shutdownNow();
+        if (!pendingRefunds.isEmpty()) {
+            log.error("{} refunds were still pending on shut down, their charges must be reconciled",
+                    pendingRefunds.size());
+        }
+    }
+
+    /**
+     * @return The receipt, or completes with a {@code PaymentDeclinedException} if the provider refused the payment
+     * or a {@code PaymentUnavailableException} if the outcome is unknown.
+     */
+    public CompletableFuture<PaymentReceipt> charge(PaymentRequest request) {
+        long start = System.nanoTime();
+
+        if (!bulkhead.tryAcquire()) {
+            return rejected("bulkhead", start, "Too many payments are being processed");
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            bulkhead.release();
+            return rejected("circuit_open", start, "The payment provider is not available");
+        }
+
+        CompletableFuture<PaymentReceipt> call = new CompletableFuture<>();
+        // taken by the task when it starts or by the timeout if it never did, whichever holds it releases the permit
+        AtomicBoolean started = new AtomicBoolean();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                if (!started.compareAndSet(false, true)) {
+                    return;
+                }
+                PaymentReceipt receipt;
+                try {
+                    receipt = gateway.charge(request);
+                } catch (RuntimeException e) {
+                    call.completeExceptionally(e);
+                    return;
+                } finally {
+                    // released before completing so the permit is not held while the caller acts on the receipt
+                    bulkhead.release();
+                }
+                call.complete(receipt);
+            });
+        } catch (RejectedExecutionException e) {
+            bulkhead.release();
+            circuitBreaker.onAbandoned();
+            return rejected("bulkhead", start, "Too many payments are being processed");
+        }
+
+        return call.orTimeout(callTimeout.toMillis(), TimeUnit.MILLISECONDS).handle((receipt, failure) -> {
+            if (failure == null) {
+                circuitBreaker.onSuccess();
+                record("approved", start);
+                return receipt;
+            }
+            if (failure instanceof PaymentDeclinedException) {
+                circuitBreaker.onSuccess();
+                record("declined", start);
+                throw (PaymentDeclinedException) failure;
+            }
+            circuitBreaker.onFailure();
+            if (failure instanceof TimeoutException) {
+                if (started.compareAndSet(false, true)) {
+                    // still queued, the cancelled task never runs to release its own permit
+                    bulkhead.release();
+                }
+                task.cancel(true);
+                record("timeout", start);
+                throw new PaymentUnavailableException("The payment provider did not answer in time", failure);
+            }
+            record("failed", start);
+            log.warn("Payment provider failed to charge {}", request, failure);
+            throw new PaymentUnavailableException("The payment provider failed", failure);
+        }).whenCompleteAsync((receipt, failure) -> {
+            // nothing to do, only moves the stages of the caller off the payment thread
+        }, callbackExecutor);
+    }
+
+    /**
+     * Returns the charge in the background, it is retried until the provider accepts it or the attempts run out.
+     */
+    public void refund(PaymentReceipt receipt) {
+        scheduleRefund(receipt, 1, 0);
+    }
+
+    private void scheduleRefund(PaymentReceipt receipt, int attempt, long delayMillis) {
+        try {
+            refundExecutor.schedule(() -> attemptRefund(receipt, attempt), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // only once shutting down
+            refunded("abandoned");
+            log.error("Refunding {} was abandoned on shut down, the charge must be reconciled", receipt, e);
+        }
+    }
+
+    private void attemptRefund(PaymentReceipt receipt, int attempt) {
+        try {
+            gateway.refund(receipt);
+        } catch (RuntimeException e) {
+            if (attempt >= refundAttempts) {
+                refunded("failed");
+                log.error("Refunding {} failed after {} attempts, the charge must be reconciled", receipt, attempt,
+                        e);
+                return;
+            }
+            log.warn("Refunding {} failed, retrying attempt {}", receipt, attempt + 1, e);
+            // capped before shifting so many attempts cannot overflow
+            scheduleRefund(receipt, attempt + 1, refundBackoff.toMillis() << Math.min(attempt - 1, 20));
+            return;
+        }
+        refunded("refunded");
+    }
+
+    private CompletableFuture<PaymentReceipt> rejected(String outcome, long start, String reason) {
+        record(outcome, start);
+        CompletableFuture<PaymentReceipt> rejected = new CompletableFuture<>();
+        rejected.completeExceptionally(new PaymentUnavailableException(reason));
+        return rejected;
+    }
+
+    private void refunded(String outcome) {
+        meterRegistry.counter("payment.refunds", "outcome", outcome).increment();
+    }
+
+    private void record(String outcome, long start) {
+        Timer.builder("payment.gateway.calls")
+                .description("Latency of charging the payment provider")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+}
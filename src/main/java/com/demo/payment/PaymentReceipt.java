@@ -0,0 +1,29 @@
+package com.demo.payment;
+
+import java.util.UUID;
+
+public final class PaymentReceipt {
+    private final UUID transactionId;
+    private final String idempotencyKey;
+
+    public PaymentReceipt(UUID transactionId, String idempotencyKey) {
+        this.transactionId = transactionId;
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public UUID getTransactionId() {
+        return transactionId;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    @Override
+    public String toString() {
+        return "PaymentReceipt{" +
+                "transactionId=" + transactionId +
+                ", idempotencyKey='" + idempotencyKey + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,45 @@
+package com.demo.payment;
+
+import com.demo.domain.Money;
+import com.demo.domain.PendingPayment;
+
+import java.util.UUID;
+
+public final class PaymentRequest {
+    private final String idempotencyKey;
+    private final UUID reservationId;
+    private final Money amount;
+    private final PendingPayment card;
+
+    public PaymentRequest(String idempotencyKey, UUID reservationId, Money amount, PendingPayment card) {
+        this.idempotencyKey = idempotencyKey;
+        this.reservationId = reservationId;
+        this.amount = amount;
+        this.card = card;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public UUID getReservationId() {
+        return reservationId;
+    }
+
+    public Money getAmount() {
+        return amount;
+    }
+
+    public PendingPayment getCard() {
+        return card;
+    }
+
+    @Override
+    public String toString() {
+        return "PaymentRequest{" +
+                "idempotencyKey='" + idempotencyKey + '\'' +
+                ", reservationId=" + reservationId +
+                ", amount=" + amount +
+                '}';
+    }
+}
@@ -0,0 +1,89 @@
+package com.demo.payment;
+
+import com.demo.exceptions.PaymentDeclinedException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stands in for a payment provider until a real one is plugged in. Each charge takes a configurable time, and a
+ * configurable share of charges fail or are declined, so the timeouts, circuit breaker and bulkhead of the
+ * {@code PaymentProcessor} can be exercised locally.
+ */
+@Component
+@ConditionalOnProperty(name = "payment.gateway", havingValue = "stub", matchIfMissing = true)
+public class StubPaymentGateway implements PaymentGateway {
+
+    private final Cache<String, PaymentReceipt> charges = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterWrite(1, TimeUnit.DAYS)
+            .build();
+
+    private final Duration latency;
+    private final Duration latencyJitter;
+    private final double failureRate;
+    private final double declineRate;
+
+    @Autowired
+    public StubPaymentGateway(@Value("${payment.stub.latency-millis:250}") long latencyMillis,
+                              @Value("${payment.stub.latency-jitter-millis:250}") long latencyJitterMillis,
+                              @Value("${payment.stub.failure-rate:0}") double failureRate,
+                              @Value("${payment.stub.decline-rate:0}") double declineRate) {
+        this(Duration.ofMillis(latencyMillis), Duration.ofMillis(latencyJitterMillis), failureRate, declineRate);
+    }
+
+    public StubPaymentGateway(Duration latency, Duration latencyJitter, double failureRate, double declineRate) {
+        this.latency = latency;
+        this.latencyJitter = latencyJitter;
+        this.failureRate = failureRate;
+        this.declineRate = declineRate;
+    }
+
+    @Override
+    public PaymentReceipt charge(PaymentRequest request) {
+        PaymentReceipt earlier = charges.getIfPresent(request.getIdempotencyKey());
+        if (earlier != null) {
+            return earlier;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long jitterMillis = latencyJitter.toMillis();
+        sleep(latency.toMillis() + (jitterMillis > 0 ? random.nextLong(jitterMillis + 1) : 0));
+
+        double roll = random.nextDouble();
+        if (roll < failureRate) {
+            throw new IllegalStateException("Payment provider failed for " + request);
+        }
+        if (roll < failureRate + declineRate) {
+            throw new PaymentDeclinedException("The card was declined");
+        }
+        return charges.get(request.getIdempotencyKey(),
+                key -> new PaymentReceipt(UUID.randomUUID(), key));
+    }
+
+    @Override
+    public void refund(PaymentReceipt receipt) {
+        charges.invalidate(receipt.getIdempotencyKey());
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            // the processor gave up on the call
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Payment provider call interrupted", e);
+        }
+    }
+}
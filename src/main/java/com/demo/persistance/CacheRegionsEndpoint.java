@@ -0,0 +1,88 @@
+package com.demo.persistance;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * {@code GET /actuator/cacheregions} reports the hits, misses and puts of each second level cache region since
+ * startup. {@code POST /actuator/cacheregions} evicts every region, for after the database was changed behind the
+ * application's back.
+ */
+@Component
+@Endpoint(id = "cacheregions")
+public class CacheRegionsEndpoint {
+
+    private SessionFactory sessionFactory;
+
+    public CacheRegionsEndpoint(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    @ReadOperation
+    public Map<String, RegionStatistics> regions() {
+        Statistics statistics = sessionFactory.getStatistics();
+        Map<String, RegionStatistics> regions = new TreeMap<>();
+        Arrays.stream(statistics.getSecondLevelCacheRegionNames()).forEach(region -> {
+            SecondLevelCacheStatistics counts = statistics.getSecondLevelCacheStatistics(region);
+            if (counts != null) {
+                regions.put(region, new RegionStatistics(counts.getHitCount(), counts.getMissCount(),
+                        counts.getPutCount(), counts.getElementCountInMemory()));
+            }
+        });
+        return regions;
+    }
+
+    @WriteOperation
+    public Map<String, RegionStatistics> evict() {
+        sessionFactory.getCache().evictAllRegions();
+        return regions();
+    }
+
+    public static final class RegionStatistics {
+        private final long hits;
+        private final long misses;
+        private final long puts;
+        private final long elements;
+
+        RegionStatistics(long hits, long misses, long puts, long elements) {
+            this.hits = hits;
+            this.misses = misses;
+            this.puts = puts;
+            this.elements = elements;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getPuts() {
+            return puts;
+        }
+
+        /**
+         * {@code -1} if the cache provider does not report it.
+         */
+        public long getElements() {
+            return elements;
+        }
+
+        public double getHitRatio() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+}
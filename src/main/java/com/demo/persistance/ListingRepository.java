@@ -0,0 +1,86 @@
+package com.demo.persistance;
+
+import com.demo.domain.Hotel;
+import com.demo.domain.QHotel;
+import com.demo.domain.QRoom;
+import com.demo.domain.Room;
+import com.demo.persistance.predicates.HotelPredicates;
+import com.demo.persistance.projections.HotelHeader;
+import com.demo.persistance.projections.HotelListing;
+import com.demo.persistance.projections.RoomListing;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.JPQLQuery;
+import com.querydsl.jpa.impl.JPAQuery;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.support.Querydsl;
+import org.springframework.data.repository.support.PageableExecutionUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Paged listings that select projections rather than entities. Each page is a single select of just the rendered
+ * columns, plus a count query only when the total cannot be worked out from the page itself.
+ *
+ * <p>Sort properties are the entity property names used by the sortable table headers, e.g.
+ * {@code address.suburb}.</p>
+ */
+@Repository
+@Transactional(readOnly = true)
+public class ListingRepository {
+
+    private final EntityManager entityManager;
+    private final Querydsl hotelQuerydsl;
+    private final Querydsl roomQuerydsl;
+
+    public ListingRepository(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        this.hotelQuerydsl = new Querydsl(entityManager,
+                new PathBuilder<>(Hotel.class, QHotel.hotel.getMetadata()));
+        this.roomQuerydsl = new Querydsl(entityManager,
+                new PathBuilder<>(Room.class, QRoom.room.getMetadata()));
+    }
+
+    /**
+     * Same filtering as {@code HotelRepository#findAllByLocation}.
+     */
+    public Page<HotelListing> findHotelsByLocation(String state, String suburb, String postcode, Pageable pageable) {
+        return findHotels(HotelPredicates.byLocation(state, suburb, postcode), pageable);
+    }
+
+    public Page<HotelListing> findHotels(Predicate where, Pageable pageable) {
+        return findPage(hotelQuerydsl, QHotel.hotel, HotelListing.PROJECTION, where, pageable);
+    }
+
+    public Page<RoomListing> findRooms(Predicate where, Pageable pageable) {
+        return findPage(roomQuerydsl, QRoom.room, RoomListing.PROJECTION, where, pageable);
+    }
+
+    /**
+     * For a rooms page without any rooms to take the hotel header from.
+     */
+    public Optional<HotelHeader> findHotelHeader(Long hotelId) {
+        return Optional.ofNullable(new JPAQuery<>(entityManager)
+                .select(HotelHeader.PROJECTION)
+                .from(QHotel.hotel)
+                .where(QHotel.hotel.id.eq(hotelId))
+                .fetchOne());
+    }
+
+    private <T> Page<T> findPage(Querydsl querydsl, EntityPath<?> root, Expression<T> projection,
+                                 Predicate where, Pageable pageable) {
+        JPQLQuery<T> query = querydsl.applyPagination(pageable,
+                new JPAQuery<>(entityManager).select(projection).from(root).where(where));
+        List<T> content = query.fetch();
+
+        return PageableExecutionUtils.getPage(content, pageable,
+                () -> new JPAQuery<>(entityManager).from(root).where(where).fetchCount());
+    }
+}
@@ -0,0 +1,25 @@
+package com.demo.persistance;
+
+import com.demo.domain.RoomNight;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+
+@Repository
+public interface RoomNightRepository extends CrudRepository<RoomNight, Long> {
+
+    /**
+     * Served by the unique (room_id, night) index so the cost depends on the nights requested, not the
+     * number of reservations the room has ever had.
+     *
+     * @return {@code true} if any night in {@code [checkIn, checkOut)} is already booked.
+     */
+    @Query("select case when count(n) > 0 then true else false end from RoomNight n " +
+            "where n.room.id = :roomId and n.night >= :checkIn and n.night < :checkOut")
+    boolean existsBookedNight(@Param("roomId") Long roomId,
+                              @Param("checkIn") LocalDate checkIn,
+                              @Param("checkOut") LocalDate checkOut);
+}
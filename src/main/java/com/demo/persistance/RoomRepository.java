@@ -1,11 +1,20 @@
 package com.demo.persistance;
 
 import com.demo.domain.Room;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.querydsl.QuerydslPredicateExecutor;
 import org.springframework.data.repository.PagingAndSortingRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 @Repository
 public interface RoomRepository extends PagingAndSortingRepository<Room, Long>, QuerydslPredicateExecutor<Room> {
 
+    /**
+     * The fetch plan of the reservation flow, which shows the check in times and fees of the hotel on every step.
+     * The room and its hotel are read in a single select.
+     */
+    @EntityGraph(Room.WITH_HOTEL)
+    Optional<Room> findWithHotelById(Long id);
 }
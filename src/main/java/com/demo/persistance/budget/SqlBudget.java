@@ -0,0 +1,17 @@
+package com.demo.persistance.budget;
+
+import java.lang.annotation.*;
+
+/**
+ * The most SQL statements a request handled by the annotated handler method, or by any handler method of the
+ * annotated controller, is expected to run. Handlers without a budget get {@code sql.budget.default}.
+ *
+ * @see SqlBudgetFilter
+ */
+@Target({ElementType.METHOD, ElementType.TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface SqlBudget {
+
+    int value();
+}
@@ -0,0 +1,12 @@
+package com.demo.persistance.budget;
+
+/**
+ * A request ran more SQL statements than the budget of its handler, usually the sign of a lazy association being
+ * loaded once per row. Only thrown when {@code sql.budget.fail} is set, which the tests do.
+ */
+public class SqlBudgetExceededException extends IllegalStateException {
+
+    public SqlBudgetExceededException(String message) {
+        super(message);
+    }
+}
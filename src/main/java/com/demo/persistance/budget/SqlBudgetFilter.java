@@ -0,0 +1,79 @@
+package com.demo.persistance.budget;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Counts the SQL statements run while handling each request, including rendering the view, and warns when the
+ * handler goes over its {@link SqlBudget}. Setting {@code sql.budget.fail} turns the warning into a
+ * {@link SqlBudgetExceededException} so tests fail on a handler that has started loading associations row by row.
+ *
+ * <p>Only the statements run on the request thread are counted. Work handed to another thread, such as processing
+ * a payment, is not part of the budget.</p>
+ */
+@Component
+public class SqlBudgetFilter extends OncePerRequestFilter {
+    private static final Logger log = LoggerFactory.getLogger(SqlBudgetFilter.class);
+
+    private final int defaultBudget;
+    private final boolean fail;
+
+    @Autowired
+    public SqlBudgetFilter(@Value("${sql.budget.default:10}") int defaultBudget,
+                           @Value("${sql.budget.fail:false}") boolean fail) {
+        this.defaultBudget = defaultBudget;
+        this.fail = fail;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlStatementCounter.start();
+        SqlStatementCounter.Statements statements;
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            statements = SqlStatementCounter.stop();
+        }
+
+        Object handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+        int budget = budget(handler);
+        if (statements.getCount() <= budget) {
+            return;
+        }
+
+        String message = String.format("%s %s ran %d SQL statements, over its budget of %d",
+                request.getMethod(), request.getRequestURI(), statements.getCount(), budget);
+        log.warn("{} in {}:\n{}", message, handler, String.join("\n", statements.getSql()));
+        if (fail) {
+            throw new SqlBudgetExceededException(message);
+        }
+    }
+
+    private int budget(Object handler) {
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod handlerMethod = (HandlerMethod) handler;
+            SqlBudget budget = handlerMethod.getMethodAnnotation(SqlBudget.class);
+            if (budget == null) {
+                budget = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), SqlBudget.class);
+            }
+            if (budget != null) {
+                return budget.value();
+            }
+        }
+        return defaultBudget;
+    }
+}
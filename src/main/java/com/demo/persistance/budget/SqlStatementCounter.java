@@ -0,0 +1,71 @@
+package com.demo.persistance.budget;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread between {@link #start()} and {@link #stop()}.
+ *
+ * <p>Registered with Hibernate through {@code hibernate.session_factory.statement_inspector}, so every statement of
+ * every session is seen, including the secondary selects of lazy associations. Statements on other threads, such as
+ * those of a payment completing in the background, are not counted. Entities served from the second level cache
+ * prepare no statement and so cost nothing.</p>
+ */
+public class SqlStatementCounter implements StatementInspector {
+    private static final int MAX_RECORDED = 50;
+
+    private static final ThreadLocal<Statements> current = new ThreadLocal<>();
+
+    /**
+     * Starts counting on the current thread, discarding any count already in progress.
+     */
+    public static void start() {
+        current.set(new Statements());
+    }
+
+    /**
+     * Stops counting on the current thread.
+     *
+     * @return The statements prepared since {@link #start()}, empty if counting was not started.
+     */
+    public static Statements stop() {
+        Statements statements = current.get();
+        current.remove();
+        return statements == null ? new Statements() : statements;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Statements statements = current.get();
+        if (statements != null) {
+            statements.add(sql);
+        }
+        return sql;
+    }
+
+    public static final class Statements {
+        private int count;
+        private final List<String> sql = new ArrayList<>();
+
+        private void add(String statement) {
+            count++;
+            if (sql.size() < MAX_RECORDED) {
+                sql.add(statement);
+            }
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return The first statements prepared, in order. Only the first 50 are kept.
+         */
+        public List<String> getSql() {
+            return Collections.unmodifiableList(sql);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.demo.persistance.keyset;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Opaque position in a keyset ordered listing. It holds the sort key values of the last row on the previous page and
+ * the signature of the sort they belong to, encoded as url safe base 64 so it can travel in the query string.
+ */
+public final class KeysetCursor {
+
+    private final String sortSignature;
+    private final List<String> values;
+
+    KeysetCursor(String sortSignature, List<String> values) {
+        this.sortSignature = sortSignature;
+        this.values = Collections.unmodifiableList(new ArrayList<>(values));
+    }
+
+    String getSortSignature() {
+        return sortSignature;
+    }
+
+    List<String> getValues() {
+        return values;
+    }
+
+    public String encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(sortSignature);
+            out.writeShort(values.size());
+            for (String value : values) {
+                out.writeUTF(value);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * A cursor that has been tampered with or truncated is treated the same as no cursor which restarts the listing
+     * from the first page.
+     */
+    public static Optional<KeysetCursor> decode(String encoded) {
+        if (encoded == null || encoded.isEmpty()) {
+            return Optional.empty();
+        }
+        try (DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(Base64.getUrlDecoder().decode(encoded)))) {
+            String sortSignature = in.readUTF();
+            int size = in.readShort();
+            List<String> values = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                values.add(in.readUTF());
+            }
+            return Optional.of(new KeysetCursor(sortSignature, values));
+        } catch (IOException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+}
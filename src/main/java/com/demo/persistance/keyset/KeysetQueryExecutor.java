@@ -0,0 +1,107 @@
+package com.demo.persistance.keyset;
+
+import com.querydsl.core.BooleanBuilder;
+import com.querydsl.core.types.*;
+import com.querydsl.core.types.dsl.EntityPathBase;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.jpa.impl.JPAQuery;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Runs seek pagination queries. Instead of skipping {@code OFFSET n} rows each page continues from the sort key
+ * values of the last row of the previous page, so the cost of a page does not grow with how deep the user has
+ * paged. The count query is only run when asked for.
+ */
+@Component
+@Transactional(readOnly = true)
+public class KeysetQueryExecutor {
+
+    private final EntityManager entityManager;
+
+    public KeysetQueryExecutor(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    public <T> KeysetSlice<T> find(EntityPathBase<T> root, Predicate where, KeysetSortKeys<T> sortKeys,
+                                   KeysetRequest request) {
+        return find(root, root, where, sortKeys, request);
+    }
+
+    /**
+     * Selects {@code projection} for each row rather than the entity, the sort keys then read the cursor values
+     * from the projection.
+     */
+    public <T> KeysetSlice<T> find(EntityPathBase<?> root, Expression<T> projection, Predicate where,
+                                   KeysetSortKeys<T> sortKeys, KeysetRequest request) {
+        List<KeysetSortKeys.OrderedKey<T>> keys = sortKeys.resolve(request.getSort());
+        String signature = KeysetSortKeys.signature(keys);
+
+        BooleanBuilder predicate = new BooleanBuilder(where);
+        KeysetCursor.decode(request.getCursor())
+                .filter(cursor -> cursor.getSortSignature().equals(signature))
+                .flatMap(cursor -> seek(keys, cursor))
+                .ifPresent(predicate::and);
+
+        JPAQuery<T> query = new JPAQuery<T>(entityManager)
+                .select(projection)
+                .from(root)
+                .where(predicate)
+                .orderBy(orderSpecifiers(keys))
+                .limit(request.getSize() + 1);
+        List<T> rows = query.fetch();
+
+        // the extra row only tells us there is a next page
+        boolean hasNext = rows.size() > request.getSize();
+        List<T> content = hasNext ? rows.subList(0, request.getSize()) : rows;
+        String nextCursor = hasNext
+                ? new KeysetCursor(signature, KeysetSortKeys.values(keys, content.get(content.size() - 1))).encode()
+                : null;
+
+        Long total = request.isCountTotal()
+                ? new JPAQuery<>(entityManager).from(root).where(where).fetchCount()
+                : null;
+
+        return new KeysetSlice<>(content, PageRequest.of(0, request.getSize(), request.getSort()), nextCursor, total);
+    }
+
+    /**
+     * For keys {@code k1..kn} with last row values {@code v1..vn} the next page is every row where
+     * {@code (k1 > v1) or (k1 = v1 and k2 > v2) or ...}, with {@code <} used for descending keys.
+     */
+    private static <T> Optional<Predicate> seek(List<KeysetSortKeys.OrderedKey<T>> keys, KeysetCursor cursor) {
+        if (cursor.getValues().size() != keys.size()) {
+            return Optional.empty();
+        }
+        try {
+            BooleanBuilder anyAfter = new BooleanBuilder();
+            BooleanBuilder equalSoFar = new BooleanBuilder();
+            for (int i = 0; i < keys.size(); i++) {
+                KeysetSortKeys.OrderedKey<T> key = keys.get(i);
+                Expression<?> value = Expressions.constant(key.key.parse(cursor.getValues().get(i)));
+                Ops after = key.direction.isAscending() ? Ops.GT : Ops.LT;
+
+                anyAfter.or(new BooleanBuilder(equalSoFar.getValue())
+                        .and(Expressions.predicate(after, key.key.getPath(), value)));
+                equalSoFar.and(Expressions.predicate(Ops.EQ, key.key.getPath(), value));
+            }
+            return Optional.of(anyAfter);
+        } catch (RuntimeException e) {
+            // values that no longer parse restart the listing from the first page
+            return Optional.empty();
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <T> OrderSpecifier<?>[] orderSpecifiers(List<KeysetSortKeys.OrderedKey<T>> keys) {
+        return keys.stream()
+                .map(key -> new OrderSpecifier(key.direction.isAscending() ? Order.ASC : Order.DESC,
+                        key.key.getPath()))
+                .toArray(OrderSpecifier[]::new);
+    }
+}
@@ -0,0 +1,46 @@
+package com.demo.persistance.keyset;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Page size and sort come from the usual {@code Pageable} request parameters so the sortable table headers keep
+ * working, the page number is replaced by the cursor.
+ */
+public final class KeysetRequest {
+    private final int size;
+    private final Sort sort;
+    private final String cursor;
+    private final boolean countTotal;
+
+    private KeysetRequest(int size, Sort sort, String cursor, boolean countTotal) {
+        this.size = size;
+        this.sort = sort;
+        this.cursor = cursor;
+        this.countTotal = countTotal;
+    }
+
+    /**
+     * @param cursor     The encoded cursor of the previous page or {@code null} for the first page.
+     * @param countTotal Whether to also run a count query, skipping it gives plain {@code Slice} semantics.
+     */
+    public static KeysetRequest of(Pageable pageable, String cursor, boolean countTotal) {
+        return new KeysetRequest(pageable.getPageSize(), pageable.getSort(), cursor, countTotal);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public Sort getSort() {
+        return sort;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public boolean isCountTotal() {
+        return countTotal;
+    }
+}
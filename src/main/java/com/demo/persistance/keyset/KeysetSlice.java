@@ -0,0 +1,38 @@
+package com.demo.persistance.keyset;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.List;
+
+/**
+ * A {@code Slice} that knows the cursor of the next page. The total is only present when it was requested.
+ */
+public class KeysetSlice<T> extends SliceImpl<T> {
+    private final String nextCursor;
+    private final Long totalElements;
+
+    public KeysetSlice(List<T> content, Pageable pageable, String nextCursor, Long totalElements) {
+        super(content, pageable, nextCursor != null);
+        this.nextCursor = nextCursor;
+        this.totalElements = totalElements;
+    }
+
+    /**
+     * @return The encoded cursor for the following page, or {@code null} on the last page.
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isTotalKnown() {
+        return totalElements != null;
+    }
+
+    /**
+     * @return The total matching rows or {@code null} if the count was skipped.
+     */
+    public Long getTotalElements() {
+        return totalElements;
+    }
+}
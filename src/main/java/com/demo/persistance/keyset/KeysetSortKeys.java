@@ -0,0 +1,66 @@
+package com.demo.persistance.keyset;
+
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * The sort keys supported by one listing. The id key is always appended as the final tie breaker so every row has a
+ * unique position even when the requested sort columns contain duplicates.
+ *
+ * @param <T> The row type, either the entity or a projection of it.
+ */
+public final class KeysetSortKeys<T> {
+    private final Map<String, SortKey<T>> keys = new LinkedHashMap<>();
+    private final SortKey<T> idKey;
+
+    @SafeVarargs
+    public KeysetSortKeys(SortKey<T> idKey, SortKey<T>... keys) {
+        this.idKey = idKey;
+        Arrays.stream(keys).forEach(key -> this.keys.put(key.getProperty(), key));
+    }
+
+    /**
+     * Sort properties without a registered key are ignored.
+     *
+     * @return The keys in sort order ending with the id key.
+     */
+    List<OrderedKey<T>> resolve(Sort sort) {
+        List<OrderedKey<T>> resolved = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            SortKey<T> key = keys.get(order.getProperty());
+            if (key != null && resolved.stream().noneMatch(existing -> existing.key == key)) {
+                resolved.add(new OrderedKey<>(key, order.getDirection()));
+            }
+        }
+        resolved.add(new OrderedKey<>(idKey, Sort.Direction.ASC));
+        return resolved;
+    }
+
+    static <T> String signature(List<OrderedKey<T>> keys) {
+        return keys.stream()
+                .map(orderedKey -> orderedKey.key.getProperty() + ":" + orderedKey.direction)
+                .collect(Collectors.joining(","));
+    }
+
+    static <T> List<String> values(List<OrderedKey<T>> keys, T row) {
+        return keys.stream()
+                .map(orderedKey -> orderedKey.key.valueOf(row))
+                .collect(Collectors.toList());
+    }
+
+    static final class OrderedKey<T> {
+        final SortKey<T> key;
+        final Sort.Direction direction;
+
+        OrderedKey(SortKey<T> key, Sort.Direction direction) {
+            this.key = key;
+            this.direction = direction;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.demo.persistance.keyset;
+
+import com.querydsl.core.types.Expression;
+
+import java.util.function.Function;
+
+/**
+ * A column a listing can be keyset paged on. The value of the last row is read from the row when building the
+ * next cursor and parsed back from the cursor when seeking past it.
+ *
+ * @param <T> The row type, either the entity or a projection of it.
+ */
+public final class SortKey<T> {
+    private final String property;
+    private final Expression<?> path;
+    private final Function<T, ?> extractor;
+    private final Function<String, ?> parser;
+
+    private SortKey(String property, Expression<?> path, Function<T, ?> extractor, Function<String, ?> parser) {
+        this.property = property;
+        this.path = path;
+        this.extractor = extractor;
+        this.parser = parser;
+    }
+
+    /**
+     * @param property The sort property name used by {@code Pageable} and the sortable table headers.
+     */
+    public static <T, V extends Comparable<? super V>> SortKey<T> of(String property,
+                                                                     Expression<V> path,
+                                                                     Function<T, V> extractor,
+                                                                     Function<String, V> parser) {
+        return new SortKey<>(property, path, extractor, parser);
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    Expression<?> getPath() {
+        return path;
+    }
+
+    String valueOf(T row) {
+        return String.valueOf(extractor.apply(row));
+    }
+
+    Object parse(String value) {
+        return parser.apply(value);
+    }
+}
@@ -1,7 +1,7 @@
 package com.demo.persistance.predicates;
 
+import com.demo.domain.Hotel;
 import com.demo.domain.QHotel;
-import com.demo.domain.location.QAddress;
 import com.querydsl.core.types.Predicate;
 
 public final class HotelPredicates {
@@ -11,19 +11,18 @@ public final class HotelPredicates {
     private HotelPredicates() {
     }
 
+    /**
+     * Only the location parts that are supplied become predicates. Each compares a normalized search column so the
+     * query can be served by the hotel search indexes.
+     */
     public static Predicate byLocation(String state, String suburb, String postcode) {
-        QAddress address = hotel.address;
+        String normalizedState = Hotel.normalizeSearchTerm(state);
+        String normalizedSuburb = Hotel.normalizeSearchTerm(suburb);
+        String normalizedPostcode = Hotel.normalizeSearchTerm(postcode);
 
-        /*
-         * This is the same as doing a coalesce except coalesce cannot be used like you think it could be.
-         *
-         * if arg to coalesce is null, an exception is thrown. coalesce will only return its arg if the left hand side
-         * 'this' instance is null so its the wrong way round for what we want to do.
-         * address.state.stringValue().coalesce(state)
-         */
         return new WhereClauseBuilder()
-                .andNullable(state, () -> address.state.stringValue().equalsIgnoreCase(state))
-                .andNullable(suburb, () -> address.suburb.equalsIgnoreCase(suburb))
-                .andNullable(postcode, () -> address.postcode.value.eq(postcode));
+                .andNullable(normalizedState, () -> hotel.searchState.eq(normalizedState))
+                .andNullable(normalizedSuburb, () -> hotel.searchSuburb.eq(normalizedSuburb))
+                .andNullable(normalizedPostcode, () -> hotel.searchPostcode.eq(normalizedPostcode));
     }
 }
@@ -1,26 +1,42 @@
 package com.demo.persistance.predicates;
 
 import com.demo.domain.QRoom;
+import com.demo.domain.QRoomNight;
 import com.querydsl.core.types.Predicate;
+import com.querydsl.jpa.JPAExpressions;
+
+import java.time.LocalDate;
 
 public final class RoomPredicates {
 
     private static final QRoom room = QRoom.room;
+    private static final QRoomNight roomNight = QRoomNight.roomNight;
 
     private RoomPredicates() {
     }
 
     /**
      * Gets all the available rooms in the hotel identified by the supplied {@code hotelId}.
-     * An available room means it has no {@code Reservation} assigned to it.
+     * An available room means none of its nights between check in and check out are booked.
      *
      * <p>The reason the query is done through the {@code Room} and not {@code Hotel} is to get a {@code Page} as
      * there could be many rooms. {@code Hotel} will get ALL the {@code Room}s unpaged.</p>
      *
-     * @param hotelId The hotel id to get available rooms for.
+     * <p>The not exists sub query is answered by the unique (room_id, night) index on {@code RoomNight}.</p>
+     *
+     * @param hotelId  The hotel id to get available rooms for.
+     * @param checkIn  The first night of the stay.
+     * @param checkOut The check out date which is exclusive since no night is spent on that day.
      * @return The {@code Predicate}.
      */
-    public static Predicate availableRoom(Long hotelId) {
-        return room.hotel.id.eq(hotelId).and(room.reservation.isNull());
+    public static Predicate availableRoom(Long hotelId, LocalDate checkIn, LocalDate checkOut) {
+        return room.hotel.id.eq(hotelId).and(
+                JPAExpressions.selectOne()
+                        .from(roomNight)
+                        .where(roomNight.room.id.eq(room.id),
+                                roomNight.night.goe(checkIn),
+                                roomNight.night.lt(checkOut))
+                        .notExists()
+        );
     }
 }
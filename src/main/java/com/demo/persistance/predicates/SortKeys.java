@@ -0,0 +1,49 @@
+package com.demo.persistance.predicates;
+
+import com.demo.domain.Hotel;
+import com.demo.domain.Money;
+import com.demo.domain.QHotel;
+import com.demo.domain.QRoom;
+import com.demo.domain.RoomType;
+import com.demo.persistance.keyset.KeysetSortKeys;
+import com.demo.persistance.keyset.SortKey;
+import com.demo.persistance.projections.HotelListing;
+import com.demo.persistance.projections.RoomListing;
+
+/**
+ * The columns the hotel and room listings can be keyset paged on. Property names match the sort parameters of the
+ * sortable table headers.
+ */
+public final class SortKeys {
+
+    private static final QHotel hotel = QHotel.hotel;
+    private static final QRoom room = QRoom.room;
+
+    /*
+     * Address columns are ordered by their normalized search columns, which only differ from the address in case,
+     * so the seek predicate is served by the same indexes as location search. The cursor value is normalized the
+     * same way from the listing.
+     */
+    public static final KeysetSortKeys<HotelListing> HOTELS = new KeysetSortKeys<>(
+            SortKey.of("id", hotel.id, HotelListing::getId, Long::valueOf),
+            SortKey.of("name", hotel.name, HotelListing::getName, String::valueOf),
+            SortKey.of("stars", hotel.stars, HotelListing::getStars, Integer::valueOf),
+            SortKey.of("address.suburb", hotel.searchSuburb,
+                    (HotelListing listing) -> Hotel.normalizeSearchTerm(listing.getSuburb()), String::valueOf),
+            SortKey.of("address.state", hotel.searchState,
+                    (HotelListing listing) -> listing.getState().name(), String::valueOf),
+            SortKey.of("address.postcode", hotel.searchPostcode,
+                    (HotelListing listing) -> Hotel.normalizeSearchTerm(listing.getPostcode()), String::valueOf)
+    );
+
+    public static final KeysetSortKeys<RoomListing> ROOMS = new KeysetSortKeys<>(
+            SortKey.of("id", room.id, RoomListing::getId, Long::valueOf),
+            SortKey.of("roomNumber", room.roomNumber, RoomListing::getRoomNumber, String::valueOf),
+            SortKey.of("roomType", room.roomType, RoomListing::getRoomType, RoomType::valueOf),
+            SortKey.of("beds", room.beds, RoomListing::getBeds, Integer::valueOf),
+            SortKey.of("costPerNight", room.costPerNight, RoomListing::getCostPerNight, Money::of)
+    );
+
+    private SortKeys() {
+    }
+}
@@ -0,0 +1,79 @@
+package com.demo.persistance.projections;
+
+import com.demo.domain.QHotel;
+import com.demo.domain.location.State;
+import com.querydsl.core.types.ConstructorExpression;
+import com.querydsl.core.types.Projections;
+
+/**
+ * The columns of a {@code Hotel} shown above its available rooms. Normally read from the room listing rows
+ * themselves, it is only selected on its own when there is no room to read it from.
+ */
+public class HotelHeader {
+    private static final QHotel hotel = QHotel.hotel;
+
+    public static final ConstructorExpression<HotelHeader> PROJECTION = Projections.constructor(HotelHeader.class,
+            hotel.id, hotel.name, hotel.stars, hotel.address.streetLine1, hotel.address.streetLine2,
+            hotel.address.state, hotel.address.suburb, hotel.address.postcode.value);
+
+    private final Long id;
+    private final String name;
+    private final int stars;
+    private final String streetLine1;
+    private final String streetLine2;
+    private final State state;
+    private final String suburb;
+    private final String postcode;
+
+    public HotelHeader(Long id, String name, int stars, String streetLine1, String streetLine2, State state,
+                       String suburb, String postcode) {
+        this.id = id;
+        this.name = name;
+        this.stars = stars;
+        this.streetLine1 = streetLine1;
+        this.streetLine2 = streetLine2;
+        this.state = state;
+        this.suburb = suburb;
+        this.postcode = postcode;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getStars() {
+        return stars;
+    }
+
+    public String getStreetLine1() {
+        return streetLine1;
+    }
+
+    public String getStreetLine2() {
+        return streetLine2;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public String getSuburb() {
+        return suburb;
+    }
+
+    public String getPostcode() {
+        return postcode;
+    }
+
+    @Override
+    public String toString() {
+        return "HotelHeader{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,65 @@
+package com.demo.persistance.projections;
+
+import com.demo.domain.QHotel;
+import com.demo.domain.location.State;
+import com.querydsl.core.types.ConstructorExpression;
+import com.querydsl.core.types.Projections;
+
+/**
+ * The columns of a {@code Hotel} shown by the hotel search results. Selecting only these avoids loading and managing
+ * the whole entity for every row of the listing.
+ */
+public class HotelListing {
+    private static final QHotel hotel = QHotel.hotel;
+
+    public static final ConstructorExpression<HotelListing> PROJECTION = Projections.constructor(HotelListing.class,
+            hotel.id, hotel.name, hotel.stars, hotel.address.state, hotel.address.suburb, hotel.address.postcode.value);
+
+    private final Long id;
+    private final String name;
+    private final int stars;
+    private final State state;
+    private final String suburb;
+    private final String postcode;
+
+    public HotelListing(Long id, String name, int stars, State state, String suburb, String postcode) {
+        this.id = id;
+        this.name = name;
+        this.stars = stars;
+        this.state = state;
+        this.suburb = suburb;
+        this.postcode = postcode;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getStars() {
+        return stars;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public String getSuburb() {
+        return suburb;
+    }
+
+    public String getPostcode() {
+        return postcode;
+    }
+
+    @Override
+    public String toString() {
+        return "HotelListing{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,84 @@
+package com.demo.persistance.projections;
+
+import com.demo.domain.Money;
+import com.demo.domain.QHotel;
+import com.demo.domain.QRoom;
+import com.demo.domain.RoomType;
+import com.demo.domain.location.State;
+import com.querydsl.core.types.ConstructorExpression;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.PathInits;
+
+/**
+ * The columns of a {@code Room} shown by the available rooms listing. Unlike the entity it has no eager
+ * {@code Hotel} association so a page of rooms is a single select. The hotel columns shown above the rooms are
+ * joined into the same select, every row carries the same {@link HotelHeader}.
+ */
+public class RoomListing {
+    private static final QRoom room = QRoom.room;
+    // room.hotel is only initialised one level deep, the postcode is another level down
+    private static final QHotel hotel = new QHotel(room.hotel.getMetadata(), PathInits.DIRECT2);
+
+    public static final ConstructorExpression<RoomListing> PROJECTION = Projections.constructor(RoomListing.class,
+            room.id, room.roomNumber, room.roomType, room.beds, room.costPerNight,
+            hotel.id, hotel.name, hotel.stars, hotel.address.streetLine1, hotel.address.streetLine2,
+            hotel.address.state, hotel.address.suburb, hotel.address.postcode.value);
+
+    private final Long id;
+    private final String roomNumber;
+    private final RoomType roomType;
+    private final int beds;
+    private final Money costPerNight;
+    private final HotelHeader hotel;
+
+    public RoomListing(Long id, String roomNumber, RoomType roomType, int beds, Money costPerNight,
+                       HotelHeader hotel) {
+        this.id = id;
+        this.roomNumber = roomNumber;
+        this.roomType = roomType;
+        this.beds = beds;
+        this.costPerNight = costPerNight;
+        this.hotel = hotel;
+    }
+
+    /**
+     * Used by {@link #PROJECTION}, the hotel columns follow the room columns.
+     */
+    public RoomListing(Long id, String roomNumber, RoomType roomType, int beds, Money costPerNight,
+                       Long hotelId, String hotelName, int stars, String streetLine1, String streetLine2,
+                       State state, String suburb, String postcode) {
+        this(id, roomNumber, roomType, beds, costPerNight,
+                new HotelHeader(hotelId, hotelName, stars, streetLine1, streetLine2, state, suburb, postcode));
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getRoomNumber() {
+        return roomNumber;
+    }
+
+    public RoomType getRoomType() {
+        return roomType;
+    }
+
+    public int getBeds() {
+        return beds;
+    }
+
+    public Money getCostPerNight() {
+        return costPerNight;
+    }
+
+    public HotelHeader getHotel() {
+        return hotel;
+    }
+
+    @Override
+    public String toString() {
+        return "RoomListing{" +
+                "roomNumber='" + roomNumber + '\'' +
+                '}';
+    }
+}
@@ -1,12 +1,23 @@
 package com.demo.reservation;
 
 import com.demo.domain.Extra;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
 
 @Repository
 public interface ExtraRepository extends CrudRepository<Extra, Long> {
+
+    /**
+     * Results are kept in the {@code extra-queries} region of the query cache and are dropped whenever any extra is
+     * written.
+     */
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.cacheable", value = "true"),
+            @QueryHint(name = "org.hibernate.cacheRegion", value = "extra-queries")
+    })
     List<Extra> findAllByTypeAndCategory(Extra.Type type, Extra.Category category);
 }
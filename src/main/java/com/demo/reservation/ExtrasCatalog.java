@@ -0,0 +1,134 @@
+package com.demo.reservation;
+
+import com.demo.domain.Extra;
+import com.demo.domain.ExtraChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Every {@code Extra} held in memory. The catalog is tiny and rarely written so each flow step reads it from here
+ * rather than querying the database on every request.
+ *
+ * <p>The catalog is loaded on first use and reloaded whenever an extra is saved. Each load builds a complete
+ * immutable {@code Snapshot} which is published through a volatile field, so readers never see a partially
+ * loaded catalog and never block.</p>
+ */
+@Component
+public class ExtrasCatalog {
+
+    private final ExtraRepository extraRepository;
+    private final Counter loads;
+
+    private final Object loadLock = new Object();
+    private volatile Snapshot snapshot;
+
+    public ExtrasCatalog(ExtraRepository extraRepository, MeterRegistry meterRegistry) {
+        this.extraRepository = extraRepository;
+        this.loads = meterRegistry.counter("reservation.extras.catalog.loads");
+    }
+
+    /**
+     * @return The extras of the pricing type and category ordered by id, never {@code null}.
+     */
+    public List<Extra> getExtras(Extra.Type type, Extra.Category category) {
+        return snapshot().byTypeAndCategory.get(type).get(category);
+    }
+
+    public Optional<Extra> findById(Long id) {
+        return Optional.ofNullable(snapshot().byId.get(id));
+    }
+
+    /**
+     * Ids that are not in the catalog are skipped.
+     */
+    public List<Extra> findAllById(Iterable<Long> ids) {
+        Snapshot current = snapshot();
+        List<Extra> extras = new ArrayList<>();
+        for (Long id : ids) {
+            Extra extra = current.byId.get(id);
+            if (extra != null) {
+                extras.add(extra);
+            }
+        }
+        return extras;
+    }
+
+    /**
+     * Applied once the saving transaction commits, or straight away when the extra was saved outside of one.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onExtraChanged(ExtraChangedEvent event) {
+        reload();
+    }
+
+    /**
+     * Replaces the catalog with every extra currently in the database.
+     */
+    public void reload() {
+        synchronized (loadLock) {
+            snapshot = Snapshot.of(extraRepository.findAll());
+            loads.increment();
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (loadLock) {
+                if (snapshot == null) {
+                    reload();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private static final class Snapshot {
+        private final EnumMap<Extra.Type, EnumMap<Extra.Category, List<Extra>>> byTypeAndCategory;
+        private final Map<Long, Extra> byId;
+
+        private Snapshot(EnumMap<Extra.Type, EnumMap<Extra.Category, List<Extra>>> byTypeAndCategory,
+                         Map<Long, Extra> byId) {
+            this.byTypeAndCategory = byTypeAndCategory;
+            this.byId = byId;
+        }
+
+        private static Snapshot of(Iterable<Extra> extras) {
+            List<Extra> sorted = new ArrayList<>();
+            extras.forEach(sorted::add);
+            sorted.sort(Comparator.comparing(Extra::getId, Comparator.nullsLast(Comparator.naturalOrder())));
+
+            EnumMap<Extra.Type, EnumMap<Extra.Category, List<Extra>>> byTypeAndCategory =
+                    new EnumMap<>(Extra.Type.class);
+            for (Extra.Type type : Extra.Type.values()) {
+                EnumMap<Extra.Category, List<Extra>> byCategory = new EnumMap<>(Extra.Category.class);
+                for (Extra.Category category : Extra.Category.values()) {
+                    List<Extra> matching = new ArrayList<>();
+                    for (Extra extra : sorted) {
+                        if (extra.getType() == type && extra.getCategory() == category) {
+                            matching.add(extra);
+                        }
+                    }
+                    byCategory.put(category, Collections.unmodifiableList(matching));
+                }
+                byTypeAndCategory.put(type, byCategory);
+            }
+
+            Map<Long, Extra> byId = new HashMap<>();
+            sorted.forEach(extra -> byId.put(extra.getId(), extra));
+            return new Snapshot(byTypeAndCategory, Collections.unmodifiableMap(byId));
+        }
+    }
+}
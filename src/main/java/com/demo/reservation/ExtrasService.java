@@ -1,37 +1,36 @@
 package com.demo.reservation;
 
 import com.demo.domain.Extra;
-import com.demo.domain.MealPlan;
-import com.demo.domain.Reservation;
-import com.demo.domain.RoomType;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Optional;
 
+/**
+ * Extras offered by the reservation flow. Everything is answered from the in memory {@code ExtrasCatalog}.
+ */
 @Service
 public class ExtrasService {
 
-    private ExtraRepository extraRepository;
+    private ExtrasCatalog extrasCatalog;
 
-    public ExtrasService(ExtraRepository extraRepository) {
-        this.extraRepository = extraRepository;
+    public ExtrasService(ExtrasCatalog extrasCatalog) {
+        this.extrasCatalog = extrasCatalog;
     }
 
     public List<Extra> getGeneralExtras(Extra.Type type) {
-        return extraRepository.findAllByTypeAndCategory(type, Extra.Category.General);
+        return extrasCatalog.getExtras(type, Extra.Category.General);
     }
 
     public List<Extra> getFoodExtras(Extra.Type type) {
-        return extraRepository.findAllByTypeAndCategory(type, Extra.Category.Food);
+        return extrasCatalog.getExtras(type, Extra.Category.Food);
+    }
+
+    public Optional<Extra> getExtraById(Long id) {
+        return extrasCatalog.findById(id);
     }
 
     public List<Extra> getExtrasById(List<Long> ids) {
-        List<Extra> target = new ArrayList<>();
-        extraRepository.findAllById(ids).forEach(target::add);
-        return target;
+        return extrasCatalog.findAllById(ids);
     }
 }
@@ -1,9 +1,20 @@
 package com.demo.reservation;
 
+import com.demo.availability.RoomStay;
 import com.demo.domain.Reservation;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface ReservationRepository extends CrudRepository<Reservation, Long> {
+
+    /**
+     * Only selects the columns needed to index stays rather than loading each reservation graph.
+     */
+    @Query("select new com.demo.availability.RoomStay(r.room.id, r.dates.checkInDate, r.dates.checkOutDate) " +
+            "from Reservation r")
+    List<RoomStay> findAllStays();
 }
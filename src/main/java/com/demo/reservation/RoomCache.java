@@ -0,0 +1,59 @@
+package com.demo.reservation;
+
+import com.demo.domain.HotelChangedEvent;
+import com.demo.domain.Room;
+import com.demo.persistance.RoomRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rooms by id for restoring reservation flows, which look their room up again on every request.
+ *
+ * <p>Rooms are loaded with their hotel since the flow shows it on every step. The cached rooms are detached and
+ * shared between requests so they must only be read. Entries expire after a fixed time and the rooms of a hotel are
+ * dropped once a change to that hotel commits.</p>
+ */
+@Component
+public class RoomCache {
+    private final RoomRepository roomRepository;
+    private final Cache<Long, Room> cache;
+
+    public RoomCache(RoomRepository roomRepository, MeterRegistry meterRegistry,
+                     @Value("${reservation.room-cache.maximum-size:10000}") long maximumSize,
+                     @Value("${reservation.room-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.roomRepository = roomRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "reservation.rooms");
+    }
+
+    /**
+     * Rooms that do not exist are not cached.
+     */
+    public Optional<Room> findById(Long roomId) {
+        return Optional.ofNullable(cache.get(roomId, id -> roomRepository.findWithHotelById(id).orElse(null)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHotelChanged(HotelChangedEvent event) {
+        cache.asMap().values().removeIf(room -> room.getHotel() != null
+                && Objects.equals(room.getHotel().getId(), event.getHotelId()));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -0,0 +1,197 @@
+package com.demo.reservation.flow;
+
+import com.demo.availability.RoomHoldService;
+import com.demo.reservation.flow.forms.ReservationFlow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drops reservation flows that a guest has walked away from, rather than leaving them in the session until the
+ * container times it out.
+ *
+ * <p>The session store reports each request that carries a flow along with the step it is on. A flow idle for
+ * longer than the ttl of that step is evicted by a background sweep, so a guest browsing dates can be given up on
+ * sooner than one part way through payment. Any room hold of an evicted flow is released.</p>
+ *
+ * <p>The number of live flows is also capped. Flows are kept in least recently used order and once the cap is
+ * exceeded the least recently used are evicted straight away, so a crawler starting a flow on every request cannot
+ * exhaust the heap.</p>
+ */
+public class AbandonedFlowReaper {
+    private static final Logger log = LoggerFactory.getLogger(AbandonedFlowReaper.class);
+
+    private static final String IDLE = "idle";
+    private static final String CAPACITY = "capacity";
+    private static final String COMPLETED = "completed";
+
+    // Access ordered so iteration starts at the least recently used flow, guarded by itself.
+    private final LinkedHashMap<UUID, TrackedFlow> flows = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final Map<ReservationFlow.Step, Duration> idleTtls;
+    private final Duration defaultIdleTtl;
+    private final int maximumFlows;
+    private final Duration sweepInterval;
+    private final RoomHoldService roomHoldService;
+    private final MeterRegistry meterRegistry;
+    private final Clock clock;
+
+    private ScheduledExecutorService sweeper;
+
+    /**
+     * @param idleTtls       The idle ttl of each step, steps without one use {@code defaultIdleTtl}.
+     * @param maximumFlows   The number of live flows above which the least recently used are evicted.
+     */
+    public AbandonedFlowReaper(Map<ReservationFlow.Step, Duration> idleTtls, Duration defaultIdleTtl,
+                               int maximumFlows, Duration sweepInterval, RoomHoldService roomHoldService,
+                               MeterRegistry meterRegistry, Clock clock) {
+        this.idleTtls = idleTtls.isEmpty() ? Collections.emptyMap() : new EnumMap<>(idleTtls);
+        this.defaultIdleTtl = defaultIdleTtl;
+        this.maximumFlows = maximumFlows;
+        this.sweepInterval = sweepInterval;
+        this.roomHoldService = roomHoldService;
+        this.meterRegistry = meterRegistry;
+        this.clock = clock;
+        Gauge.builder("reservation.flows.live", this, AbandonedFlowReaper::liveFlows)
+                .description("Reservation flows in progress")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "abandoned-flow-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = sweepInterval.toMillis();
+        sweeper.scheduleWithFixedDelay(this::sweep, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    /**
+     * Records activity on a flow, tracking it if it is new.
+     *
+     * @param eviction Removes the flow from wherever it is stored, replaces the one given on earlier activity.
+     */
+    public void touch(UUID reservationId, ReservationFlow.Step step, Runnable eviction) {
+        long now = clock.millis();
+        List<TrackedFlow> overCapacity = new ArrayList<>(0);
+        synchronized (flows) {
+            TrackedFlow flow = flows.get(reservationId);
+            if (flow == null) {
+                flow = new TrackedFlow(reservationId, now);
+                flows.put(reservationId, flow);
+            }
+            flow.step = step;
+            flow.lastActivityMillis = now;
+            flow.eviction = eviction;
+
+            Iterator<TrackedFlow> leastRecentlyUsed = flows.values().iterator();
+            while (flows.size() > maximumFlows) {
+                overCapacity.add(leastRecentlyUsed.next());
+                leastRecentlyUsed.remove();
+            }
+        }
+        overCapacity.forEach(flow -> evict(flow, CAPACITY, now));
+    }
+
+    /**
+     * Stops tracking a flow that was completed or cancelled, its room hold has been dealt with by the controller.
+     */
+    public void complete(UUID reservationId) {
+        TrackedFlow flow;
+        synchronized (flows) {
+            flow = flows.remove(reservationId);
+        }
+        if (flow != null) {
+            recordAge(flow, COMPLETED, clock.millis());
+        }
+    }
+
+    /**
+     * Evicts every flow idle for longer than the ttl of its step.
+     *
+     * @return The number of flows evicted.
+     */
+    public int sweep() {
+        long now = clock.millis();
+        List<TrackedFlow> idle = new ArrayList<>();
+        synchronized (flows) {
+            // iterating the values does not count as access so the order is left alone
+            Iterator<TrackedFlow> iterator = flows.values().iterator();
+            while (iterator.hasNext()) {
+                TrackedFlow flow = iterator.next();
+                if (now - flow.lastActivityMillis >= idleTtl(flow.step).toMillis()) {
+                    idle.add(flow);
+                    iterator.remove();
+                }
+            }
+        }
+        idle.forEach(flow -> evict(flow, IDLE, now));
+        return idle.size();
+    }
+
+    public int liveFlows() {
+        synchronized (flows) {
+            return flows.size();
+        }
+    }
+
+    private Duration idleTtl(ReservationFlow.Step step) {
+        return idleTtls.getOrDefault(step, defaultIdleTtl);
+    }
+
+    private void evict(TrackedFlow flow, String reason, long now) {
+        try {
+            roomHoldService.release(flow.reservationId);
+            flow.eviction.run();
+        } catch (RuntimeException e) {
+            // an exception would cancel the scheduled sweep, the flow is no longer tracked either way
+            log.warn("Evicting reservation flow {} failed", flow.reservationId, e);
+        }
+        meterRegistry.counter("reservation.flows.evicted", "reason", reason, "step", flow.step.name())
+                .increment();
+        recordAge(flow, reason, now);
+    }
+
+    private void recordAge(TrackedFlow flow, String outcome, long now) {
+        Timer.builder("reservation.flow.age")
+                .description("Time from the start of a reservation flow until it was completed or evicted")
+                .tags("outcome", outcome, "step", flow.step.name())
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(now - flow.startedAtMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static class TrackedFlow {
+        private final UUID reservationId;
+        private final long startedAtMillis;
+        private ReservationFlow.Step step;
+        private long lastActivityMillis;
+        private Runnable eviction;
+
+        TrackedFlow(UUID reservationId, long startedAtMillis) {
+            this.reservationId = reservationId;
+            this.startedAtMillis = startedAtMillis;
+        }
+    }
+}
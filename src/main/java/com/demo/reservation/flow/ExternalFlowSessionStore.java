@@ -0,0 +1,177 @@
+package com.demo.reservation.flow;
+
+import com.demo.reservation.ExtrasService;
+import com.demo.reservation.RoomCache;
+import com.demo.reservation.flow.forms.ReservationFlowState;
+import com.demo.reservation.flow.store.FlowStore;
+import com.demo.reservation.flow.store.StoredFlow;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.util.WebUtils;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Keeps reservation flows in a {@code FlowStore} rather than the {@code HttpSession}, so any node can serve the next
+ * step of a flow and a flow outlives a restart. The flow is found through its own cookie rather than the session id.
+ *
+ * <p>Only the attributes whose encoding differs from what was loaded are written. A request that leaves the flow
+ * unchanged just extends its expiry, and only once a tenth of the ttl has passed since it was last extended.</p>
+ */
+public class ExternalFlowSessionStore extends ReservationFlowSessionStore {
+    private static final Logger log = LoggerFactory.getLogger(ExternalFlowSessionStore.class);
+
+    static final String FLOW_COOKIE = "RESERVATION_FLOW";
+
+    private static final String FLOW_ID = ExternalFlowSessionStore.class.getName() + ".FLOW_ID";
+    private static final String LOADED_FLOW = ExternalFlowSessionStore.class.getName() + ".LOADED_FLOW";
+
+    private final FlowStore flowStore;
+    private final Duration ttl;
+    private final Clock clock;
+    private final Timer loadTimer;
+    private final Timer saveTimer;
+
+    public ExternalFlowSessionStore(RoomCache roomCache, ExtrasService extrasService, AbandonedFlowReaper reaper,
+                                    MeterRegistry meterRegistry, FlowStore flowStore, Duration ttl, Clock clock) {
+        super(roomCache, extrasService, reaper, meterRegistry);
+        this.flowStore = flowStore;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.loadTimer = meterRegistry.timer("reservation.flow.store.load");
+        this.saveTimer = meterRegistry.timer("reservation.flow.store.save");
+    }
+
+    @Override
+    protected Object loadFlow(WebRequest request) {
+        String flowId = flowId(request);
+        if (flowId == null) {
+            return null;
+        }
+
+        Optional<StoredFlow> stored = loadTimer.record(() -> flowStore.load(flowId, clock.millis()));
+        if (!stored.isPresent()) {
+            return null;
+        }
+        try {
+            ReservationFlowState state = ReservationFlowState.fromAttributes(stored.get().getAttributes());
+            request.setAttribute(LOADED_FLOW, stored.get(), RequestAttributes.SCOPE_REQUEST);
+            return state;
+        } catch (IllegalArgumentException e) {
+            log.warn("Discarding unreadable reservation flow {}", flowId, e);
+            discard(request);
+            return null;
+        }
+    }
+
+    @Override
+    protected void saveFlow(WebRequest request, ReservationFlowState state, Map<String, byte[]> attributes) {
+        StoredFlow loaded = (StoredFlow) request.getAttribute(LOADED_FLOW, RequestAttributes.SCOPE_REQUEST);
+        Map<String, byte[]> previous = loaded == null ? Collections.emptyMap() : loaded.getAttributes();
+
+        Map<String, byte[]> changed = new HashMap<>();
+        attributes.forEach((name, bytes) -> {
+            if (!Arrays.equals(bytes, previous.get(name))) {
+                changed.put(name, bytes);
+            }
+        });
+
+        String flowId = flowId(request);
+        if (flowId == null) {
+            flowId = UUID.randomUUID().toString();
+            setCookie(request, flowId, -1);
+        }
+        String id = flowId;
+        saveTimer.record(() -> flowStore.save(id, changed, expiresAt()));
+    }
+
+    @Override
+    protected void touchFlow(WebRequest request) {
+        StoredFlow loaded = (StoredFlow) request.getAttribute(LOADED_FLOW, RequestAttributes.SCOPE_REQUEST);
+        long expiresAt = expiresAt();
+        if (loaded != null && expiresAt - loaded.getExpiresAtMillis() < ttl.toMillis() / 10) {
+            return;
+        }
+        String flowId = flowId(request);
+        if (flowId != null) {
+            saveTimer.record(() -> flowStore.save(flowId, Collections.emptyMap(), expiresAt));
+        }
+    }
+
+    @Override
+    protected void removeFlow(WebRequest request) {
+        String flowId = flowId(request);
+        if (flowId != null) {
+            flowStore.delete(flowId);
+            setCookie(request, "", 0);
+        }
+        request.removeAttribute(LOADED_FLOW, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    @Override
+    protected Runnable evictionOf(WebRequest request, UUID reservationId) {
+        String flowId = flowId(request);
+        if (flowId == null) {
+            return () -> {
+            };
+        }
+        return () -> flowStore.delete(flowId);
+    }
+
+    private long expiresAt() {
+        return clock.millis() + ttl.toMillis();
+    }
+
+    /**
+     * A cookie that is not a well formed flow id is ignored and a new flow is started.
+     *
+     * @return The flow id of the request or {@code null} if it has none yet.
+     */
+    private String flowId(WebRequest request) {
+        String flowId = (String) request.getAttribute(FLOW_ID, RequestAttributes.SCOPE_REQUEST);
+        if (flowId == null) {
+            Cookie cookie = WebUtils.getCookie(servletRequest(request), FLOW_COOKIE);
+            flowId = cookie == null || !isFlowId(cookie.getValue()) ? "" : cookie.getValue();
+            request.setAttribute(FLOW_ID, flowId, RequestAttributes.SCOPE_REQUEST);
+        }
+        return flowId.isEmpty() ? null : flowId;
+    }
+
+    private void setCookie(WebRequest request, String flowId, int maxAge) {
+        HttpServletRequest servletRequest = servletRequest(request);
+        Cookie cookie = new Cookie(FLOW_COOKIE, flowId);
+        cookie.setPath(servletRequest.getContextPath().isEmpty() ? "/" : servletRequest.getContextPath());
+        cookie.setHttpOnly(true);
+        cookie.setSecure(servletRequest.isSecure());
+        cookie.setMaxAge(maxAge);
+        ((NativeWebRequest) request).getNativeResponse(HttpServletResponse.class).addCookie(cookie);
+        request.setAttribute(FLOW_ID, flowId, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    private static HttpServletRequest servletRequest(WebRequest request) {
+        return ((NativeWebRequest) request).getNativeRequest(HttpServletRequest.class);
+    }
+
+    private static boolean isFlowId(String value) {
+        try {
+            return UUID.fromString(value).toString().equals(value);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.demo.reservation.flow;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Makes submitting the payment form idempotent, so a double click, a retry by a proxy or resubmitting after going
+ * back cannot book the same reservation twice.
+ *
+ * <p>Each time the payment form is shown it is issued a token which is posted back with the form. The first
+ * submission of a token processes the payment and records its outcome against the token. Any later submission of
+ * the same token is given that outcome without the payment being processed again, and a submission that arrives
+ * while the first is still being processed waits for it rather than racing it.</p>
+ *
+ * <p>The token doubles as the idempotency key of the charge with the payment provider, so a payment whose outcome
+ * is unknown can be submitted again without charging twice.</p>
+ *
+ * <p>Tokens are kept in memory for a fixed time after they are issued. A token that is unknown, has expired or was
+ * issued for another reservation is rejected so the guest is shown a fresh form.</p>
+ */
+@Component
+public class PaymentSubmissions {
+    private final Cache<String, Submission> submissions;
+    private final Duration replayWait;
+
+    private final Counter processed;
+    private final Counter replayed;
+    private final Counter rejected;
+
+    @Autowired
+    public PaymentSubmissions(MeterRegistry meterRegistry,
+                              @Value("${reservation.payment.token-ttl-seconds:3600}") long ttlSeconds,
+                              @Value("${reservation.payment.maximum-tokens:100000}") long maximumTokens,
+                              @Value("${reservation.payment.replay-wait-seconds:15}") long replayWaitSeconds) {
+        this(meterRegistry, Duration.ofSeconds(ttlSeconds), maximumTokens, Duration.ofSeconds(replayWaitSeconds));
+    }
+
+    public PaymentSubmissions(MeterRegistry meterRegistry, Duration ttl, long maximumTokens, Duration replayWait) {
+        this.submissions = Caffeine.newBuilder()
+                .maximumSize(maximumTokens)
+                .expireAfterWrite(ttl.toMillis(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        this.replayWait = replayWait;
+        this.processed = meterRegistry.counter("reservation.payment.submissions", "outcome", "processed");
+        this.replayed = meterRegistry.counter("reservation.payment.submissions", "outcome", "replayed");
+        this.rejected = meterRegistry.counter("reservation.payment.submissions", "outcome", "rejected");
+
+        CaffeineCacheMetrics.monitor(meterRegistry, submissions, "reservation.payment.tokens");
+    }
+
+    /**
+     * @return The token to post back with the payment form.
+     */
+    public String issue(UUID reservationId) {
+        String token = UUID.randomUUID().toString();
+        submissions.put(token, new Submission(reservationId));
+        return token;
+    }
+
+    /**
+     * Processes the payment on the first submission of the token, otherwise completes with the outcome of that first
+     * submission. If the payment fails, nothing is recorded and the token can be submitted again.
+     *
+     * <p>Nothing blocks while a submission waits on the first one. A wait longer than the replay wait completes with
+     * {@code InProgress}.</p>
+     *
+     * @param payment Starts processing the payment, called at most once per token unless the payment fails.
+     */
+    public CompletableFuture<Outcome> submit(String token, UUID reservationId,
+                                             Supplier<CompletableFuture<Outcome>> payment) {
+        Submission submission = token == null ? null : submissions.getIfPresent(token);
+        if (submission == null) {
+            rejected.increment();
+            return CompletableFuture.completedFuture(Outcome.expired());
+        }
+
+        CompletableFuture<Outcome> ours = new CompletableFuture<>();
+        CompletableFuture<Outcome> first = submission.claim(ours);
+        if (first == null) {
+            // a completed submission is replayed whatever flow it arrives with, since completing the payment
+            // ends the flow it was issued for
+            if (!submission.reservationId.equals(reservationId)) {
+                submission.release(ours);
+                rejected.increment();
+                return CompletableFuture.completedFuture(Outcome.expired());
+            }
+            return process(submission, ours, payment);
+        }
+
+        CompletableFuture<Outcome> replay = new CompletableFuture<>();
+        first.whenComplete((outcome, failure) -> {
+            if (failure == null) {
+                replayed.increment();
+                replay.complete(outcome);
+            } else {
+                // the first submission failed without recording an outcome, this one gets to try again
+                submit(token, reservationId, payment).whenComplete((retried, retryFailure) -> {
+                    if (retryFailure == null) {
+                        replay.complete(retried);
+                    } else {
+                        replay.completeExceptionally(retryFailure);
+                    }
+                });
+            }
+        });
+        return replay.completeOnTimeout(Outcome.inProgress(), replayWait.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private CompletableFuture<Outcome> process(Submission submission, CompletableFuture<Outcome> ours,
+                                               Supplier<CompletableFuture<Outcome>> payment) {
+        CompletableFuture<Outcome> processing;
+        try {
+            processing = payment.get();
+        } catch (RuntimeException e) {
+            processing = new CompletableFuture<>();
+            processing.completeExceptionally(e);
+        }
+        processing.whenComplete((outcome, failure) -> {
+            if (failure == null) {
+                processed.increment();
+                ours.complete(outcome);
+            } else {
+                submission.release(ours);
+                ours.completeExceptionally(failure);
+            }
+        });
+        return ours;
+    }
+
+    private static class Submission {
+        private final UUID reservationId;
+        private final AtomicReference<CompletableFuture<Outcome>> outcome = new AtomicReference<>();
+
+        Submission(UUID reservationId) {
+            this.reservationId = reservationId;
+        }
+
+        /**
+         * @return {@code null} if the caller now owns the submission, otherwise the outcome of the owner.
+         */
+        CompletableFuture<Outcome> claim(CompletableFuture<Outcome> ours) {
+            while (true) {
+                if (outcome.compareAndSet(null, ours)) {
+                    return null;
+                }
+                // the owner may release it in between, in which case try again to claim it
+                CompletableFuture<Outcome> owner = outcome.get();
+                if (owner != null) {
+                    return owner;
+                }
+            }
+        }
+
+        void release(CompletableFuture<Outcome> ours) {
+            outcome.compareAndSet(ours, null);
+        }
+    }
+
+    public static final class Outcome {
+        public enum Type {
+            Booked,
+            Conflict,
+            // The payment provider refused the payment.
+            Declined,
+            // The token is unknown, has expired or belongs to another reservation.
+            Expired,
+            // Another submission of the token is still being processed.
+            InProgress
+        }
+
+        private static final Outcome BOOKED = new Outcome(Type.Booked, null);
+        private static final Outcome EXPIRED = new Outcome(Type.Expired, null);
+        private static final Outcome IN_PROGRESS = new Outcome(Type.InProgress, null);
+
+        private final Type type;
+        private final String reason;
+
+        private Outcome(Type type, String reason) {
+            this.type = type;
+            this.reason = reason;
+        }
+
+        public static Outcome booked() {
+            return BOOKED;
+        }
+
+        public static Outcome conflict(String reason) {
+            return new Outcome(Type.Conflict, reason);
+        }
+
+        public static Outcome declined(String reason) {
+            return new Outcome(Type.Declined, reason);
+        }
+
+        static Outcome expired() {
+            return EXPIRED;
+        }
+
+        static Outcome inProgress() {
+            return IN_PROGRESS;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+}
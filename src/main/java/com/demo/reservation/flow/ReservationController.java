@@ -1,10 +1,20 @@
 package com.demo.reservation.flow;
 
 import com.demo.TimeProvider;
+import com.demo.availability.AvailabilityService;
+import com.demo.availability.BookingService;
+import com.demo.availability.RoomHoldService;
 import com.demo.domain.*;
+import com.demo.exceptions.BookingConflictException;
 import com.demo.exceptions.NotFoundException;
+import com.demo.exceptions.PaymentDeclinedException;
+import com.demo.exceptions.PaymentUnavailableException;
+import com.demo.payment.PaymentProcessor;
+import com.demo.payment.PaymentReceipt;
+import com.demo.payment.PaymentRequest;
 import com.demo.persistance.RoomRepository;
-import com.demo.reservation.ExtraRepository;
+import com.demo.persistance.budget.SqlBudget;
+import com.demo.reservation.ExtrasService;
 import com.demo.reservation.flow.forms.ReservationFlow;
 import com.demo.reservation.testcheckboxes.Drink;
 import com.demo.reservation.testcheckboxes.EnumDrink;
@@ -14,30 +24,50 @@ import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.Errors;
 import org.springframework.validation.FieldError;
+import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.bind.support.SessionStatus;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import javax.validation.Valid;
+import java.beans.PropertyEditorSupport;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Controller
 @SessionAttributes("reservationFlow")
 public class ReservationController {
 
     private RoomRepository roomRepository;
-    private ExtraRepository extraRepository;
+    private ExtrasService extrasService;
+    private AvailabilityService availabilityService;
+    private BookingService bookingService;
+    private RoomHoldService roomHoldService;
+    private PaymentSubmissions paymentSubmissions;
+    private PaymentProcessor paymentProcessor;
     private TimeProvider timeProvider;
 
     public ReservationController(RoomRepository roomRepository,
-                                 ExtraRepository extraRepository,
+                                 ExtrasService extrasService,
+                                 AvailabilityService availabilityService,
+                                 BookingService bookingService,
+                                 RoomHoldService roomHoldService,
+                                 PaymentSubmissions paymentSubmissions,
+                                 PaymentProcessor paymentProcessor,
                                  TimeProvider timeProvider) {
         this.roomRepository = roomRepository;
-        this.extraRepository = extraRepository;
+        this.extrasService = extrasService;
+        this.availabilityService = availabilityService;
+        this.bookingService = bookingService;
+        this.roomHoldService = roomHoldService;
+        this.paymentSubmissions = paymentSubmissions;
+        this.paymentProcessor = paymentProcessor;
         this.timeProvider = timeProvider;
     }
 
@@ -54,23 +84,47 @@ public class ReservationController {
         return new ReservationFlow();
     }
 
+    /**
+     * The selected general and food extras are submitted as ids. Resolving them from the extras catalog avoids the
+     * default Spring Data conversion which queries each id.
+     */
+    @InitBinder("reservationFlow")
+    public void registerExtraEditor(WebDataBinder binder) {
+        binder.registerCustomEditor(Extra.class, new PropertyEditorSupport() {
+            @Override
+            public void setAsText(String text) {
+                setValue(text == null || text.trim().isEmpty()
+                        ? null
+                        : extrasService.getExtraById(Long.valueOf(text.trim())).orElse(null));
+            }
+
+            @Override
+            public String getAsText() {
+                Extra extra = (Extra) getValue();
+                return extra == null || extra.getId() == null ? "" : extra.getId().toString();
+            }
+        });
+    }
+
     // Flow step 1
 
     /**
-     * Entry point to begin the reservation flow.
+     * Entry point to begin the reservation flow. The room is loaded with its hotel here so the later steps render
+     * from the flow without going back to the database. Restoring a flow already under way may load its room too.
      */
+    @SqlBudget(2)
     @GetMapping("/reservation")
     public String getDateForm(@RequestParam(value = "roomId") Long roomId,
                               @ModelAttribute("reservationFlow") ReservationFlow reservationFlow)
             throws NotFoundException {
         reservationFlow.enterStep(ReservationFlow.Step.Dates);
 
-        Optional<Room> maybeRoom = roomRepository.findById(roomId);
+        Optional<Room> maybeRoom = roomRepository.findWithHotelById(roomId);
         if (!maybeRoom.isPresent()) {
             throw new NotFoundException();
         }
 
-        maybeRoom.get().setReservation(reservationFlow.getReservation());
+        reservationFlow.getReservation().setRoom(maybeRoom.get());
 
         return "reservation/dates";
     }
@@ -102,13 +156,30 @@ public class ReservationController {
             return "reservation/dates";
         }
 
+        Reservation reservation = reservationFlow.getReservation();
+        if (availabilityService.hasBookedNights(reservation.getRoom().getId(), reservation.getDates())) {
+            bindingResult.rejectValue("reservation.dates", "dates.unavailable",
+                    "This room is already booked for some of the selected nights");
+            return "reservation/dates";
+        }
+
+        // Stops another guest reaching payment for the same nights while this guest completes the remaining steps.
+        if (!roomHoldService.tryHold(reservation.getRoom().getId(), reservation.getReservationId(),
+                reservation.getDates().getCheckInDate(), reservation.getDates().getCheckOutDate())) {
+            bindingResult.rejectValue("reservation.dates", "dates.held",
+                    "Another guest is currently booking this room for some of the selected nights");
+            return "reservation/dates";
+        }
+
         reservationFlow.completeStep(ReservationFlow.Step.Dates);
         redirectAttributes.addFlashAttribute("reservationFlow", reservationFlow);
         return "redirect:/reservation/guests";
     }
 
     @PostMapping(value = "/reservation/dates", params = "cancel")
-    public String cancelDates(SessionStatus sessionStatus) {
+    public String cancelDates(@ModelAttribute("reservationFlow") ReservationFlow reservationFlow,
+                              SessionStatus sessionStatus) {
+        roomHoldService.release(reservationFlow.getReservation().getReservationId());
         sessionStatus.setComplete();
         return "redirect:/";
     }
@@ -124,8 +195,12 @@ public class ReservationController {
     // Flow step 2
 
     @GetMapping("/reservation/guests")
-    public String getGuestForm(@ModelAttribute("reservationFlow") ReservationFlow reservationFlow, Model model) {
+    public String getGuestForm(@ModelAttribute("reservationFlow") ReservationFlow reservationFlow,
+                               BindingResult bindingResult, Model model) {
         reservationFlow.enterStep(ReservationFlow.Step.Guests);
+        if (!keepRoomHeld(reservationFlow)) {
+            return roomNoLongerHeld(reservationFlow, bindingResult);
+        }
         model.addAttribute("guest", new Guest());
         return "reservation/guests";
     }
@@ -207,12 +282,15 @@ public class ReservationController {
     // Flow step 3
 
     @GetMapping("/reservation/extras")
-    public String getGeneralExtrasForm(@ModelAttribute("reservationFlow") ReservationFlow reservationFlow, Model model) {
+    public String getGeneralExtrasForm(@ModelAttribute("reservationFlow") ReservationFlow reservationFlow,
+                                       BindingResult bindingResult, Model model) {
         reservationFlow.setActive(ReservationFlow.Step.Extras);
+        if (!keepRoomHeld(reservationFlow)) {
+            return roomNoLongerHeld(reservationFlow, bindingResult);
+        }
 
-        List<Extra> generalExtras = extraRepository.findAllByTypeAndCategory(
-                reservationFlow.getReservation().getExtraPricingType(), Extra.Category.General
-        );
+        List<Extra> generalExtras = extrasService.getGeneralExtras(
+                reservationFlow.getReservation().getExtraPricingType());
         model.addAttribute("extras", generalExtras);
         return "reservation/extras";
     }
@@ -253,8 +331,11 @@ public class ReservationController {
 
     @GetMapping("/reservation/meals")
     public String getMealPlans(@ModelAttribute("reservationFlow") ReservationFlow reservationFlow,
-                               Model model) {
+                               BindingResult bindingResult, Model model) {
         reservationFlow.setActive(ReservationFlow.Step.Meals);
+        if (!keepRoomHeld(reservationFlow)) {
+            return roomNoLongerHeld(reservationFlow, bindingResult);
+        }
 
         reservationFlow.getReservation().createMealPlans();
         createMealPlanModel(reservationFlow, model);
@@ -262,10 +343,8 @@ public class ReservationController {
     }
 
     private void createMealPlanModel(ReservationFlow reservationFlow, Model model) {
-        List<Extra> foodExtras = extraRepository.findAllByTypeAndCategory(
-                reservationFlow.getReservation().getExtraPricingType(),
-                Extra.Category.Food
-        );
+        List<Extra> foodExtras = extrasService.getFoodExtras(
+                reservationFlow.getReservation().getExtraPricingType());
         model.addAttribute("foodExtras", foodExtras);
         model.addAttribute("dietaryRequirements", DietaryRequirement.values());
     }
@@ -301,9 +380,18 @@ public class ReservationController {
 
     // Flow step 5 - review
 
+    /**
+     * Renders from the flow alone. The one statement allowed is for restoring the room of the flow once it has
+     * dropped out of the room cache.
+     */
+    @SqlBudget(1)
     @GetMapping("/reservation/review")
-    public String getReview(@ModelAttribute("reservationFlow") ReservationFlow reservationFlow) {
+    public String getReview(@ModelAttribute("reservationFlow") ReservationFlow reservationFlow,
+                            BindingResult bindingResult) {
         reservationFlow.setActive(ReservationFlow.Step.Review);
+        if (!keepRoomHeld(reservationFlow)) {
+            return roomNoLongerHeld(reservationFlow, bindingResult);
+        }
         return "reservation/review";
     }
 
@@ -328,11 +416,17 @@ public class ReservationController {
 
     // Flow step 6 - payment
 
+    @SqlBudget(1)
     @GetMapping("/reservation/payment")
     public String getPayment(@ModelAttribute("reservationFlow") ReservationFlow reservationFlow,
-                             Model model) {
+                             BindingResult bindingResult, Model model) {
         reservationFlow.setActive(ReservationFlow.Step.Payment);
+        if (!keepRoomHeld(reservationFlow)) {
+            return roomNoLongerHeld(reservationFlow, bindingResult);
+        }
         model.addAttribute("pendingPayment", new PendingPayment(LocalDateTime.now()));
+        model.addAttribute("paymentToken",
+                paymentSubmissions.issue(reservationFlow.getReservation().getReservationId()));
         return "reservation/payment";
     }
 
@@ -345,35 +439,158 @@ public class ReservationController {
     }
 
     @PostMapping(value = "/reservation/payment", params = "cancel")
-    public String cancelPayment(SessionStatus sessionStatus) {
+    public String cancelPayment(@ModelAttribute("reservationFlow") ReservationFlow reservationFlow,
+                              SessionStatus sessionStatus) {
+        roomHoldService.release(reservationFlow.getReservation().getReservationId());
         sessionStatus.setComplete();
         return "redirect:/";
     }
 
+    /**
+     * The payment token issued with the form makes this idempotent. Resubmitting the same form is given the outcome
+     * of the first submission, so the payment is only ever taken and booked once.
+     *
+     * <p>The payment is processed on the payment threads and the reservation booked on the payment callback threads.
+     * The view is rendered once both complete, so a slow payment provider does not hold a servlet thread.</p>
+     */
     @PostMapping("/reservation/payment")
-    public String postPayment(@ModelAttribute("reservationFlow") ReservationFlow reservationFlow,
-                              @Valid @ModelAttribute("pendingPayment") PendingPayment pendingPayment,
-                              BindingResult bindingResult, SessionStatus sessionStatus) {
+    public DeferredResult<String> postPayment(@ModelAttribute("reservationFlow") ReservationFlow reservationFlow,
+                                              BindingResult flowBindingResult,
+                                              @Valid @ModelAttribute("pendingPayment") PendingPayment pendingPayment,
+                                              BindingResult bindingResult,
+                                              @RequestParam(value = "paymentToken", required = false)
+                                                      String paymentToken,
+                                              Model model, SessionStatus sessionStatus) {
         reservationFlow.setActive(ReservationFlow.Step.Payment);
+        DeferredResult<String> view = new DeferredResult<>();
 
         if (bindingResult.hasErrors()) {
-            return "reservation/payment";
+            model.addAttribute("paymentToken", paymentToken);
+            view.setResult("reservation/payment");
+            return view;
+        }
+
+        // The card is only charged while the nights are still held, otherwise the booking could fail after payment.
+        if (!keepRoomHeld(reservationFlow)) {
+            view.setResult(roomNoLongerHeld(reservationFlow, flowBindingResult));
+            return view;
         }
 
         Reservation reservation = reservationFlow.getReservation();
-        // Simulate making a valid payment
-        reservation.setCompletedPayment(pendingPayment.toCompletedPayment());
+        paymentSubmissions.submit(paymentToken, reservation.getReservationId(),
+                () -> pay(paymentToken, reservation, pendingPayment))
+                .whenComplete((outcome, failure) -> {
+                    Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                    if (cause instanceof PaymentUnavailableException) {
+                        bindingResult.reject("payment.unavailable",
+                                "Your payment could not be processed right now, please try again");
+                        // nothing was booked and the same token is charged at most once by the provider
+                        model.addAttribute("paymentToken", paymentToken);
+                        view.setResult("reservation/payment");
+                    } else if (cause != null) {
+                        view.setErrorResult(cause);
+                    } else {
+                        view.setResult(paymentOutcomeView(outcome, reservationFlow, bindingResult, paymentToken,
+                                model, sessionStatus));
+                    }
+                });
+        return view;
+    }
+
+    private String paymentOutcomeView(PaymentSubmissions.Outcome outcome, ReservationFlow reservationFlow,
+                                      BindingResult bindingResult, String paymentToken, Model model,
+                                      SessionStatus sessionStatus) {
+        switch (outcome.getType()) {
+            case Booked:
+                sessionStatus.setComplete();
+                reservationFlow.completeStep(ReservationFlow.Step.Payment);
+                return "redirect:/reservation/completed";
+            case Conflict:
+                bindingResult.reject("booking.conflict", outcome.getReason());
+                break;
+            case Declined:
+                bindingResult.reject("payment.declined", outcome.getReason());
+                break;
+            case Expired:
+                bindingResult.reject("payment.expired", "This payment form has expired, please submit it again");
+                break;
+            case InProgress:
+                bindingResult.reject("payment.inProgress",
+                        "Your payment is still being processed, please wait before submitting again");
+                // the same token so submitting again still waits on the payment in progress
+                model.addAttribute("paymentToken", paymentToken);
+                return "reservation/payment";
+        }
+        model.addAttribute("paymentToken",
+                paymentSubmissions.issue(reservationFlow.getReservation().getReservationId()));
+        return "reservation/payment";
+    }
+
+    private CompletableFuture<PaymentSubmissions.Outcome> pay(String paymentToken, Reservation reservation,
+                                                              PendingPayment pendingPayment) {
+        PaymentRequest request = new PaymentRequest(paymentToken, reservation.getReservationId(),
+                reservation.getTotalCostIncludingTax(), pendingPayment);
+
+        return paymentProcessor.charge(request)
+                .thenApply(receipt -> book(reservation, pendingPayment, receipt))
+                .exceptionally(failure -> {
+                    Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+                    if (cause instanceof PaymentDeclinedException) {
+                        return PaymentSubmissions.Outcome.declined(cause.getMessage());
+                    }
+                    throw failure instanceof CompletionException
+                            ? (CompletionException) failure
+                            : new CompletionException(failure);
+                });
+    }
+
+    private PaymentSubmissions.Outcome book(Reservation reservation, PendingPayment pendingPayment,
+                                            PaymentReceipt receipt) {
+        CompletedPayment completedPayment = pendingPayment.toCompletedPayment();
+        completedPayment.setTransactionId(receipt.getTransactionId());
+        reservation.setCompletedPayment(completedPayment);
 
         /*
-         * The new reservation is saved through the Room since the room owns the reservation in the
-         * bi directional 1 to 1 mapping. This is to allow easier querying to identity rooms that
-         * have reservations.
+         * The reservation owns its room and the nights it occupies are written to the room night ledger
+         * in the same transaction which is what availability is checked against. Concurrent payments for
+         * the same room are resolved by the booking service so only one of them wins.
          */
-        roomRepository.save(reservation.getRoom());
-        sessionStatus.setComplete();
+        try {
+            bookingService.book(reservation);
+        } catch (BookingConflictException e) {
+            paymentProcessor.refund(receipt);
+            return PaymentSubmissions.Outcome.conflict(e.getMessage());
+        } catch (RuntimeException e) {
+            // nothing was booked, the guest must not stay charged for it
+            paymentProcessor.refund(receipt);
+            throw e;
+        }
+        roomHoldService.convert(reservation.getReservationId());
+        return PaymentSubmissions.Outcome.booked();
+    }
+
+    /**
+     * Each step the guest visits counts as activity on the flow and pushes back the expiry of the room hold.
+     *
+     * @return {@code false} if the hold expired and another guest has since held some of the nights.
+     */
+    private boolean keepRoomHeld(ReservationFlow reservationFlow) {
+        Reservation reservation = reservationFlow.getReservation();
+        if (reservation.getRoom() == null || reservation.getDates().totalNights() < 1) {
+            return true;
+        }
+        return roomHoldService.keepAlive(reservation.getRoom().getId(), reservation.getReservationId(),
+                reservation.getDates().getCheckInDate(), reservation.getDates().getCheckOutDate());
+    }
 
-        reservationFlow.completeStep(ReservationFlow.Step.Payment);
-        return "redirect:/reservation/completed";
+    /**
+     * Sends the guest back to the date step to choose other nights, the later steps are kept as they were.
+     */
+    private String roomNoLongerHeld(ReservationFlow reservationFlow, Errors errors) {
+        reservationFlow.enterStep(ReservationFlow.Step.Dates);
+        errors.rejectValue("reservation.dates", "dates.holdLost",
+                "This room is no longer held for you as another guest is now booking some of the selected nights");
+        return "reservation/dates";
     }
 
     // End flow
@@ -0,0 +1,133 @@
+package com.demo.reservation.flow;
+
+import com.demo.availability.RoomHoldService;
+import com.demo.reservation.ExtrasService;
+import com.demo.reservation.RoomCache;
+import com.demo.reservation.flow.forms.ReservationFlow;
+import com.demo.reservation.flow.store.FileFlowStore;
+import com.demo.reservation.flow.store.FlowStore;
+import com.demo.reservation.flow.store.FlowStoreSweeper;
+import com.demo.reservation.flow.store.JdbcFlowStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcRegistrations;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * {@code @SessionAttributes} are saved through the {@code SessionAttributeStore} of the handler adapter, replacing
+ * it is what keeps the reservation flow compact.
+ *
+ * <p>{@code reservation.flow-store.type} picks where flows are kept: {@code session} in the {@code HttpSession},
+ * {@code jdbc} in the application database or {@code file} in a local directory. The last two survive a restart
+ * and do not need sticky sessions.</p>
+ *
+ * <p>Flows idle for longer than {@code reservation.flow-reaper.idle-ttl-seconds.<step>} are evicted, falling back
+ * to {@code reservation.flow-reaper.idle-ttl-seconds.default} for steps without their own ttl.</p>
+ */
+@Configuration
+public class ReservationFlowSessionConfiguration {
+
+    @Bean
+    public AbandonedFlowReaper abandonedFlowReaper(
+            RoomHoldService roomHoldService, MeterRegistry meterRegistry, Environment environment,
+            @Value("${reservation.flow-reaper.idle-ttl-seconds.default:1800}") long defaultIdleTtlSeconds,
+            @Value("${reservation.flow-reaper.max-flows:10000}") int maximumFlows,
+            @Value("${reservation.flow-reaper.sweep-interval-seconds:30}") long sweepIntervalSeconds) {
+        Map<ReservationFlow.Step, Duration> idleTtls = new EnumMap<>(ReservationFlow.Step.class);
+        for (ReservationFlow.Step step : ReservationFlow.Step.values()) {
+            Long seconds = environment.getProperty(
+                    "reservation.flow-reaper.idle-ttl-seconds." + step.name().toLowerCase(), Long.class);
+            if (seconds != null) {
+                idleTtls.put(step, Duration.ofSeconds(seconds));
+            }
+        }
+        return new AbandonedFlowReaper(idleTtls, Duration.ofSeconds(defaultIdleTtlSeconds), maximumFlows,
+                Duration.ofSeconds(sweepIntervalSeconds), roomHoldService, meterRegistry, Clock.systemUTC());
+    }
+
+    @Bean
+    public ReservationFlowSessionStore reservationFlowSessionStore(
+            RoomCache roomCache, ExtrasService extrasService, AbandonedFlowReaper reaper, MeterRegistry meterRegistry,
+            ObjectProvider<FlowStore> flowStore,
+            @Value("${reservation.flow-store.ttl-seconds:1800}") long ttlSeconds) {
+        FlowStore store = flowStore.getIfAvailable();
+        if (store == null) {
+            return new ReservationFlowSessionStore(roomCache, extrasService, reaper, meterRegistry);
+        }
+        return new ExternalFlowSessionStore(roomCache, extrasService, reaper, meterRegistry, store,
+                Duration.ofSeconds(ttlSeconds), Clock.systemUTC());
+    }
+
+    @Bean
+    public WebMvcRegistrations reservationFlowSessionRegistrations(ReservationFlowSessionStore sessionStore) {
+        return new WebMvcRegistrations() {
+            @Override
+            public RequestMappingHandlerAdapter getRequestMappingHandlerAdapter() {
+                RequestMappingHandlerAdapter adapter = new RequestMappingHandlerAdapter();
+                adapter.setSessionAttributeStore(sessionStore);
+                return adapter;
+            }
+        };
+    }
+
+    private static FlowStoreSweeper sweeper(FlowStore flowStore, long sweepIntervalSeconds,
+                                            MeterRegistry meterRegistry) {
+        return new FlowStoreSweeper(flowStore, Duration.ofSeconds(sweepIntervalSeconds), meterRegistry,
+                Clock.systemUTC());
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "reservation.flow-store.type", havingValue = "jdbc")
+    static class JdbcFlowStoreConfiguration {
+
+        @Bean
+        public JdbcFlowStore jdbcFlowStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                           @Value("${reservation.flow-store.jdbc.initialize-schema:true}")
+                                                   boolean initializeSchema) {
+            JdbcFlowStore flowStore = new JdbcFlowStore(jdbcTemplate, transactionManager);
+            if (initializeSchema) {
+                flowStore.initializeSchema();
+            }
+            return flowStore;
+        }
+
+        @Bean
+        public FlowStoreSweeper flowStoreSweeper(JdbcFlowStore flowStore, MeterRegistry meterRegistry,
+                                                 @Value("${reservation.flow-store.sweep-interval-seconds:60}")
+                                                         long sweepIntervalSeconds) {
+            return sweeper(flowStore, sweepIntervalSeconds, meterRegistry);
+        }
+    }
+
+    @Configuration
+    @ConditionalOnProperty(name = "reservation.flow-store.type", havingValue = "file")
+    static class FileFlowStoreConfiguration {
+
+        @Bean
+        public FileFlowStore fileFlowStore(
+                @Value("${reservation.flow-store.file.directory:${java.io.tmpdir}/reservation-flows}")
+                        String directory) {
+            return new FileFlowStore(Paths.get(directory));
+        }
+
+        @Bean
+        public FlowStoreSweeper flowStoreSweeper(FileFlowStore flowStore, MeterRegistry meterRegistry,
+                                                 @Value("${reservation.flow-store.sweep-interval-seconds:60}")
+                                                         long sweepIntervalSeconds) {
+            return sweeper(flowStore, sweepIntervalSeconds, meterRegistry);
+        }
+    }
+}
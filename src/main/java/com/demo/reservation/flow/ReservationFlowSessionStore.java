@@ -0,0 +1,196 @@
+package com.demo.reservation.flow;
+
+import com.demo.domain.Extra;
+import com.demo.domain.Room;
+import com.demo.reservation.ExtrasService;
+import com.demo.reservation.RoomCache;
+import com.demo.reservation.flow.forms.ReservationFlow;
+import com.demo.reservation.flow.forms.ReservationFlowState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.web.bind.support.DefaultSessionAttributeStore;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Keeps the {@code reservationFlow} session attribute as a {@code ReservationFlowState} rather than the full
+ * {@code ReservationFlow}. The flow is restored at the start of each request from the {@code RoomCache} and the
+ * extras catalog, then compacted again once the handler has finished with it.
+ *
+ * <p>A flow whose state did not change during the request is not written back. The encoded size of each state
+ * that is written is recorded under {@code reservation.flow.session.size}.</p>
+ *
+ * <p>The state is held in the {@code HttpSession}, {@code ExternalFlowSessionStore} overrides where it is loaded
+ * from and saved to. Any other session attribute, or a full flow already in the session, is passed through
+ * untouched.</p>
+ *
+ * <p>Every request that stores a flow is reported to the {@code AbandonedFlowReaper} along with how to evict it.</p>
+ */
+public class ReservationFlowSessionStore extends DefaultSessionAttributeStore implements ReservationFlowState.Entities {
+    static final String FLOW_ATTRIBUTE = "reservationFlow";
+
+    // The state the flow was restored from, compared against once the request completes.
+    private static final String RESTORED_STATE = ReservationFlowSessionStore.class.getName() + ".RESTORED_STATE";
+
+    private final RoomCache roomCache;
+    private final ExtrasService extrasService;
+    private final AbandonedFlowReaper reaper;
+    private final DistributionSummary stateSize;
+    private final Counter discarded;
+
+    public ReservationFlowSessionStore(RoomCache roomCache, ExtrasService extrasService, AbandonedFlowReaper reaper,
+                                       MeterRegistry meterRegistry) {
+        this.roomCache = roomCache;
+        this.extrasService = extrasService;
+        this.reaper = reaper;
+        this.stateSize = DistributionSummary.builder("reservation.flow.session.size")
+                .description("Encoded size of the reservation flow held for each session")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.discarded = meterRegistry.counter("reservation.flow.session.discarded");
+    }
+
+    @Override
+    public void storeAttribute(WebRequest request, String attributeName, Object attributeValue) {
+        if (!FLOW_ATTRIBUTE.equals(attributeName) || !(attributeValue instanceof ReservationFlow)) {
+            super.storeAttribute(request, attributeName, attributeValue);
+            return;
+        }
+
+        ReservationFlow flow = (ReservationFlow) attributeValue;
+        ReservationFlowState state = ReservationFlowState.of(flow);
+        if (state.equals(request.getAttribute(RESTORED_STATE, RequestAttributes.SCOPE_REQUEST))) {
+            touchFlow(request);
+        } else {
+            Map<String, byte[]> attributes = state.toAttributes();
+            saveFlow(request, state, attributes);
+            stateSize.record(ReservationFlowState.encodedSize(attributes));
+        }
+        UUID reservationId = state.getReservationId();
+        reaper.touch(reservationId, flow.getActiveStep(), evictionOf(request, reservationId));
+    }
+
+    /**
+     * @return The restored flow, or {@code null} if its room has since been removed so a new flow is started.
+     */
+    @Override
+    public Object retrieveAttribute(WebRequest request, String attributeName) {
+        if (!FLOW_ATTRIBUTE.equals(attributeName)) {
+            return super.retrieveAttribute(request, attributeName);
+        }
+
+        Object value = loadFlow(request);
+        if (!(value instanceof ReservationFlowState)) {
+            return value;
+        }
+
+        ReservationFlowState state = (ReservationFlowState) value;
+        Optional<ReservationFlow> flow = state.restore(this);
+        if (!flow.isPresent()) {
+            discard(request);
+            return null;
+        }
+        request.setAttribute(RESTORED_STATE, state, RequestAttributes.SCOPE_REQUEST);
+        return flow.get();
+    }
+
+    /**
+     * @return The stored {@code ReservationFlowState}, a full {@code ReservationFlow} or {@code null} if there is no
+     * flow yet.
+     */
+    protected Object loadFlow(WebRequest request) {
+        return super.retrieveAttribute(request, FLOW_ATTRIBUTE);
+    }
+
+    /**
+     * @param attributes The state encoded by {@code ReservationFlowState#toAttributes}.
+     */
+    protected void saveFlow(WebRequest request, ReservationFlowState state, Map<String, byte[]> attributes) {
+        super.storeAttribute(request, FLOW_ATTRIBUTE, state);
+    }
+
+    /**
+     * Called instead of {@link #saveFlow} when the flow is unchanged. The session records its own activity.
+     */
+    protected void touchFlow(WebRequest request) {
+    }
+
+    /**
+     * Called when the flow is completed or cancelled through {@code SessionStatus#setComplete}.
+     */
+    @Override
+    public void cleanupAttribute(WebRequest request, String attributeName) {
+        if (!FLOW_ATTRIBUTE.equals(attributeName)) {
+            super.cleanupAttribute(request, attributeName);
+            return;
+        }
+        ReservationFlowState restored =
+                (ReservationFlowState) request.getAttribute(RESTORED_STATE, RequestAttributes.SCOPE_REQUEST);
+        if (restored != null) {
+            reaper.complete(restored.getReservationId());
+        }
+        removeFlow(request);
+    }
+
+    protected void removeFlow(WebRequest request) {
+        super.cleanupAttribute(request, FLOW_ATTRIBUTE);
+    }
+
+    /**
+     * Drops a flow that could not be restored or failed to load.
+     */
+    protected void discard(WebRequest request) {
+        discarded.increment();
+        removeFlow(request);
+    }
+
+    /**
+     * The eviction runs on the reaper thread once the request is long gone, so it holds on to the session itself.
+     * The session may have moved on to a new flow by then, which is left alone.
+     *
+     * @return Removes the flow from wherever it is stored.
+     */
+    protected Runnable evictionOf(WebRequest request, UUID reservationId) {
+        HttpSession session = ((NativeWebRequest) request).getNativeRequest(HttpServletRequest.class).getSession(false);
+        if (session == null) {
+            return () -> {
+            };
+        }
+        String name = getAttributeNameInSession(request, FLOW_ATTRIBUTE);
+        return () -> {
+            try {
+                Object value = session.getAttribute(name);
+                if (value instanceof ReservationFlowState
+                        && ((ReservationFlowState) value).getReservationId().equals(reservationId)) {
+                    session.removeAttribute(name);
+                }
+            } catch (IllegalStateException e) {
+                // the session was invalidated, taking the flow with it
+            }
+        };
+    }
+
+    @Override
+    public Optional<Room> findRoom(long roomId) {
+        return roomCache.findById(roomId);
+    }
+
+    @Override
+    public List<Extra> findExtras(long[] extraIds) {
+        List<Long> ids = new ArrayList<>(extraIds.length);
+        for (long id : extraIds) {
+            ids.add(id);
+        }
+        return extrasService.getExtrasById(ids);
+    }
+}
@@ -3,13 +3,16 @@ package com.demo.reservation.flow.forms;
 import com.demo.domain.Reservation;
 
 import javax.validation.Valid;
-import java.util.*;
+import java.util.List;
 
 /**
  * Stores the {@code Reservation} and the current flow {@code Step}. {@code Step} manipulation functions are dumb and
  * rely on controller logic to keep the flow step in sync.
  *
  * <p>There cannot be an incrementing counter given page refreshes must not advance flow steps.</p>
+ *
+ * <p>Between requests the flow is held in the session as a {@code ReservationFlowState}, so completed steps are
+ * kept as a bitmask and the step descriptions are shared by every flow.</p>
  */
 public class ReservationFlow {
 
@@ -27,6 +30,10 @@ public class ReservationFlow {
             this.flowStep = flowStep;
         }
 
+        int mask() {
+            return 1 << flowStep;
+        }
+
         public static Step from(int flowStep) {
             switch (flowStep) {
                 case 0:
@@ -47,22 +54,23 @@ public class ReservationFlow {
         }
     }
 
+    private static final List<StepDescription> STEP_DESCRIPTIONS = List.of(
+            new StepDescription(0, "Dates", "Choose your reservation dates"),
+            new StepDescription(1, "Guests", "Provide guest details"),
+            new StepDescription(2, "Extras", "Select optional extras"),
+            new StepDescription(3, "Meals", "Choose optional meal plans"),
+            new StepDescription(4, "Review", "Verify your reservation"),
+            new StepDescription(5, "Payment", "Provide payment details"));
+
     @Valid
     private Reservation reservation = new Reservation();
 
-    private List<StepDescription> stepDescriptions = new ArrayList<>();
-
-    private Set<Step> completedSteps = new HashSet<>();
+    // One bit per Step.flowStep
+    private int completedSteps;
 
     private Step activeStep = Step.Dates;
 
     public ReservationFlow() {
-        stepDescriptions.add(new StepDescription(0, "Dates", "Choose your reservation dates"));
-        stepDescriptions.add(new StepDescription(1, "Guests", "Provide guest details"));
-        stepDescriptions.add(new StepDescription(2, "Extras", "Select optional extras"));
-        stepDescriptions.add(new StepDescription(3, "Meals", "Choose optional meal plans"));
-        stepDescriptions.add(new StepDescription(4, "Review", "Verify your reservation"));
-        stepDescriptions.add(new StepDescription(5, "Payment", "Provide payment details"));
     }
 
     public Reservation getReservation() {
@@ -82,15 +90,15 @@ public class ReservationFlow {
     }
 
     public StepDescription getActiveStepDescription() {
-        return stepDescriptions.get(activeStep.flowStep);
+        return STEP_DESCRIPTIONS.get(activeStep.flowStep);
     }
 
     public void completeStep(Step step) {
-        completedSteps.add(step);
+        completedSteps |= step.mask();
     }
 
     public void incompleteStep(Step step) {
-        completedSteps.remove(step);
+        completedSteps &= ~step.mask();
     }
 
     public boolean isActive(Step step) {
@@ -98,7 +106,7 @@ public class ReservationFlow {
     }
 
     public boolean isCompleted(Step step) {
-        return completedSteps.contains(step);
+        return (completedSteps & step.mask()) != 0;
     }
 
     public void enterStep(Step step) {
@@ -106,14 +114,25 @@ public class ReservationFlow {
         incompleteStep(step);
     }
 
+    /**
+     * @return The unmodifiable descriptions of every step in flow order.
+     */
     public List<StepDescription> getStepDescriptions() {
-        return stepDescriptions;
+        return STEP_DESCRIPTIONS;
+    }
+
+    int getCompletedSteps() {
+        return completedSteps;
+    }
+
+    void setCompletedSteps(int completedSteps) {
+        this.completedSteps = completedSteps;
     }
 
     public static class StepDescription {
-        private int flowStep;
-        private String title;
-        private String description;
+        private final int flowStep;
+        private final String title;
+        private final String description;
 
         public StepDescription(int flowStep, String title, String description) {
             this.flowStep = flowStep;
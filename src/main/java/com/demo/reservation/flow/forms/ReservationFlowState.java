@@ -0,0 +1,562 @@
+package com.demo.reservation.flow.forms;
+
+import com.demo.domain.*;
+
+import java.io.*;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.*;
+
+/**
+ * The compact value a {@code ReservationFlow} is kept in the session as between requests.
+ *
+ * <p>Only ids, dates, guest details, extra ids and the step bitmask are held. The room and extras are looked up again
+ * by id when the flow is restored, so the session never references the {@code Room} → {@code Hotel} entity graph
+ * and a change to a room or extra is picked up by flows already in progress.</p>
+ *
+ * <p>For stores outside the JVM the state is split into named attributes, each encoded in a compact binary format
+ * of variable length integers. A store can then compare the encoded attributes and write only those that
+ * changed. The guests and meal plans are by far the largest and change the least often.</p>
+ */
+public final class ReservationFlowState implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // Stands in for a room or date that has not been chosen yet.
+    private static final long NONE = Long.MIN_VALUE;
+
+    private static final int LATE_CHECKOUT = 1;
+    private static final int POLICY_ACKNOWLEDGED = 1 << 1;
+
+    public static final String RESERVATION_ATTRIBUTE = "reservation";
+    public static final String DATES_ATTRIBUTE = "dates";
+    public static final String GUESTS_ATTRIBUTE = "guests";
+    public static final String EXTRAS_ATTRIBUTE = "extras";
+    public static final String MEAL_PLANS_ATTRIBUTE = "mealPlans";
+    public static final String STEPS_ATTRIBUTE = "steps";
+
+    // Leads every encoded attribute so the format can change without misreading flows stored by an older release.
+    // Version 2 allows guests without a first or last name.
+    private static final int FORMAT_VERSION = 2;
+
+    private static final int HAS_CHECK_IN = 1 << 2;
+    private static final int HAS_CHECK_OUT = 1 << 3;
+    private static final int HAS_CHECK_IN_TIME = 1 << 4;
+
+    private static final long[] NO_IDS = new long[0];
+
+    // Far more guests, extras or meal plans than any flow has, guards against allocating for a corrupt count.
+    private static final int MAX_COUNT = 1024;
+
+    private final long reservationIdMostSigBits;
+    private final long reservationIdLeastSigBits;
+    private final long roomId;
+
+    private final long checkInEpochDay;
+    private final long checkOutEpochDay;
+    // -1 when no estimate has been given.
+    private final int estimatedCheckInSecondOfDay;
+    private final int dateOptions;
+
+    private final GuestTuple[] guests;
+    private final long[] generalExtraIds;
+    private final MealPlanTuple[] mealPlans;
+
+    private final int completedSteps;
+    private final int activeStep;
+
+    private ReservationFlowState(ReservationFlow flow) {
+        Reservation reservation = flow.getReservation();
+        UUID reservationId = reservation.getReservationId();
+        reservationIdMostSigBits = reservationId.getMostSignificantBits();
+        reservationIdLeastSigBits = reservationId.getLeastSignificantBits();
+
+        Room room = reservation.getRoom();
+        roomId = room == null || room.getId() == null ? NONE : room.getId();
+
+        ReservationDates dates = reservation.getDates();
+        checkInEpochDay = dates.getCheckInDate() == null ? NONE : dates.getCheckInDate().toEpochDay();
+        checkOutEpochDay = dates.getCheckOutDate() == null ? NONE : dates.getCheckOutDate().toEpochDay();
+        estimatedCheckInSecondOfDay = dates.getEstimatedCheckInTime() == null
+                ? -1
+                : dates.getEstimatedCheckInTime().toSecondOfDay();
+        dateOptions = (dates.isLateCheckout() ? LATE_CHECKOUT : 0)
+                | (dates.isPolicyAcknowledged() ? POLICY_ACKNOWLEDGED : 0);
+
+        // Meal plans share the tuple of their guest so each guest is restored as a single instance.
+        Map<Guest, GuestTuple> guestTuples = new IdentityHashMap<>();
+        guests = reservation.getGuests().stream()
+                .map(guest -> guestTuples.computeIfAbsent(guest, GuestTuple::new))
+                .toArray(GuestTuple[]::new);
+
+        generalExtraIds = extraIds(reservation.getGeneralExtras());
+
+        List<MealPlan> plans = reservation.getMealPlans();
+        mealPlans = new MealPlanTuple[plans.size()];
+        for (int i = 0; i < plans.size(); i++) {
+            MealPlan plan = plans.get(i);
+            GuestTuple guest = plan.getGuest() == null
+                    ? null
+                    : guestTuples.computeIfAbsent(plan.getGuest(), GuestTuple::new);
+            mealPlans[i] = new MealPlanTuple(guest, extraIds(plan.getFoodExtras()),
+                    dietaryRequirementMask(plan.getDietaryRequirements()));
+        }
+
+        completedSteps = flow.getCompletedSteps();
+        activeStep = flow.getActiveStep().flowStep;
+    }
+
+    private ReservationFlowState(long reservationIdMostSigBits, long reservationIdLeastSigBits, long roomId,
+                                 long checkInEpochDay, long checkOutEpochDay, int estimatedCheckInSecondOfDay,
+                                 int dateOptions, GuestTuple[] guests, long[] generalExtraIds,
+                                 MealPlanTuple[] mealPlans, int completedSteps, int activeStep) {
+        this.reservationIdMostSigBits = reservationIdMostSigBits;
+        this.reservationIdLeastSigBits = reservationIdLeastSigBits;
+        this.roomId = roomId;
+        this.checkInEpochDay = checkInEpochDay;
+        this.checkOutEpochDay = checkOutEpochDay;
+        this.estimatedCheckInSecondOfDay = estimatedCheckInSecondOfDay;
+        this.dateOptions = dateOptions;
+        this.guests = guests;
+        this.generalExtraIds = generalExtraIds;
+        this.mealPlans = mealPlans;
+        this.completedSteps = completedSteps;
+        this.activeStep = activeStep;
+    }
+
+    public static ReservationFlowState of(ReservationFlow flow) {
+        return new ReservationFlowState(flow);
+    }
+
+    public UUID getReservationId() {
+        return new UUID(reservationIdMostSigBits, reservationIdLeastSigBits);
+    }
+
+    /**
+     * @return Every attribute of the state encoded in the compact binary format, keyed by attribute name.
+     */
+    public Map<String, byte[]> toAttributes() {
+        Map<String, byte[]> attributes = new LinkedHashMap<>();
+        attributes.put(RESERVATION_ATTRIBUTE, encode(out -> {
+            out.writeLong(reservationIdMostSigBits);
+            out.writeLong(reservationIdLeastSigBits);
+            out.writeBoolean(roomId != NONE);
+            if (roomId != NONE) {
+                VarInts.writeSigned(out, roomId);
+            }
+        }));
+        attributes.put(DATES_ATTRIBUTE, encode(out -> {
+            int flags = dateOptions
+                    | (checkInEpochDay != NONE ? HAS_CHECK_IN : 0)
+                    | (checkOutEpochDay != NONE ? HAS_CHECK_OUT : 0)
+                    | (estimatedCheckInSecondOfDay >= 0 ? HAS_CHECK_IN_TIME : 0);
+            out.writeByte(flags);
+            if (checkInEpochDay != NONE) {
+                VarInts.writeSigned(out, checkInEpochDay);
+            }
+            if (checkOutEpochDay != NONE) {
+                VarInts.writeSigned(out, checkOutEpochDay);
+            }
+            if (estimatedCheckInSecondOfDay >= 0) {
+                VarInts.writeUnsigned(out, estimatedCheckInSecondOfDay);
+            }
+        }));
+        attributes.put(GUESTS_ATTRIBUTE, encode(out -> {
+            VarInts.writeUnsigned(out, guests.length);
+            for (GuestTuple guest : guests) {
+                guest.writeTo(out);
+            }
+        }));
+        attributes.put(EXTRAS_ATTRIBUTE, encode(out -> writeIds(out, generalExtraIds)));
+        attributes.put(MEAL_PLANS_ATTRIBUTE, encode(out -> {
+            List<GuestTuple> guestList = Arrays.asList(guests);
+            VarInts.writeUnsigned(out, mealPlans.length);
+            for (MealPlanTuple mealPlan : mealPlans) {
+                // Plans refer to their guest by position, a guest removed after the plans were created is written out.
+                int guestIndex = mealPlan.guest == null ? -1 : guestList.indexOf(mealPlan.guest);
+                out.writeBoolean(mealPlan.guest != null);
+                if (mealPlan.guest != null) {
+                    VarInts.writeSigned(out, guestIndex);
+                    if (guestIndex < 0) {
+                        mealPlan.guest.writeTo(out);
+                    }
+                }
+                writeIds(out, mealPlan.foodExtraIds);
+                VarInts.writeUnsigned(out, mealPlan.dietaryRequirements);
+            }
+        }));
+        attributes.put(STEPS_ATTRIBUTE, encode(out -> {
+            VarInts.writeUnsigned(out, completedSteps);
+            VarInts.writeUnsigned(out, activeStep);
+        }));
+        return attributes;
+    }
+
+    /**
+     * Reverses {@link #toAttributes()}. Only the reservation attribute is required, any other missing attribute is
+     * read as empty.
+     *
+     * @throws IllegalArgumentException If an attribute is malformed or was written in an unknown format.
+     */
+    public static ReservationFlowState fromAttributes(Map<String, byte[]> attributes) {
+        byte[] reservation = attributes.get(RESERVATION_ATTRIBUTE);
+        if (reservation == null) {
+            throw new IllegalArgumentException("Missing the " + RESERVATION_ATTRIBUTE + " attribute");
+        }
+
+        try {
+            DataInputStream in = decode(reservation);
+            long reservationIdMostSigBits = in.readLong();
+            long reservationIdLeastSigBits = in.readLong();
+            long roomId = in.readBoolean() ? VarInts.readSigned(in) : NONE;
+
+            long checkInEpochDay = NONE;
+            long checkOutEpochDay = NONE;
+            int estimatedCheckInSecondOfDay = -1;
+            int dateOptions = 0;
+            if (attributes.containsKey(DATES_ATTRIBUTE)) {
+                in = decode(attributes.get(DATES_ATTRIBUTE));
+                int flags = in.readUnsignedByte();
+                if ((flags & HAS_CHECK_IN) != 0) {
+                    checkInEpochDay = VarInts.readSigned(in);
+                }
+                if ((flags & HAS_CHECK_OUT) != 0) {
+                    checkOutEpochDay = VarInts.readSigned(in);
+                }
+                if ((flags & HAS_CHECK_IN_TIME) != 0) {
+                    estimatedCheckInSecondOfDay = VarInts.readUnsignedInt(in);
+                }
+                dateOptions = flags & (LATE_CHECKOUT | POLICY_ACKNOWLEDGED);
+            }
+
+            GuestTuple[] guests = new GuestTuple[0];
+            if (attributes.containsKey(GUESTS_ATTRIBUTE)) {
+                in = decode(attributes.get(GUESTS_ATTRIBUTE));
+                guests = new GuestTuple[readCount(in)];
+                for (int i = 0; i < guests.length; i++) {
+                    guests[i] = GuestTuple.readFrom(in);
+                }
+            }
+
+            long[] generalExtraIds = attributes.containsKey(EXTRAS_ATTRIBUTE)
+                    ? readIds(decode(attributes.get(EXTRAS_ATTRIBUTE)))
+                    : NO_IDS;
+
+            MealPlanTuple[] mealPlans = new MealPlanTuple[0];
+            if (attributes.containsKey(MEAL_PLANS_ATTRIBUTE)) {
+                in = decode(attributes.get(MEAL_PLANS_ATTRIBUTE));
+                mealPlans = new MealPlanTuple[readCount(in)];
+                for (int i = 0; i < mealPlans.length; i++) {
+                    GuestTuple guest = null;
+                    if (in.readBoolean()) {
+                        int guestIndex = (int) VarInts.readSigned(in);
+                        guest = guestIndex < 0 ? GuestTuple.readFrom(in) : guests[guestIndex];
+                    }
+                    mealPlans[i] = new MealPlanTuple(guest, readIds(in), VarInts.readUnsignedInt(in));
+                }
+            }
+
+            int completedSteps = 0;
+            int activeStep = ReservationFlow.Step.Dates.flowStep;
+            if (attributes.containsKey(STEPS_ATTRIBUTE)) {
+                in = decode(attributes.get(STEPS_ATTRIBUTE));
+                completedSteps = VarInts.readUnsignedInt(in);
+                activeStep = VarInts.readUnsignedInt(in);
+            }
+
+            return new ReservationFlowState(reservationIdMostSigBits, reservationIdLeastSigBits, roomId,
+                    checkInEpochDay, checkOutEpochDay, estimatedCheckInSecondOfDay, dateOptions, guests,
+                    generalExtraIds, mealPlans, completedSteps, activeStep);
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Malformed reservation flow state", e);
+        }
+    }
+
+    /**
+     * @return The total size of the encoded attributes.
+     */
+    public static int encodedSize(Map<String, byte[]> attributes) {
+        int size = 0;
+        for (byte[] value : attributes.values()) {
+            size += value.length;
+        }
+        return size;
+    }
+
+    /**
+     * Rebuilds the flow from the room and extras as they currently are. Extras which no longer exist are dropped.
+     *
+     * @return The restored flow or empty if its room no longer exists, in which case the flow cannot continue.
+     */
+    public Optional<ReservationFlow> restore(Entities entities) {
+        Reservation reservation = new Reservation(new UUID(reservationIdMostSigBits, reservationIdLeastSigBits));
+
+        if (roomId != NONE) {
+            Optional<Room> room = entities.findRoom(roomId);
+            if (!room.isPresent()) {
+                return Optional.empty();
+            }
+            reservation.setRoom(room.get());
+        }
+
+        reservation.setDates(new ReservationDates(
+                checkInEpochDay == NONE ? null : LocalDate.ofEpochDay(checkInEpochDay),
+                checkOutEpochDay == NONE ? null : LocalDate.ofEpochDay(checkOutEpochDay),
+                estimatedCheckInSecondOfDay < 0 ? null : LocalTime.ofSecondOfDay(estimatedCheckInSecondOfDay),
+                (dateOptions & LATE_CHECKOUT) != 0,
+                (dateOptions & POLICY_ACKNOWLEDGED) != 0));
+
+        Map<GuestTuple, Guest> restoredGuests = new IdentityHashMap<>();
+        for (GuestTuple tuple : guests) {
+            Guest guest = restoredGuests.computeIfAbsent(tuple, GuestTuple::toGuest);
+            if (reservation.getRoom() != null) {
+                reservation.addGuest(guest);
+            }
+        }
+
+        if (generalExtraIds.length > 0) {
+            reservation.setGeneralExtras(new HashSet<>(entities.findExtras(generalExtraIds)));
+        }
+
+        if (mealPlans.length > 0) {
+            List<MealPlan> plans = new ArrayList<>(mealPlans.length);
+            for (MealPlanTuple tuple : mealPlans) {
+                Guest guest = tuple.guest == null ? null : restoredGuests.computeIfAbsent(tuple.guest,
+                        GuestTuple::toGuest);
+                plans.add(new MealPlan(guest, reservation, new ArrayList<>(entities.findExtras(tuple.foodExtraIds)),
+                        dietaryRequirements(tuple.dietaryRequirements)));
+            }
+            reservation.setMealPlans(plans);
+        }
+
+        ReservationFlow flow = new ReservationFlow();
+        flow.setReservation(reservation);
+        flow.setCompletedSteps(completedSteps);
+        flow.setActive(ReservationFlow.Step.from(activeStep));
+        return Optional.of(flow);
+    }
+
+    private static long[] extraIds(Collection<Extra> extras) {
+        if (extras == null) {
+            return new long[0];
+        }
+        return extras.stream()
+                .map(Extra::getId)
+                .filter(Objects::nonNull)
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    private static int dietaryRequirementMask(List<DietaryRequirement> requirements) {
+        int mask = 0;
+        if (requirements != null) {
+            for (DietaryRequirement requirement : requirements) {
+                mask |= 1 << requirement.ordinal();
+            }
+        }
+        return mask;
+    }
+
+    private static List<DietaryRequirement> dietaryRequirements(int mask) {
+        List<DietaryRequirement> requirements = new ArrayList<>();
+        for (DietaryRequirement requirement : DietaryRequirement.values()) {
+            if ((mask & 1 << requirement.ordinal()) != 0) {
+                requirements.add(requirement);
+            }
+        }
+        return requirements;
+    }
+
+    private static byte[] encode(Encoder encoder) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            encoder.encode(out);
+        } catch (IOException e) {
+            // not thrown when writing to memory
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static DataInputStream decode(byte[] attribute) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(attribute));
+        int version = in.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported format version " + version);
+        }
+        return in;
+    }
+
+    /**
+     * A half filled guest form can leave a guest in the flow without a name.
+     */
+    private static void writeNullableUTF(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableUTF(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeIds(DataOutput out, long[] ids) throws IOException {
+        VarInts.writeUnsigned(out, ids.length);
+        for (long id : ids) {
+            VarInts.writeSigned(out, id);
+        }
+    }
+
+    private static int readCount(DataInput in) throws IOException {
+        int count = VarInts.readUnsignedInt(in);
+        if (count > MAX_COUNT) {
+            throw new IOException("Count " + count + " exceeds " + MAX_COUNT);
+        }
+        return count;
+    }
+
+    private static long[] readIds(DataInput in) throws IOException {
+        long[] ids = new long[readCount(in)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = VarInts.readSigned(in);
+        }
+        return ids;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ReservationFlowState that = (ReservationFlowState) o;
+        return reservationIdMostSigBits == that.reservationIdMostSigBits &&
+                reservationIdLeastSigBits == that.reservationIdLeastSigBits &&
+                roomId == that.roomId &&
+                checkInEpochDay == that.checkInEpochDay &&
+                checkOutEpochDay == that.checkOutEpochDay &&
+                estimatedCheckInSecondOfDay == that.estimatedCheckInSecondOfDay &&
+                dateOptions == that.dateOptions &&
+                completedSteps == that.completedSteps &&
+                activeStep == that.activeStep &&
+                Arrays.equals(guests, that.guests) &&
+                Arrays.equals(generalExtraIds, that.generalExtraIds) &&
+                Arrays.equals(mealPlans, that.mealPlans);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(reservationIdMostSigBits, reservationIdLeastSigBits, roomId, checkInEpochDay,
+                checkOutEpochDay, estimatedCheckInSecondOfDay, dateOptions, completedSteps, activeStep);
+        result = 31 * result + Arrays.hashCode(guests);
+        result = 31 * result + Arrays.hashCode(generalExtraIds);
+        result = 31 * result + Arrays.hashCode(mealPlans);
+        return result;
+    }
+
+    /**
+     * Looks up the entities a flow refers to by id, expected to be answered from memory.
+     */
+    public interface Entities {
+        Optional<Room> findRoom(long roomId);
+
+        /**
+         * Ids that no longer exist are skipped.
+         */
+        List<Extra> findExtras(long[] extraIds);
+    }
+
+    @FunctionalInterface
+    private interface Encoder {
+        void encode(DataOutput out) throws IOException;
+    }
+
+    private static final class GuestTuple implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final long tempIdMostSigBits;
+        private final long tempIdLeastSigBits;
+        private final String firstName;
+        private final String lastName;
+        private final boolean child;
+
+        private GuestTuple(Guest guest) {
+            this(guest.getTempId().getMostSignificantBits(), guest.getTempId().getLeastSignificantBits(),
+                    guest.getFirstName(), guest.getLastName(), guest.isChild());
+        }
+
+        private GuestTuple(long tempIdMostSigBits, long tempIdLeastSigBits, String firstName, String lastName,
+                           boolean child) {
+            this.tempIdMostSigBits = tempIdMostSigBits;
+            this.tempIdLeastSigBits = tempIdLeastSigBits;
+            this.firstName = firstName;
+            this.lastName = lastName;
+            this.child = child;
+        }
+
+        private void writeTo(DataOutput out) throws IOException {
+            out.writeLong(tempIdMostSigBits);
+            out.writeLong(tempIdLeastSigBits);
+            writeNullableUTF(out, firstName);
+            writeNullableUTF(out, lastName);
+            out.writeBoolean(child);
+        }
+
+        private static GuestTuple readFrom(DataInput in) throws IOException {
+            return new GuestTuple(in.readLong(), in.readLong(), readNullableUTF(in), readNullableUTF(in),
+                    in.readBoolean());
+        }
+
+        private Guest toGuest() {
+            return new Guest(new UUID(tempIdMostSigBits, tempIdLeastSigBits), firstName, lastName, child);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            GuestTuple that = (GuestTuple) o;
+            return tempIdMostSigBits == that.tempIdMostSigBits &&
+                    tempIdLeastSigBits == that.tempIdLeastSigBits &&
+                    child == that.child &&
+                    Objects.equals(firstName, that.firstName) &&
+                    Objects.equals(lastName, that.lastName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tempIdMostSigBits, tempIdLeastSigBits, firstName, lastName, child);
+        }
+    }
+
+    private static final class MealPlanTuple implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final GuestTuple guest;
+        private final long[] foodExtraIds;
+        // One bit per DietaryRequirement ordinal
+        private final int dietaryRequirements;
+
+        private MealPlanTuple(GuestTuple guest, long[] foodExtraIds, int dietaryRequirements) {
+            this.guest = guest;
+            this.foodExtraIds = foodExtraIds;
+            this.dietaryRequirements = dietaryRequirements;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            MealPlanTuple that = (MealPlanTuple) o;
+            return dietaryRequirements == that.dietaryRequirements &&
+                    Objects.equals(guest, that.guest) &&
+                    Arrays.equals(foodExtraIds, that.foodExtraIds);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = Objects.hash(guest, dietaryRequirements);
+            result = 31 * result + Arrays.hashCode(foodExtraIds);
+            return result;
+        }
+    }
+}
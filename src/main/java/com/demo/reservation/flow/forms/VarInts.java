@@ -0,0 +1,59 @@
+package com.demo.reservation.flow.forms;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Variable length integers, 7 bits per byte with the high bit set while more bytes follow. Ids, counts and epoch days
+ * mostly fit in 1 to 3 bytes rather than the 8 of a long.
+ *
+ * <p>Signed values are zig zag encoded first so small negative numbers are also short.</p>
+ */
+final class VarInts {
+    // A long needs at most 10 groups of 7 bits
+    private static final int MAX_BYTES = 10;
+
+    private VarInts() {
+    }
+
+    static void writeUnsigned(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    static void writeSigned(DataOutput out, long value) throws IOException {
+        writeUnsigned(out, (value << 1) ^ (value >> 63));
+    }
+
+    static long readUnsigned(DataInput in) throws IOException {
+        long value = 0;
+        for (int i = 0; i < MAX_BYTES; i++) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << (7 * i);
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Variable length integer is longer than " + MAX_BYTES + " bytes");
+    }
+
+    /**
+     * @throws IOException If the value does not fit in a non negative int, such as a corrupt count.
+     */
+    static int readUnsignedInt(DataInput in) throws IOException {
+        long value = readUnsigned(in);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IOException("Value " + value + " is out of range");
+        }
+        return (int) value;
+    }
+
+    static long readSigned(DataInput in) throws IOException {
+        long value = readUnsigned(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
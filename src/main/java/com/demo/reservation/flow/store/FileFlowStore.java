@@ -0,0 +1,190 @@
+package com.demo.reservation.flow.store;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Flows as files in a local directory, one file per flow, so they survive a restart of the node. Suited to a single
+ * node or a directory every node mounts.
+ *
+ * <p>Each file is a header of a magic number and the expiry followed by the attributes, each a length prefixed name
+ * and value. Files are read through a read only memory mapping. Extending the expiry overwrites the 8 bytes of the
+ * header in place, any attribute change writes a complete new file to a temporary name which is then moved over
+ * the old one so a reader never sees a partially written flow.</p>
+ */
+public class FileFlowStore implements FlowStore {
+
+    private static final int MAGIC = 0x52464C57;
+    private static final int EXPIRES_AT_OFFSET = Integer.BYTES;
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+    private static final String SUFFIX = ".flow";
+
+    // Writes to the same flow are serialized, flows are spread over the stripes by id.
+    private final Object[] locks = new Object[64];
+
+    private final Path directory;
+
+    public FileFlowStore(Path directory) {
+        this.directory = directory;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new Object();
+        }
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create the flow directory " + directory, e);
+        }
+    }
+
+    @Override
+    public Optional<StoredFlow> load(String flowId, long nowMillis) {
+        return read(file(flowId)).filter(flow -> flow.getExpiresAtMillis() > nowMillis);
+    }
+
+    @Override
+    public void save(String flowId, Map<String, byte[]> changedAttributes, long expiresAtMillis) {
+        Path file = file(flowId);
+        synchronized (lock(flowId)) {
+            try {
+                if (changedAttributes.isEmpty() && Files.exists(file)) {
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                        ByteBuffer expiresAt = ByteBuffer.allocate(Long.BYTES).putLong(0, expiresAtMillis);
+                        channel.write(expiresAt, EXPIRES_AT_OFFSET);
+                    }
+                    return;
+                }
+
+                Map<String, byte[]> attributes = new HashMap<>();
+                read(file).ifPresent(flow -> attributes.putAll(flow.getAttributes()));
+                attributes.putAll(changedAttributes);
+                write(file, attributes, expiresAtMillis);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot save flow " + flowId, e);
+            }
+        }
+    }
+
+    @Override
+    public void delete(String flowId) {
+        synchronized (lock(flowId)) {
+            try {
+                Files.deleteIfExists(file(flowId));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot delete flow " + flowId, e);
+            }
+        }
+    }
+
+    /**
+     * Only the header of each file is read.
+     */
+    @Override
+    public int deleteExpired(long nowMillis) {
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            for (Path file : files) {
+                String flowId = file.getFileName().toString();
+                flowId = flowId.substring(0, flowId.length() - SUFFIX.length());
+                synchronized (lock(flowId)) {
+                    header.clear();
+                    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                        channel.read(header, 0);
+                    } catch (NoSuchFileException e) {
+                        continue;
+                    }
+                    boolean corrupt = header.position() < HEADER_SIZE || header.getInt(0) != MAGIC;
+                    if (corrupt || header.getLong(EXPIRES_AT_OFFSET) <= nowMillis) {
+                        Files.deleteIfExists(file);
+                        deleted++;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot sweep the flow directory " + directory, e);
+        }
+        return deleted;
+    }
+
+    private Optional<StoredFlow> read(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                return Optional.empty();
+            }
+            long expiresAt = buffer.getLong();
+            Map<String, byte[]> attributes = new HashMap<>();
+            while (buffer.hasRemaining()) {
+                byte[] name = new byte[buffer.get() & 0xFF];
+                buffer.get(name);
+                int length = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    return Optional.empty();
+                }
+                byte[] value = new byte[length];
+                buffer.get(value);
+                attributes.put(new String(name, StandardCharsets.UTF_8), value);
+            }
+            return Optional.of(new StoredFlow(attributes, expiresAt));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read flow " + file, e);
+        } catch (RuntimeException e) {
+            // truncated or corrupt, treated the same as a missing flow and removed by the sweeper once expired
+            return Optional.empty();
+        }
+    }
+
+    private void write(Path file, Map<String, byte[]> attributes, long expiresAtMillis) throws IOException {
+        int size = HEADER_SIZE;
+        Map<byte[], byte[]> encoded = new HashMap<>();
+        for (Map.Entry<String, byte[]> attribute : attributes.entrySet()) {
+            byte[] name = attribute.getKey().getBytes(StandardCharsets.UTF_8);
+            if (name.length > 0xFF) {
+                throw new IllegalArgumentException("Attribute name is too long: " + attribute.getKey());
+            }
+            encoded.put(name, attribute.getValue());
+            size += 1 + name.length + Integer.BYTES + attribute.getValue().length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).putInt(MAGIC).putLong(expiresAtMillis);
+        encoded.forEach((name, value) -> buffer.put((byte) name.length).put(name).putInt(value.length).put(value));
+        buffer.flip();
+
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Flow ids come from a cookie, only a well formed UUID is turned into a path.
+     */
+    private Path file(String flowId) {
+        if (!UUID.fromString(flowId).toString().equals(flowId)) {
+            throw new IllegalArgumentException("Not a flow id: " + flowId);
+        }
+        return directory.resolve(flowId + SUFFIX);
+    }
+
+    private Object lock(String flowId) {
+        return locks[Math.floorMod(flowId.hashCode(), locks.length)];
+    }
+}
@@ -0,0 +1,31 @@
+package com.demo.reservation.flow.store;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Holds reservation flows outside of the {@code HttpSession} so they outlive the node that served them. A flow is a
+ * set of named binary attributes plus the time it expires, see {@code ReservationFlowState#toAttributes}.
+ *
+ * <p>Implementations must be safe to call from concurrent requests.</p>
+ */
+public interface FlowStore {
+
+    /**
+     * @return The flow or empty if it does not exist or expired at or before {@code nowMillis}.
+     */
+    Optional<StoredFlow> load(String flowId, long nowMillis);
+
+    /**
+     * Creates the flow if it does not exist and sets its expiry. Only the given attributes are written, any other
+     * attribute keeps its stored value so an empty map just extends the expiry.
+     */
+    void save(String flowId, Map<String, byte[]> changedAttributes, long expiresAtMillis);
+
+    void delete(String flowId);
+
+    /**
+     * @return The number of flows removed.
+     */
+    int deleteExpired(long nowMillis);
+}
@@ -0,0 +1,69 @@
+package com.demo.reservation.flow.store;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes flows from the {@code FlowStore} once they expire. Expired flows are never loaded so this only reclaims
+ * their space, a slow or failed sweep does not resurrect a flow.
+ */
+public class FlowStoreSweeper {
+    private static final Logger log = LoggerFactory.getLogger(FlowStoreSweeper.class);
+
+    private final FlowStore flowStore;
+    private final Duration sweepInterval;
+    private final Clock clock;
+    private final Counter expired;
+
+    private ScheduledExecutorService sweeper;
+
+    public FlowStoreSweeper(FlowStore flowStore, Duration sweepInterval, MeterRegistry meterRegistry, Clock clock) {
+        this.flowStore = flowStore;
+        this.sweepInterval = sweepInterval;
+        this.clock = clock;
+        this.expired = meterRegistry.counter("reservation.flow.store.expired");
+    }
+
+    @PostConstruct
+    public void start() {
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "flow-store-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = sweepInterval.toMillis();
+        sweeper.scheduleWithFixedDelay(this::sweep, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+        }
+    }
+
+    /**
+     * @return The number of flows deleted.
+     */
+    public int sweep() {
+        try {
+            int deleted = flowStore.deleteExpired(clock.millis());
+            expired.increment(deleted);
+            return deleted;
+        } catch (RuntimeException e) {
+            // an exception would cancel the scheduled task, the next sweep picks up where this one failed
+            log.warn("Sweeping expired reservation flows failed", e);
+            return 0;
+        }
+    }
+}
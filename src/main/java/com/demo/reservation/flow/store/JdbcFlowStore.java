@@ -0,0 +1,105 @@
+package com.demo.reservation.flow.store;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Flows in two tables of a database shared by every node, a row per flow holding its expiry and a row per attribute.
+ *
+ * <p>Saving updates the expiry and then only the attribute rows passed in, all in one transaction. Expired flows are
+ * deleted by expiry through an index and their attributes go with them through the cascading foreign key.</p>
+ */
+public class JdbcFlowStore implements FlowStore {
+
+    private static final String[] SCHEMA = {
+            "create table if not exists reservation_flow (" +
+                    "flow_id varchar(36) not null primary key, " +
+                    "expires_at bigint not null)",
+            "create index if not exists reservation_flow_expires_at on reservation_flow (expires_at)",
+            "create table if not exists reservation_flow_attribute (" +
+                    "flow_id varchar(36) not null, " +
+                    "name varchar(32) not null, " +
+                    "bytes varbinary(65535) not null, " +
+                    "primary key (flow_id, name), " +
+                    "foreign key (flow_id) references reservation_flow (flow_id) on delete cascade)"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public JdbcFlowStore(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Creates the tables if they do not exist yet.
+     */
+    public void initializeSchema() {
+        for (String statement : SCHEMA) {
+            jdbcTemplate.execute(statement);
+        }
+    }
+
+    @Override
+    public Optional<StoredFlow> load(String flowId, long nowMillis) {
+        Map<String, byte[]> attributes = new HashMap<>();
+        long[] expiresAt = {-1};
+        jdbcTemplate.query("select f.expires_at, a.name, a.bytes from reservation_flow f " +
+                        "left join reservation_flow_attribute a on a.flow_id = f.flow_id " +
+                        "where f.flow_id = ? and f.expires_at > ?",
+                rs -> {
+                    expiresAt[0] = rs.getLong(1);
+                    String name = rs.getString(2);
+                    if (name != null) {
+                        attributes.put(name, rs.getBytes(3));
+                    }
+                }, flowId, nowMillis);
+        return expiresAt[0] < 0 ? Optional.empty() : Optional.of(new StoredFlow(attributes, expiresAt[0]));
+    }
+
+    @Override
+    public void save(String flowId, Map<String, byte[]> changedAttributes, long expiresAtMillis) {
+        transactionTemplate.execute(status -> {
+            upsert("update reservation_flow set expires_at = ? where flow_id = ?",
+                    "insert into reservation_flow (expires_at, flow_id) values (?, ?)",
+                    expiresAtMillis, flowId);
+            changedAttributes.forEach((name, bytes) ->
+                    upsert("update reservation_flow_attribute set bytes = ? where flow_id = ? and name = ?",
+                            "insert into reservation_flow_attribute (bytes, flow_id, name) values (?, ?, ?)",
+                            bytes, flowId, name));
+            return null;
+        });
+    }
+
+    /**
+     * Both statements take the same arguments. Losing the insert to a concurrent request for the same new flow
+     * falls back to updating the row it inserted.
+     */
+    private void upsert(String update, String insert, Object... args) {
+        if (jdbcTemplate.update(update, args) > 0) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(insert, args);
+        } catch (DuplicateKeyException e) {
+            jdbcTemplate.update(update, args);
+        }
+    }
+
+    @Override
+    public void delete(String flowId) {
+        jdbcTemplate.update("delete from reservation_flow where flow_id = ?", flowId);
+    }
+
+    @Override
+    public int deleteExpired(long nowMillis) {
+        return jdbcTemplate.update("delete from reservation_flow where expires_at <= ?", nowMillis);
+    }
+}
@@ -0,0 +1,25 @@
+package com.demo.reservation.flow.store;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A flow as read from a {@code FlowStore}.
+ */
+public final class StoredFlow {
+    private final Map<String, byte[]> attributes;
+    private final long expiresAtMillis;
+
+    public StoredFlow(Map<String, byte[]> attributes, long expiresAtMillis) {
+        this.attributes = Collections.unmodifiableMap(attributes);
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public Map<String, byte[]> getAttributes() {
+        return attributes;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+}
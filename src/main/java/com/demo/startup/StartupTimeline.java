@@ -0,0 +1,135 @@
+package com.demo.startup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Records how long each phase of start up took so cold start regressions show up in the metrics.
+ *
+ * <p>Phases are published as {@code startup.phase} tagged with the phase, in how long the phase itself took.
+ * Milestones are published as {@code startup.milestone} in time since the jvm started. Either is {@code NaN} until
+ * it has been reached.</p>
+ *
+ * <ul>
+ * <li>{@value #CONTEXT_REFRESH} from the bean post processors being registered to the context being refreshed.</li>
+ * <li>{@value #JPA_BOOTSTRAP} building the entity manager factory, included in the context refresh.</li>
+ * <li>{@value #IMPORT_EXTRAS}, {@value #IMPORT_HOTELS} and {@value #IMPORT} the background load of the start up data
+ * and its parts, which run alongside each other.</li>
+ * </ul>
+ *
+ * <p>A post processor so it is created early in the refresh and sees the entity manager factory being built. It
+ * depends on nothing, so no other bean is created early on its account.</p>
+ */
+@Component
+public class StartupTimeline implements BeanPostProcessor, MeterBinder {
+    private static final Logger log = LoggerFactory.getLogger(StartupTimeline.class);
+
+    public static final String CONTEXT_REFRESH = "context.refresh";
+    public static final String JPA_BOOTSTRAP = "jpa.bootstrap";
+    public static final String IMPORT_EXTRAS = "import.extras";
+    public static final String IMPORT_HOTELS = "import.hotels";
+    public static final String IMPORT = "import";
+
+    public static final String READY = "ready";
+    public static final String DATA_LOADED = "data.loaded";
+
+    private static final List<String> PHASES = List.of(CONTEXT_REFRESH, JPA_BOOTSTRAP, IMPORT_EXTRAS, IMPORT_HOTELS,
+            IMPORT);
+    private static final List<String> MILESTONES = List.of(READY, DATA_LOADED);
+
+    private final long created = System.nanoTime();
+    private final Map<String, Duration> phases = new ConcurrentHashMap<>();
+    private final Map<String, Duration> milestones = new ConcurrentHashMap<>();
+    private final Map<String, Long> started = new ConcurrentHashMap<>();
+
+    public void record(String phase, Duration duration) {
+        phases.putIfAbsent(phase, duration);
+    }
+
+    /**
+     * Records the phase as taking from {@code startNanos} until now.
+     */
+    public void record(String phase, long startNanos) {
+        record(phase, Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+
+    public void reached(String milestone) {
+        milestones.putIfAbsent(milestone, Duration.ofMillis(ManagementFactory.getRuntimeMXBean().getUptime()));
+    }
+
+    public Map<String, Duration> getPhases() {
+        return phases;
+    }
+
+    public Map<String, Duration> getMilestones() {
+        return milestones;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof AbstractEntityManagerFactoryBean) {
+            started.put(beanName, System.nanoTime());
+        }
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        Long start = started.remove(beanName);
+        if (start != null) {
+            record(JPA_BOOTSTRAP, start);
+        }
+        return bean;
+    }
+
+    @EventListener
+    public void onContextRefreshed(ContextRefreshedEvent event) {
+        record(CONTEXT_REFRESH, created);
+    }
+
+    @EventListener
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        reached(READY);
+        log.info("Started with phases {}", phases.entrySet().stream()
+                .map(phase -> phase.getKey() + "=" + phase.getValue().toMillis() + "ms")
+                .sorted()
+                .collect(Collectors.joining(", ")));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (String phase : PHASES) {
+            TimeGauge.builder("startup.phase", phases, TimeUnit.MILLISECONDS, recorded -> millis(recorded, phase))
+                    .tag("phase", phase)
+                    .register(registry);
+        }
+        for (String milestone : MILESTONES) {
+            TimeGauge.builder("startup.milestone", milestones, TimeUnit.MILLISECONDS,
+                    recorded -> millis(recorded, milestone))
+                    .tag("milestone", milestone)
+                    .register(registry);
+        }
+    }
+
+    private static double millis(Map<String, Duration> recorded, String name) {
+        Duration duration = recorded.get(name);
+        return duration == null ? Double.NaN : duration.toMillis();
+    }
+}
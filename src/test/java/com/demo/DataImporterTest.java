@@ -0,0 +1,91 @@
+package com.demo;
+
+import com.demo.domain.Hotel;
+import com.demo.persistance.HotelRepository;
+import com.demo.reservation.ExtraRepository;
+import com.demo.startup.StartupTimeline;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.boot.actuate.health.Status;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class DataImporterTest {
+
+    private HotelRepository hotelRepository;
+    private ExtraRepository extraRepository;
+    private StartupTimeline timeline;
+    private DataImporter dataImporter;
+    private DataImporterHealthIndicator healthIndicator;
+
+    @Before
+    public void setup() {
+        hotelRepository = mock(HotelRepository.class);
+        extraRepository = mock(ExtraRepository.class);
+        timeline = new StartupTimeline();
+        dataImporter = new DataImporter(hotelRepository, extraRepository, timeline, 4);
+        healthIndicator = new DataImporterHealthIndicator(dataImporter);
+    }
+
+    @After
+    public void teardown() {
+        dataImporter.stop();
+    }
+
+    /**
+     * Every partition of hotels is being saved at the same time, and the application is out of service until they
+     * have all been saved.
+     */
+    @Test
+    public void start_HotelPartitionsSavedInParallel() throws Exception {
+        List<Hotel> saved = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch saving = new CountDownLatch(4);
+        CountDownLatch release = new CountDownLatch(1);
+        when(hotelRepository.saveAll(any())).thenAnswer(invocation -> {
+            Iterable<Hotel> partition = invocation.getArgument(0);
+            partition.forEach(saved::add);
+            saving.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return partition;
+        });
+
+        dataImporter.start();
+
+        assertThat(saving.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+
+        release.countDown();
+        dataImporter.loaded().get(5, TimeUnit.SECONDS);
+
+        assertThat(saved).hasSize(6);
+        assertThat(dataImporter.getHotelsLoaded()).isEqualTo(6);
+        assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.UP);
+        assertThat(timeline.getPhases()).containsKeys(StartupTimeline.IMPORT_EXTRAS, StartupTimeline.IMPORT_HOTELS,
+                StartupTimeline.IMPORT);
+        assertThat(timeline.getMilestones()).containsKey(StartupTimeline.DATA_LOADED);
+    }
+
+    @Test
+    public void start_SaveFails_Down() throws Exception {
+        when(hotelRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(extraRepository.saveAll(any())).thenThrow(new IllegalStateException("database unavailable"));
+
+        dataImporter.start();
+
+        assertThatThrownBy(() -> dataImporter.loaded().get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class);
+        assertThat(healthIndicator.health().getStatus()).isEqualTo(Status.DOWN);
+    }
+}
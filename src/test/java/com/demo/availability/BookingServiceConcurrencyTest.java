@@ -0,0 +1,215 @@
+package com.demo.availability;
+
+import com.demo.domain.*;
+import com.demo.domain.location.Address;
+import com.demo.domain.location.Postcode;
+import com.demo.domain.location.State;
+import com.demo.exceptions.BookingConflictException;
+import com.demo.outbox.BookingConfirmed;
+import com.demo.outbox.OutboxMessage;
+import com.demo.outbox.OutboxRepository;
+import com.demo.persistance.HotelRepository;
+import com.demo.persistance.RoomNightRepository;
+import com.demo.persistance.RoomRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Hammers a single room from many threads against the real database to prove the booking commit only ever lets one
+ * reservation have a night.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "booking.max-attempts=20",
+        // keeps the outbox messages of a booking around to be checked
+        "outbox.dispatch-interval-millis=3600000"})
+public class BookingServiceConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final LocalDate CHECK_IN = LocalDate.of(2030, 3, 10);
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private RoomNightRepository roomNightRepository;
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Hotel hotel;
+    private Room room;
+
+    @Before
+    public void setup() {
+        hotel = hotelRepository.save(new Hotel("Hotel Contended",
+                new Address("Hotel Contended", "1 race street", null,
+                        State.VIC, "Melbourne", new Postcode("3000")),
+                3, "contended@hotel.com"));
+
+        room = newRoom();
+    }
+
+    private Room newRoom() {
+        Room newRoom = new Room(UUID.randomUUID().toString(), RoomType.Economy, 2, BigDecimal.valueOf(100));
+        newRoom.setHotel(hotel);
+        return roomRepository.save(newRoom);
+    }
+
+    /**
+     * Read through the room region, so a version bumped behind the back of the cache would show up stale here.
+     */
+    private Long version(Room room) {
+        return roomRepository.findById(room.getId()).get().getVersion();
+    }
+
+    private Reservation reservation(LocalDate checkIn, LocalDate checkOut) {
+        Reservation reservation = new Reservation();
+        reservation.setRoom(room);
+        reservation.setDates(new ReservationDates(checkIn, checkOut, LocalTime.of(10, 0), false, true));
+        reservation.setCompletedPayment(new CompletedPayment(PendingPayment.CreditCardType.MasterCard,
+                "3455", "344", YearMonth.of(2030, 1)));
+        return reservation;
+    }
+
+    /**
+     * Runs every task at the same time once all threads are ready.
+     *
+     * @return The number of tasks that booked successfully.
+     */
+    private int runConcurrently(List<Callable<Reservation>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (Callable<Reservation> task : tasks) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        task.call();
+                        return true;
+                    } catch (BookingConflictException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+
+            int booked = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get(30, TimeUnit.SECONDS)) {
+                    booked++;
+                }
+            }
+            return booked;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void book_SameNightsFromManyThreads_ExactlyOneWins() throws Exception {
+        List<Callable<Reservation>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            tasks.add(() -> bookingService.book(reservation(CHECK_IN, CHECK_IN.plusDays(3))));
+        }
+
+        int booked = runConcurrently(tasks);
+
+        assertThat(booked).isEqualTo(1);
+        assertThat(roomNightRepository.existsBookedNight(room.getId(), CHECK_IN, CHECK_IN.plusDays(3))).isTrue();
+        // only the winning commit kept its claim on the room
+        assertThat(version(room)).isEqualTo(1L);
+
+        String hotel = String.valueOf(room.getHotel().getId());
+        assertThat(meterRegistry.counter("booking.commits", "hotel", hotel, "outcome", "booked").count())
+                .isEqualTo(1);
+        assertThat(meterRegistry.counter("booking.conflicts", "hotel", hotel).count())
+                .isGreaterThanOrEqualTo(THREADS - 1);
+    }
+
+    /**
+     * Different nights of the same room still queue on the room claim but every booking should get through.
+     */
+    @Test
+    public void book_DifferentNightsFromManyThreads_AllWin() throws Exception {
+        List<Callable<Reservation>> tasks = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            LocalDate checkIn = CHECK_IN.plusDays(i * 2);
+            tasks.add(() -> bookingService.book(reservation(checkIn, checkIn.plusDays(2))));
+        }
+
+        int booked = runConcurrently(tasks);
+
+        assertThat(booked).isEqualTo(THREADS);
+        assertThat(version(room)).isEqualTo((long) THREADS);
+    }
+
+    /**
+     * The outbox message is written by the booking transaction, one for each downstream destination.
+     */
+    @Test
+    public void book_WritesBookingConfirmedToOutbox() {
+        Reservation booked = bookingService.book(reservation(CHECK_IN.plusDays(60), CHECK_IN.plusDays(62)));
+
+        List<OutboxMessage> messages = outboxRepository.findByAggregateId(booked.getReservationId());
+        assertThat(messages).extracting(OutboxMessage::getDestination)
+                .containsExactlyInAnyOrder("confirmation-email", "property-management", "analytics");
+        assertThat(messages).extracting(OutboxMessage::getType).containsOnly(BookingConfirmed.TYPE);
+        assertThat(messages.get(0).getPayload())
+                .contains(booked.getReservationId().toString())
+                .contains("\"checkIn\":\"2030-05-09\"");
+    }
+
+    /**
+     * Booking a room only evicts the entry of that room, other rooms of the hotel are still served from the region.
+     */
+    @Test
+    public void book_OnlyBookedRoomEvictedFromRegion() {
+        Room other = newRoom();
+        roomRepository.findById(other.getId());
+        roomRepository.findById(room.getId());
+
+        bookingService.book(reservation(CHECK_IN.plusDays(90), CHECK_IN.plusDays(91)));
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertThat(roomRepository.findById(other.getId())).isPresent();
+        assertThat(version(room)).isEqualTo(1L);
+
+        assertThat(statistics.getSecondLevelCacheStatistics("room").getHitCount()).isEqualTo(1);
+        assertThat(statistics.getSecondLevelCacheStatistics("room").getMissCount()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,210 @@
+package com.demo.availability;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RoomHoldServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 5, 1);
+
+    private MutableClock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private RoomHoldService holds;
+
+    @Before
+    public void setup() {
+        clock = new MutableClock();
+        meterRegistry = new SimpleMeterRegistry();
+        holds = new RoomHoldService(Duration.ofMinutes(15), Duration.ofSeconds(30), meterRegistry, clock);
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.counter("reservation.holds", "outcome", outcome).count();
+    }
+
+    @Test
+    public void tryHold_OverlappingNights_OnlyFirstHolderWins() {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+
+        assertThat(holds.tryHold(1L, first, DAY, DAY.plusDays(3))).isTrue();
+        assertThat(holds.tryHold(1L, second, DAY.plusDays(2), DAY.plusDays(4))).isFalse();
+
+        // check out day of the first hold is free, and other rooms are unaffected
+        assertThat(holds.tryHold(1L, second, DAY.plusDays(3), DAY.plusDays(4))).isTrue();
+        assertThat(holds.tryHold(2L, UUID.randomUUID(), DAY, DAY.plusDays(3))).isTrue();
+
+        assertThat(outcome("held")).isEqualTo(3);
+        assertThat(outcome("rejected")).isEqualTo(1);
+        assertThat(holds.activeHolds()).isEqualTo(3);
+    }
+
+    /**
+     * Going back and changing dates replaces the existing hold rather than conflicting with it.
+     */
+    @Test
+    public void tryHold_SameHolder_ReplacesPreviousHold() {
+        UUID holder = UUID.randomUUID();
+
+        assertThat(holds.tryHold(1L, holder, DAY, DAY.plusDays(3))).isTrue();
+        assertThat(holds.tryHold(1L, holder, DAY.plusDays(1), DAY.plusDays(5))).isTrue();
+        assertThat(holds.activeHolds()).isEqualTo(1);
+
+        assertThat(holds.tryHold(1L, UUID.randomUUID(), DAY, DAY.plusDays(1))).isTrue();
+    }
+
+    /**
+     * A change of dates that another holder blocks leaves the guest with the nights they already held.
+     */
+    @Test
+    public void tryHold_SameHolderRejected_KeepsPreviousHold() {
+        UUID holder = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        assertThat(holds.tryHold(1L, holder, DAY, DAY.plusDays(3))).isTrue();
+        assertThat(holds.tryHold(1L, other, DAY.plusDays(5), DAY.plusDays(7))).isTrue();
+
+        assertThat(holds.tryHold(1L, holder, DAY.plusDays(4), DAY.plusDays(6))).isFalse();
+
+        assertThat(holds.keepAlive(1L, holder, DAY, DAY.plusDays(3))).isTrue();
+        assertThat(holds.tryHold(1L, UUID.randomUUID(), DAY, DAY.plusDays(1))).isFalse();
+        assertThat(holds.activeHolds()).isEqualTo(2);
+    }
+
+    /**
+     * A double submitted dates form races two holds of the same holder. Only the last one stays, and releasing it
+     * frees every night either of them had.
+     */
+    @Test
+    public void tryHold_SameHolderConcurrently_NoHoldLeftBehind() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (long room = 1; room <= 200; room++) {
+                Long roomId = room;
+                UUID holder = UUID.randomUUID();
+                CountDownLatch start = new CountDownLatch(1);
+                Future<Boolean> first = executor.submit(() -> {
+                    start.await();
+                    return holds.tryHold(roomId, holder, DAY, DAY.plusDays(2));
+                });
+                Future<Boolean> second = executor.submit(() -> {
+                    start.await();
+                    return holds.tryHold(roomId, holder, DAY.plusDays(4), DAY.plusDays(6));
+                });
+                start.countDown();
+                assertThat(first.get(5, TimeUnit.SECONDS)).isTrue();
+                assertThat(second.get(5, TimeUnit.SECONDS)).isTrue();
+
+                holds.release(holder);
+
+                UUID other = UUID.randomUUID();
+                assertThat(holds.tryHold(roomId, other, DAY, DAY.plusDays(6))).as("room %d", roomId).isTrue();
+                holds.release(other);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(holds.activeHolds()).isZero();
+    }
+
+    @Test
+    public void sweep_IdleHold_ExpiresAndFreesNights() {
+        UUID idle = UUID.randomUUID();
+        holds.tryHold(1L, idle, DAY, DAY.plusDays(3));
+
+        clock.advance(Duration.ofMinutes(16));
+        holds.sweep();
+
+        assertThat(holds.activeHolds()).isZero();
+        assertThat(outcome("expired")).isEqualTo(1);
+        assertThat(holds.tryHold(1L, UUID.randomUUID(), DAY, DAY.plusDays(3))).isTrue();
+    }
+
+    @Test
+    public void keepAlive_ActiveFlow_ExtendsExpiry() {
+        UUID holder = UUID.randomUUID();
+        holds.tryHold(1L, holder, DAY, DAY.plusDays(3));
+
+        clock.advance(Duration.ofMinutes(10));
+        assertThat(holds.keepAlive(1L, holder, DAY, DAY.plusDays(3))).isTrue();
+        clock.advance(Duration.ofMinutes(10));
+        holds.sweep();
+
+        assertThat(holds.activeHolds()).isEqualTo(1);
+        assertThat(holds.tryHold(1L, UUID.randomUUID(), DAY, DAY.plusDays(1))).isFalse();
+    }
+
+    /**
+     * An expired but not yet swept hold no longer blocks anyone, and its holder can pick the room back up if it is
+     * still free.
+     */
+    @Test
+    public void keepAlive_AfterExpiry_ReacquiresIfFree() {
+        UUID holder = UUID.randomUUID();
+        holds.tryHold(1L, holder, DAY, DAY.plusDays(3));
+        clock.advance(Duration.ofMinutes(20));
+        holds.sweep();
+
+        assertThat(holds.keepAlive(1L, holder, DAY, DAY.plusDays(3))).isTrue();
+
+        UUID other = UUID.randomUUID();
+        clock.advance(Duration.ofMinutes(20));
+        assertThat(holds.tryHold(1L, other, DAY, DAY.plusDays(3))).isTrue();
+        assertThat(holds.keepAlive(1L, holder, DAY, DAY.plusDays(3))).isFalse();
+    }
+
+    @Test
+    public void convertAndRelease_RemoveHold() {
+        UUID paid = UUID.randomUUID();
+        UUID cancelled = UUID.randomUUID();
+        holds.tryHold(1L, paid, DAY, DAY.plusDays(3));
+        holds.tryHold(2L, cancelled, DAY, DAY.plusDays(3));
+
+        holds.convert(paid);
+        holds.release(cancelled);
+        // unknown holders are ignored
+        holds.release(UUID.randomUUID());
+
+        assertThat(holds.activeHolds()).isZero();
+        assertThat(outcome("converted")).isEqualTo(1);
+        assertThat(outcome("released")).isEqualTo(1);
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2030-05-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
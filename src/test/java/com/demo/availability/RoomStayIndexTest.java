@@ -0,0 +1,112 @@
+package com.demo.availability;
+
+import com.demo.reservation.ReservationRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class RoomStayIndexTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 5, 1);
+
+    private ReservationRepository reservationRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private RoomStayIndex index;
+
+    @Before
+    public void setup() {
+        reservationRepository = mock(ReservationRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        index = new RoomStayIndex(reservationRepository, meterRegistry);
+    }
+
+    private double lookups(String result) {
+        return meterRegistry.counter("availability.index.lookups", "result", result).count();
+    }
+
+    /**
+     * Before the first rebuild the index cannot answer, which is counted as a miss so callers fall back to the db.
+     */
+    @Test
+    public void overlaps_NotReady_Miss() {
+        assertThat(index.overlaps(1L, DAY, DAY.plusDays(1))).isEmpty();
+        assertThat(lookups("miss")).isEqualTo(1);
+    }
+
+    @Test
+    public void overlaps_AfterRebuild() {
+        when(reservationRepository.findAllStays()).thenReturn(List.of(
+                new RoomStay(1L, DAY, DAY.plusDays(3)),
+                new RoomStay(1L, DAY.plusDays(10), DAY.plusDays(12)),
+                new RoomStay(2L, DAY.plusDays(1), DAY.plusDays(2))
+        ));
+        index.rebuild();
+
+        // overlapping the first and second stays
+        assertThat(index.overlaps(1L, DAY.minusDays(1), DAY.plusDays(1))).contains(true);
+        assertThat(index.overlaps(1L, DAY.plusDays(11), DAY.plusDays(15))).contains(true);
+
+        // gap between the stays, check out day is free for the next check in
+        assertThat(index.overlaps(1L, DAY.plusDays(3), DAY.plusDays(10))).contains(false);
+        assertThat(index.overlaps(1L, DAY.minusDays(2), DAY)).contains(false);
+
+        // room without any stays
+        assertThat(index.overlaps(3L, DAY, DAY.plusDays(30))).contains(false);
+
+        assertThat(lookups("hit")).isEqualTo(5);
+    }
+
+    @Test
+    public void add_NewBookingIsVisible() {
+        when(reservationRepository.findAllStays()).thenReturn(List.of());
+        index.rebuild();
+
+        index.add(new RoomStay(1L, DAY, DAY.plusDays(2)));
+        assertThat(index.overlaps(1L, DAY.plusDays(1), DAY.plusDays(2))).contains(true);
+
+        // replaying the same booking is harmless
+        index.add(new RoomStay(1L, DAY, DAY.plusDays(2)));
+        assertThat(index.overlaps(1L, DAY.plusDays(2), DAY.plusDays(3))).contains(false);
+    }
+
+    @Test
+    public void verify_ReportsRoomsThatDifferFromDatabase() {
+        when(reservationRepository.findAllStays()).thenReturn(List.of(new RoomStay(1L, DAY, DAY.plusDays(2))));
+        index.rebuild();
+        assertThat(index.verify().isConsistent()).isTrue();
+
+        // A booking written to the database without the index being told about it.
+        when(reservationRepository.findAllStays()).thenReturn(List.of(
+                new RoomStay(1L, DAY, DAY.plusDays(2)),
+                new RoomStay(2L, DAY, DAY.plusDays(2))
+        ));
+        RoomStayIndex.ConsistencyReport report = index.verify();
+        assertThat(report.isConsistent()).isFalse();
+        assertThat(report.getMismatchedRoomIds()).containsExactly(2L);
+    }
+
+    @Test
+    public void staySchedule_KeepsStaysSorted() {
+        StaySchedule schedule = StaySchedule.EMPTY
+                .with(20, 22)
+                .with(1, 3)
+                .with(10, 12);
+
+        assertThat(schedule.size()).isEqualTo(3);
+        assertThat(schedule.overlaps(2, 4)).isTrue();
+        assertThat(schedule.overlaps(3, 10)).isFalse();
+        assertThat(schedule.overlaps(11, 21)).isTrue();
+        assertThat(schedule.overlaps(22, 30)).isFalse();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void staySchedule_RejectsOverlappingStay() {
+        StaySchedule.EMPTY.with(1, 5).with(4, 6);
+    }
+}
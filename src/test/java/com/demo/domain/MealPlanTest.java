@@ -126,7 +126,7 @@ public class MealPlanTest {
 
         MealPlan mealPlan = new MealPlan(guest, reservation, List.of(), List.of());
 
-        assertThat(mealPlan.getTotalMealPlanCost()).isEqualTo(BigDecimal.ZERO);
+        assertThat(mealPlan.getTotalMealPlanCost()).isEqualTo(Money.ZERO);
     }
 
     /**
@@ -156,7 +156,7 @@ public class MealPlanTest {
                 .add(lunchPerNight.multiply(totalNights))
                 .add(dinnerPerNight.multiply(totalNights));
 
-        assertThat(mealPlan.getTotalMealPlanCost()).isEqualTo(foodExtrasTotal);
+        assertThat(mealPlan.getTotalMealPlanCost()).isEqualTo(Money.of(foodExtrasTotal));
     }
 
     /**
@@ -167,14 +167,14 @@ public class MealPlanTest {
         Guest guest = new Guest("john", "smith", true);
         Reservation reservation = new Reservation();
 
-        BigDecimal totalNights = BigDecimal.valueOf(3);
+        long totalNights = 3;
         reservation.getDates().setCheckInDate(LocalDate.of(2018, 1, 1));
         reservation.getDates().setCheckOutDate(LocalDate.of(2018, 1, 4));
 
         // Adult prices form the base price, if guest is a child then discount is applied.
-        BigDecimal breakfastPerNight = new BigDecimal("2.00");
-        BigDecimal lunchPerNight = new BigDecimal("4.12");
-        BigDecimal dinnerPerNight = new BigDecimal("5.63");
+        Money breakfastPerNight = Money.of("2.00");
+        Money lunchPerNight = Money.of("4.12");
+        Money dinnerPerNight = Money.of("5.63");
         List<Extra> foodExtras = List.of(
                 new Extra("Breakfast", breakfastPerNight, Extra.Type.Basic, Extra.Category.Food),
                 new Extra("Lunch", lunchPerNight, Extra.Type.Basic, Extra.Category.Food),
@@ -182,26 +182,40 @@ public class MealPlanTest {
         );
 
         // apply discount to breakfast for the total night duration
-        BigDecimal breakFastDiscount = breakfastPerNight.multiply(totalNights)
-                .multiply(BigDecimal.valueOf(MealPlan.CHILD_DISCOUNT_PERCENT));
-        BigDecimal breakFastTotal = breakfastPerNight.multiply(totalNights).subtract(breakFastDiscount);
+        Money breakFastDiscount = breakfastPerNight.times(totalNights).percent(MealPlan.CHILD_DISCOUNT_PERCENT);
+        Money breakFastTotal = breakfastPerNight.times(totalNights).minus(breakFastDiscount);
 
         // apply discount to lunch for the total night duration
-        BigDecimal lunchPerNightDiscount = lunchPerNight.multiply(totalNights)
-                .multiply(BigDecimal.valueOf(MealPlan.CHILD_DISCOUNT_PERCENT));
-        BigDecimal lunchTotal = lunchPerNight.multiply(totalNights).subtract(lunchPerNightDiscount);
+        Money lunchPerNightDiscount = lunchPerNight.times(totalNights).percent(MealPlan.CHILD_DISCOUNT_PERCENT);
+        Money lunchTotal = lunchPerNight.times(totalNights).minus(lunchPerNightDiscount);
 
         // apply discount to dinner for the total night duration
-        BigDecimal dinnerPerNightDiscount = dinnerPerNight.multiply(totalNights)
-                .multiply(BigDecimal.valueOf(MealPlan.CHILD_DISCOUNT_PERCENT));
-        BigDecimal dinnerTotal = dinnerPerNight.multiply(totalNights).subtract(dinnerPerNightDiscount);
+        Money dinnerPerNightDiscount = dinnerPerNight.times(totalNights).percent(MealPlan.CHILD_DISCOUNT_PERCENT);
+        Money dinnerTotal = dinnerPerNight.times(totalNights).minus(dinnerPerNightDiscount);
 
         MealPlan mealPlan = new MealPlan(guest, reservation, foodExtras, List.of());
 
-        BigDecimal foodExtrasTotal = breakFastTotal.add(lunchTotal).add(dinnerTotal);
+        Money foodExtrasTotal = breakFastTotal.plus(lunchTotal).plus(dinnerTotal);
         assertThat(mealPlan.getTotalMealPlanCost()).isEqualTo(foodExtrasTotal);
     }
 
+    /**
+     * Each discounted extra is rounded to the cent, $16.89 less a 60% discount of $10.13 leaves $6.76.
+     */
+    @Test
+    public void calculateExtraCost_Child_DiscountRoundedToCent() {
+        Guest guest = new Guest("john", "smith", true);
+        Reservation reservation = new Reservation();
+
+        reservation.getDates().setCheckInDate(LocalDate.of(2018, 1, 1));
+        reservation.getDates().setCheckOutDate(LocalDate.of(2018, 1, 4));
+
+        MealPlan mealPlan = new MealPlan(guest, reservation, List.of(), List.of());
+        Extra dinner = new Extra("Dinner", Money.of("5.63"), Extra.Type.Basic, Extra.Category.Food);
+
+        assertThat(mealPlan.calculateExtraCost(dinner)).isEqualTo(Money.of("6.76"));
+    }
+
     @Test
     public void calculateExtraCost_InvalidExtraCategory_ThrowsException() {
         Guest guest = new Guest("john", "smith", false);
@@ -235,7 +249,7 @@ public class MealPlanTest {
         BigDecimal expectedExtraCost = breakfastPerNight.multiply(totalNights);
         Extra extra = new Extra("Breakfast", breakfastPerNight, Extra.Type.Basic, Extra.Category.Food);
 
-        assertThat(mealPlan.calculateExtraCost(extra)).isEqualTo(expectedExtraCost);
+        assertThat(mealPlan.calculateExtraCost(extra)).isEqualTo(Money.of(expectedExtraCost));
     }
 
     @Test
@@ -253,8 +267,8 @@ public class MealPlanTest {
         MealPlan mealPlan = new MealPlan(guest, reservation, List.of(), List.of());
 
         BigDecimal discount = breakfastPerNight.multiply(totalNights)
-                .multiply(BigDecimal.valueOf(MealPlan.CHILD_DISCOUNT_PERCENT));
-        BigDecimal expectedTotal = breakfastPerNight.multiply(totalNights).subtract(discount);
+                .multiply(BigDecimal.valueOf(MealPlan.CHILD_DISCOUNT_PERCENT, 2));
+        Money expectedTotal = Money.of(breakfastPerNight.multiply(totalNights).subtract(discount));
 
         Extra extra = new Extra("Breakfast", breakfastPerNight, Extra.Type.Basic, Extra.Category.Food);
 
@@ -0,0 +1,65 @@
+package com.demo.domain;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class MoneyTest {
+
+    @Test
+    public void of_RoundsHalfUpToTheCent() {
+        assertThat(Money.of("12.344").getMinorUnits()).isEqualTo(1234);
+        assertThat(Money.of("12.345").getMinorUnits()).isEqualTo(1235);
+        assertThat(Money.of("-12.345").getMinorUnits()).isEqualTo(-1235);
+        assertThat(Money.of(BigDecimal.valueOf(45.6)).getMinorUnits()).isEqualTo(4560);
+    }
+
+    @Test
+    public void percentOf_RoundsHalfUpAwayFromZero() {
+        // 10% of $0.05 is half a cent
+        assertThat(Money.percentOf(5, 10)).isEqualTo(1);
+        assertThat(Money.percentOf(4, 10)).isEqualTo(0);
+        assertThat(Money.percentOf(-5, 10)).isEqualTo(-1);
+        assertThat(Money.percentOf(1689, 60)).isEqualTo(1013);
+    }
+
+    @Test
+    public void arithmetic() {
+        Money amount = Money.of("23.80");
+
+        assertThat(amount.times(3)).isEqualTo(Money.of("71.40"));
+        assertThat(amount.plus(Money.of("0.20"))).isEqualTo(Money.of("24.00"));
+        assertThat(amount.minus(amount)).isSameAs(Money.ZERO);
+        assertThat(amount.percent(10)).isEqualTo(Money.of("2.38"));
+    }
+
+    @Test
+    public void times_Overflow_ThrowsException() {
+        assertThatExceptionOfType(ArithmeticException.class)
+                .isThrownBy(() -> Money.ofMinorUnits(Long.MAX_VALUE / 2).times(3));
+    }
+
+    /**
+     * The string form is what the keyset cursor stores, it must parse back to the same amount.
+     */
+    @Test
+    public void toString_ParsesBack() {
+        Money amount = Money.of("105.4");
+
+        assertThat(amount.toString()).isEqualTo("105.40");
+        assertThat(Money.of(amount.toString())).isEqualTo(amount);
+        assertThat(amount.toBigDecimal()).isEqualTo(new BigDecimal("105.40"));
+    }
+
+    @Test
+    public void converter_RoundTrips() {
+        MoneyConverter converter = new MoneyConverter();
+
+        assertThat(converter.convertToDatabaseColumn(Money.of("15.95"))).isEqualTo(new BigDecimal("15.95"));
+        assertThat(converter.convertToEntityAttribute(new BigDecimal("15.950"))).isEqualTo(Money.of("15.95"));
+        assertThat(converter.convertToDatabaseColumn(null)).isNull();
+        assertThat(converter.convertToEntityAttribute(null)).isNull();
+    }
+}
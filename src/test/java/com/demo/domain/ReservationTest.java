@@ -7,12 +7,12 @@ import org.junit.Test;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.*;
-import static org.mockito.Mockito.*;
 
 public class ReservationTest {
 
@@ -214,7 +214,7 @@ public class ReservationTest {
      */
     @Test
     public void getChargeableLateCheckoutFee_WhenLateCheckout_ChargeFee() {
-        BigDecimal lateCheckoutFee = BigDecimal.valueOf(20.50);
+        Money lateCheckoutFee = Money.of("20.50");
 
         Room room = createRoom();
         room.getHotel().setLateCheckoutFee(lateCheckoutFee);
@@ -232,7 +232,7 @@ public class ReservationTest {
      */
     @Test
     public void getChargeableLateCheckoutFee_WhenNoLateCheckout_NoCharge() {
-        BigDecimal lateCheckoutFee = BigDecimal.valueOf(20.50);
+        Money lateCheckoutFee = Money.of("20.50");
 
         Room room = createRoom();
         room.getHotel().setLateCheckoutFee(lateCheckoutFee);
@@ -242,7 +242,7 @@ public class ReservationTest {
         // no late checkout = $0.00
         reservation.getDates().setLateCheckout(false);
 
-        assertThat(reservation.getChargeableLateCheckoutFee()).isEqualTo(BigDecimal.ZERO);
+        assertThat(reservation.getChargeableLateCheckoutFee()).isEqualTo(Money.ZERO);
     }
 
     /**
@@ -251,7 +251,7 @@ public class ReservationTest {
      */
     @Test
     public void getLateCheckoutFee_WhenLuxuryRoomType_NoLateCharge() {
-        BigDecimal lateCheckoutFee = BigDecimal.valueOf(20.50);
+        Money lateCheckoutFee = Money.of("20.50");
 
         Room room = createRoom();
         room.setRoomType(RoomType.Luxury);
@@ -261,7 +261,7 @@ public class ReservationTest {
         reservation.setRoom(room);
         reservation.getDates().setLateCheckout(true);
 
-        assertThat(reservation.getLateCheckoutFee()).isEqualTo(BigDecimal.ZERO);
+        assertThat(reservation.getLateCheckoutFee()).isEqualTo(Money.ZERO);
     }
 
     /**
@@ -270,7 +270,7 @@ public class ReservationTest {
      */
     @Test
     public void getLateCheckoutFee_WhenBusinessRoomType_NoLateCharge() {
-        BigDecimal lateCheckoutFee = BigDecimal.valueOf(20.50);
+        Money lateCheckoutFee = Money.of("20.50");
 
         Room room = createRoom();
         room.setRoomType(RoomType.Business);
@@ -280,7 +280,7 @@ public class ReservationTest {
         reservation.setRoom(room);
         reservation.getDates().setLateCheckout(true);
 
-        assertThat(reservation.getLateCheckoutFee()).isEqualTo(BigDecimal.ZERO);
+        assertThat(reservation.getLateCheckoutFee()).isEqualTo(Money.ZERO);
     }
 
     /**
@@ -288,7 +288,7 @@ public class ReservationTest {
      */
     @Test
     public void getLateCheckoutFee_WhenEconomyRoomType_ApplyLateCharge() {
-        BigDecimal lateCheckoutFee = BigDecimal.valueOf(20.50);
+        Money lateCheckoutFee = Money.of("20.50");
 
         Room room = createRoom();
         room.setRoomType(RoomType.Economy);
@@ -306,7 +306,7 @@ public class ReservationTest {
      */
     @Test
     public void getLateCheckoutFee_WhenBalconyRoomType_ApplyLateCharge() {
-        BigDecimal lateCheckoutFee = BigDecimal.valueOf(20.50);
+        Money lateCheckoutFee = Money.of("20.50");
 
         Room room = createRoom();
         room.setRoomType(RoomType.Balcony);
@@ -328,9 +328,9 @@ public class ReservationTest {
     public void getTotalRoomCost_ZeroNights_NoCost() {
         Room room = createRoom();
         room.setRoomType(RoomType.Economy);
-        room.getHotel().setLateCheckoutFee(BigDecimal.valueOf(20.50));
+        room.getHotel().setLateCheckoutFee(Money.of("20.50"));
 
-        BigDecimal costPerNight = BigDecimal.valueOf(23.80);
+        Money costPerNight = Money.of("23.80");
         room.setCostPerNight(costPerNight);
 
         Reservation reservation = new Reservation();
@@ -339,7 +339,7 @@ public class ReservationTest {
         reservation.getDates().setCheckInDate(LocalDate.of(2018, 1, 1));
         reservation.getDates().setCheckOutDate(LocalDate.of(2018, 1, 1));
 
-        assertThat(reservation.getTotalRoomCost()).isEqualTo(BigDecimal.ZERO);
+        assertThat(reservation.getTotalRoomCost()).isEqualTo(Money.ZERO);
     }
 
     /**
@@ -349,9 +349,9 @@ public class ReservationTest {
     public void getTotalRoomCost_CalculatesCorrectCost() {
         Room room = createRoom();
         room.setRoomType(RoomType.Economy);
-        room.getHotel().setLateCheckoutFee(BigDecimal.valueOf(20.50));
+        room.getHotel().setLateCheckoutFee(Money.of("20.50"));
 
-        BigDecimal costPerNight = BigDecimal.valueOf(23.80);
+        Money costPerNight = Money.of("23.80");
         room.setCostPerNight(costPerNight);
 
         Reservation reservation = new Reservation();
@@ -361,7 +361,7 @@ public class ReservationTest {
         reservation.getDates().setCheckOutDate(LocalDate.of(2018, 1, 4));
 
         // expected cost for 3 nights, note how no late fee is considered for this calculation.
-        BigDecimal expectedCost = costPerNight.multiply(BigDecimal.valueOf(3));
+        Money expectedCost = costPerNight.times(3);
 
         assertThat(reservation.getTotalRoomCost()).isEqualTo(expectedCost);
     }
@@ -374,9 +374,9 @@ public class ReservationTest {
     public void getTotalRoomCostWithLateCheckoutFee_NoCheckoutFee_RoomCostOnly() {
         Room room = createRoom();
         room.setRoomType(RoomType.Economy);
-        room.getHotel().setLateCheckoutFee(BigDecimal.valueOf(20.50));
+        room.getHotel().setLateCheckoutFee(Money.of("20.50"));
 
-        BigDecimal costPerNight = BigDecimal.valueOf(23.80);
+        Money costPerNight = Money.of("23.80");
         room.setCostPerNight(costPerNight);
 
         Reservation reservation = new Reservation();
@@ -387,7 +387,7 @@ public class ReservationTest {
         reservation.getDates().setCheckOutDate(LocalDate.of(2018, 1, 4));
 
         // expected cost for 3 nights
-        BigDecimal expectedCost = costPerNight.multiply(BigDecimal.valueOf(3));
+        Money expectedCost = costPerNight.times(3);
 
         assertThat(reservation.getTotalRoomCostWithLateCheckoutFee()).isEqualTo(expectedCost);
     }
@@ -400,10 +400,10 @@ public class ReservationTest {
     public void getTotalRoomCostWithLateCheckoutFee_WithLateCheckoutFee_CorrectCost() {
         Room room = createRoom();
         room.setRoomType(RoomType.Economy);
-        BigDecimal lateCheckoutFee = BigDecimal.valueOf(20.50);
+        Money lateCheckoutFee = Money.of("20.50");
         room.getHotel().setLateCheckoutFee(lateCheckoutFee);
 
-        BigDecimal costPerNight = BigDecimal.valueOf(23.80);
+        Money costPerNight = Money.of("23.80");
         room.setCostPerNight(costPerNight);
 
         Reservation reservation = new Reservation();
@@ -414,7 +414,7 @@ public class ReservationTest {
         reservation.getDates().setCheckOutDate(LocalDate.of(2018, 1, 4));
 
         // expected cost for 3 nights + late fee
-        BigDecimal expectedCost = costPerNight.multiply(BigDecimal.valueOf(3)).add(lateCheckoutFee);
+        Money expectedCost = costPerNight.times(3).plus(lateCheckoutFee);
 
         assertThat(reservation.getTotalRoomCostWithLateCheckoutFee()).isEqualTo(expectedCost);
     }
@@ -431,7 +431,7 @@ public class ReservationTest {
         reservation.getDates().setCheckInDate(LocalDate.of(2018, 1, 1));
         reservation.getDates().setCheckOutDate(LocalDate.of(2018, 1, 4));
 
-        assertThat(reservation.getTotalGeneralExtrasCost()).isEqualTo(BigDecimal.ZERO);
+        assertThat(reservation.getTotalGeneralExtrasCost()).isEqualTo(Money.ZERO);
     }
 
     /**
@@ -440,7 +440,7 @@ public class ReservationTest {
      */
     @Test
     public void getTotalGeneralExtrasCost() {
-        BigDecimal nights = BigDecimal.valueOf(3);
+        long nights = 3;
 
         // Sum the result of each extras daily price multiplied by total nights.
         // Eg: (Extra "a" 1.20 * 3) + (Extra "b" 3.80 * 3).
@@ -455,8 +455,8 @@ public class ReservationTest {
         reservation.getDates().setCheckInDate(LocalDate.of(2018, 1, 1));
         reservation.getDates().setCheckOutDate(LocalDate.of(2018, 1, 4));
 
-        BigDecimal expectedSum = BigDecimal.valueOf(1.20).multiply(nights)
-                .add(BigDecimal.valueOf(3.80).multiply(nights));
+        Money expectedSum = Money.of("1.20").times(nights)
+                .plus(Money.of("3.80").times(nights));
 
         assertThat(reservation.getTotalGeneralExtrasCost()).isEqualTo(expectedSum);
     }
@@ -467,7 +467,7 @@ public class ReservationTest {
     @Test
     public void getTotalMealPlansCost_NoMealPlans() {
         Reservation reservation = new Reservation();
-        assertThat(reservation.getTotalMealPlansCost()).isEqualTo(BigDecimal.ZERO);
+        assertThat(reservation.getTotalMealPlansCost()).isEqualTo(Money.ZERO);
     }
 
     /**
@@ -478,7 +478,7 @@ public class ReservationTest {
     public void getTotalMealPlansCost() {
         Reservation reservation = new Reservation();
 
-        BigDecimal nights = BigDecimal.valueOf(3);
+        long nights = 3;
         reservation.getDates().setCheckInDate(LocalDate.of(2018, 1, 1));
         reservation.getDates().setCheckOutDate(LocalDate.of(2018, 1, 4));
 
@@ -492,9 +492,9 @@ public class ReservationTest {
                 new Guest("john", "smith", false),
                 reservation, foodExtrasPlan1, List.of());
 
-        BigDecimal expectedMealPlan1Cost = BigDecimal.valueOf(2.00).multiply(nights)
-                .add(BigDecimal.valueOf(4.12).multiply(nights))
-                .add(BigDecimal.valueOf(5.63).multiply(nights));
+        Money expectedMealPlan1Cost = Money.of("2.00").times(nights)
+                .plus(Money.of("4.12").times(nights))
+                .plus(Money.of("5.63").times(nights));
 
         // Meal plan 2 calculation
         List<Extra> foodExtrasPlan2 = List.of(
@@ -504,9 +504,9 @@ public class ReservationTest {
                 new Guest("sally", "smith", false),
                 reservation, foodExtrasPlan2, List.of());
 
-        BigDecimal expectedMealPlan2Cost = BigDecimal.valueOf(5.24).multiply(nights);
+        Money expectedMealPlan2Cost = Money.of("5.24").times(nights);
 
-        BigDecimal expectedCost = expectedMealPlan1Cost.add(expectedMealPlan2Cost);
+        Money expectedCost = expectedMealPlan1Cost.plus(expectedMealPlan2Cost);
 
         reservation.setMealPlans(List.of(mealPlan1, mealPlan2));
 
@@ -514,27 +514,41 @@ public class ReservationTest {
     }
 
     /**
-     * Ensure that the total cost is calculated by including all the correct sub totals.
+     * 3 nights in an economy room at $20.00 with late checkout, a $1.50 general extra and a $2.00 breakfast.
      */
-    @Test
-    public void getTotalCostExcludingTax() {
-        Reservation reservation = mock(Reservation.class);
+    private Reservation createPricedReservation() {
+        Room room = createRoom();
+        room.setCostPerNight(Money.of("20.00"));
+        room.getHotel().setLateCheckoutFee(Money.of("5.00"));
 
-        // mock the sub totals
-        when(reservation.getTotalRoomCostWithLateCheckoutFee()).thenReturn(BigDecimal.valueOf(5));
-        when(reservation.getTotalGeneralExtrasCost()).thenReturn(BigDecimal.valueOf(6));
-        when(reservation.getTotalMealPlansCost()).thenReturn(BigDecimal.valueOf(7));
+        Reservation reservation = new Reservation();
+        reservation.setRoom(room);
+        reservation.setDates(new ReservationDates(LocalDate.of(2018, 1, 1), LocalDate.of(2018, 1, 4),
+                LocalTime.of(12, 0), true, true));
+        reservation.setGeneralExtras(Set.of(
+                new Extra("Foxtel", new BigDecimal("1.50"), Extra.Type.Basic, Extra.Category.General)));
 
-        // then call the real method
-        when(reservation.getTotalCostExcludingTax()).thenCallRealMethod();
+        Guest guest = new Guest("john", "smith", false);
+        reservation.addGuest(guest);
+        reservation.createMealPlans();
+        reservation.getMealPlans().get(0).setFoodExtras(List.of(
+                new Extra("Breakfast", new BigDecimal("2.00"), Extra.Type.Basic, Extra.Category.Food)));
+        return reservation;
+    }
 
-        // then hope the real method sums everything up correctly
-        assertThat(reservation.getTotalCostExcludingTax()).isEqualTo(BigDecimal.valueOf(18));
+    /**
+     * Ensure that the total cost is calculated by including all the correct sub totals.
+     */
+    @Test
+    public void getTotalCostExcludingTax() {
+        Reservation reservation = createPricedReservation();
 
-        // by actually calling the correct methods!
-        verify(reservation, times(1)).getTotalRoomCostWithLateCheckoutFee();
-        verify(reservation, times(1)).getTotalGeneralExtrasCost();
-        verify(reservation, times(1)).getTotalMealPlansCost();
+        // 60.00 room + 5.00 late checkout + 4.50 extras + 6.00 meals
+        assertThat(reservation.getTotalCostExcludingTax()).isEqualTo(Money.of("75.50"));
+        assertThat(reservation.getTotalCostExcludingTax()).isEqualTo(
+                reservation.getTotalRoomCostWithLateCheckoutFee()
+                        .plus(reservation.getTotalGeneralExtrasCost())
+                        .plus(reservation.getTotalMealPlansCost()));
     }
 
     /**
@@ -542,45 +556,75 @@ public class ReservationTest {
      */
     @Test
     public void getTaxableAmount() {
-        Reservation reservation = mock(Reservation.class);
-        // the method under test should not be mocked.
-        when(reservation.getTaxableAmount()).thenCallRealMethod();
-
-        // mock the total cost without tax
-        BigDecimal total = BigDecimal.valueOf(100);
-        when(reservation.getTotalCostExcludingTax()).thenReturn(total);
+        Reservation reservation = createPricedReservation();
 
-        // then apply the tax
-        BigDecimal taxableAmount = total.multiply(BigDecimal.valueOf(Reservation.TAX_AMOUNT));
+        Money taxableAmount = reservation.getTotalCostExcludingTax()
+                .percent(Reservation.TAX_PERCENT);
         assertThat(reservation.getTaxableAmount()).isEqualTo(taxableAmount);
-
-        // and make sure getTaxableAmount calls the correct method to base the tax amount off.
-        verify(reservation, times(1)).getTotalCostExcludingTax();
+        assertThat(reservation.getTaxableAmount()).isEqualTo(Money.of("7.55"));
     }
 
     @Test
     public void getTotalCostIncludingTax() {
-        Reservation reservation = mock(Reservation.class);
-        // the method under test should not be mocked.
-        when(reservation.getTotalCostIncludingTax()).thenCallRealMethod();
+        Reservation reservation = createPricedReservation();
+
+        assertThat(reservation.getTotalCostIncludingTax())
+                .isEqualTo(reservation.getTotalCostExcludingTax().plus(reservation.getTaxableAmount()));
+        assertThat(reservation.getTotalCostIncludingTax()).isEqualTo(Money.of("83.05"));
+    }
+
+    /**
+     * Rendering the summary reads many totals, they should all come from the one quote.
+     */
+    @Test
+    public void getPriceQuote_NoChanges_SameQuote() {
+        Reservation reservation = createPricedReservation();
+
+        PriceQuote quote = reservation.getPriceQuote();
+
+        assertThat(reservation.getPriceQuote()).isSameAs(quote);
+        assertThat(reservation.getTotalCostIncludingTax()).isSameAs(quote.getCostIncludingTax());
+        assertThat(reservation.hasEmptyMealPlans()).isFalse();
+        assertThat(reservation.getPriceQuote()).isSameAs(quote);
+    }
 
-        // the total cost without tax
-        BigDecimal totalExcludingTax = BigDecimal.valueOf(121.60);
-        when(reservation.getTotalCostExcludingTax()).thenReturn(totalExcludingTax);
+    @Test
+    public void getPriceQuote_DatesChanged_Requoted() {
+        Reservation reservation = createPricedReservation();
+        PriceQuote quote = reservation.getPriceQuote();
 
-        // + the taxable amount derived from getTotalCostExcludingTax
-        BigDecimal taxableAmount = BigDecimal.valueOf(20.60);
-        when(reservation.getTaxableAmount()).thenReturn(taxableAmount);
+        reservation.getDates().setCheckOutDate(LocalDate.of(2018, 1, 3));
 
-        // should equal the total cost including tax!
-        assertThat(reservation.getTotalCostIncludingTax())
-                .isEqualTo(totalExcludingTax.add(taxableAmount));
+        PriceQuote requoted = reservation.getPriceQuote();
+        assertThat(requoted).isNotSameAs(quote);
+        assertThat(requoted.getRoomCost()).isEqualTo(Money.of("40.00"));
+        assertThat(requoted.getMealPlansCost()).isEqualTo(Money.of("4.00"));
+
+        reservation.getDates().setLateCheckout(false);
+        assertThat(reservation.getPriceQuote().getLateCheckoutFee()).isEqualTo(Money.ZERO);
+    }
+
+    @Test
+    public void getPriceQuote_ExtrasChanged_Requoted() {
+        Reservation reservation = createPricedReservation();
+        PriceQuote quote = reservation.getPriceQuote();
+
+        reservation.setGeneralExtras(Set.of());
 
-        // with the method under test calling the correct sub total methods to calculate the result
-        verify(reservation, times(1)).getTotalCostExcludingTax();
-        verify(reservation, times(1)).getTaxableAmount();
+        assertThat(reservation.getPriceQuote()).isNotSameAs(quote);
+        assertThat(reservation.getTotalGeneralExtrasCost()).isEqualTo(Money.ZERO);
     }
 
+    @Test
+    public void getPriceQuote_MealPlanChanged_Requoted() {
+        Reservation reservation = createPricedReservation();
+        PriceQuote quote = reservation.getPriceQuote();
+
+        reservation.getMealPlans().get(0).setFoodExtras(List.of());
+
+        assertThat(reservation.getPriceQuote()).isNotSameAs(quote);
+        assertThat(reservation.hasEmptyMealPlans()).isTrue();
+    }
 
     /**
      * Reservation.mealPlans should contain a list of {@code MealPlan}s created for each {@code Guest}.
@@ -0,0 +1,198 @@
+package com.demo.generator;
+
+import com.demo.domain.Extra;
+import com.demo.domain.Hotel;
+import com.demo.domain.HotelsImportedEvent;
+import com.demo.domain.Money;
+import com.demo.domain.Reservation;
+import com.demo.domain.RoomType;
+import com.demo.domain.location.Address;
+import com.demo.domain.location.Postcode;
+import com.demo.domain.location.State;
+import com.demo.persistance.HotelRepository;
+import com.demo.persistance.RoomNightRepository;
+import com.demo.persistance.RoomRepository;
+import com.demo.reservation.ExtraRepository;
+import com.demo.reservation.ReservationRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.jdbc.JdbcTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * The generator commits its own transactions so the test does not wrap each test in one. Chunks of 5 hotels written
+ * by 2 threads in batches of 7 rows make even this small dataset go through several chunks and batches.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class DatasetGeneratorTest {
+    private static final LocalDate HISTORY_END = LocalDate.of(2018, 6, 30);
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ExtraRepository extraRepository;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    @Autowired
+    private RoomNightRepository roomNightRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    private ApplicationEventPublisher eventPublisher;
+    private DatasetGenerator generator;
+
+    @Before
+    public void setup() {
+        extraRepository.save(new Extra("Breakfast", Money.of("2.00"), Extra.Type.Basic, Extra.Category.Food));
+        extraRepository.save(new Extra("Dinner", Money.of("5.60"), Extra.Type.Basic, Extra.Category.Food));
+        extraRepository.save(new Extra("Laundry", Money.of("2.50"), Extra.Type.Basic, Extra.Category.General));
+        extraRepository.save(new Extra("Breakfast", Money.of("1.50"), Extra.Type.Premium, Extra.Category.Food));
+
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        generator = new DatasetGenerator(dataSource, transactionManager, entityManagerFactory, extraRepository,
+                eventPublisher, 5, 7, 2, Duration.ofSeconds(10));
+    }
+
+    @After
+    public void teardown() {
+        JdbcTestUtils.deleteFromTables(new JdbcTemplate(dataSource), "room_night", "meal_plan_dietary_requirements",
+                "meal_plan_food_extras", "meal_plan", "reservation_general_extras", "reservation_guests",
+                "reservation", "guest", "completed_payment", "room", "hotel", "extra");
+    }
+
+    private static DatasetSpec spec(long seed, int hotels) {
+        return new DatasetSpec(seed, hotels, 2, 4, DatasetSpec.parseRoomTypeMix("Economy:2,Luxury:1"), 20, 0.5,
+                HISTORY_END);
+    }
+
+    @Test
+    public void generate_PlannedRowsWritten() {
+        DatasetReport report = generator.generate(spec(7, 12));
+
+        assertThat(report.isComplete()).isTrue();
+        assertThat(report.getHotels()).isEqualTo(12);
+        assertThat(report.getRooms()).isBetween(24L, 48L);
+        assertThat(report.getReservations()).isPositive();
+        assertThat(hotelRepository.count()).isEqualTo(12);
+        assertThat(roomRepository.count()).isEqualTo(report.getRooms());
+        assertThat(reservationRepository.count()).isEqualTo(report.getReservations());
+        assertThat(roomNightRepository.count()).isEqualTo(report.getRoomNights());
+
+        List<Hotel> hotels = StreamSupport.stream(hotelRepository.findAll().spliterator(), false)
+                .collect(Collectors.toList());
+        assertThat(hotels).extracting(hotel -> hotel.getAddress().getState()).contains(State.values());
+        assertThat(hotels).allSatisfy(hotel -> assertThat(hotel.getSearchSuburb())
+                .isEqualTo(Hotel.normalizeSearchTerm(hotel.getAddress().getSuburb())));
+        verify(eventPublisher).publishEvent(any(HotelsImportedEvent.class));
+    }
+
+    /**
+     * Generated reservations load like booked ones, with a meal plan per guest and nights before the history end.
+     */
+    @Test
+    public void generate_ReservationsLoadAsEntities() {
+        generator.generate(spec(7, 3));
+
+        new TransactionTemplate(transactionManager).execute(status -> {
+            for (Reservation reservation : reservationRepository.findAll()) {
+                assertThat(reservation.getGuests()).isNotEmpty();
+                assertThat(reservation.getGuests().size()).isLessThanOrEqualTo(reservation.getRoom().getBeds());
+                assertThat(reservation.getMealPlans()).hasSameSizeAs(reservation.getGuests());
+                assertThat(reservation.getCompletedPayment().getCardExpiry()).isNotNull();
+                assertThat(reservation.getDates().getCheckOutDate()).isBeforeOrEqualTo(HISTORY_END);
+                assertThat(reservation.getGeneralExtras()).allSatisfy(extra ->
+                        assertThat(extra.getType()).isEqualTo(reservation.getExtraPricingType()));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Ids come from the same sequence blocks hibernate uses, so saving through the repository afterwards does not
+     * collide with generated rows.
+     */
+    @Test
+    public void generate_RepositorySavesAfterwards() {
+        generator.generate(spec(7, 6));
+
+        Hotel hotel = hotelRepository.save(new Hotel("Saved", new Address("Saved", "1 road", null, State.VIC,
+                "Melbourne", new Postcode("3000")), 3, "saved@hotel.com"));
+
+        assertThat(hotelRepository.count()).isEqualTo(7);
+        assertThat(hotelRepository.findById(hotel.getId())).isPresent();
+    }
+
+    @Test
+    public void plan_SameSeed_SameHotels() {
+        Map<Extra.Type, List<Long>> extras = new EnumMap<>(Extra.Type.class);
+        extras.put(Extra.Type.Basic, List.of(1L, 2L));
+        DatasetPlanner planner = new DatasetPlanner(spec(7, 20), extras, extras);
+        DatasetPlanner replanned = new DatasetPlanner(spec(7, 20), extras, extras);
+        DatasetPlanner reseeded = new DatasetPlanner(spec(8, 20), extras, extras);
+
+        // planned in reverse, as another thread or a smaller run would
+        List<String> hotels = IntStream.range(0, 20).mapToObj(i -> describe(planner.plan(i)))
+                .collect(Collectors.toList());
+        List<String> replannedHotels = IntStream.range(0, 20).mapToObj(i -> describe(replanned.plan(19 - i)))
+                .collect(Collectors.toList());
+        Collections.reverse(replannedHotels);
+
+        assertThat(replannedHotels).isEqualTo(hotels);
+        assertThat(describe(reseeded.plan(10))).isNotEqualTo(hotels.get(10));
+        assertThat(planner.plan(0).rooms).extracting(room -> room.roomType)
+                .containsOnly(RoomType.Economy, RoomType.Luxury);
+    }
+
+    private static String describe(HotelPlan hotel) {
+        return hotel.name + " " + hotel.state + " " + hotel.suburb + " " + hotel.postcode + " " + hotel.rooms.stream()
+                .map(room -> room.roomNumber + " " + room.roomType + " " + room.costPerNight + " " + room.stays.stream()
+                        .map(stay -> stay.reservationId + " " + stay.checkInDate + " " + stay.checkOutDate + " "
+                                + stay.guests.stream()
+                                .map(guest -> guest.firstName + " " + guest.lastName + " " + guest.foodExtras)
+                                .collect(Collectors.joining(",")))
+                        .collect(Collectors.joining(";")))
+                .collect(Collectors.joining("|"));
+    }
+}
@@ -0,0 +1,105 @@
+package com.demo.hotel;
+
+import com.demo.domain.Hotel;
+import com.demo.domain.Room;
+import com.demo.domain.RoomType;
+import com.demo.domain.location.Address;
+import com.demo.domain.location.Postcode;
+import com.demo.domain.location.State;
+import com.demo.persistance.HotelRepository;
+import com.demo.persistance.budget.SqlStatementCounter;
+import com.demo.persistance.projections.HotelHeader;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Counts the statements of rendering the available rooms page against the real database. The budget filter is left
+ * out so the whole request, including the view, is counted here.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "outbox.dispatch-interval-millis=3600000")
+@AutoConfigureMockMvc(addFilters = false)
+public class HotelRoomsStatementCountTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    private Hotel hotel;
+
+    @Before
+    public void setup() {
+        hotel = hotelRepository.save(hotel("Hotel Counted", 5));
+    }
+
+    private static Hotel hotel(String name, int rooms) {
+        Hotel hotel = new Hotel(name,
+                new Address(name, "1 counted street", null, State.VIC, "Melbourne", new Postcode("3000")),
+                3, "counted@hotel.com");
+        for (int i = 0; i < rooms; i++) {
+            hotel.addRoom(new Room(UUID.randomUUID().toString(), RoomType.Economy, 2, BigDecimal.valueOf(100)));
+        }
+        return hotel;
+    }
+
+    /**
+     * @return The statements of rendering the page, which must show the hotel.
+     */
+    private SqlStatementCounter.Statements render(MockHttpServletRequestBuilder request) throws Exception {
+        SqlStatementCounter.start();
+        MvcResult result = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn();
+        SqlStatementCounter.Statements statements = SqlStatementCounter.stop();
+
+        HotelHeader header = (HotelHeader) result.getModelAndView().getModel().get("hotel");
+        assertThat(header.getId()).isEqualTo(hotel.getId());
+        return statements;
+    }
+
+    @Test
+    public void getHotelRooms_Page_OneSelect() throws Exception {
+        SqlStatementCounter.Statements statements = render(get("/hotel/{id}/rooms", hotel.getId())
+                .param("size", "20"));
+
+        assertThat(statements.getCount()).as("%s", statements.getSql()).isEqualTo(1);
+    }
+
+    @Test
+    public void getHotelRooms_KeysetPage_OneSelect() throws Exception {
+        SqlStatementCounter.Statements statements = render(get("/hotel/{id}/rooms", hotel.getId())
+                .param("mode", "keyset")
+                .param("size", "2"));
+
+        assertThat(statements.getCount()).as("%s", statements.getSql()).isEqualTo(1);
+    }
+
+    /**
+     * Only a hotel without any available room has its header selected on its own.
+     */
+    @Test
+    public void getHotelRooms_NoRoomsAvailable_HotelSelected() throws Exception {
+        hotel = hotelRepository.save(hotel("Hotel Full", 0));
+
+        SqlStatementCounter.Statements statements = render(get("/hotel/{id}/rooms", hotel.getId()));
+
+        assertThat(statements.getCount()).as("%s", statements.getSql()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,160 @@
+package com.demo.hotel;
+
+import com.demo.availability.RoomBookedEvent;
+import com.demo.domain.HotelChangedEvent;
+import com.demo.domain.location.State;
+import com.demo.persistance.ListingRepository;
+import com.demo.persistance.projections.HotelListing;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+public class HotelSearchCacheTest {
+
+    private static final Pageable FIRST_PAGE = PageRequest.of(0, 20, Sort.by("name"));
+
+    private ListingRepository listingRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private HotelSearchCache cache;
+
+    private HotelListing royal;
+
+    @Before
+    public void setup() {
+        listingRepository = mock(ListingRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new HotelSearchCache(listingRepository, meterRegistry, 100, 300);
+
+        royal = new HotelListing(1L, "Hotel Royal", 5, State.VIC, "Melbourne", "3000");
+
+        when(listingRepository.findHotelsByLocation(eq("VIC"), any(), any(), any(Pageable.class)))
+                .thenAnswer(invocation -> new PageImpl<>(List.of(royal), invocation.getArgument(3), 1));
+        when(listingRepository.findHotelsByLocation(eq("NSW"), any(), any(), any(Pageable.class)))
+                .thenAnswer(invocation -> new PageImpl<>(List.of(), invocation.getArgument(3), 0));
+    }
+
+    private Page<HotelListing> search(String state) {
+        return cache.findHotelsByLocation(state, null, null, FIRST_PAGE);
+    }
+
+    @Test
+    public void findHotelsByLocation_SameSearch_LoadsOnce() {
+        Page<HotelListing> first = search("VIC");
+        Page<HotelListing> second = cache.findHotelsByLocation(" vic ", "", null,
+                PageRequest.of(0, 20, Sort.by("name")));
+
+        assertThat(second).isSameAs(first);
+        verify(listingRepository, times(1)).findHotelsByLocation(eq("VIC"), isNull(), isNull(), eq(FIRST_PAGE));
+        assertThat(meterRegistry.get("hotel.search.cache.hit.ratio").gauge().value()).isEqualTo(0.5);
+    }
+
+    @Test
+    public void findHotelsByLocation_DifferentPageOrSort_LoadsSeparately() {
+        search("VIC");
+        cache.findHotelsByLocation("VIC", null, null, PageRequest.of(1, 20, Sort.by("name")));
+        cache.findHotelsByLocation("VIC", null, null, PageRequest.of(0, 20, Sort.by("stars")));
+
+        verify(listingRepository, times(3)).findHotelsByLocation(eq("VIC"), isNull(), isNull(), any(Pageable.class));
+        assertThat(cache.size()).isEqualTo(3);
+    }
+
+    /**
+     * A new hotel in NSW must appear in NSW searches but leaves the VIC searches cached.
+     */
+    @Test
+    public void onHotelChanged_MatchingLocation_InvalidatesOnlyThoseSearches() {
+        search("VIC");
+        search("NSW");
+
+        cache.onHotelChanged(new HotelChangedEvent(2L, "Hotel Ryde", "NSW", "North Ryde", "2800"));
+        search("VIC");
+        search("NSW");
+
+        verify(listingRepository, times(1)).findHotelsByLocation(eq("VIC"), any(), any(), any(Pageable.class));
+        verify(listingRepository, times(2)).findHotelsByLocation(eq("NSW"), any(), any(), any(Pageable.class));
+    }
+
+    /**
+     * A hotel leaving a location changes the later pages and total of that search even where it is not listed.
+     */
+    @Test
+    public void onHotelChanged_MovedAway_InvalidatesPreviousLocation() {
+        search("NSW");
+
+        cache.onHotelChanged(new HotelChangedEvent(3L, "Hotel Gamma", "QLD", "Brisbane", "4000",
+                "NSW", "NORTH RYDE", "2800"));
+        search("NSW");
+
+        verify(listingRepository, times(2)).findHotelsByLocation(eq("NSW"), any(), any(), any(Pageable.class));
+    }
+
+    @Test
+    public void onRoomBooked_InvalidatesOnlySearchesListingTheHotel() {
+        search("VIC");
+        search("NSW");
+
+        cache.onRoomBooked(new RoomBookedEvent(UUID.randomUUID(), 10L, royal.getId(),
+                LocalDate.of(2030, 1, 1), LocalDate.of(2030, 1, 2)));
+        search("VIC");
+        search("NSW");
+
+        verify(listingRepository, times(2)).findHotelsByLocation(eq("VIC"), any(), any(), any(Pageable.class));
+        verify(listingRepository, times(1)).findHotelsByLocation(eq("NSW"), any(), any(), any(Pageable.class));
+    }
+
+    /**
+     * Concurrent misses on a cold key wait for the one load rather than each querying the database.
+     */
+    @Test
+    public void findHotelsByLocation_ConcurrentMisses_SingleLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(listingRepository.findHotelsByLocation(eq("QLD"), any(), any(), any(Pageable.class)))
+                .thenAnswer(invocation -> {
+                    loading.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return new PageImpl<>(List.of(), invocation.getArgument(3), 0);
+                });
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Page<HotelListing>>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> search("QLD")));
+            }
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            release.countDown();
+
+            Page<HotelListing> first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<Page<HotelListing>> result : results) {
+                assertThat(result.get(5, TimeUnit.SECONDS)).isSameAs(first);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(listingRepository, times(1)).findHotelsByLocation(eq("QLD"), any(), any(), any(Pageable.class));
+    }
+}
@@ -1,26 +1,39 @@
 package com.demo.hotel;
 
-import com.demo.domain.Hotel;
-import com.demo.domain.Room;
-import com.demo.domain.location.Address;
-import com.demo.domain.location.Postcode;
+import com.demo.availability.AvailabilityService;
+import com.demo.domain.Money;
+import com.demo.domain.QHotel;
+import com.demo.domain.RoomType;
 import com.demo.domain.location.State;
 import com.demo.persistance.HotelRepository;
-import com.demo.persistance.predicates.RoomPredicates;
-import com.demo.persistance.RoomRepository;
+import com.demo.persistance.ListingRepository;
+import com.demo.persistance.keyset.KeysetQueryExecutor;
+import com.demo.persistance.keyset.KeysetRequest;
+import com.demo.persistance.keyset.KeysetSlice;
+import com.demo.persistance.predicates.SortKeys;
+import com.demo.persistance.projections.HotelHeader;
+import com.demo.persistance.projections.HotelListing;
+import com.demo.persistance.projections.RoomListing;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.hamcrest.FeatureMatcher;
 import org.hamcrest.Matchers;
+import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.*;
 import org.springframework.data.web.config.EnableSpringDataWebSupport;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
 
@@ -37,23 +50,46 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @WebMvcTest(HotelSearchController.class)
 @EnableSpringDataWebSupport
 @ActiveProfiles("test")
+@Import(HotelSearchCache.class)
 public class HotelSearchControllerTest {
 
+    @TestConfiguration
+    static class MetricsConfig {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private HotelSearchCache hotelSearchCache;
+
     @MockBean
     private HotelRepository hotelRepository;
 
     @MockBean
-    private RoomRepository roomRepository;
+    private ListingRepository listingRepository;
+
+    @MockBean
+    private AvailabilityService availabilityService;
+
+    @MockBean
+    private KeysetQueryExecutor keysetQueryExecutor;
+
+    @After
+    public void clearCache() {
+        hotelSearchCache.invalidateAll();
+    }
 
     /**
      * No search results should be returned when no location query parameters are provided.
      */
     @Test
     public void getHotels_NoLocationQueryParams_ReturnsEmptyPageResults() throws Exception {
-        FeatureMatcher<Page<Hotel>, Long> hasExpectedPageResult =
+        FeatureMatcher<Page<HotelListing>, Long> hasExpectedPageResult =
                 mappedAssertion(Page::getTotalElements, Matchers.is(0L));
 
         mockMvc.perform(get("/hotel/search"))
@@ -61,8 +97,8 @@ public class HotelSearchControllerTest {
                 .andExpect(view().name("/hotel/hotels"))
                 .andExpect(model().attribute("hotels", hasExpectedPageResult));
 
-        verify(hotelRepository, times(1))
-                .findAllByLocation(isNull(), isNull(), isNull(), any(Pageable.class));
+        verify(listingRepository, times(1))
+                .findHotelsByLocation(isNull(), isNull(), isNull(), any(Pageable.class));
     }
 
     /**
@@ -70,14 +106,14 @@ public class HotelSearchControllerTest {
      */
     @Test
     public void getHotels_NoHotelsFound_AddsResultsToModel() throws Exception {
-        List<Hotel> hotels = List.of();
-        PageImpl<Hotel> results = new PageImpl<>(hotels, PageRequest.of(0, 20), hotels.size());
+        List<HotelListing> hotels = List.of();
+        PageImpl<HotelListing> results = new PageImpl<>(hotels, PageRequest.of(0, 20), hotels.size());
 
-        when(hotelRepository.findAllByLocation(eq("WA"), isNull(), eq("4000"), any(Pageable.class)))
+        when(listingRepository.findHotelsByLocation(eq("WA"), isNull(), eq("4000"), any(Pageable.class)))
                 .thenReturn(results);
 
         // sanity check to ensure the returned hotels from repository appears in the page content.
-        FeatureMatcher<Page<Hotel>, List<Hotel>> hasExpectedPageResult =
+        FeatureMatcher<Page<HotelListing>, List<HotelListing>> hasExpectedPageResult =
                 mappedAssertion(Slice::getContent, Matchers.is(hotels));
 
         mockMvc.perform(get("/hotel/search?state=WA&postcode=4000"))
@@ -86,8 +122,8 @@ public class HotelSearchControllerTest {
                 .andExpect(view().name("/hotel/hotels"))
                 .andExpect(model().attribute("hotels", hasExpectedPageResult));
 
-        verify(hotelRepository, times(1))
-                .findAllByLocation(eq("WA"), isNull(), eq("4000"), any(Pageable.class));
+        verify(listingRepository, times(1))
+                .findHotelsByLocation(eq("WA"), isNull(), eq("4000"), any(Pageable.class));
     }
 
     /**
@@ -95,18 +131,16 @@ public class HotelSearchControllerTest {
      */
     @Test
     public void getHotels_HotelsFound_AddsResultsToModel() throws Exception {
-        Hotel hotel = new Hotel("Hotel Royal", new Address("Hotel Royal", "33 kent street", null,
-                State.VIC, "Melbourne", new Postcode("3000")),
-                5, "royal@hotel.com");
-
-        // Calling findAllByLocation will return the only hotel given the state matches.
-        List<Hotel> hotels = List.of(hotel);
-        PageImpl<Hotel> results = new PageImpl<>(hotels, PageRequest.of(0, 20), hotels.size());
-        when(hotelRepository.findAllByLocation(eq("VIC"), isNull(), isNull(), any(Pageable.class)))
+        HotelListing hotel = new HotelListing(1L, "Hotel Royal", 5, State.VIC, "Melbourne", "3000");
+
+        // Calling findHotelsByLocation will return the only hotel given the state matches.
+        List<HotelListing> hotels = List.of(hotel);
+        PageImpl<HotelListing> results = new PageImpl<>(hotels, PageRequest.of(0, 20), hotels.size());
+        when(listingRepository.findHotelsByLocation(eq("VIC"), isNull(), isNull(), any(Pageable.class)))
                 .thenReturn(results);
 
         // sanity check to ensure the matched hotel appears in the page content.
-        FeatureMatcher<Page<Hotel>, List<Hotel>> hasExpectedPageResult =
+        FeatureMatcher<Page<HotelListing>, List<HotelListing>> hasExpectedPageResult =
                 mappedAssertion(Slice::getContent, Matchers.is(hotels));
 
         mockMvc.perform(get("/hotel/search?state=VIC"))
@@ -114,8 +148,27 @@ public class HotelSearchControllerTest {
                 .andExpect(view().name("/hotel/hotels"))
                 .andExpect(model().attribute("hotels", hasExpectedPageResult));
 
-        verify(hotelRepository, times(1))
-                .findAllByLocation(eq("VIC"), isNull(), isNull(), any(Pageable.class));
+        verify(listingRepository, times(1))
+                .findHotelsByLocation(eq("VIC"), isNull(), isNull(), any(Pageable.class));
+    }
+
+    /**
+     * Repeating a search, even with different case or whitespace in the location, is answered from the cache.
+     */
+    @Test
+    public void getHotels_RepeatedSearch_QueriesRepositoryOnce() throws Exception {
+        PageImpl<HotelListing> results = new PageImpl<>(List.of(), PageRequest.of(0, 20), 0);
+        when(listingRepository.findHotelsByLocation(any(), any(), any(), any(Pageable.class)))
+                .thenReturn(results);
+
+        mockMvc.perform(get("/hotel/search?state=VIC&suburb=Melbourne"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/hotel/search?state=vic&suburb= MELBOURNE "))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("hotels", results));
+
+        verify(listingRepository, times(1))
+                .findHotelsByLocation(eq("VIC"), eq("MELBOURNE"), isNull(), any(Pageable.class));
     }
 
     /**
@@ -130,39 +183,130 @@ public class HotelSearchControllerTest {
     @Test
     public void getAvailableHotelRooms_HotelIdNotFound_Throws404() throws Exception {
         long hotelId = 4;
+        when(availabilityService.findAvailableRooms(eq(hotelId), isNull(), isNull(), any(Pageable.class)))
+                .thenReturn(Page.empty());
+
         mockMvc.perform(get(String.format("/hotel/%d/rooms", hotelId)))
                 .andExpect(status().isNotFound());
     }
 
     /**
-     * Note: The model must contain the hotel so the UI can display detailed information.
+     * Note: The model must contain the hotel so the UI can display detailed information. It is taken from the listed
+     * rooms rather than selected again.
      */
     @Test
     public void getAvailableHotelRooms_HotelHasAvailableRooms() throws Exception {
-        FeatureMatcher<Page<Hotel>, Long> hasExpectedPageResult =
+        FeatureMatcher<Page<RoomListing>, Long> hasExpectedPageResult =
                 mappedAssertion(Page::getTotalElements, Matchers.is(1L));
 
-        // Dummy hotel to return in the mock.
-        Address address = new Address("Xavier Hotel", "100 smith road", "",
-                State.QLD, "Brisbane", new Postcode("4000"));
-        Hotel hotel = new Hotel("Xavier Hotel", address, 4, "xavier@hotel.com");
-        hotel.setId(3L);
-
-        // Rather than recreate a new hotel room, setting total elements to 1 will achieve the same thing for testing.
-        PageImpl<Room> page = new PageImpl<>(List.of(), PageRequest.of(0, 20), 1);
-        when(roomRepository.findAll(RoomPredicates.availableRoom(hotel.getId()), PageRequest.of(0, 20))).thenReturn(page);
+        HotelHeader hotel = new HotelHeader(3L, "Xavier Hotel", 4, "100 smith road", "", State.QLD, "Brisbane",
+                "4000");
+        RoomListing room = new RoomListing(7L, "101", RoomType.Business, 2, Money.of("120.00"), hotel);
 
-        when(hotelRepository.findById(hotel.getId())).thenReturn(Optional.of(hotel));
+        PageImpl<RoomListing> page = new PageImpl<>(List.of(room), PageRequest.of(0, 20), 1);
+        when(availabilityService.findAvailableRooms(eq(hotel.getId()), isNull(), isNull(), any(Pageable.class)))
+                .thenReturn(page);
 
         mockMvc.perform(get(String.format("/hotel/%d/rooms", hotel.getId())))
                 .andExpect(status().isOk())
                 .andExpect(view().name("/hotel/rooms"))
-                .andExpect(model().attribute("hotel", Matchers.isA(Hotel.class)))
+                .andExpect(model().attribute("hotel", hotel))
                 .andExpect(model().attribute("rooms", hasExpectedPageResult));
 
-        verify(roomRepository, times(1))
-                .findAll(eq(RoomPredicates.availableRoom(hotel.getId())), any(Pageable.class));
+        verify(availabilityService, times(1))
+                .findAvailableRooms(eq(hotel.getId()), isNull(), isNull(), any(Pageable.class));
+
+        verify(listingRepository, never()).findHotelHeader(any());
+    }
+
+    /**
+     * Without any room available the hotel is selected on its own.
+     */
+    @Test
+    public void getAvailableHotelRooms_NoRoomsAvailable_HotelSelected() throws Exception {
+        HotelHeader hotel = new HotelHeader(3L, "Xavier Hotel", 4, "100 smith road", "", State.QLD, "Brisbane",
+                "4000");
+
+        when(availabilityService.findAvailableRooms(eq(hotel.getId()), isNull(), isNull(), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(), PageRequest.of(0, 20), 0));
+        when(listingRepository.findHotelHeader(hotel.getId())).thenReturn(Optional.of(hotel));
+
+        mockMvc.perform(get(String.format("/hotel/%d/rooms", hotel.getId())))
+                .andExpect(status().isOk())
+                .andExpect(model().attribute("hotel", hotel));
+    }
+
+    /**
+     * The check in and check out query params are passed through so only rooms free for those nights are listed.
+     */
+    @Test
+    public void getAvailableHotelRooms_ForDates() throws Exception {
+        HotelHeader hotel = new HotelHeader(3L, "Xavier Hotel", 4, "100 smith road", "", State.QLD, "Brisbane",
+                "4000");
+
+        LocalDate checkIn = LocalDate.of(2030, 1, 10);
+        LocalDate checkOut = LocalDate.of(2030, 1, 12);
+
+        PageImpl<RoomListing> page = new PageImpl<>(List.of(), PageRequest.of(0, 20), 0);
+        when(availabilityService.findAvailableRooms(eq(hotel.getId()), eq(checkIn), eq(checkOut), any(Pageable.class)))
+                .thenReturn(page);
+        when(listingRepository.findHotelHeader(hotel.getId())).thenReturn(Optional.of(hotel));
+
+        mockMvc.perform(get(String.format("/hotel/%d/rooms?checkIn=2030-01-10&checkOut=2030-01-12", hotel.getId())))
+                .andExpect(status().isOk())
+                .andExpect(view().name("/hotel/rooms"));
+
+        verify(availabilityService, times(1))
+                .findAvailableRooms(eq(hotel.getId()), eq(checkIn), eq(checkOut), any(Pageable.class));
+    }
+
+    /**
+     * Keyset mode skips the page number, the next link swaps in the cursor and keeps the sort and location.
+     */
+    @Test
+    public void getHotels_KeysetMode_AddsNextPageUrl() throws Exception {
+        HotelListing hotel = new HotelListing(1L, "Hotel Royal", 5, State.VIC, "Melbourne", "3000");
+        KeysetSlice<HotelListing> slice = new KeysetSlice<>(List.of(hotel), PageRequest.of(0, 1), "abc123", null);
+
+        when(keysetQueryExecutor.find(eq(QHotel.hotel), eq(HotelListing.PROJECTION), any(), eq(SortKeys.HOTELS),
+                any(KeysetRequest.class)))
+                .thenReturn(slice);
+
+        mockMvc.perform(get("/hotel/search?state=VIC&mode=keyset&sort=name&page=3&size=1"))
+                .andExpect(status().isOk())
+                .andExpect(view().name("/hotel/hotels"))
+                .andExpect(model().attribute("keyset", true))
+                .andExpect(model().attribute("hotels", slice))
+                .andExpect(model().attribute("firstPageUrl", Matchers.nullValue()))
+                .andExpect(model().attribute("nextPageUrl",
+                        "/hotel/search?state=VIC&mode=keyset&sort=name&size=1&cursor=abc123"));
+
+        verify(listingRepository, never())
+                .findHotelsByLocation(any(), any(), any(), any(Pageable.class));
+    }
+
+    /**
+     * The last keyset page has no next link but can return to the first page.
+     */
+    @Test
+    public void getAvailableHotelRooms_KeysetModeLastPage_AddsFirstPageUrl() throws Exception {
+        HotelHeader hotel = new HotelHeader(3L, "Xavier Hotel", 4, "100 smith road", "", State.QLD, "Brisbane",
+                "4000");
+
+        KeysetSlice<RoomListing> slice = new KeysetSlice<>(List.of(), PageRequest.of(0, 20), null, 0L);
+        when(availabilityService.findAvailableRooms(eq(hotel.getId()), isNull(), isNull(), any(KeysetRequest.class)))
+                .thenReturn(slice);
+        when(listingRepository.findHotelHeader(hotel.getId())).thenReturn(Optional.of(hotel));
+
+        mockMvc.perform(get(String.format("/hotel/%d/rooms?mode=keyset&cursor=abc123&count=true", hotel.getId())))
+                .andExpect(status().isOk())
+                .andExpect(view().name("/hotel/rooms"))
+                .andExpect(model().attribute("keyset", true))
+                .andExpect(model().attribute("nextPageUrl", Matchers.nullValue()))
+                .andExpect(model().attribute("firstPageUrl",
+                        String.format("/hotel/%d/rooms?mode=keyset&count=true", hotel.getId())));
 
-        verify(hotelRepository, times(1)).findById(eq(hotel.getId()));
+        verify(availabilityService, never())
+                .findAvailableRooms(anyLong(), any(), any(), any(Pageable.class));
     }
-}
\ No newline at end of file
+}
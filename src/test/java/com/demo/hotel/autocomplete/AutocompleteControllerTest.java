@@ -0,0 +1,51 @@
+package com.demo.hotel.autocomplete;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@RunWith(SpringRunner.class)
+@WebMvcTest(AutocompleteController.class)
+@ActiveProfiles("test")
+public class AutocompleteControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private LocationAutocompleteIndex autocompleteIndex;
+
+    @Test
+    public void autocomplete_ReturnsSuggestionsAsJson() throws Exception {
+        when(autocompleteIndex.lookup("mel", AutocompleteController.MAX_SUGGESTIONS)).thenReturn(List.of(
+                LocationSuggestion.suburb("Melbourne", "VIC"),
+                LocationSuggestion.hotel(1L, "Melrose Inn", "NSW", "Ryde", "2112")
+        ));
+
+        mockMvc.perform(get("/hotel/autocomplete?q=mel"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].type", is("Suburb")))
+                .andExpect(jsonPath("$[0].title", is("Melbourne")))
+                .andExpect(jsonPath("$[0].state", is("VIC")))
+                .andExpect(jsonPath("$[1].type", is("Hotel")))
+                .andExpect(jsonPath("$[1].hotelId", is(1)))
+                .andExpect(jsonPath("$[1].description", is("Ryde NSW 2112")));
+
+        verify(autocompleteIndex, times(1)).lookup("mel", AutocompleteController.MAX_SUGGESTIONS);
+    }
+}
@@ -0,0 +1,145 @@
+package com.demo.hotel.autocomplete;
+
+import com.demo.domain.Hotel;
+import com.demo.domain.HotelChangedEvent;
+import com.demo.domain.location.Address;
+import com.demo.domain.location.Postcode;
+import com.demo.domain.location.State;
+import com.demo.persistance.HotelRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class LocationAutocompleteIndexTest {
+
+    private HotelRepository hotelRepository;
+    private LocationAutocompleteIndex index;
+
+    @Before
+    public void setup() {
+        hotelRepository = mock(HotelRepository.class);
+        index = new LocationAutocompleteIndex(hotelRepository, new SimpleMeterRegistry());
+    }
+
+    private HotelChangedEvent hotel(long id, String name, State state, String suburb, String postcode) {
+        return new HotelChangedEvent(id, name, state.name(), suburb, postcode);
+    }
+
+    @Test
+    public void lookup_PrefixIgnoresCase_MatchesNamesSuburbsAndPostcodes() {
+        index.onHotelChanged(hotel(1, "Hotel Royal", State.VIC, "Melbourne", "3000"));
+        index.onHotelChanged(hotel(2, "Melrose Inn", State.NSW, "Ryde", "2112"));
+        index.onHotelChanged(hotel(3, "Summer Lodge", State.VIC, "Melton", "3337"));
+
+        assertThat(index.lookup("  mEl", 10))
+                .extracting(LocationSuggestion::getTitle)
+                .containsExactlyInAnyOrder("Melbourne", "Melton", "Melrose Inn");
+
+        assertThat(index.lookup("3", 10))
+                .extracting(LocationSuggestion::getTitle)
+                .containsExactlyInAnyOrder("3000", "3337");
+
+        assertThat(index.lookup("hotel r", 10))
+                .extracting(LocationSuggestion::getHotelId)
+                .containsExactly(1L);
+
+        assertThat(index.lookup("adelaide", 10)).isEmpty();
+        assertThat(index.lookup("", 10)).isEmpty();
+        assertThat(index.lookup(null, 10)).isEmpty();
+    }
+
+    @Test
+    public void lookup_RespectsLimit() {
+        for (long id = 1; id <= 20; id++) {
+            index.onHotelChanged(hotel(id, "Hotel " + id, State.VIC, "Suburb " + id, String.valueOf(3000 + id)));
+        }
+        assertThat(index.lookup("hotel", 5)).hasSize(5);
+        assertThat(index.lookup("suburb 1", 50)).hasSize(11);
+    }
+
+    /**
+     * Suburbs shared by many hotels appear once and stay until the last hotel moves away.
+     */
+    @Test
+    public void onHotelChanged_SharedSuburb_ReferenceCounted() {
+        index.onHotelChanged(hotel(1, "Hotel Royal", State.VIC, "Melbourne", "3000"));
+        index.onHotelChanged(hotel(2, "Hotel Summer", State.VIC, "Melbourne", "3000"));
+
+        assertThat(index.lookup("melb", 10)).hasSize(1);
+
+        index.onHotelChanged(hotel(1, "Hotel Royal", State.NSW, "Sydney", "2000"));
+        assertThat(index.lookup("melb", 10)).hasSize(1);
+
+        index.onHotelChanged(hotel(2, "Hotel Summer", State.NSW, "Sydney", "2000"));
+        assertThat(index.lookup("melb", 10)).isEmpty();
+        assertThat(index.lookup("syd", 10))
+                .extracting(LocationSuggestion::getState)
+                .containsExactly("NSW");
+    }
+
+    /**
+     * The first casing seen is suggested, and the suburb stays until the last hotel in it moves away whatever casing
+     * that hotel used.
+     */
+    @Test
+    public void onHotelChanged_SuburbInOtherCasing_SuggestedOnce() {
+        index.onHotelChanged(hotel(1, "Hotel Royal", State.VIC, "Melbourne", "3000"));
+        index.onHotelChanged(hotel(2, "Hotel Summer", State.VIC, "MELBOURNE", "3000"));
+        index.onHotelChanged(hotel(3, "Hotel Winter", State.VIC, " melbourne ", " 3000"));
+
+        assertThat(index.lookup("melb", 10))
+                .extracting(LocationSuggestion::getTitle)
+                .containsExactly("Melbourne");
+        assertThat(index.lookup("3000", 10)).hasSize(1);
+
+        index.onHotelChanged(hotel(1, "Hotel Royal", State.NSW, "Sydney", "2000"));
+        index.onHotelChanged(hotel(2, "Hotel Summer", State.NSW, "Sydney", "2000"));
+        assertThat(index.lookup("melb", 10))
+                .extracting(LocationSuggestion::getTitle)
+                .containsExactly("Melbourne");
+
+        index.onHotelChanged(hotel(3, "Hotel Winter", State.NSW, "Sydney", "2000"));
+        assertThat(index.lookup("melb", 10)).isEmpty();
+
+        // with the suburb gone the next hotel there decides its display form
+        index.onHotelChanged(hotel(4, "Hotel Spring", State.VIC, "MELBOURNE", "3000"));
+        assertThat(index.lookup("melb", 10))
+                .extracting(LocationSuggestion::getTitle)
+                .containsExactly("MELBOURNE");
+    }
+
+    @Test
+    public void onHotelChanged_Renamed_ReplacesOldName() {
+        index.onHotelChanged(hotel(1, "Hotel Royal", State.VIC, "Melbourne", "3000"));
+        index.onHotelChanged(hotel(1, "Grand Royal", State.VIC, "Melbourne", "3000"));
+        // saving again without changes is a no op
+        index.onHotelChanged(hotel(1, "Grand Royal", State.VIC, "Melbourne", "3000"));
+
+        assertThat(index.lookup("hotel", 10)).isEmpty();
+        assertThat(index.lookup("grand", 10)).hasSize(1);
+    }
+
+    @Test
+    public void rebuild_LoadsEveryHotel() {
+        Hotel royal = new Hotel("Hotel Royal",
+                new Address("Hotel Royal", "33 kent street", null, State.VIC, "Melbourne", new Postcode("3000")),
+                4, "royal@hotel.com");
+        royal.setId(1L);
+        when(hotelRepository.findAll()).thenReturn(List.of(royal));
+
+        index.onHotelChanged(hotel(99, "Stale Hotel", State.WA, "Perth", "6000"));
+        index.rebuild();
+
+        assertThat(index.lookup("stale", 10)).isEmpty();
+        assertThat(index.lookup("royal", 10)).isEmpty();
+        assertThat(index.lookup("hotel", 10))
+                .extracting(LocationSuggestion::getHotelId)
+                .containsExactly(1L);
+        assertThat(index.lookup("3000", 10)).hasSize(1);
+    }
+}
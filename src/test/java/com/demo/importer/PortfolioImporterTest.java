@@ -0,0 +1,219 @@
+package com.demo.importer;
+
+import com.demo.domain.Hotel;
+import com.demo.domain.HotelsImportedEvent;
+import com.demo.domain.QHotel;
+import com.demo.domain.Room;
+import com.demo.domain.RoomType;
+import com.demo.domain.location.Address;
+import com.demo.domain.location.Postcode;
+import com.demo.domain.location.State;
+import com.demo.persistance.HotelRepository;
+import com.demo.persistance.RoomRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.validation.Validation;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * The importer commits its own transactions so the test does not wrap each test in one. Chunks of 2 hotels
+ * flushed every hotel make even these small files go through several chunks.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class PortfolioImporterTest {
+    private static final String CSV_HEADER = "ref,name,email,stars,street_line1,state,suburb,postcode,"
+            + "earliest_check_in_time,latest_check_in_time,standard_check_out_time,latest_check_out_time,"
+            + "late_checkout_fee,room_number,room_type,beds,cost_per_night\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private RoomRepository roomRepository;
+
+    private ApplicationEventPublisher eventPublisher;
+    private PortfolioImporter importer;
+
+    @Before
+    public void setup() {
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        importer = new PortfolioImporter(entityManager, transactionManager,
+                Validation.buildDefaultValidatorFactory().getValidator(), eventPublisher, new SimpleMeterRegistry(),
+                2, 1, 2, Duration.ofSeconds(10));
+    }
+
+    @After
+    public void teardown() {
+        importer.stop();
+        hotelRepository.deleteAll();
+    }
+
+    private Path file(String name, String content) throws Exception {
+        Path file = folder.getRoot().toPath().resolve(name);
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void importFile_Csv_RowsGroupedIntoHotels() throws Exception {
+        Path file = file("hotels.csv", CSV_HEADER
+                + "h1,The Grand Hotel,grand@hotel.com,4,166 Albert Road,VIC,Melbourne,3000,"
+                + "09:00,20:00,12:00,14:00,45.60,G1,Economy,1,65.12\n"
+                + "h1,The Grand Hotel,grand@hotel.com,4,166 Albert Road,VIC,Melbourne,3000,"
+                + "09:00,20:00,12:00,14:00,45.60,G2,Luxury,4,205.66\n"
+                + "h2,Glen Iris,glen@hotel.com,3,99A Glen Road,vic,Glen Waverley,3150,,,,,,H1,Business,2,105.45\n"
+                + "h3,Bravo,bravo@hotel.com,2,7 apple avenue,VIC,Docklands,3008,,,,,,,,,\n");
+
+        ImportReport report = importer.importFile(file);
+
+        assertThat(report.isComplete()).isTrue();
+        assertThat(report.getHotels()).isEqualTo(3);
+        assertThat(report.getRooms()).isEqualTo(3);
+        assertThat(hotelRepository.count()).isEqualTo(3);
+        assertThat(roomRepository.count()).isEqualTo(3);
+
+        Hotel grand = hotelRepository.findAll(QHotel.hotel.name.eq("The Grand Hotel")).iterator().next();
+        assertThat(grand.getEarliestCheckInTime()).isEqualTo(LocalTime.of(9, 0));
+        verify(eventPublisher).publishEvent(any(HotelsImportedEvent.class));
+    }
+
+    @Test
+    public void importFile_InvalidHotels_ReportedAndSkipped() throws Exception {
+        Path file = file("hotels.csv", CSV_HEADER
+                + "h1,Bad Postcode,bad@hotel.com,4,1 road,VIC,Melbourne,30000,,,,,,B1,Economy,1,65.12\n"
+                + "h2,Bad Room,room@hotel.com,4,1 road,VIC,Melbourne,3000,,,,,,R1,Penthouse,1,65.12\n"
+                + "h3,Missing Name,,4,1 road,VIC,Melbourne,3000,,,,,,,,,\n"
+                + "h4,Good,good@hotel.com,4,1 road,VIC,Melbourne,3000,,,,,,G1,Economy,1,65.12\n"
+                + "h5,Twice,twice@hotel.com,4,1 road,VIC,Melbourne,3000,,,,,,T1,Economy,1,65.12\n"
+                + "h5,Twice,twice@hotel.com,4,1 road,VIC,Melbourne,3000,,,,,,T1,Economy,1,65.12\n");
+
+        ImportReport report = importer.importFile(file);
+
+        assertThat(report.isComplete()).isFalse();
+        assertThat(report.getHotels()).isEqualTo(1);
+        assertThat(report.getFailedHotels()).isEqualTo(4);
+        assertThat(report.getFailures())
+                .extracting(ImportReport.Failure::getHotel, ImportReport.Failure::getReason)
+                .containsExactly(
+                        tuple("h1", "postcode.value Postcode must be 4 digits"),
+                        tuple("h2", "room_type 'Penthouse' is not valid"),
+                        tuple("h3", "email is required"),
+                        tuple("h5", "Room T1 is listed more than once"));
+        assertThat(report.getFailures()).allSatisfy(failure -> assertThat(failure.getLine()).isPositive());
+        assertThat(hotelRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    public void importFile_Json_HotelsWithRooms() throws Exception {
+        Path file = file("hotels.json", "[\n"
+                + "{\"name\": \"Zamza\", \"email\": \"zamza@hotel.com\", \"stars\": 4,\n"
+                + " \"street_line1\": \"7 zamza avenue\", \"state\": \"VIC\", \"suburb\": \"Melbourne\","
+                + " \"postcode\": \"3000\",\n"
+                + " \"rooms\": [{\"room_number\": \"Z1\", \"room_type\": \"Balcony\", \"beds\": 2,"
+                + " \"cost_per_night\": \"80.00\"},\n"
+                + "           {\"room_number\": \"Z2\", \"room_type\": \"Economy\", \"beds\": 1,"
+                + " \"cost_per_night\": \"40.00\"}]},\n"
+                + "{\"name\": \"Cevello Blanca\", \"email\": \"cevello@hotel.com\", \"stars\": 5,\n"
+                + " \"street_line1\": \"2 smith street\", \"state\": \"VIC\", \"suburb\": \"Carlton\","
+                + " \"postcode\": \"3053\", \"rooms\": []}\n"
+                + "]\n");
+
+        ImportReport report = importer.importFile(file);
+
+        assertThat(report.isComplete()).isTrue();
+        assertThat(report.getHotels()).isEqualTo(2);
+        assertThat(report.getRooms()).isEqualTo(2);
+        assertThat(roomRepository.count()).isEqualTo(2);
+    }
+
+    /**
+     * Everything read before the file turned out to be malformed stays imported.
+     */
+    @Test
+    public void importFile_MalformedJson_AbortedAfterEarlierHotels() throws Exception {
+        Path file = file("hotels.json", "[\n"
+                + "{\"name\": \"One\", \"email\": \"one@hotel.com\", \"stars\": 3, \"street_line1\": \"1 road\","
+                + " \"state\": \"VIC\", \"suburb\": \"Melbourne\", \"postcode\": \"3000\"},\n"
+                + "{\"name\": \"Two\", \"email\": \"two@hotel.com\", \"stars\": 3, \"street_line1\": \"2 road\","
+                + " \"state\": \"VIC\", \"suburb\": \"Melbourne\", \"postcode\": \"3000\"},\n"
+                + "{\"name\": \"Three\", \"email\": \n");
+
+        ImportReport report = importer.importFile(file);
+
+        assertThat(report.getAbortedBy()).isNotNull();
+        assertThat(report.getHotels()).isEqualTo(2);
+        assertThat(hotelRepository.count()).isEqualTo(2);
+    }
+
+    /**
+     * A room number already taken rejects the whole chunk, which is then written a hotel at a time so the other
+     * hotel of the chunk is still imported.
+     */
+    @Test
+    public void importFile_RoomNumberTaken_OnlyThatHotelFails() throws Exception {
+        Hotel existing = new Hotel("Existing", new Address("Existing", "1 road", null, State.VIC, "Melbourne",
+                new Postcode("3000")), 3, "existing@hotel.com");
+        existing.addRoom(new Room("E1", RoomType.Economy, 1, BigDecimal.valueOf(50)));
+        hotelRepository.save(existing);
+
+        Path file = file("hotels.csv", CSV_HEADER
+                + "h1,Clash,clash@hotel.com,4,1 road,VIC,Melbourne,3000,,,,,,E1,Economy,1,65.12\n"
+                + "h2,Fine,fine@hotel.com,4,1 road,VIC,Melbourne,3000,,,,,,F1,Economy,1,65.12\n");
+
+        ImportReport report = importer.importFile(file);
+
+        assertThat(report.getHotels()).isEqualTo(1);
+        assertThat(report.getFailures()).extracting(ImportReport.Failure::getHotel).containsExactly("h1");
+        assertThat(hotelRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    public void importFiles_UnreadableFile_OthersStillImported() throws Exception {
+        Path missing = folder.getRoot().toPath().resolve("missing.csv");
+        Path unsupported = file("hotels.xml", "<hotels/>");
+        Path file = file("hotels.csv", CSV_HEADER
+                + "h1,Fine,fine@hotel.com,4,1 road,VIC,Melbourne,3000,,,,,,F1,Economy,1,65.12\n");
+
+        List<ImportReport> reports = importer.importFiles(List.of(missing, unsupported, file));
+
+        assertThat(reports).extracting(report -> report.getAbortedBy() != null).containsExactly(true, true, false);
+        assertThat(reports.get(2).getHotels()).isEqualTo(1);
+        verify(eventPublisher, times(1)).publishEvent(any(HotelsImportedEvent.class));
+    }
+}
@@ -0,0 +1,183 @@
+package com.demo.outbox;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The dispatcher commits its own transactions so the test does not wrap each test in one.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class OutboxDispatcherTest {
+
+    @Autowired
+    private OutboxRepository outboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private MutableClock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private RecordingSink email;
+    private RecordingSink analytics;
+    private OutboxDispatcher dispatcher;
+
+    @Before
+    public void setup() {
+        clock = new MutableClock();
+        meterRegistry = new SimpleMeterRegistry();
+        email = new RecordingSink("confirmation-email");
+        analytics = new RecordingSink("analytics");
+        dispatcher = new OutboxDispatcher(outboxRepository, List.of(email, analytics), transactionManager,
+                meterRegistry, 2, Duration.ofSeconds(1), Duration.ofSeconds(10), Duration.ofSeconds(60), clock);
+    }
+
+    @After
+    public void teardown() {
+        outboxRepository.deleteAll();
+    }
+
+    private OutboxMessage write(String destination) {
+        return outboxRepository.save(new OutboxMessage(destination, BookingConfirmed.TYPE, UUID.randomUUID(),
+                "{}", clock.millis()));
+    }
+
+    private double messages(String destination, String outcome) {
+        return meterRegistry.counter("outbox.messages", "destination", destination, "outcome", outcome).count();
+    }
+
+    @Test
+    public void dispatch_DeliversInBatchesOldestFirstThenDeletes() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(write("confirmation-email").getId());
+            clock.advance(Duration.ofMillis(1));
+        }
+
+        assertThat(dispatcher.dispatch()).isEqualTo(5);
+
+        assertThat(email.batches).extracting(List::size).containsExactly(2, 2, 1);
+        assertThat(email.delivered()).isEqualTo(ids);
+        assertThat(outboxRepository.count()).isZero();
+        assertThat(messages("confirmation-email", "delivered")).isEqualTo(5);
+        assertThat(meterRegistry.get("outbox.delivery.lag").tag("destination", "confirmation-email").timer()
+                .count()).isEqualTo(5);
+    }
+
+    /**
+     * The failed batch stays in the outbox until its backoff has passed and is then delivered in full.
+     */
+    @Test
+    public void dispatch_SinkFails_RetriedAfterBackoff() {
+        OutboxMessage message = write("confirmation-email");
+        email.failing = true;
+
+        assertThat(dispatcher.dispatch()).isZero();
+        assertThat(outboxRepository.findById(message.getId()).get().getAttempts()).isEqualTo(1);
+        assertThat(messages("confirmation-email", "failed")).isEqualTo(1);
+
+        email.failing = false;
+        clock.advance(Duration.ofSeconds(9));
+        assertThat(dispatcher.dispatch()).isZero();
+
+        clock.advance(Duration.ofSeconds(1));
+        assertThat(dispatcher.dispatch()).isEqualTo(1);
+        assertThat(email.delivered()).containsExactly(message.getId());
+    }
+
+    @Test
+    public void dispatch_OneDestinationFails_OthersStillDelivered() {
+        write("confirmation-email");
+        OutboxMessage analyticsMessage = write("analytics");
+        email.failing = true;
+
+        assertThat(dispatcher.dispatch()).isEqualTo(1);
+
+        assertThat(analytics.delivered()).containsExactly(analyticsMessage.getId());
+        assertThat(outboxRepository.count()).isEqualTo(1);
+    }
+
+    @Test
+    public void backoff_DoublesUpToMaximum() {
+        assertThat(dispatcher.backoff(1)).isEqualTo(Duration.ofSeconds(10));
+        assertThat(dispatcher.backoff(2)).isEqualTo(Duration.ofSeconds(20));
+        assertThat(dispatcher.backoff(3)).isEqualTo(Duration.ofSeconds(40));
+        assertThat(dispatcher.backoff(4)).isEqualTo(Duration.ofSeconds(60));
+        assertThat(dispatcher.backoff(100)).isEqualTo(Duration.ofSeconds(60));
+    }
+
+    private static class RecordingSink implements OutboxSink {
+        private final String destination;
+        private final List<List<OutboxMessage>> batches = new ArrayList<>();
+        private boolean failing;
+
+        RecordingSink(String destination) {
+            this.destination = destination;
+        }
+
+        List<Long> delivered() {
+            return batches.stream()
+                    .flatMap(List::stream)
+                    .map(OutboxMessage::getId)
+                    .collect(Collectors.toList());
+        }
+
+        @Override
+        public String getDestination() {
+            return destination;
+        }
+
+        @Override
+        public void deliver(List<OutboxMessage> messages) {
+            if (failing) {
+                throw new IllegalStateException(destination + " unavailable");
+            }
+            batches.add(new ArrayList<>(messages));
+        }
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2030-05-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
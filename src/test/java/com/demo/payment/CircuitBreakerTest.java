@@ -0,0 +1,130 @@
+package com.demo.payment;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CircuitBreakerTest {
+
+    private MutableClock clock;
+    private CircuitBreaker breaker;
+
+    @Before
+    public void setup() {
+        clock = new MutableClock();
+        breaker = new CircuitBreaker(4, 0.5, Duration.ofSeconds(30), clock);
+    }
+
+    private void call(boolean fails) {
+        assertThat(breaker.tryAcquire()).isTrue();
+        if (fails) {
+            breaker.onFailure();
+        } else {
+            breaker.onSuccess();
+        }
+    }
+
+    @Test
+    public void failuresBelowThreshold_StaysClosed() {
+        call(true);
+        call(false);
+        call(false);
+        call(false);
+        call(true);
+
+        // the first failure has left the window
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.Closed);
+    }
+
+    /**
+     * Too few calls have been made to judge the failure rate until the window is full.
+     */
+    @Test
+    public void failuresReachThreshold_OnlyOpensOnceWindowFull() {
+        call(true);
+        call(true);
+        call(true);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.Closed);
+
+        call(false);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.Open);
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    @Test
+    public void open_AfterOpenDuration_PermitsSingleTrial() {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        clock.advance(Duration.ofSeconds(30));
+
+        assertThat(breaker.tryAcquire()).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HalfOpen);
+        assertThat(breaker.tryAcquire()).isFalse();
+
+        breaker.onSuccess();
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.Closed);
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    @Test
+    public void halfOpen_TrialFails_OpensAgain() {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        clock.advance(Duration.ofSeconds(30));
+        call(true);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.Open);
+        clock.advance(Duration.ofSeconds(29));
+        assertThat(breaker.tryAcquire()).isFalse();
+    }
+
+    /**
+     * A trial that never reached the dependency lets another call take its place.
+     */
+    @Test
+    public void halfOpen_TrialAbandoned_PermitsAnotherTrial() {
+        for (int i = 0; i < 4; i++) {
+            call(true);
+        }
+        clock.advance(Duration.ofSeconds(30));
+        assertThat(breaker.tryAcquire()).isTrue();
+
+        breaker.onAbandoned();
+
+        assertThat(breaker.tryAcquire()).isTrue();
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2030-05-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.demo.payment;
+
+import com.demo.domain.Money;
+import com.demo.domain.PendingPayment;
+import com.demo.exceptions.PaymentDeclinedException;
+import com.demo.exceptions.PaymentUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class PaymentProcessorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PaymentGateway gateway;
+    private PaymentProcessor processor;
+
+    private CountDownLatch answer;
+
+    @Before
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        gateway = mock(PaymentGateway.class);
+        processor = processor(2, Duration.ofSeconds(5));
+        answer = new CountDownLatch(1);
+    }
+
+    @After
+    public void teardown() {
+        answer.countDown();
+        processor.stop();
+    }
+
+    private PaymentProcessor processor(int maxConcurrentCalls, Duration timeout) {
+        return new PaymentProcessor(gateway, meterRegistry, maxConcurrentCalls, timeout,
+                new CircuitBreaker(4, 0.5, Duration.ofMinutes(1), Clock.systemUTC()), 3, Duration.ofMillis(10));
+    }
+
+    private static PaymentRequest request() {
+        return new PaymentRequest(UUID.randomUUID().toString(), UUID.randomUUID(),
+                Money.of("150.00"), new PendingPayment(LocalDateTime.now()));
+    }
+
+    private long calls(String outcome) {
+        return meterRegistry.get("payment.gateway.calls").tag("outcome", outcome).timer().count();
+    }
+
+    private void gatewayWaitsForAnswer() {
+        when(gateway.charge(any(PaymentRequest.class))).thenAnswer(invocation -> {
+            answer.await(5, TimeUnit.SECONDS);
+            PaymentRequest request = invocation.getArgument(0);
+            return new PaymentReceipt(UUID.randomUUID(), request.getIdempotencyKey());
+        });
+    }
+
+    @Test
+    public void charge_Approved_ReturnsReceipt() throws Exception {
+        PaymentRequest request = request();
+        PaymentReceipt receipt = new PaymentReceipt(UUID.randomUUID(), request.getIdempotencyKey());
+        when(gateway.charge(request)).thenReturn(receipt);
+
+        assertThat(processor.charge(request).get(5, TimeUnit.SECONDS)).isSameAs(receipt);
+        assertThat(calls("approved")).isEqualTo(1);
+        assertThat(meterRegistry.get("payment.bulkhead.available").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    public void charge_Declined_CompletesWithDeclined() {
+        when(gateway.charge(any(PaymentRequest.class))).thenThrow(new PaymentDeclinedException("declined"));
+
+        assertThatThrownBy(() -> processor.charge(request()).get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(PaymentDeclinedException.class);
+        assertThat(calls("declined")).isEqualTo(1);
+    }
+
+    @Test
+    public void charge_GatewayFails_Unavailable() {
+        when(gateway.charge(any(PaymentRequest.class))).thenThrow(new IllegalStateException("connection reset"));
+
+        assertThatThrownBy(() -> processor.charge(request()).get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(PaymentUnavailableException.class);
+        assertThat(calls("failed")).isEqualTo(1);
+    }
+
+    /**
+     * The slow call is abandoned and interrupted so it gives its thread back.
+     */
+    @Test
+    public void charge_SlowerThanTimeout_Unavailable() {
+        processor = processor(2, Duration.ofMillis(50));
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(gateway.charge(any(PaymentRequest.class))).thenAnswer(invocation -> {
+            try {
+                answer.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return null;
+        });
+
+        assertThatThrownBy(() -> processor.charge(request()).get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(PaymentUnavailableException.class);
+        assertThat(calls("timeout")).isEqualTo(1);
+        assertThat(await(interrupted)).isTrue();
+    }
+
+    /**
+     * Charges beyond the bulkhead fail straight away rather than waiting behind the slow ones.
+     */
+    @Test
+    public void charge_BulkheadFull_RejectedWithoutCallingGateway() throws Exception {
+        gatewayWaitsForAnswer();
+
+        CompletableFuture<PaymentReceipt> first = processor.charge(request());
+        CompletableFuture<PaymentReceipt> second = processor.charge(request());
+        CompletableFuture<PaymentReceipt> rejected = processor.charge(request());
+
+        assertThat(rejected).isCompletedExceptionally();
+        assertThatThrownBy(rejected::join).hasCauseInstanceOf(PaymentUnavailableException.class);
+        assertThat(calls("bulkhead")).isEqualTo(1);
+        assertThat(meterRegistry.get("payment.bulkhead.available").gauge().value()).isZero();
+
+        answer.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(second.get(5, TimeUnit.SECONDS)).isNotNull();
+        verify(gateway, times(2)).charge(any(PaymentRequest.class));
+
+        // the permits are back
+        assertThat(processor.charge(request()).get(5, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    /**
+     * The caller books on the receipt off the payment threads, so while a pool sized burst of bookings is slow the
+     * next charges still reach the provider instead of queueing behind them or being rejected.
+     */
+    @Test
+    public void charge_SlowBookings_PaymentThreadsStayFree() throws Exception {
+        when(gateway.charge(any(PaymentRequest.class))).thenAnswer(invocation -> {
+            PaymentRequest request = invocation.getArgument(0);
+            return new PaymentReceipt(UUID.randomUUID(), request.getIdempotencyKey());
+        });
+        CountDownLatch bookingsStarted = new CountDownLatch(2);
+        List<CompletableFuture<String>> bookings = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            bookings.add(processor.charge(request()).thenApply(receipt -> {
+                bookingsStarted.countDown();
+                await(answer);
+                return Thread.currentThread().getName();
+            }));
+        }
+        assertThat(await(bookingsStarted)).isTrue();
+
+        List<CompletableFuture<PaymentReceipt>> burst = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            burst.add(processor.charge(request()));
+        }
+
+        verify(gateway, timeout(5000).times(4)).charge(any(PaymentRequest.class));
+        assertThat(calls("bulkhead")).isZero();
+
+        answer.countDown();
+        for (CompletableFuture<String> booking : bookings) {
+            assertThat(booking.get(5, TimeUnit.SECONDS)).startsWith("payment-callback-");
+        }
+        for (CompletableFuture<PaymentReceipt> charge : burst) {
+            assertThat(charge.get(5, TimeUnit.SECONDS)).isNotNull();
+        }
+        assertThat(meterRegistry.get("payment.bulkhead.available").gauge().value()).isEqualTo(2);
+    }
+
+    @Test
+    public void charge_RepeatedFailures_CircuitOpens() {
+        when(gateway.charge(any(PaymentRequest.class))).thenThrow(new IllegalStateException("connection reset"));
+
+        for (int i = 0; i < 4; i++) {
+            assertThatThrownBy(() -> processor.charge(request()).get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(PaymentUnavailableException.class);
+        }
+        assertThat(meterRegistry.get("payment.circuit.open").gauge().value()).isEqualTo(1);
+
+        assertThatThrownBy(() -> processor.charge(request()).join())
+                .hasCauseInstanceOf(PaymentUnavailableException.class);
+        assertThat(calls("circuit_open")).isEqualTo(1);
+        verify(gateway, times(4)).charge(any(PaymentRequest.class));
+    }
+
+    @Test
+    public void refund_PassedToGateway() {
+        PaymentReceipt receipt = new PaymentReceipt(UUID.randomUUID(), "token");
+
+        processor.refund(receipt);
+
+        verify(gateway, timeout(5000)).refund(receipt);
+    }
+
+    /**
+     * A refund is not turned away while every payment thread is busy charging.
+     */
+    @Test
+    public void refund_BulkheadFull_StillRefunded() {
+        gatewayWaitsForAnswer();
+        processor.charge(request());
+        processor.charge(request());
+        PaymentReceipt receipt = new PaymentReceipt(UUID.randomUUID(), "token");
+
+        processor.refund(receipt);
+
+        verify(gateway, timeout(5000)).refund(receipt);
+    }
+
+    @Test
+    public void refund_GatewayFails_RetriedUntilRefunded() {
+        PaymentReceipt receipt = new PaymentReceipt(UUID.randomUUID(), "token");
+        doThrow(new IllegalStateException("connection reset")).doNothing().when(gateway).refund(receipt);
+
+        processor.refund(receipt);
+
+        verify(gateway, timeout(5000).times(2)).refund(receipt);
+        verify(gateway, after(200).times(2)).refund(receipt);
+        assertThat(meterRegistry.get("payment.refunds").tag("outcome", "refunded").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void refund_FailsEveryAttempt_GivenUp() {
+        PaymentReceipt receipt = new PaymentReceipt(UUID.randomUUID(), "token");
+        doThrow(new IllegalStateException("connection reset")).when(gateway).refund(receipt);
+
+        processor.refund(receipt);
+
+        verify(gateway, timeout(5000).times(3)).refund(receipt);
+        verify(gateway, after(200).times(3)).refund(receipt);
+        assertThat(meterRegistry.get("payment.refunds").tag("outcome", "failed").counter().count())
+                .isEqualTo(1);
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.demo.persistance;
+
+import com.demo.domain.*;
+import com.demo.domain.location.Address;
+import com.demo.domain.location.Postcode;
+import com.demo.domain.location.State;
+import com.demo.persistance.budget.SqlStatementCounter;
+import org.hibernate.Session;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * A reservation with 4 guests, 2 general extras and a full meal plan for each guest is 31 rows across 9 tables:
+ * the reservation, its payment, 3 room nights, 4 guests, 4 meal plans, 4 guest and 2 general extra join rows, and 8
+ * food extra and 4 dietary requirement rows of the meal plans.
+ *
+ * <p>Written a row at a time that is 31 statements, and with ids from a sequence called for every row it used to
+ * be another 13. With pooled sequences and ordered jdbc batches it is one statement per table.</p>
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class BookingBatchingTest {
+
+    private static final LocalDate CHECK_IN = LocalDate.of(2030, 3, 10);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    private Room room;
+    private Set<Extra> generalExtras;
+    private List<Extra> foodExtras;
+
+    @Before
+    public void setup() {
+        Hotel hotel = new Hotel("Hotel Batched",
+                new Address("Hotel Batched", "1 batch street", null, State.VIC, "Melbourne", new Postcode("3000")),
+                3, "batched@hotel.com");
+        room = new Room("A", RoomType.Luxury, 4, BigDecimal.valueOf(120));
+        hotel.addRoom(room);
+        entityManager.persist(hotel);
+
+        generalExtras = Set.of(
+                entityManager.persist(new Extra("Foxtel", BigDecimal.valueOf(4.5), Extra.Type.Premium,
+                        Extra.Category.General)),
+                entityManager.persist(new Extra("Parking", BigDecimal.valueOf(10), Extra.Type.Premium,
+                        Extra.Category.General)));
+        foodExtras = List.of(
+                entityManager.persist(new Extra("Breakfast", BigDecimal.valueOf(15), Extra.Type.Premium,
+                        Extra.Category.Food)),
+                entityManager.persist(new Extra("Dinner", BigDecimal.valueOf(30), Extra.Type.Premium,
+                        Extra.Category.Food)));
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private Reservation reservation(LocalDate checkIn) {
+        Reservation reservation = new Reservation();
+        reservation.setRoom(room);
+        reservation.setDates(new ReservationDates(checkIn, checkIn.plusDays(3), LocalTime.of(10, 0), false, true));
+        for (String name : List.of("john", "jane", "jack", "jill")) {
+            reservation.addGuest(new Guest(name, "smith", false));
+        }
+        reservation.setGeneralExtras(generalExtras);
+        reservation.createMealPlans();
+        for (MealPlan mealPlan : reservation.getMealPlans()) {
+            mealPlan.setFoodExtras(new ArrayList<>(foodExtras));
+            mealPlan.setDietaryRequirements(new ArrayList<>(List.of(DietaryRequirement.Vegan)));
+        }
+        reservation.setCompletedPayment(new CompletedPayment(PendingPayment.CreditCardType.MasterCard,
+                "3455", "344", YearMonth.of(2030, 1)));
+        return reservation;
+    }
+
+    /**
+     * Persists a booking the way the booking commit does and flushes it.
+     *
+     * @return The statements it took.
+     */
+    private List<String> book(LocalDate checkIn) {
+        SqlStatementCounter.start();
+        Reservation reservation = entityManager.persist(reservation(checkIn));
+        reservation.getDates().nights()
+                .forEach(night -> entityManager.persist(new RoomNight(room, night, reservation)));
+        entityManager.flush();
+        return SqlStatementCounter.stop().getSql();
+    }
+
+    private static long sequenceCalls(List<String> statements) {
+        return statements.stream().filter(sql -> sql.contains("next value for")).count();
+    }
+
+    private static long writes(List<String> statements) {
+        return statements.size() - sequenceCalls(statements);
+    }
+
+    @Test
+    public void book_RowAtATime() {
+        entityManager.getEntityManager().unwrap(Session.class).setJdbcBatchSize(1);
+
+        assertThat(writes(book(CHECK_IN))).isEqualTo(31);
+    }
+
+    /**
+     * Each of the 5 sequences is called at most once, and only when the booking runs out of the block of ids it
+     * took last time.
+     */
+    @Test
+    public void book_Batched_StatementPerTable() {
+        List<String> statements = book(CHECK_IN);
+
+        assertThat(writes(statements)).isEqualTo(9);
+        assertThat(sequenceCalls(statements)).isLessThanOrEqualTo(5);
+    }
+}
@@ -0,0 +1,129 @@
+package com.demo.persistance;
+
+import com.demo.domain.Hotel;
+import com.demo.persistance.budget.SqlStatementCounter;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Loads 100k hotels and checks the location search is answered from the search indexes rather than a table scan.
+ *
+ * <p>The plans are of the statements the repository itself prepares, captured through the statement inspector, so
+ * the test fails if the generated predicate stops comparing the bare search columns. The rows are generated inside
+ * the database so the setup stays fast.</p>
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+public class HotelSearchIndexTest {
+    private static final int HOTELS = 100_000;
+    private static final int SUBURBS = 1_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    /**
+     * Spreads the hotels over 3 states, 1000 suburbs and 9000 postcodes.
+     */
+    @Before
+    public void loadHotels() {
+        jdbcTemplate.update("insert into hotel (id, name, business, street_line1, state, suburb, value, stars, email, " +
+                "earliest_check_in_time, latest_check_in_time, standard_check_out_time, latest_check_out_time, " +
+                "late_checkout_fee, search_state, search_suburb, search_postcode) " +
+                "select 1000000 + x, 'Hotel ' || x, 'Hotel ' || x, x || ' search street', " +
+                "casewhen(mod(x, 3) = 0, 'VIC', casewhen(mod(x, 3) = 1, 'NSW', 'QLD')), " +
+                "'Suburb ' || mod(x, ?), cast(1000 + mod(x, 9000) as varchar), 3, 'hotel' || x || '@hotel.com', " +
+                "'07:00:00', '22:00:00', '11:00:00', '22:00:00', 15.95, " +
+                "casewhen(mod(x, 3) = 0, 'VIC', casewhen(mod(x, 3) = 1, 'NSW', 'QLD')), " +
+                "'SUBURB ' || mod(x, ?), cast(1000 + mod(x, 9000) as varchar) " +
+                "from system_range(1, ?)", SUBURBS, SUBURBS, HOTELS);
+        jdbcTemplate.execute("analyze");
+    }
+
+    /**
+     * Runs the location search and explains every statement it prepared, the page select and the count when there is
+     * more than one page. The parameters are bound in the order the search terms appear in the where clause, followed
+     * by the page limit.
+     */
+    private List<String> plansOfSearch(String state, String suburb, String postcode) {
+        SqlStatementCounter.start();
+        hotelRepository.findAllByLocation(state, suburb, postcode, PageRequest.of(0, 20));
+        List<String> statements = SqlStatementCounter.stop().getSql();
+        assertThat(statements).isNotEmpty();
+
+        List<Object> terms = Stream.of(state, suburb, postcode)
+                .map(Hotel::normalizeSearchTerm)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        // a function around a search column would stop the index being used
+        statements.forEach(sql -> assertThat(sql.toLowerCase()).doesNotContain("upper(").doesNotContain("coalesce("));
+
+        return statements.stream()
+                .map(sql -> explain(sql, terms))
+                .collect(Collectors.toList());
+    }
+
+    private String explain(String sql, List<Object> terms) {
+        List<Object> args = new ArrayList<>(terms);
+        long parameters = sql.chars().filter(c -> c == '?').count();
+        while (args.size() < parameters) {
+            args.add(20);
+        }
+        return String.join("\n", jdbcTemplate.queryForList("explain " + sql, String.class, args.toArray()))
+                .toUpperCase();
+    }
+
+    @Test
+    public void plan_StateAndSuburb_UsesLocationIndex() {
+        assertThat(plansOfSearch("vic", "Suburb 42", null))
+                .allSatisfy(plan -> assertThat(plan).contains("IDX_HOTEL_SEARCH_LOCATION"));
+        assertThat(plansOfSearch("vic", null, null))
+                .allSatisfy(plan -> assertThat(plan).contains("IDX_HOTEL_SEARCH_LOCATION"));
+    }
+
+    @Test
+    public void plan_SuburbOnly_UsesSuburbIndex() {
+        assertThat(plansOfSearch(null, "suburb 42", null))
+                .allSatisfy(plan -> assertThat(plan).contains("IDX_HOTEL_SEARCH_SUBURB"));
+    }
+
+    @Test
+    public void plan_PostcodeOnly_UsesPostcodeIndex() {
+        assertThat(plansOfSearch(null, null, " 1042 "))
+                .allSatisfy(plan -> assertThat(plan).contains("IDX_HOTEL_SEARCH_POSTCODE"));
+    }
+
+    @Test
+    public void plan_AllParts_NoTableScan() {
+        assertThat(plansOfSearch("vic", "Suburb 42", "1042"))
+                .allSatisfy(plan -> assertThat(plan).contains("IDX_HOTEL_SEARCH_").doesNotContain("TABLESCAN"));
+    }
+
+    @Test
+    public void findAllByLocation_100kHotels() {
+        Page<Hotel> bySuburb = hotelRepository.findAllByLocation(null, "suburb 42", null, PageRequest.of(0, 20));
+        Page<Hotel> byAll = hotelRepository.findAllByLocation("vic", "Suburb 42", "1042", PageRequest.of(0, 20));
+
+        assertThat(bySuburb.getTotalElements()).isEqualTo(HOTELS / SUBURBS);
+        // x = 42 + 9000k for k = 0..11 are in suburb 42 and postcode 1042, all are divisible by 3 so in VIC
+        assertThat(byAll.getTotalElements()).isEqualTo(12);
+    }
+}
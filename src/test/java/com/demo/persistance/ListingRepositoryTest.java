@@ -0,0 +1,145 @@
+package com.demo.persistance;
+
+import com.demo.domain.Hotel;
+import com.demo.domain.QRoom;
+import com.demo.domain.Room;
+import com.demo.domain.RoomType;
+import com.demo.domain.location.Address;
+import com.demo.domain.location.Postcode;
+import com.demo.domain.location.State;
+import com.demo.persistance.keyset.KeysetQueryExecutor;
+import com.demo.persistance.keyset.KeysetRequest;
+import com.demo.persistance.keyset.KeysetSlice;
+import com.demo.persistance.predicates.RoomPredicates;
+import com.demo.persistance.predicates.SortKeys;
+import com.demo.persistance.projections.HotelListing;
+import com.demo.persistance.projections.RoomListing;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The listings must render from a single select per page. Hibernate statistics count the statements and entity
+ * loads issued while fetching a page.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({ListingRepository.class, KeysetQueryExecutor.class})
+public class ListingRepositoryTest {
+
+    private static final LocalDate CHECK_IN = LocalDate.of(2030, 3, 10);
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private ListingRepository listingRepository;
+
+    @Autowired
+    private KeysetQueryExecutor keysetQueryExecutor;
+
+    private Statistics statistics;
+    private Long hotelId;
+
+    @Before
+    public void setup() {
+        for (int i = 0; i < 3; i++) {
+            Hotel hotel = new Hotel("Hotel " + i,
+                    new Address("Hotel " + i, i + " kent street", null, State.VIC, "Melbourne", new Postcode("3000")),
+                    4, "hotel" + i + "@hotel.com");
+            for (int j = 0; j < 4; j++) {
+                hotel.addRoom(new Room(i + "-" + j, RoomType.values()[j], j + 1, BigDecimal.valueOf(100 + j)));
+            }
+            entityManager.persist(hotel);
+            hotelId = hotel.getId();
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    public void findHotelsByLocation_SinglePage_OneSelectNoEntityLoads() {
+        Page<HotelListing> page = listingRepository.findHotelsByLocation("vic", "melbourne", null,
+                PageRequest.of(0, 10, Sort.by("address.suburb", "name")));
+
+        assertThat(page.getContent()).extracting(HotelListing::getName)
+                .containsExactly("Hotel 0", "Hotel 1", "Hotel 2");
+        assertThat(page.getContent().get(0).getState()).isEqualTo(State.VIC);
+        assertThat(page.getContent().get(0).getPostcode()).isEqualTo("3000");
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    /**
+     * The count is only needed when the page is full, it is the one extra statement.
+     */
+    @Test
+    public void findHotelsByLocation_FullPage_CountsTotal() {
+        Page<HotelListing> page = listingRepository.findHotelsByLocation("VIC", null, null, PageRequest.of(0, 2));
+
+        assertThat(page.getContent()).hasSize(2);
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    /**
+     * Loading {@code Room} entities would also load each room's eagerly fetched hotel.
+     */
+    @Test
+    public void findRooms_AvailableRooms_OneSelectNoEntityLoads() {
+        Page<RoomListing> page = listingRepository.findRooms(
+                RoomPredicates.availableRoom(hotelId, CHECK_IN, CHECK_IN.plusDays(2)),
+                PageRequest.of(0, 10, Sort.by("costPerNight").descending()));
+
+        assertThat(page.getContent()).extracting(RoomListing::getBeds).containsExactly(4, 3, 2, 1);
+        assertThat(page.getContent().get(0).getRoomType()).isEqualTo(RoomType.Luxury);
+        // the hotel shown above the rooms comes with them
+        assertThat(page.getContent()).extracting(room -> room.getHotel().getId()).containsOnly(hotelId);
+        assertThat(page.getContent().get(0).getHotel().getName()).isEqualTo("Hotel 2");
+        assertThat(page.getContent().get(0).getHotel().getPostcode()).isEqualTo("3000");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    public void findHotelHeader_OneSelectNoEntityLoads() {
+        assertThat(listingRepository.findHotelHeader(hotelId))
+                .hasValueSatisfying(header -> assertThat(header.getStreetLine1()).isEqualTo("2 kent street"));
+        assertThat(listingRepository.findHotelHeader(-1L)).isEmpty();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    public void keysetRooms_AvailableRooms_OneSelectNoEntityLoads() {
+        KeysetSlice<RoomListing> slice = keysetQueryExecutor.find(QRoom.room, RoomListing.PROJECTION,
+                RoomPredicates.availableRoom(hotelId, CHECK_IN, CHECK_IN.plusDays(2)), SortKeys.ROOMS,
+                KeysetRequest.of(PageRequest.of(0, 3, Sort.by("costPerNight").descending()), null, false));
+
+        assertThat(slice.getContent()).hasSize(3);
+        assertThat(slice.hasNext()).isTrue();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+}
@@ -4,7 +4,9 @@ import com.demo.domain.*;
 import com.demo.domain.location.Address;
 import com.demo.domain.location.Postcode;
 import com.demo.domain.location.State;
+import com.demo.persistance.budget.SqlStatementCounter;
 import com.demo.persistance.predicates.RoomPredicates;
+import org.hibernate.Hibernate;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,105 +33,159 @@ public class RoomRepositoryTest {
     @Autowired
     private RoomRepository roomRepository;
 
+    @Autowired
+    private RoomNightRepository roomNightRepository;
+
+    private static final LocalDate CHECK_IN = LocalDate.of(2030, 3, 10);
+
+    private Hotel createHotel() {
+        return new Hotel("Hotel Royal",
+                new Address("Hotel Royal", "33 kent street", null,
+                        State.VIC, "Melbourne", new Postcode("3000")),
+                4, "royal@hotel.com");
+    }
+
+    /**
+     * Persists a paid reservation for the room along with the ledger entry for each night it occupies.
+     */
+    private void book(Room room, LocalDate checkIn, LocalDate checkOut) {
+        // boiler plate to create a valid reservation...
+        Reservation reservation = new Reservation();
+        reservation.setRoom(room);
+        reservation.setDates(new ReservationDates(checkIn, checkOut, LocalTime.of(10, 0), false, true));
+        reservation.setCompletedPayment(new CompletedPayment(PendingPayment.CreditCardType.MasterCard,
+                "3455", "344", YearMonth.of(2018, 1)));
+        entityManager.persist(reservation);
+
+        reservation.getDates().nights()
+                .forEach(night -> entityManager.persist(new RoomNight(room, night, reservation)));
+    }
+
     /**
      * A room cannot be available if the hotel cannot be found by its hotel id.
      */
     @Test
     public void availableRoom_HotelNotFound() {
-        Long hotelId = entityManager.persistAndGetId(new Hotel("Hotel Royal",
-                new Address("Hotel Royal", "33 kent street", null,
-                        State.VIC, "Melbourne", new Postcode("3000")),
-                4, "royal@hotel.com"), Long.class);
+        Long hotelId = entityManager.persistAndGetId(createHotel(), Long.class);
         Long nextMissingHotelId = hotelId + 1;
 
         PageRequest page = PageRequest.of(0, 20);
-        Page<Room> rooms = roomRepository.findAll(RoomPredicates.availableRoom(nextMissingHotelId), page);
+        Page<Room> rooms = roomRepository.findAll(
+                RoomPredicates.availableRoom(nextMissingHotelId, CHECK_IN, CHECK_IN.plusDays(2)), page);
         assertThat(rooms.getTotalElements()).isEqualTo(0);
     }
 
     /**
-     * When a hotel has many rooms but only 1 room is free (no reservation assigned) it should be the only room returned.
+     * When a hotel has many rooms but only 1 room is free for the requested nights it should be the only room returned.
      */
     @Test
     public void availableRoom_AtLeastOneFree() {
-        Hotel hotel = new Hotel("Hotel Royal",
-                new Address("Hotel Royal", "33 kent street", null,
-                        State.VIC, "Melbourne", new Postcode("3000")),
-                4, "royal@hotel.com");
-
-        // This room is free since the reservation is null by default.
+        Hotel hotel = createHotel();
         Room roomA = new Room("A", RoomType.Luxury, 2, BigDecimal.valueOf(63.3));
-        hotel.addRoom(roomA);
-
         Room roomB = new Room("B", RoomType.Economy, 4, BigDecimal.valueOf(45.4));
-        // boiler plate to create a valid reservation...
-        Reservation reservation = new Reservation();
-        ReservationDates reservationDates = new ReservationDates();
-        reservationDates.setCheckInDate(LocalDate.now());
-        reservationDates.setCheckOutDate(LocalDate.now().plusDays(3));
-        reservationDates.setEstimatedCheckInTime(LocalTime.of(10, 0));
-        reservationDates.setPolicyAcknowledged(true);
-        reservation.setCompletedPayment(new CompletedPayment(PendingPayment.CreditCardType.MasterCard,
-                "3455", "344", YearMonth.of(2018, 1)));
-        reservation.setDates(reservationDates);
-
-        roomB.setReservation(reservation);
+        hotel.addRoom(roomA);
         hotel.addRoom(roomB);
-
         Long hotelId = entityManager.persistAndGetId(hotel, Long.class);
+
+        book(roomB, CHECK_IN, CHECK_IN.plusDays(3));
+
         PageRequest page = PageRequest.of(0, 20);
-        Page<Room> availableRooms = roomRepository.findAll(RoomPredicates.availableRoom(hotelId), page);
+        Page<Room> availableRooms = roomRepository.findAll(
+                RoomPredicates.availableRoom(hotelId, CHECK_IN.plusDays(1), CHECK_IN.plusDays(2)), page);
 
-        // The only free hotel is returned.
+        // The only free room is returned.
         assertThat(availableRooms.getTotalElements()).isEqualTo(1);
         assertThat(availableRooms.getContent().get(0).getRoomNumber()).isEqualTo("A");
     }
 
     /**
-     * When a hotel has no free rooms, an empty list should be returned. Note: Both rooms have a non null reservation.
+     * When a hotel has no free rooms for the requested nights, an empty list should be returned.
      */
     @Test
     public void availableRoom_NoneFree() {
-        Hotel hotel = new Hotel("Hotel Royal",
-                new Address("Hotel Royal", "33 kent street", null,
-                        State.VIC, "Melbourne", new Postcode("3000")),
-                4, "royal@hotel.com");
-
-        // boiler plate to create a valid reservation...
+        Hotel hotel = createHotel();
         Room roomA = new Room("A", RoomType.Luxury, 2, BigDecimal.valueOf(63.3));
-        Reservation reservationA = new Reservation();
-        ReservationDates reservationDatesA = new ReservationDates();
-        reservationDatesA.setCheckInDate(LocalDate.now());
-        reservationDatesA.setCheckOutDate(LocalDate.now().plusDays(3));
-        reservationDatesA.setEstimatedCheckInTime(LocalTime.of(10, 0));
-        reservationDatesA.setPolicyAcknowledged(true);
-        reservationA.setDates(reservationDatesA);
-        reservationA.setCompletedPayment(new CompletedPayment(PendingPayment.CreditCardType.MasterCard,
-                "3455", "344", YearMonth.of(2018, 1)));
-        roomA.setReservation(reservationA);
-
-        // boiler plate to create a valid reservation...
         Room roomB = new Room("B", RoomType.Economy, 4, BigDecimal.valueOf(45.4));
-        Reservation reservationB = new Reservation();
-        ReservationDates reservationDatesB = new ReservationDates();
-        reservationDatesB.setCheckInDate(LocalDate.now());
-        reservationDatesB.setCheckOutDate(LocalDate.now().plusDays(3));
-        reservationDatesB.setEstimatedCheckInTime(LocalTime.of(10, 0));
-        reservationDatesB.setPolicyAcknowledged(true);
-        reservationB.setDates(reservationDatesB);
-        reservationB.setCompletedPayment(new CompletedPayment(PendingPayment.CreditCardType.MasterCard,
-                "3455", "344", YearMonth.of(2018, 1)));
-        roomB.setReservation(reservationB);
-
         hotel.addRoom(roomA);
         hotel.addRoom(roomB);
-
         Long id = entityManager.persistAndGetId(hotel, Long.class);
+
+        book(roomA, CHECK_IN, CHECK_IN.plusDays(3));
+        book(roomB, CHECK_IN.plusDays(2), CHECK_IN.plusDays(5));
+
         PageRequest page = PageRequest.of(0, 20);
-        Page<Room> availableRooms = roomRepository.findAll(RoomPredicates.availableRoom(id), page);
+        Page<Room> availableRooms = roomRepository.findAll(
+                RoomPredicates.availableRoom(id, CHECK_IN.plusDays(2), CHECK_IN.plusDays(3)), page);
 
         // no rooms are free
         assertThat(availableRooms.getTotalElements()).isEqualTo(0);
         assertThat(availableRooms.getContent()).isEmpty();
     }
-}
\ No newline at end of file
+
+    /**
+     * A room is sold night by night so it becomes free again once a previous stay checks out. The check out
+     * date of one stay can be the check in date of the next.
+     */
+    @Test
+    public void availableRoom_FreeAfterPreviousStayChecksOut() {
+        Hotel hotel = createHotel();
+        Room roomA = new Room("A", RoomType.Luxury, 2, BigDecimal.valueOf(63.3));
+        hotel.addRoom(roomA);
+        Long id = entityManager.persistAndGetId(hotel, Long.class);
+
+        book(roomA, CHECK_IN, CHECK_IN.plusDays(3));
+
+        PageRequest page = PageRequest.of(0, 20);
+        Page<Room> overlapping = roomRepository.findAll(
+                RoomPredicates.availableRoom(id, CHECK_IN.minusDays(1), CHECK_IN.plusDays(1)), page);
+        assertThat(overlapping.getTotalElements()).isEqualTo(0);
+
+        Page<Room> afterCheckOut = roomRepository.findAll(
+                RoomPredicates.availableRoom(id, CHECK_IN.plusDays(3), CHECK_IN.plusDays(5)), page);
+        assertThat(afterCheckOut.getTotalElements()).isEqualTo(1);
+
+        Page<Room> beforeCheckIn = roomRepository.findAll(
+                RoomPredicates.availableRoom(id, CHECK_IN.minusDays(2), CHECK_IN), page);
+        assertThat(beforeCheckIn.getTotalElements()).isEqualTo(1);
+    }
+
+    @Test
+    public void existsBookedNight() {
+        Hotel hotel = createHotel();
+        Room roomA = new Room("A", RoomType.Luxury, 2, BigDecimal.valueOf(63.3));
+        hotel.addRoom(roomA);
+        entityManager.persist(hotel);
+
+        book(roomA, CHECK_IN, CHECK_IN.plusDays(3));
+
+        assertThat(roomNightRepository.existsBookedNight(roomA.getId(), CHECK_IN.plusDays(2), CHECK_IN.plusDays(4)))
+                .isTrue();
+        assertThat(roomNightRepository.existsBookedNight(roomA.getId(), CHECK_IN.plusDays(3), CHECK_IN.plusDays(4)))
+                .isFalse();
+    }
+
+    /**
+     * The reservation flow fetch plan reads the room and its hotel in one select, while a plain find leaves the
+     * hotel to be loaded lazily.
+     */
+    @Test
+    public void findWithHotelById_HotelLoadedInOneStatement() {
+        Hotel hotel = createHotel();
+        Room roomA = new Room("A", RoomType.Luxury, 2, BigDecimal.valueOf(63.3));
+        hotel.addRoom(roomA);
+        entityManager.persist(hotel);
+        entityManager.flush();
+        entityManager.clear();
+
+        SqlStatementCounter.start();
+        Room room = roomRepository.findWithHotelById(roomA.getId()).get();
+        SqlStatementCounter.Statements statements = SqlStatementCounter.stop();
+
+        assertThat(Hibernate.isInitialized(room.getHotel())).isTrue();
+        assertThat(room.getHotel().getName()).isEqualTo("Hotel Royal");
+        assertThat(statements.getCount()).isEqualTo(1);
+
+        entityManager.clear();
+        assertThat(Hibernate.isInitialized(roomRepository.findById(roomA.getId()).get().getHotel())).isFalse();
+    }
+}
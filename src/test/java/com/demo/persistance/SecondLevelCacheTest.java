@@ -0,0 +1,108 @@
+package com.demo.persistance;
+
+import com.demo.domain.Extra;
+import com.demo.domain.Hotel;
+import com.demo.domain.location.Address;
+import com.demo.domain.location.Postcode;
+import com.demo.domain.location.State;
+import com.demo.reservation.ExtraRepository;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Entities only reach the second level cache once their transaction commits, so each repository call here runs in
+ * a transaction of its own.
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class SecondLevelCacheTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    @Autowired
+    private ExtraRepository extraRepository;
+
+    private Statistics statistics;
+
+    @Before
+    public void setup() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @After
+    public void teardown() {
+        hotelRepository.deleteAll();
+        extraRepository.deleteAll();
+    }
+
+    @Test
+    public void findHotelById_ServedFromRegion() {
+        Hotel hotel = hotelRepository.save(new Hotel("Hotel Cached",
+                new Address("Hotel Cached", "1 cache street", null, State.VIC, "Melbourne", new Postcode("3000")),
+                4, "cached@hotel.com"));
+        statistics.clear();
+
+        assertThat(hotelRepository.findById(hotel.getId())).isPresent();
+        assertThat(hotelRepository.findById(hotel.getId())).isPresent();
+
+        assertThat(statistics.getSecondLevelCacheStatistics("hotel").getHitCount()).isEqualTo(2);
+        assertThat(statistics.getSecondLevelCacheStatistics("hotel").getMissCount()).isZero();
+    }
+
+    /**
+     * The cached results are dropped as soon as an extra is written.
+     */
+    @Test
+    public void findAllByTypeAndCategory_ServedFromQueryCacheUntilExtraWritten() {
+        extraRepository.save(new Extra("a", BigDecimal.valueOf(1.50), Extra.Type.Basic, Extra.Category.General));
+        statistics.clear();
+
+        assertThat(extraRepository.findAllByTypeAndCategory(Extra.Type.Basic, Extra.Category.General)).hasSize(1);
+        assertThat(extraRepository.findAllByTypeAndCategory(Extra.Type.Basic, Extra.Category.General)).hasSize(1);
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+
+        extraRepository.save(new Extra("b", BigDecimal.valueOf(1.50), Extra.Type.Basic, Extra.Category.General));
+
+        assertThat(extraRepository.findAllByTypeAndCategory(Extra.Type.Basic, Extra.Category.General)).hasSize(2);
+        assertThat(statistics.getQueryCacheHitCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void endpoint_ReportsRegionStatistics() {
+        Hotel hotel = hotelRepository.save(new Hotel("Hotel Reported",
+                new Address("Hotel Reported", "2 cache street", null, State.VIC, "Melbourne", new Postcode("3000")),
+                3, "reported@hotel.com"));
+        statistics.clear();
+        hotelRepository.findById(hotel.getId());
+
+        CacheRegionsEndpoint endpoint = new CacheRegionsEndpoint(entityManagerFactory);
+
+        assertThat(endpoint.regions()).containsKeys("hotel", "room", "extra");
+        assertThat(endpoint.regions().get("hotel").getHits()).isEqualTo(1);
+        assertThat(endpoint.regions().get("hotel").getHitRatio()).isEqualTo(1.0);
+
+        endpoint.evict();
+        hotelRepository.findById(hotel.getId());
+
+        assertThat(endpoint.regions().get("hotel").getMisses()).isEqualTo(1);
+    }
+}
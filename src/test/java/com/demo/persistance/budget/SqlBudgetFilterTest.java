@@ -0,0 +1,95 @@
+package com.demo.persistance.budget;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SqlBudgetFilterTest {
+
+    private final SqlStatementCounter inspector = new SqlStatementCounter();
+
+    @SqlBudget(2)
+    public void budgeted() {
+    }
+
+    public void unbudgeted() {
+    }
+
+    /**
+     * Runs the filter on a request handled by the given method of this test, which prepares the given number of
+     * statements while it is handled.
+     */
+    private void handle(SqlBudgetFilter filter, String method, int statements) throws Exception {
+        HandlerMethod handler = new HandlerMethod(this, getClass().getMethod(method));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/rooms");
+        Servlet servlet = new HttpServlet() {
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) {
+                req.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, handler);
+                for (int i = 0; i < statements; i++) {
+                    inspector.inspect("select * from room where id = " + i);
+                }
+            }
+        };
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(servlet));
+    }
+
+    @Test
+    public void withinBudget_Passes() {
+        SqlBudgetFilter filter = new SqlBudgetFilter(10, true);
+
+        assertThatCode(() -> handle(filter, "budgeted", 2)).doesNotThrowAnyException();
+    }
+
+    @Test
+    public void overHandlerBudget_Fails() {
+        SqlBudgetFilter filter = new SqlBudgetFilter(10, true);
+
+        assertThatThrownBy(() -> handle(filter, "budgeted", 3))
+                .isInstanceOf(SqlBudgetExceededException.class)
+                .hasMessageContaining("3 SQL statements, over its budget of 2");
+    }
+
+    @Test
+    public void noHandlerBudget_DefaultApplies() {
+        SqlBudgetFilter filter = new SqlBudgetFilter(4, true);
+
+        assertThatCode(() -> handle(filter, "unbudgeted", 4)).doesNotThrowAnyException();
+        assertThatThrownBy(() -> handle(filter, "unbudgeted", 5)).isInstanceOf(SqlBudgetExceededException.class);
+    }
+
+    @Test
+    public void overBudgetNotFailing_OnlyLogged() {
+        SqlBudgetFilter filter = new SqlBudgetFilter(10, false);
+
+        assertThatCode(() -> handle(filter, "budgeted", 20)).doesNotThrowAnyException();
+    }
+
+    /**
+     * Statements outside of a request are not counted against the next one.
+     */
+    @Test
+    public void statementsOutsideRequest_NotCounted() {
+        inspector.inspect("select * from hotel");
+        SqlStatementCounter.start();
+        inspector.inspect("select * from room");
+
+        SqlStatementCounter.Statements statements = SqlStatementCounter.stop();
+
+        assertThat(statements.getCount()).isEqualTo(1);
+        assertThat(statements.getSql()).containsExactly("select * from room");
+        assertThat(SqlStatementCounter.stop().getCount()).isZero();
+    }
+}
@@ -0,0 +1,81 @@
+package com.demo.persistance.budget;
+
+import com.demo.domain.Hotel;
+import com.demo.domain.Room;
+import com.demo.domain.RoomType;
+import com.demo.domain.location.Address;
+import com.demo.domain.location.Postcode;
+import com.demo.domain.location.State;
+import com.demo.persistance.HotelRepository;
+import com.demo.reservation.flow.forms.ReservationFlow;
+import org.hibernate.Hibernate;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the listing and reservation flow handlers against the real database with budgets enforced, so a handler that
+ * starts loading associations one row at a time fails here with a {@code SqlBudgetExceededException}.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = {
+        "sql.budget.fail=true",
+        "outbox.dispatch-interval-millis=3600000"})
+@AutoConfigureMockMvc
+public class SqlBudgetIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private HotelRepository hotelRepository;
+
+    private Hotel hotel;
+
+    @Before
+    public void setup() {
+        Hotel newHotel = new Hotel("Hotel Budget",
+                new Address("Hotel Budget", "1 frugal street", null, State.VIC, "Melbourne", new Postcode("3000")),
+                3, "budget@hotel.com");
+        for (int i = 0; i < 5; i++) {
+            newHotel.addRoom(new Room(UUID.randomUUID().toString(), RoomType.Economy, 2, BigDecimal.valueOf(100)));
+        }
+        hotel = hotelRepository.save(newHotel);
+    }
+
+    @Test
+    public void getHotelRooms_WithinBudget() throws Exception {
+        mockMvc.perform(get("/hotel/{id}/rooms", hotel.getId()).param("size", "5"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/hotel/{id}/rooms", hotel.getId()).param("mode", "keyset").param("count", "true"))
+                .andExpect(status().isOk());
+    }
+
+    /**
+     * The date form loads the room with its hotel, which every later step of the flow shows without a session.
+     */
+    @Test
+    public void getDateForm_WithinBudgetAndHotelLoaded() throws Exception {
+        Long roomId = hotel.getRooms().iterator().next().getId();
+
+        MvcResult result = mockMvc.perform(get("/reservation").param("roomId", roomId.toString()))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        ReservationFlow reservationFlow = (ReservationFlow) result.getModelAndView().getModel().get("reservationFlow");
+        assertThat(Hibernate.isInitialized(reservationFlow.getReservation().getRoom().getHotel())).isTrue();
+    }
+}
@@ -0,0 +1,134 @@
+package com.demo.persistance.keyset;
+
+import com.demo.domain.Hotel;
+import com.demo.domain.QHotel;
+import com.demo.domain.location.Address;
+import com.demo.domain.location.Postcode;
+import com.demo.domain.location.State;
+import com.demo.persistance.predicates.HotelPredicates;
+import com.demo.persistance.predicates.SortKeys;
+import com.demo.persistance.projections.HotelListing;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@Import(KeysetQueryExecutor.class)
+public class KeysetQueryExecutorTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private KeysetQueryExecutor keysetQueryExecutor;
+
+    private void persistHotel(String name, int stars, State state, String suburb, String postcode) {
+        entityManager.persist(new Hotel(name,
+                new Address(name, "1 test street", null, state, suburb, new Postcode(postcode)),
+                stars, name.replace(' ', '.') + "@hotel.com"));
+    }
+
+    @Before
+    public void setup() {
+        persistHotel("Hotel Royal", 5, State.VIC, "Melbourne", "3000");
+        persistHotel("Hotel Summer", 3, State.VIC, "Melbourne", "3500");
+        persistHotel("Hotel EastNight", 3, State.VIC, "EastNight Summer", "3511");
+        persistHotel("Hotel Ryde", 5, State.NSW, "North Ryde", "2800");
+        persistHotel("Hotel Alpha", 3, State.VIC, "Melbourne", "3000");
+        persistHotel("Hotel Beta", 4, State.QLD, "Brisbane", "4000");
+        persistHotel("Hotel Gamma", 1, State.VIC, "Geelong", "3220");
+    }
+
+    /**
+     * Follows the next cursor until the last page collecting each hotel name.
+     */
+    private List<String> pageThrough(Sort sort, int size) {
+        List<String> names = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            KeysetSlice<HotelListing> slice = keysetQueryExecutor.find(QHotel.hotel, HotelListing.PROJECTION,
+                    HotelPredicates.byLocation(null, null, null), SortKeys.HOTELS,
+                    KeysetRequest.of(PageRequest.of(0, size, sort), cursor, false));
+            assertThat(slice.getContent().size()).isLessThanOrEqualTo(size);
+            slice.getContent().forEach(hotel -> names.add(hotel.getName()));
+            cursor = slice.getNextCursor();
+            pages++;
+        } while (cursor != null && pages < 20);
+        return names;
+    }
+
+    @Test
+    public void find_StarsDescThenName_VisitsEveryHotelOnceInOrder() {
+        List<String> names = pageThrough(Sort.by(Sort.Order.desc("stars"), Sort.Order.asc("name")), 2);
+
+        assertThat(names).containsExactly(
+                "Hotel Royal", "Hotel Ryde",
+                "Hotel Beta",
+                "Hotel Alpha", "Hotel EastNight", "Hotel Summer",
+                "Hotel Gamma");
+    }
+
+    /**
+     * Many hotels share the same suburb so the id tie breaker is what keeps the pages from skipping or repeating rows.
+     */
+    @Test
+    public void find_DuplicateSortValues_NoRowsSkippedOrRepeated() {
+        List<String> names = pageThrough(Sort.by("address.suburb"), 1);
+
+        assertThat(names).hasSize(7).doesNotHaveDuplicates();
+        assertThat(names.subList(3, 6)).containsExactlyInAnyOrder("Hotel Royal", "Hotel Summer", "Hotel Alpha");
+    }
+
+    @Test
+    public void find_CountRequested_IncludesTotal() {
+        KeysetSlice<HotelListing> counted = keysetQueryExecutor.find(QHotel.hotel, HotelListing.PROJECTION,
+                HotelPredicates.byLocation("VIC", null, null), SortKeys.HOTELS,
+                KeysetRequest.of(PageRequest.of(0, 2, Sort.by("name")), null, true));
+        KeysetSlice<HotelListing> uncounted = keysetQueryExecutor.find(QHotel.hotel, HotelListing.PROJECTION,
+                HotelPredicates.byLocation("VIC", null, null), SortKeys.HOTELS,
+                KeysetRequest.of(PageRequest.of(0, 2, Sort.by("name")), null, false));
+
+        assertThat(counted.getTotalElements()).isEqualTo(5L);
+        assertThat(counted.hasNext()).isTrue();
+        assertThat(uncounted.isTotalKnown()).isFalse();
+    }
+
+    /**
+     * A cursor from a different sort, or one that cannot be decoded, restarts from the first page.
+     */
+    @Test
+    public void find_ForeignOrInvalidCursor_StartsFromFirstPage() {
+        KeysetSlice<HotelListing> byName = keysetQueryExecutor.find(QHotel.hotel, HotelListing.PROJECTION, null,
+                SortKeys.HOTELS,
+                KeysetRequest.of(PageRequest.of(0, 2, Sort.by("name")), null, false));
+
+        KeysetSlice<HotelListing> byStars = keysetQueryExecutor.find(QHotel.hotel, HotelListing.PROJECTION, null,
+                SortKeys.HOTELS,
+                KeysetRequest.of(PageRequest.of(0, 2, Sort.by("name").descending()), byName.getNextCursor(), false));
+        KeysetSlice<HotelListing> invalid = keysetQueryExecutor.find(QHotel.hotel, HotelListing.PROJECTION, null,
+                SortKeys.HOTELS,
+                KeysetRequest.of(PageRequest.of(0, 2, Sort.by("name")), "not-a-cursor!", false));
+
+        assertThat(names(byStars)).containsExactly("Hotel Summer", "Hotel Ryde");
+        assertThat(names(invalid)).containsExactly("Hotel Alpha", "Hotel Beta");
+    }
+
+    private static List<String> names(KeysetSlice<HotelListing> slice) {
+        return slice.getContent().stream().map(HotelListing::getName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,87 @@
+package com.demo.reservation;
+
+import com.demo.domain.Extra;
+import com.demo.domain.ExtraChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class ExtrasCatalogTest {
+
+    private ExtraRepository extraRepository;
+    private ExtrasCatalog catalog;
+
+    private List<Extra> extras;
+
+    private Extra extra(long id, String description, Extra.Type type, Extra.Category category) {
+        Extra extra = new Extra(description, BigDecimal.valueOf(1.50), type, category);
+        extra.setId(id);
+        return extra;
+    }
+
+    @Before
+    public void setup() {
+        extras = new ArrayList<>(List.of(
+                extra(3, "Massage", Extra.Type.Premium, Extra.Category.General),
+                extra(1, "Foxtel", Extra.Type.Basic, Extra.Category.General),
+                extra(2, "Breakfast", Extra.Type.Basic, Extra.Category.Food),
+                extra(4, "Laundry", Extra.Type.Basic, Extra.Category.General)
+        ));
+
+        extraRepository = mock(ExtraRepository.class);
+        when(extraRepository.findAll()).thenAnswer(invocation -> new ArrayList<>(extras));
+        catalog = new ExtrasCatalog(extraRepository, new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void getExtras_GroupsByTypeAndCategoryInIdOrder() {
+        assertThat(catalog.getExtras(Extra.Type.Basic, Extra.Category.General))
+                .extracting(Extra::getDescription).containsExactly("Foxtel", "Laundry");
+        assertThat(catalog.getExtras(Extra.Type.Basic, Extra.Category.Food))
+                .extracting(Extra::getDescription).containsExactly("Breakfast");
+        assertThat(catalog.getExtras(Extra.Type.Premium, Extra.Category.Food)).isEmpty();
+    }
+
+    /**
+     * Every read after the first is answered from the snapshot.
+     */
+    @Test
+    public void reads_LoadCatalogOnce() {
+        catalog.getExtras(Extra.Type.Basic, Extra.Category.General);
+        catalog.getExtras(Extra.Type.Premium, Extra.Category.Food);
+        catalog.findById(1L);
+        catalog.findAllById(List.of(1L, 2L));
+
+        verify(extraRepository, times(1)).findAll();
+        verifyNoMoreInteractions(extraRepository);
+    }
+
+    @Test
+    public void findAllById_KeepsRequestedOrderAndSkipsUnknownIds() {
+        assertThat(catalog.findAllById(List.of(4L, 99L, 1L)))
+                .extracting(Extra::getDescription).containsExactly("Laundry", "Foxtel");
+        assertThat(catalog.findById(99L)).isEmpty();
+        assertThat(catalog.findById(3L)).hasValueSatisfying(extra ->
+                assertThat(extra.getDescription()).isEqualTo("Massage"));
+    }
+
+    @Test
+    public void onExtraChanged_ReloadsCatalog() {
+        assertThat(catalog.getExtras(Extra.Type.Premium, Extra.Category.Food)).isEmpty();
+
+        extras.add(extra(5, "Dinner", Extra.Type.Premium, Extra.Category.Food));
+        catalog.onExtraChanged(new ExtraChangedEvent(5L));
+
+        assertThat(catalog.getExtras(Extra.Type.Premium, Extra.Category.Food))
+                .extracting(Extra::getDescription).containsExactly("Dinner");
+        assertThat(catalog.findById(5L)).isPresent();
+        verify(extraRepository, times(2)).findAll();
+    }
+}
@@ -0,0 +1,168 @@
+package com.demo.reservation.flow;
+
+import com.demo.availability.RoomHoldService;
+import com.demo.reservation.flow.forms.ReservationFlow;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class AbandonedFlowReaperTest {
+
+    private MutableClock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private RoomHoldService roomHoldService;
+    private AbandonedFlowReaper reaper;
+
+    private List<UUID> evicted;
+
+    @Before
+    public void setup() {
+        clock = new MutableClock();
+        meterRegistry = new SimpleMeterRegistry();
+        roomHoldService = mock(RoomHoldService.class);
+        reaper = new AbandonedFlowReaper(Map.of(ReservationFlow.Step.Dates, Duration.ofMinutes(10)),
+                Duration.ofMinutes(30), 3, Duration.ofSeconds(30), roomHoldService, meterRegistry, clock);
+        evicted = new ArrayList<>();
+    }
+
+    private UUID startFlow(ReservationFlow.Step step) {
+        UUID reservationId = UUID.randomUUID();
+        touch(reservationId, step);
+        return reservationId;
+    }
+
+    private void touch(UUID reservationId, ReservationFlow.Step step) {
+        reaper.touch(reservationId, step, () -> evicted.add(reservationId));
+    }
+
+    private double evictions(String reason) {
+        return meterRegistry.find("reservation.flows.evicted").tag("reason", reason).counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
+    @Test
+    public void sweep_IdleBeyondStepTtl_EvictedAndHoldReleased() {
+        UUID browsing = startFlow(ReservationFlow.Step.Dates);
+        UUID paying = startFlow(ReservationFlow.Step.Payment);
+
+        clock.advance(Duration.ofMinutes(15));
+
+        assertThat(reaper.sweep()).isEqualTo(1);
+        assertThat(evicted).containsExactly(browsing);
+        verify(roomHoldService).release(browsing);
+        verify(roomHoldService, never()).release(paying);
+
+        clock.advance(Duration.ofMinutes(15));
+
+        assertThat(reaper.sweep()).isEqualTo(1);
+        assertThat(evicted).containsExactly(browsing, paying);
+        assertThat(reaper.liveFlows()).isZero();
+        assertThat(evictions("idle")).isEqualTo(2);
+    }
+
+    @Test
+    public void touch_ActivityPushesBackEviction() {
+        UUID reservationId = startFlow(ReservationFlow.Step.Dates);
+
+        clock.advance(Duration.ofMinutes(8));
+        touch(reservationId, ReservationFlow.Step.Guests);
+        clock.advance(Duration.ofMinutes(8));
+
+        // now on a step with the longer default ttl
+        assertThat(reaper.sweep()).isZero();
+        assertThat(reaper.liveFlows()).isEqualTo(1);
+    }
+
+    @Test
+    public void touch_OverCapacity_EvictsLeastRecentlyUsed() {
+        UUID first = startFlow(ReservationFlow.Step.Dates);
+        UUID second = startFlow(ReservationFlow.Step.Dates);
+        startFlow(ReservationFlow.Step.Dates);
+        touch(first, ReservationFlow.Step.Guests);
+
+        startFlow(ReservationFlow.Step.Dates);
+
+        assertThat(evicted).containsExactly(second);
+        verify(roomHoldService).release(second);
+        assertThat(reaper.liveFlows()).isEqualTo(3);
+        assertThat(evictions("capacity")).isEqualTo(1);
+    }
+
+    @Test
+    public void complete_NoLongerTrackedOrReleased() {
+        UUID reservationId = startFlow(ReservationFlow.Step.Payment);
+        clock.advance(Duration.ofMinutes(5));
+
+        reaper.complete(reservationId);
+        clock.advance(Duration.ofHours(1));
+
+        assertThat(reaper.sweep()).isZero();
+        verify(roomHoldService, never()).release(any());
+        assertThat(meterRegistry.get("reservation.flow.age").tag("outcome", "completed").timer()
+                .totalTime(TimeUnit.MINUTES)).isEqualTo(5);
+    }
+
+    @Test
+    public void liveFlows_PublishedAsGauge() {
+        startFlow(ReservationFlow.Step.Dates);
+        startFlow(ReservationFlow.Step.Guests);
+
+        assertThat(meterRegistry.get("reservation.flows.live").gauge().value()).isEqualTo(2);
+    }
+
+    /**
+     * A failed eviction must not stop the remaining flows from being swept.
+     */
+    @Test
+    public void sweep_EvictionFails_RemainingFlowsStillEvicted() {
+        reaper.touch(UUID.randomUUID(), ReservationFlow.Step.Dates, () -> {
+            throw new IllegalStateException("session store unavailable");
+        });
+        UUID second = startFlow(ReservationFlow.Step.Dates);
+        clock.advance(Duration.ofMinutes(10));
+
+        assertThat(reaper.sweep()).isEqualTo(2);
+        assertThat(evicted).containsExactly(second);
+        assertThat(reaper.liveFlows()).isZero();
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2030-05-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.demo.reservation.flow;
+
+import com.demo.availability.RoomHoldService;
+import com.demo.domain.Guest;
+import com.demo.domain.Room;
+import com.demo.reservation.ExtrasService;
+import com.demo.reservation.RoomCache;
+import com.demo.reservation.flow.forms.ReservationFlow;
+import com.demo.reservation.flow.forms.ReservationFlowState;
+import com.demo.reservation.flow.helpers.FlowStages;
+import com.demo.reservation.flow.store.FileFlowStore;
+import com.demo.reservation.flow.store.FlowStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.http.Cookie;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ExternalFlowSessionStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Room room;
+    private FlowStore flowStore;
+    private AbandonedFlowReaper reaper;
+    private ExternalFlowSessionStore store;
+
+    private Cookie flowCookie;
+    private MockHttpServletResponse response;
+
+    @Before
+    public void setup() {
+        room = FlowStages.createRoom();
+        RoomCache roomCache = mock(RoomCache.class);
+        when(roomCache.findById(room.getId())).thenReturn(Optional.of(room));
+        ExtrasService extrasService = mock(ExtrasService.class);
+        when(extrasService.getExtrasById(any())).thenReturn(List.of());
+
+        flowStore = spy(new FileFlowStore(folder.getRoot().toPath()));
+        Clock clock = Clock.fixed(Instant.parse("2030-01-01T00:00:00Z"), ZoneOffset.UTC);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        // never started, every flow is idle as far as a sweep in the test is concerned
+        reaper = new AbandonedFlowReaper(Collections.emptyMap(), Duration.ZERO, 100, Duration.ofSeconds(30),
+                mock(RoomHoldService.class), meterRegistry, clock);
+        store = new ExternalFlowSessionStore(roomCache, extrasService, reaper, meterRegistry, flowStore,
+                Duration.ofMinutes(30), clock);
+    }
+
+    /**
+     * Each request carries the cookie set by the previous one, there is no shared {@code HttpSession}.
+     */
+    private ServletWebRequest nextRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        if (flowCookie != null) {
+            request.setCookies(flowCookie);
+        }
+        response = new MockHttpServletResponse();
+        return new ServletWebRequest(request, response);
+    }
+
+    private void keepCookie() {
+        Cookie cookie = response.getCookie(ExternalFlowSessionStore.FLOW_COOKIE);
+        if (cookie != null) {
+            flowCookie = cookie;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, byte[]> lastSavedAttributes() {
+        ArgumentCaptor<Map<String, byte[]>> changed = ArgumentCaptor.forClass(Map.class);
+        verify(flowStore, atLeastOnce()).save(anyString(), changed.capture(), anyLong());
+        return changed.getValue();
+    }
+
+    @Test
+    public void newFlow_SetsCookieAndStoresEveryAttribute() {
+        store.storeAttribute(nextRequest(), "reservationFlow", FlowStages.guestCompletedFlow());
+
+        Cookie cookie = response.getCookie(ExternalFlowSessionStore.FLOW_COOKIE);
+        assertThat(cookie).isNotNull();
+        assertThat(cookie.isHttpOnly()).isTrue();
+        assertThat(lastSavedAttributes()).containsOnlyKeys(ReservationFlowState.RESERVATION_ATTRIBUTE,
+                ReservationFlowState.DATES_ATTRIBUTE, ReservationFlowState.GUESTS_ATTRIBUTE,
+                ReservationFlowState.EXTRAS_ATTRIBUTE, ReservationFlowState.MEAL_PLANS_ATTRIBUTE,
+                ReservationFlowState.STEPS_ATTRIBUTE);
+    }
+
+    @Test
+    public void nextRequest_RestoresFlowFromCookie() {
+        ReservationFlow flow = FlowStages.guestCompletedFlow();
+        flow.completeStep(ReservationFlow.Step.Dates);
+        store.storeAttribute(nextRequest(), "reservationFlow", flow);
+        keepCookie();
+
+        ReservationFlow restored = (ReservationFlow) store.retrieveAttribute(nextRequest(), "reservationFlow");
+
+        assertThat(restored.getReservation().getReservationId()).isEqualTo(flow.getReservation().getReservationId());
+        assertThat(restored.getReservation().getRoom()).isSameAs(room);
+        assertThat(restored.getReservation().getDates().getCheckInDate())
+                .isEqualTo(flow.getReservation().getDates().getCheckInDate());
+        assertThat(restored.getReservation().getGuests()).extracting(Guest::getTempId)
+                .containsExactly(flow.getReservation().getGuests().iterator().next().getTempId());
+        assertThat(restored.isCompleted(ReservationFlow.Step.Dates)).isTrue();
+    }
+
+    /**
+     * A half filled guest form can leave a guest without a name in the flow.
+     */
+    @Test
+    public void nextRequest_GuestWithoutName_RestoredWithoutName() {
+        ReservationFlow flow = FlowStages.guestCompletedFlow();
+        Guest unnamed = new Guest();
+        unnamed.setLastName("smith");
+        flow.getReservation().addGuest(unnamed);
+        flow.getReservation().createMealPlans();
+        store.storeAttribute(nextRequest(), "reservationFlow", flow);
+        keepCookie();
+
+        ReservationFlow restored = (ReservationFlow) store.retrieveAttribute(nextRequest(), "reservationFlow");
+
+        assertThat(restored.getReservation().getGuests()).isEqualTo(flow.getReservation().getGuests());
+        assertThat(restored.getReservation().getGuests())
+                .filteredOn(guest -> guest.getTempId().equals(unnamed.getTempId()))
+                .extracting(Guest::getFirstName, Guest::getLastName)
+                .containsExactly(tuple(null, "smith"));
+        assertThat(restored.getReservation().getMealPlans()).hasSize(2);
+    }
+
+    @Test
+    public void changedFlow_WritesOnlyDirtyAttributes() {
+        store.storeAttribute(nextRequest(), "reservationFlow", FlowStages.guestCompletedFlow());
+        keepCookie();
+
+        ServletWebRequest request = nextRequest();
+        ReservationFlow restored = (ReservationFlow) store.retrieveAttribute(request, "reservationFlow");
+        restored.getReservation().addGuest(new Guest("sara", "smith", true));
+        restored.completeStep(ReservationFlow.Step.Guests);
+        store.storeAttribute(request, "reservationFlow", restored);
+
+        assertThat(lastSavedAttributes()).containsOnlyKeys(ReservationFlowState.GUESTS_ATTRIBUTE,
+                ReservationFlowState.STEPS_ATTRIBUTE);
+    }
+
+    /**
+     * The expiry was set moments ago so an unchanged flow is not written at all.
+     */
+    @Test
+    public void unchangedFlow_NotWritten() {
+        store.storeAttribute(nextRequest(), "reservationFlow", FlowStages.guestCompletedFlow());
+        keepCookie();
+
+        ServletWebRequest request = nextRequest();
+        store.storeAttribute(request, "reservationFlow", store.retrieveAttribute(request, "reservationFlow"));
+
+        verify(flowStore, times(1)).save(anyString(), anyMap(), anyLong());
+    }
+
+    @Test
+    public void cleanup_DeletesFlowAndExpiresCookie() {
+        store.storeAttribute(nextRequest(), "reservationFlow", FlowStages.guestCompletedFlow());
+        keepCookie();
+
+        store.cleanupAttribute(nextRequest(), "reservationFlow");
+
+        assertThat(response.getCookie(ExternalFlowSessionStore.FLOW_COOKIE).getMaxAge()).isZero();
+        assertThat(store.retrieveAttribute(nextRequest(), "reservationFlow")).isNull();
+    }
+
+    @Test
+    public void malformedCookie_StartsNewFlow() {
+        flowCookie = new Cookie(ExternalFlowSessionStore.FLOW_COOKIE, "../flows");
+
+        assertThat(store.retrieveAttribute(nextRequest(), "reservationFlow")).isNull();
+        verify(flowStore, never()).load(anyString(), anyLong());
+    }
+
+    @Test
+    public void evictedFlow_DeletedFromFlowStore() {
+        store.storeAttribute(nextRequest(), "reservationFlow", FlowStages.guestCompletedFlow());
+        keepCookie();
+
+        assertThat(reaper.sweep()).isEqualTo(1);
+
+        assertThat(store.retrieveAttribute(nextRequest(), "reservationFlow")).isNull();
+        verify(flowStore).delete(flowCookie.getValue());
+    }
+}
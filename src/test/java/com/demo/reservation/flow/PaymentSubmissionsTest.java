@@ -0,0 +1,181 @@
+package com.demo.reservation.flow;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class PaymentSubmissionsTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private PaymentSubmissions submissions;
+    private ExecutorService executor;
+
+    private UUID reservationId;
+    private String token;
+
+    @Before
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        submissions = new PaymentSubmissions(meterRegistry, Duration.ofMinutes(5), 100, Duration.ofSeconds(5));
+        executor = Executors.newFixedThreadPool(2);
+        reservationId = UUID.randomUUID();
+        token = submissions.issue(reservationId);
+    }
+
+    @After
+    public void teardown() {
+        executor.shutdownNow();
+    }
+
+    private double outcome(String outcome) {
+        return meterRegistry.counter("reservation.payment.submissions", "outcome", outcome).count();
+    }
+
+    private static CompletableFuture<PaymentSubmissions.Outcome> booked() {
+        return CompletableFuture.completedFuture(PaymentSubmissions.Outcome.booked());
+    }
+
+    @Test
+    public void submit_ConcurrentReplay_WaitsForFirstSubmission() throws Exception {
+        CompletableFuture<PaymentSubmissions.Outcome> payment = new CompletableFuture<>();
+        AtomicInteger payments = new AtomicInteger();
+
+        CompletableFuture<PaymentSubmissions.Outcome> first = submissions.submit(token, reservationId, () -> {
+            payments.incrementAndGet();
+            return payment;
+        });
+        CompletableFuture<PaymentSubmissions.Outcome> replay = submissions.submit(token, reservationId, () -> {
+            payments.incrementAndGet();
+            return booked();
+        });
+
+        assertThat(replay).isNotDone();
+        payment.complete(PaymentSubmissions.Outcome.booked());
+
+        assertThat(first.get(5, TimeUnit.SECONDS).getType()).isEqualTo(PaymentSubmissions.Outcome.Type.Booked);
+        assertThat(replay.get(5, TimeUnit.SECONDS).getType()).isEqualTo(PaymentSubmissions.Outcome.Type.Booked);
+        assertThat(payments.get()).isEqualTo(1);
+        assertThat(outcome("processed")).isEqualTo(1);
+        assertThat(outcome("replayed")).isEqualTo(1);
+    }
+
+    /**
+     * Submissions racing on separate threads still only process the payment once.
+     */
+    @Test
+    public void submit_ConcurrentThreads_PaymentProcessedOnce() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger payments = new AtomicInteger();
+        CompletableFuture<PaymentSubmissions.Outcome> payment = new CompletableFuture<>();
+
+        List<Future<CompletableFuture<PaymentSubmissions.Outcome>>> submitted = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            submitted.add(executor.submit(() -> {
+                await(start);
+                return submissions.submit(token, reservationId, () -> {
+                    payments.incrementAndGet();
+                    return payment;
+                });
+            }));
+        }
+        start.countDown();
+        List<CompletableFuture<PaymentSubmissions.Outcome>> outcomes = new ArrayList<>();
+        for (Future<CompletableFuture<PaymentSubmissions.Outcome>> future : submitted) {
+            outcomes.add(future.get(5, TimeUnit.SECONDS));
+        }
+        payment.complete(PaymentSubmissions.Outcome.booked());
+
+        for (CompletableFuture<PaymentSubmissions.Outcome> outcome : outcomes) {
+            assertThat(outcome.get(5, TimeUnit.SECONDS).getType())
+                    .isEqualTo(PaymentSubmissions.Outcome.Type.Booked);
+        }
+        assertThat(payments.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void submit_ReplayOutlastsWait_InProgress() throws Exception {
+        submissions = new PaymentSubmissions(meterRegistry, Duration.ofMinutes(5), 100, Duration.ofMillis(50));
+        token = submissions.issue(reservationId);
+        CompletableFuture<PaymentSubmissions.Outcome> payment = new CompletableFuture<>();
+
+        submissions.submit(token, reservationId, () -> payment);
+
+        assertThat(submissions.submit(token, reservationId, PaymentSubmissionsTest::booked)
+                .get(5, TimeUnit.SECONDS).getType())
+                .isEqualTo(PaymentSubmissions.Outcome.Type.InProgress);
+    }
+
+    /**
+     * Nothing was booked so the guest can submit the same form again.
+     */
+    @Test
+    public void submit_PaymentFails_TokenCanBeSubmittedAgain() throws Exception {
+        CompletableFuture<PaymentSubmissions.Outcome> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new IllegalStateException("database unavailable"));
+
+        assertThatThrownBy(() -> submissions.submit(token, reservationId, () -> failed).get(5, TimeUnit.SECONDS))
+                .hasCauseInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> submissions.submit(token, reservationId, () -> {
+            throw new IllegalStateException("database unavailable");
+        }).get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(IllegalStateException.class);
+
+        assertThat(submissions.submit(token, reservationId, PaymentSubmissionsTest::booked)
+                .get(5, TimeUnit.SECONDS).getType())
+                .isEqualTo(PaymentSubmissions.Outcome.Type.Booked);
+        assertThat(outcome("processed")).isEqualTo(1);
+    }
+
+    /**
+     * A replay waiting on a submission that then fails gets to process the payment itself.
+     */
+    @Test
+    public void submit_FirstSubmissionFails_ReplayRetriesPayment() throws Exception {
+        CompletableFuture<PaymentSubmissions.Outcome> payment = new CompletableFuture<>();
+        AtomicInteger payments = new AtomicInteger();
+
+        CompletableFuture<PaymentSubmissions.Outcome> first = submissions.submit(token, reservationId, () -> payment);
+        CompletableFuture<PaymentSubmissions.Outcome> replay = submissions.submit(token, reservationId, () -> {
+            payments.incrementAndGet();
+            return booked();
+        });
+        payment.completeExceptionally(new IllegalStateException("payment provider unavailable"));
+
+        assertThat(first).isCompletedExceptionally();
+        assertThat(replay.get(5, TimeUnit.SECONDS).getType()).isEqualTo(PaymentSubmissions.Outcome.Type.Booked);
+        assertThat(payments.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void submit_UnknownOrOtherReservationsToken_Expired() throws Exception {
+        assertThat(submissions.submit("unknown", reservationId, PaymentSubmissionsTest::booked).get().getType())
+                .isEqualTo(PaymentSubmissions.Outcome.Type.Expired);
+        assertThat(submissions.submit(null, reservationId, PaymentSubmissionsTest::booked).get().getType())
+                .isEqualTo(PaymentSubmissions.Outcome.Type.Expired);
+        assertThat(submissions.submit(token, UUID.randomUUID(), PaymentSubmissionsTest::booked).get().getType())
+                .isEqualTo(PaymentSubmissions.Outcome.Type.Expired);
+
+        // the token is still good for its own reservation
+        assertThat(submissions.submit(token, reservationId, PaymentSubmissionsTest::booked).get().getType())
+                .isEqualTo(PaymentSubmissions.Outcome.Type.Booked);
+        assertThat(outcome("rejected")).isEqualTo(3);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
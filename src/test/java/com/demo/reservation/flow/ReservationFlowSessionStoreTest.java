@@ -0,0 +1,225 @@
+package com.demo.reservation.flow;
+
+import com.demo.availability.RoomHoldService;
+import com.demo.domain.*;
+import com.demo.reservation.ExtrasService;
+import com.demo.reservation.RoomCache;
+import com.demo.reservation.flow.forms.ReservationFlow;
+import com.demo.reservation.flow.forms.ReservationFlowState;
+import com.demo.reservation.flow.helpers.FlowStages;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class ReservationFlowSessionStoreTest {
+
+    private Room room;
+    private Extra foxtel;
+    private Extra breakfast;
+
+    private RoomCache roomCache;
+    private RoomHoldService roomHoldService;
+    private SimpleMeterRegistry meterRegistry;
+    private AbandonedFlowReaper reaper;
+    private ReservationFlowSessionStore store;
+
+    private MockHttpServletRequest servletRequest;
+
+    @Before
+    public void setup() {
+        room = FlowStages.createRoom();
+        foxtel = new Extra("foxtel", BigDecimal.valueOf(4.5), Extra.Type.Basic, Extra.Category.General);
+        foxtel.setId(10L);
+        breakfast = new Extra("breakfast", BigDecimal.valueOf(2), Extra.Type.Basic, Extra.Category.Food);
+        breakfast.setId(20L);
+
+        roomCache = mock(RoomCache.class);
+        when(roomCache.findById(room.getId())).thenReturn(Optional.of(room));
+
+        ExtrasService extrasService = mock(ExtrasService.class);
+        when(extrasService.getExtrasById(any())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            List<Extra> extras = new ArrayList<>();
+            for (Extra extra : List.of(foxtel, breakfast)) {
+                if (ids.contains(extra.getId())) {
+                    extras.add(extra);
+                }
+            }
+            return extras;
+        });
+
+        meterRegistry = new SimpleMeterRegistry();
+        roomHoldService = mock(RoomHoldService.class);
+        // a single live flow so starting a second one evicts the first
+        reaper = new AbandonedFlowReaper(Collections.emptyMap(), Duration.ofMinutes(30), 1, Duration.ofSeconds(30),
+                roomHoldService, meterRegistry, Clock.systemUTC());
+        store = new ReservationFlowSessionStore(roomCache, extrasService, reaper, meterRegistry);
+        servletRequest = new MockHttpServletRequest();
+    }
+
+    private ServletWebRequest nextRequest() {
+        MockHttpServletRequest next = new MockHttpServletRequest();
+        next.setSession(servletRequest.getSession());
+        servletRequest = next;
+        return new ServletWebRequest(next);
+    }
+
+    private ReservationFlow mealsCompletedFlow() {
+        ReservationFlow flow = FlowStages.guestCompletedFlow();
+        Reservation reservation = flow.getReservation();
+        reservation.addGuest(new Guest("sara", "smith", true));
+        reservation.getDates().setLateCheckout(true);
+        reservation.setGeneralExtras(Set.of(foxtel));
+        reservation.createMealPlans();
+        reservation.getMealPlans().get(1).setFoodExtras(new ArrayList<>(List.of(breakfast)));
+        reservation.getMealPlans().get(1).setDietaryRequirements(
+                new ArrayList<>(List.of(DietaryRequirement.Vegan, DietaryRequirement.GlutenIntolerant)));
+
+        flow.completeStep(ReservationFlow.Step.Dates);
+        flow.completeStep(ReservationFlow.Step.Guests);
+        flow.completeStep(ReservationFlow.Step.Extras);
+        flow.setActive(ReservationFlow.Step.Meals);
+        return flow;
+    }
+
+    @Test
+    public void storeAttribute_HoldsCompactStateInSession() {
+        store.storeAttribute(nextRequest(), "reservationFlow", mealsCompletedFlow());
+
+        assertThat(servletRequest.getSession().getAttribute("reservationFlow"))
+                .isInstanceOf(ReservationFlowState.class);
+        assertThat(meterRegistry.get("reservation.flow.session.size").summary().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("reservation.flow.session.size").summary().max()).isGreaterThan(0);
+    }
+
+    @Test
+    public void retrieveAttribute_RestoresFlow() {
+        ReservationFlow flow = mealsCompletedFlow();
+        Reservation original = flow.getReservation();
+        store.storeAttribute(nextRequest(), "reservationFlow", flow);
+
+        ReservationFlow restored = (ReservationFlow) store.retrieveAttribute(nextRequest(), "reservationFlow");
+        Reservation reservation = restored.getReservation();
+
+        assertThat(restored.getActiveStep()).isEqualTo(ReservationFlow.Step.Meals);
+        assertThat(restored.isCompleted(ReservationFlow.Step.Extras)).isTrue();
+        assertThat(restored.isCompleted(ReservationFlow.Step.Meals)).isFalse();
+
+        assertThat(reservation.getReservationId()).isEqualTo(original.getReservationId());
+        assertThat(reservation.getRoom()).isSameAs(room);
+        assertThat(reservation.getDates().getCheckInDate()).isEqualTo(original.getDates().getCheckInDate());
+        assertThat(reservation.getDates().getCheckOutDate()).isEqualTo(original.getDates().getCheckOutDate());
+        assertThat(reservation.getDates().getEstimatedCheckInTime())
+                .isEqualTo(original.getDates().getEstimatedCheckInTime());
+        assertThat(reservation.getDates().isLateCheckout()).isTrue();
+        assertThat(reservation.getDates().isPolicyAcknowledged()).isTrue();
+
+        assertThat(reservation.getGuests()).isEqualTo(original.getGuests());
+        assertThat(reservation.getGuests()).extracting(Guest::getTempId)
+                .containsExactlyInAnyOrderElementsOf(
+                        original.getGuests().stream().map(Guest::getTempId).collect(Collectors.toList()));
+        assertThat(reservation.getGeneralExtras()).containsExactly(foxtel);
+
+        assertThat(reservation.getMealPlans()).hasSize(2);
+        MealPlan childPlan = reservation.getMealPlans().get(1);
+        assertThat(childPlan.getGuest().getFirstName()).isEqualTo("sara");
+        assertThat(reservation.getGuests()).anyMatch(guest -> guest == childPlan.getGuest());
+        assertThat(childPlan.getFoodExtras()).containsExactly(breakfast);
+        assertThat(childPlan.getDietaryRequirements())
+                .containsExactly(DietaryRequirement.Vegan, DietaryRequirement.GlutenIntolerant);
+
+        assertThat(reservation.getTotalCostIncludingTax()).isEqualTo(original.getTotalCostIncludingTax());
+    }
+
+    @Test
+    public void storeAttribute_UnchangedFlow_NotWrittenAgain() {
+        store.storeAttribute(nextRequest(), "reservationFlow", mealsCompletedFlow());
+        Object stored = servletRequest.getSession().getAttribute("reservationFlow");
+
+        ServletWebRequest request = nextRequest();
+        ReservationFlow restored = (ReservationFlow) store.retrieveAttribute(request, "reservationFlow");
+        store.storeAttribute(request, "reservationFlow", restored);
+
+        assertThat(servletRequest.getSession().getAttribute("reservationFlow")).isSameAs(stored);
+        assertThat(meterRegistry.get("reservation.flow.session.size").summary().count()).isEqualTo(1);
+
+        request = nextRequest();
+        restored = (ReservationFlow) store.retrieveAttribute(request, "reservationFlow");
+        restored.completeStep(ReservationFlow.Step.Meals);
+        store.storeAttribute(request, "reservationFlow", restored);
+
+        assertThat(servletRequest.getSession().getAttribute("reservationFlow")).isNotEqualTo(stored);
+        assertThat(meterRegistry.get("reservation.flow.session.size").summary().count()).isEqualTo(2);
+    }
+
+    /**
+     * Nothing can be priced without the room, so the flow is dropped and a new one is started.
+     */
+    @Test
+    public void retrieveAttribute_RoomRemoved_DiscardsFlow() {
+        store.storeAttribute(nextRequest(), "reservationFlow", mealsCompletedFlow());
+        when(roomCache.findById(anyLong())).thenReturn(Optional.empty());
+
+        assertThat(store.retrieveAttribute(nextRequest(), "reservationFlow")).isNull();
+        assertThat(servletRequest.getSession().getAttribute("reservationFlow")).isNull();
+        assertThat(meterRegistry.get("reservation.flow.session.discarded").counter().count()).isEqualTo(1);
+    }
+
+    /**
+     * Sessions created before the flow was kept compact still hold the full flow.
+     */
+    @Test
+    public void retrieveAttribute_FullFlowInSession_ReturnedAsIs() {
+        ReservationFlow flow = mealsCompletedFlow();
+        servletRequest.getSession().setAttribute("reservationFlow", flow);
+
+        assertThat(store.retrieveAttribute(nextRequest(), "reservationFlow")).isSameAs(flow);
+    }
+
+    @Test
+    public void storeAttribute_EvictedForCapacity_RemovedFromSessionAndHoldReleased() {
+        ReservationFlow first = mealsCompletedFlow();
+        store.storeAttribute(nextRequest(), "reservationFlow", first);
+        MockHttpServletRequest firstSession = servletRequest;
+
+        // a new session starting another flow
+        servletRequest = new MockHttpServletRequest();
+        store.storeAttribute(nextRequest(), "reservationFlow", mealsCompletedFlow());
+
+        assertThat(firstSession.getSession().getAttribute("reservationFlow")).isNull();
+        assertThat(servletRequest.getSession().getAttribute("reservationFlow")).isNotNull();
+        verify(roomHoldService).release(first.getReservation().getReservationId());
+        assertThat(reaper.liveFlows()).isEqualTo(1);
+    }
+
+    @Test
+    public void cleanupAttribute_CompletedFlow_NoLongerTracked() {
+        store.storeAttribute(nextRequest(), "reservationFlow", mealsCompletedFlow());
+
+        ServletWebRequest request = nextRequest();
+        store.retrieveAttribute(request, "reservationFlow");
+        store.cleanupAttribute(request, "reservationFlow");
+
+        assertThat(servletRequest.getSession().getAttribute("reservationFlow")).isNull();
+        assertThat(reaper.liveFlows()).isZero();
+        verify(roomHoldService, never()).release(any(UUID.class));
+    }
+}
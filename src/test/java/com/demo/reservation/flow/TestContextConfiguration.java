@@ -1,9 +1,12 @@
 package com.demo.reservation.flow;
 
 import com.demo.util.TemplateUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 public class TestContextConfiguration {
 
@@ -11,4 +14,9 @@ public class TestContextConfiguration {
     public TemplateUtil templateUtil() {
         return new TemplateUtil();
     }
+
+    @Bean
+    public PaymentSubmissions paymentSubmissions() {
+        return new PaymentSubmissions(new SimpleMeterRegistry(), Duration.ofMinutes(5), 100, Duration.ofSeconds(5));
+    }
 }
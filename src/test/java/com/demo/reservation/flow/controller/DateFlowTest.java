@@ -1,11 +1,15 @@
 package com.demo.reservation.flow.controller;
 
 import com.demo.TimeProvider;
-import com.demo.domain.Reservation;
+import com.demo.availability.AvailabilityService;
+import com.demo.availability.BookingService;
+import com.demo.availability.RoomHoldService;
 import com.demo.domain.ReservationDates;
 import com.demo.domain.Room;
+import com.demo.payment.PaymentProcessor;
 import com.demo.persistance.RoomRepository;
-import com.demo.reservation.ExtraRepository;
+import com.demo.reservation.ExtrasService;
+import com.demo.reservation.flow.PaymentSubmissions;
 import com.demo.reservation.flow.ReservationController;
 import com.demo.reservation.flow.forms.ReservationFlow;
 import com.demo.reservation.flow.helpers.FlowMatchers;
@@ -26,10 +30,12 @@ import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 import static com.demo.reservation.flow.helpers.FlowMatchers.modelHasActiveFlowStep;
 import static com.demo.reservation.flow.helpers.FlowMatchers.modelHasIncompleteFlowStep;
 import static com.demo.reservation.flow.helpers.FlowStages.pendingDateFlow;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -47,11 +53,26 @@ public class DateFlowTest {
     private RoomRepository roomRepository;
 
     @MockBean
-    private ExtraRepository extraRepository;
+    private ExtrasService extrasService;
 
     @MockBean
     private TimeProvider timeProvider;
 
+    @MockBean
+    private AvailabilityService availabilityService;
+
+    @MockBean
+    private BookingService bookingService;
+
+    @MockBean
+    private RoomHoldService roomHoldService;
+
+    @MockBean
+    private PaymentSubmissions paymentSubmissions;
+
+    @MockBean
+    private PaymentProcessor paymentProcessor;
+
     /**
      * Creates form params to simulate POST.
      * <p>
@@ -141,7 +162,7 @@ public class DateFlowTest {
 
     @Test
     public void getDateForm_RoomIdDoesNotExist_404NotFound() throws Exception {
-        when(roomRepository.findById(anyLong())).thenReturn(Optional.empty());
+        when(roomRepository.findWithHotelById(anyLong())).thenReturn(Optional.empty());
 
         mockMvc.perform(get("/reservation?roomId=34"))
                 .andExpect(status().isNotFound());
@@ -154,20 +175,20 @@ public class DateFlowTest {
     @Test
     public void getDateForm_RetrievesRoomById() throws Exception {
         Room room = FlowStages.createRoom();
-        when(roomRepository.findById(anyLong())).thenReturn(Optional.of(room));
+        when(roomRepository.findWithHotelById(anyLong())).thenReturn(Optional.of(room));
 
         mockMvc.perform(get("/reservation?roomId=5"))
                 .andExpect(status().isOk())
                 .andExpect(modelHasActiveFlowStep(ReservationFlow.Step.Dates))
                 .andExpect(modelHasIncompleteFlowStep(ReservationFlow.Step.Dates));
 
-        verify(roomRepository, times(1)).findById(anyLong());
+        verify(roomRepository, times(1)).findWithHotelById(anyLong());
     }
 
     @Test
     public void getDateForm_ReturnsCorrectView() throws Exception {
         Room room = FlowStages.createRoom();
-        when(roomRepository.findById(anyLong())).thenReturn(Optional.of(room));
+        when(roomRepository.findWithHotelById(anyLong())).thenReturn(Optional.of(room));
 
         mockMvc.perform(get("/reservation?roomId=5"))
                 .andExpect(status().isOk())
@@ -185,7 +206,7 @@ public class DateFlowTest {
     @Test
     public void getDateForm_HasValidModel() throws Exception {
         Room room = FlowStages.createRoom();
-        when(roomRepository.findById(anyLong())).thenReturn(Optional.of(room));
+        when(roomRepository.findWithHotelById(anyLong())).thenReturn(Optional.of(room));
 
 
         mockMvc.perform(get("/reservation?roomId=5"))
@@ -193,7 +214,6 @@ public class DateFlowTest {
                 .andExpect(model().attribute("reservationFlow",
                         Matchers.hasProperty("reservation", Matchers.allOf(
                                 Matchers.hasProperty("room", Matchers.is(room)),
-                                Matchers.hasProperty("room", Matchers.hasProperty("reservation", Matchers.notNullValue(Reservation.class))),
                                 Matchers.hasProperty("dates", Matchers.notNullValue())
                         ))));
     }
@@ -218,7 +238,7 @@ public class DateFlowTest {
         reservationFlow.setActive(ReservationFlow.Step.Extras);
         reservationFlow.completeStep(ReservationFlow.Step.Dates);
 
-        when(roomRepository.findById(anyLong())).thenReturn(Optional.of(reservationFlow.getReservation().getRoom()));
+        when(roomRepository.findWithHotelById(anyLong())).thenReturn(Optional.of(reservationFlow.getReservation().getRoom()));
 
         mockMvc.perform(post("/reservation/dates")
                 .sessionAttr("reservationFlow", reservationFlow)
@@ -242,7 +262,7 @@ public class DateFlowTest {
         reservationFlow.setActive(ReservationFlow.Step.Extras);
         reservationFlow.completeStep(ReservationFlow.Step.Dates);
 
-        when(roomRepository.findById(anyLong())).thenReturn(Optional.of(reservationFlow.getReservation().getRoom()));
+        when(roomRepository.findWithHotelById(anyLong())).thenReturn(Optional.of(reservationFlow.getReservation().getRoom()));
         when(timeProvider.localDate()).thenReturn(LocalDate.now());
 
         mockMvc.perform(post("/reservation/dates")
@@ -264,7 +284,7 @@ public class DateFlowTest {
         reservationFlow.setActive(ReservationFlow.Step.Extras);
         reservationFlow.completeStep(ReservationFlow.Step.Dates);
 
-        when(roomRepository.findById(anyLong())).thenReturn(Optional.of(reservationFlow.getReservation().getRoom()));
+        when(roomRepository.findWithHotelById(anyLong())).thenReturn(Optional.of(reservationFlow.getReservation().getRoom()));
         when(timeProvider.localDate()).thenReturn(LocalDate.now());
 
         mockMvc.perform(post("/reservation/dates")
@@ -286,7 +306,7 @@ public class DateFlowTest {
         reservationFlow.setActive(ReservationFlow.Step.Extras);
         reservationFlow.completeStep(ReservationFlow.Step.Dates);
 
-        when(roomRepository.findById(anyLong())).thenReturn(Optional.of(reservationFlow.getReservation().getRoom()));
+        when(roomRepository.findWithHotelById(anyLong())).thenReturn(Optional.of(reservationFlow.getReservation().getRoom()));
         when(timeProvider.localDate()).thenReturn(LocalDate.now());
 
         mockMvc.perform(post("/reservation/dates")
@@ -313,8 +333,10 @@ public class DateFlowTest {
         reservationFlow.setActive(ReservationFlow.Step.Extras);
         reservationFlow.completeStep(ReservationFlow.Step.Dates);
 
-        when(roomRepository.findById(anyLong())).thenReturn(Optional.of(reservationFlow.getReservation().getRoom()));
+        when(roomRepository.findWithHotelById(anyLong())).thenReturn(Optional.of(reservationFlow.getReservation().getRoom()));
         when(timeProvider.localDate()).thenReturn(LocalDate.now());
+        when(roomHoldService.tryHold(anyLong(), any(UUID.class), any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(true);
 
         mockMvc.perform(post("/reservation/dates")
                 .sessionAttr("reservationFlow", reservationFlow)
@@ -325,6 +347,48 @@ public class DateFlowTest {
                 .andExpect(FlowMatchers.flashHasCompletedFlowStep(ReservationFlow.Step.Dates));
     }
 
+    /**
+     * When another reservation has already booked any of the selected nights, the dates are rejected and the
+     * user stays on the date form.
+     */
+    @Test
+    public void postDateForm_NightsAlreadyBooked_RejectsDates() throws Exception {
+        ReservationFlow reservationFlow = pendingDateFlow();
+
+        when(timeProvider.localDate()).thenReturn(LocalDate.now());
+        when(availabilityService.hasBookedNights(anyLong(), any(ReservationDates.class))).thenReturn(true);
+
+        mockMvc.perform(post("/reservation/dates")
+                .sessionAttr("reservationFlow", reservationFlow)
+                .params(validParams(timeProvider)))
+                .andExpect(view().name("reservation/dates"))
+                .andExpect(model().errorCount(1))
+                .andExpect(model().attributeHasFieldErrorCode("reservationFlow", "reservation.dates", "dates.unavailable"))
+                .andExpect(modelHasActiveFlowStep(ReservationFlow.Step.Dates))
+                .andExpect(modelHasIncompleteFlowStep(ReservationFlow.Step.Dates));
+    }
+
+    /**
+     * The nights are not booked yet but another guest is part way through the flow for them.
+     */
+    @Test
+    public void postDateForm_RoomHeldByAnotherFlow_RejectsDates() throws Exception {
+        ReservationFlow reservationFlow = pendingDateFlow();
+
+        when(timeProvider.localDate()).thenReturn(LocalDate.now());
+        when(roomHoldService.tryHold(anyLong(), any(UUID.class), any(LocalDate.class), any(LocalDate.class)))
+                .thenReturn(false);
+
+        mockMvc.perform(post("/reservation/dates")
+                .sessionAttr("reservationFlow", reservationFlow)
+                .params(validParams(timeProvider)))
+                .andExpect(view().name("reservation/dates"))
+                .andExpect(model().errorCount(1))
+                .andExpect(model().attributeHasFieldErrorCode("reservationFlow", "reservation.dates", "dates.held"))
+                .andExpect(modelHasActiveFlowStep(ReservationFlow.Step.Dates))
+                .andExpect(modelHasIncompleteFlowStep(ReservationFlow.Step.Dates));
+    }
+
     // Ajax dynamic room price fragment
 
     @Test
@@ -1,14 +1,20 @@
 package com.demo.reservation.flow.controller;
 
 import com.demo.TimeProvider;
+import com.demo.availability.AvailabilityService;
+import com.demo.availability.BookingService;
+import com.demo.availability.RoomHoldService;
 import com.demo.domain.Extra;
+import com.demo.payment.PaymentProcessor;
 import com.demo.persistance.RoomRepository;
-import com.demo.reservation.ExtraRepository;
+import com.demo.reservation.ExtrasService;
+import com.demo.reservation.flow.PaymentSubmissions;
 import com.demo.reservation.flow.ReservationController;
 import com.demo.reservation.flow.forms.ReservationFlow;
 import com.demo.reservation.flow.helpers.FlowMatchers;
 import com.demo.reservation.flow.helpers.FlowStages;
 import org.hamcrest.Matchers;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -22,6 +28,7 @@ import java.math.BigDecimal;
 import java.util.List;
 
 import static com.demo.reservation.flow.helpers.FlowMatchers.modelHasActiveFlowStep;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -38,11 +45,34 @@ public class GeneralExtraFlowTest {
     private RoomRepository roomRepository;
 
     @MockBean
-    private ExtraRepository extraRepository;
+    private ExtrasService extrasService;
 
     @MockBean
     private TimeProvider timeProvider;
 
+    @MockBean
+    private AvailabilityService availabilityService;
+
+    @MockBean
+    private BookingService bookingService;
+
+    @MockBean
+    private RoomHoldService roomHoldService;
+
+    @MockBean
+    private PaymentSubmissions paymentSubmissions;
+
+    @MockBean
+    private PaymentProcessor paymentProcessor;
+
+    /**
+     * The room stays held throughout unless a test expires it.
+     */
+    @Before
+    public void setup() {
+        when(roomHoldService.keepAlive(any(), any(), any(), any())).thenReturn(true);
+    }
+
     // Flow step 3 - extras
 
     /**
@@ -57,7 +87,7 @@ public class GeneralExtraFlowTest {
         List<Extra> generalExtras = List.of(
                 new Extra("foxtel", BigDecimal.valueOf(3.94), Extra.Type.Premium, Extra.Category.General)
         );
-        when(extraRepository.findAllByTypeAndCategory(any(Extra.Type.class), eq(Extra.Category.General)))
+        when(extrasService.getGeneralExtras(any(Extra.Type.class)))
                 .thenReturn(generalExtras);
 
         mockMvc.perform(get("/reservation/extras")
@@ -68,9 +98,8 @@ public class GeneralExtraFlowTest {
                 .andExpect(modelHasActiveFlowStep(ReservationFlow.Step.Extras))
                 .andExpect(FlowMatchers.modelHasIncompleteFlowStep(ReservationFlow.Step.Extras));
 
-        verify(extraRepository, times(1))
-                .findAllByTypeAndCategory(any(Extra.Type.class), eq(Extra.Category.General));
-        verifyNoMoreInteractions(extraRepository);
+        verify(extrasService, times(1)).getGeneralExtras(any(Extra.Type.class));
+        verifyNoMoreInteractions(extrasService);
     }
 
     /**
@@ -1,14 +1,20 @@
 package com.demo.reservation.flow.controller;
 
 import com.demo.TimeProvider;
+import com.demo.availability.AvailabilityService;
+import com.demo.availability.BookingService;
+import com.demo.availability.RoomHoldService;
 import com.demo.domain.Guest;
+import com.demo.payment.PaymentProcessor;
 import com.demo.persistance.RoomRepository;
-import com.demo.reservation.ExtraRepository;
+import com.demo.reservation.ExtrasService;
+import com.demo.reservation.flow.PaymentSubmissions;
 import com.demo.reservation.flow.ReservationController;
 import com.demo.reservation.flow.forms.ReservationFlow;
 import com.demo.reservation.flow.helpers.FlowMatchers;
 import com.demo.reservation.flow.helpers.FlowStages;
 import org.hamcrest.Matchers;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,6 +30,8 @@ import java.util.UUID;
 import static com.demo.GlobalErrorMatchers.globalErrorMatchers;
 import static com.demo.reservation.flow.helpers.FlowMatchers.modelHasActiveFlowStep;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.flash;
@@ -41,11 +49,34 @@ public class GuestFlowTest {
     private RoomRepository roomRepository;
 
     @MockBean
-    private ExtraRepository extraRepository;
+    private ExtrasService extrasService;
 
     @MockBean
     private TimeProvider timeProvider;
 
+    @MockBean
+    private AvailabilityService availabilityService;
+
+    @MockBean
+    private BookingService bookingService;
+
+    @MockBean
+    private RoomHoldService roomHoldService;
+
+    @MockBean
+    private PaymentSubmissions paymentSubmissions;
+
+    @MockBean
+    private PaymentProcessor paymentProcessor;
+
+    /**
+     * The room stays held throughout unless a test expires it.
+     */
+    @Before
+    public void setup() {
+        when(roomHoldService.keepAlive(any(), any(), any(), any())).thenReturn(true);
+    }
+
     // Flow step 2 - guests
 
     /**
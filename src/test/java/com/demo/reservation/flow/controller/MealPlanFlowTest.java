@@ -1,14 +1,20 @@
 package com.demo.reservation.flow.controller;
 
 import com.demo.TimeProvider;
+import com.demo.availability.AvailabilityService;
+import com.demo.availability.BookingService;
+import com.demo.availability.RoomHoldService;
 import com.demo.domain.*;
+import com.demo.payment.PaymentProcessor;
 import com.demo.persistance.RoomRepository;
-import com.demo.reservation.ExtraRepository;
+import com.demo.reservation.ExtrasService;
+import com.demo.reservation.flow.PaymentSubmissions;
 import com.demo.reservation.flow.ReservationController;
 import com.demo.reservation.flow.forms.ReservationFlow;
 import com.demo.reservation.flow.helpers.FlowMatchers;
 import com.demo.reservation.flow.helpers.FlowStages;
 import org.hamcrest.Matchers;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -43,11 +49,34 @@ public class MealPlanFlowTest {
     private RoomRepository roomRepository;
 
     @MockBean
-    private ExtraRepository extraRepository;
+    private ExtrasService extrasService;
 
     @MockBean
     private TimeProvider timeProvider;
 
+    @MockBean
+    private AvailabilityService availabilityService;
+
+    @MockBean
+    private BookingService bookingService;
+
+    @MockBean
+    private RoomHoldService roomHoldService;
+
+    @MockBean
+    private PaymentSubmissions paymentSubmissions;
+
+    @MockBean
+    private PaymentProcessor paymentProcessor;
+
+    /**
+     * The room stays held throughout unless a test expires it.
+     */
+    @Before
+    public void setup() {
+        when(roomHoldService.keepAlive(any(), any(), any(), any())).thenReturn(true);
+    }
+
     // Flow step 4 - meal plans
 
     /**
@@ -98,7 +127,7 @@ public class MealPlanFlowTest {
         reservationFlow.setReservation(reservationSpy);
 
         // So we can verify the correct call to get the food extras occurs.
-        when(extraRepository.findAllByTypeAndCategory(any(Extra.Type.class), eq(Extra.Category.Food)))
+        when(extrasService.getFoodExtras(any(Extra.Type.class)))
                 .thenReturn(foodExtras);
 
         ResultMatcher expectedMealPlansCreated = model().attribute("reservationFlow",
@@ -116,9 +145,8 @@ public class MealPlanFlowTest {
                 .andExpect(FlowMatchers.modelHasActiveFlowStep(ReservationFlow.Step.Meals))
                 .andExpect(FlowMatchers.modelHasIncompleteFlowStep(ReservationFlow.Step.Meals));
 
-        verify(extraRepository, times(1))
-                .findAllByTypeAndCategory(any(Extra.Type.class), eq(Extra.Category.Food));
-        verifyNoMoreInteractions(extraRepository);
+        verify(extrasService, times(1)).getFoodExtras(any(Extra.Type.class));
+        verifyNoMoreInteractions(extrasService);
 
         verify(reservationSpy, times(1)).createMealPlans();
     }
@@ -204,7 +232,7 @@ public class MealPlanFlowTest {
         );
 
         // So we can verify the correct call to get the food extras occurs.
-        when(extraRepository.findAllByTypeAndCategory(any(Extra.Type.class), eq(Extra.Category.Food)))
+        when(extrasService.getFoodExtras(any(Extra.Type.class)))
                 .thenReturn(foodExtras);
 
         mockMvc.perform(post("/reservation/meals")
@@ -218,8 +246,7 @@ public class MealPlanFlowTest {
                 .andExpect(FlowMatchers.modelHasActiveFlowStep(ReservationFlow.Step.Meals))
                 .andExpect(FlowMatchers.modelHasIncompleteFlowStep(ReservationFlow.Step.Meals));
 
-        verify(extraRepository, times(1))
-                .findAllByTypeAndCategory(any(Extra.Type.class), eq(Extra.Category.Food));
-        verifyNoMoreInteractions(extraRepository);
+        verify(extrasService, times(1)).getFoodExtras(any(Extra.Type.class));
+        verifyNoMoreInteractions(extrasService);
     }
 }
@@ -1,38 +1,61 @@
 package com.demo.reservation.flow.controller;
 
+import com.demo.availability.AvailabilityService;
+import com.demo.availability.BookingService;
+import com.demo.availability.RoomHoldService;
 import com.demo.reservation.flow.TestContextConfiguration;
 import com.demo.TimeProvider;
 import com.demo.domain.PendingPayment;
-import com.demo.domain.Room;
+import com.demo.domain.Reservation;
+import com.demo.exceptions.BookingConflictException;
+import com.demo.exceptions.PaymentDeclinedException;
+import com.demo.exceptions.PaymentUnavailableException;
+import com.demo.payment.PaymentProcessor;
+import com.demo.payment.PaymentReceipt;
+import com.demo.payment.PaymentRequest;
 import com.demo.persistance.RoomRepository;
-import com.demo.reservation.ExtraRepository;
+import com.demo.reservation.ExtrasService;
+import com.demo.reservation.flow.PaymentSubmissions;
 import com.demo.reservation.flow.ReservationController;
 import com.demo.reservation.flow.forms.ReservationFlow;
 import com.demo.reservation.flow.helpers.FlowMatchers;
 import com.demo.reservation.flow.helpers.FlowStages;
 import org.hamcrest.Matchers;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 import java.time.LocalDateTime;
 import java.time.Month;
 import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.flash;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
 
 @RunWith(SpringRunner.class)
@@ -48,11 +71,59 @@ public class PaymentFlowTest {
     private RoomRepository roomRepository;
 
     @MockBean
-    private ExtraRepository extraRepository;
+    private ExtrasService extrasService;
 
     @MockBean
     private TimeProvider timeProvider;
 
+    @MockBean
+    private AvailabilityService availabilityService;
+
+    @MockBean
+    private BookingService bookingService;
+
+    @MockBean
+    private RoomHoldService roomHoldService;
+
+    @MockBean
+    private PaymentProcessor paymentProcessor;
+
+    @Autowired
+    private PaymentSubmissions paymentSubmissions;
+
+    @Before
+    public void setup() {
+        when(roomHoldService.keepAlive(any(), any(), any(), any())).thenReturn(true);
+        when(paymentProcessor.charge(any(PaymentRequest.class))).thenAnswer(invocation -> {
+            PaymentRequest request = invocation.getArgument(0);
+            return CompletableFuture.completedFuture(
+                    new PaymentReceipt(UUID.randomUUID(), request.getIdempotencyKey()));
+        });
+    }
+
+    /**
+     * Submitting the payment form is handled asynchronously so the view is only known once the request has been
+     * dispatched again.
+     */
+    private ResultActions performPayment(MockHttpServletRequestBuilder payment) throws Exception {
+        MvcResult result = mockMvc.perform(payment)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(result));
+    }
+
+    private MockHttpServletRequestBuilder validPayment(String paymentToken) {
+        return post("/reservation/payment")
+                .param("paymentToken", paymentToken)
+                .param("createdTime", LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME))
+                .param("creditCardType", PendingPayment.CreditCardType.MasterCard.name())
+                .param("creditCardNumber", "1234567892")
+                .param("cvv", "123")
+                .param("cardHolderName", "john smith")
+                .param("cardExpiryYear", "2018")
+                .param("cardExpiryMonth", Month.DECEMBER.name());
+    }
+
     // Flow step 6 - payment
 
     /**
@@ -68,6 +139,7 @@ public class PaymentFlowTest {
                 .andExpect(view().name("reservation/payment"))
                 .andExpect(model().attributeExists("reservationFlow"))
                 .andExpect(model().attribute("pendingPayment", Matchers.isA(PendingPayment.class)))
+                .andExpect(model().attribute("paymentToken", Matchers.notNullValue()))
                 .andExpect(FlowMatchers.modelHasActiveFlowStep(ReservationFlow.Step.Payment))
                 .andExpect(FlowMatchers.modelHasIncompleteFlowStep(ReservationFlow.Step.Payment));
     }
@@ -110,7 +182,7 @@ public class PaymentFlowTest {
     public void postPayment_EmptyForm_ExpectAllBeanValidationErrors() throws Exception {
         ReservationFlow reservationFlow = FlowStages.reviewCompletedFlow();
 
-        mockMvc.perform(post("/reservation/payment")
+        performPayment(post("/reservation/payment")
                 .sessionAttr("reservationFlow", reservationFlow)
                 .param("createdTime", LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME)))
                 .andExpect(view().name("reservation/payment"))
@@ -140,7 +212,7 @@ public class PaymentFlowTest {
     public void postPayment_ValidationErrors_creditCardType() throws Exception {
         ReservationFlow reservationFlow = FlowStages.reviewCompletedFlow();
 
-        mockMvc.perform(post("/reservation/payment")
+        performPayment(post("/reservation/payment")
                 .sessionAttr("reservationFlow", reservationFlow)
                 .param("createdTime", LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME))
                 .param("creditCardType", "ERROR")
@@ -171,7 +243,7 @@ public class PaymentFlowTest {
     public void postPayment_ValidationErrors_cardHolderName() throws Exception {
         ReservationFlow reservationFlow = FlowStages.reviewCompletedFlow();
 
-        mockMvc.perform(post("/reservation/payment")
+        performPayment(post("/reservation/payment")
                 .sessionAttr("reservationFlow", reservationFlow)
                 .param("createdTime", LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME))
                 .param("creditCardType", PendingPayment.CreditCardType.MasterCard.name())
@@ -202,7 +274,7 @@ public class PaymentFlowTest {
     public void postPayment_ValidationErrors_creditCardNumber_HasLetter() throws Exception {
         ReservationFlow reservationFlow = FlowStages.reviewCompletedFlow();
 
-        mockMvc.perform(post("/reservation/payment")
+        performPayment(post("/reservation/payment")
                 .sessionAttr("reservationFlow", reservationFlow)
                 .param("createdTime", LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME))
                 .param("creditCardType", PendingPayment.CreditCardType.MasterCard.name())
@@ -233,7 +305,7 @@ public class PaymentFlowTest {
     public void postPayment_ValidationErrors_creditCardNumber_NotTenDigits() throws Exception {
         ReservationFlow reservationFlow = FlowStages.reviewCompletedFlow();
 
-        mockMvc.perform(post("/reservation/payment")
+        performPayment(post("/reservation/payment")
                 .sessionAttr("reservationFlow", reservationFlow)
                 .param("createdTime", LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME))
                 .param("creditCardType", PendingPayment.CreditCardType.MasterCard.name())
@@ -264,7 +336,7 @@ public class PaymentFlowTest {
     public void postPayment_ValidationErrors_cvv_HasLetter() throws Exception {
         ReservationFlow reservationFlow = FlowStages.reviewCompletedFlow();
 
-        mockMvc.perform(post("/reservation/payment")
+        performPayment(post("/reservation/payment")
                 .sessionAttr("reservationFlow", reservationFlow)
                 .param("createdTime", LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME))
                 .param("creditCardType", PendingPayment.CreditCardType.MasterCard.name())
@@ -295,7 +367,7 @@ public class PaymentFlowTest {
     public void postPayment_ValidationErrors_cvv_NotThreeDigits() throws Exception {
         ReservationFlow reservationFlow = FlowStages.reviewCompletedFlow();
 
-        mockMvc.perform(post("/reservation/payment")
+        performPayment(post("/reservation/payment")
                 .sessionAttr("reservationFlow", reservationFlow)
                 .param("createdTime", LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME))
                 .param("creditCardType", PendingPayment.CreditCardType.MasterCard.name())
@@ -326,7 +398,7 @@ public class PaymentFlowTest {
     public void postPayment_ValidationErrors_cardExpiryYear_NotFourDigits() throws Exception {
         ReservationFlow reservationFlow = FlowStages.reviewCompletedFlow();
 
-        mockMvc.perform(post("/reservation/payment")
+        performPayment(post("/reservation/payment")
                 .sessionAttr("reservationFlow", reservationFlow)
                 .param("createdTime", LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME))
                 .param("creditCardType", PendingPayment.CreditCardType.MasterCard.name())
@@ -358,7 +430,7 @@ public class PaymentFlowTest {
     public void postPayment_ValidationErrors_cardExpiryMonth_InvalidTypeFormat() throws Exception {
         ReservationFlow reservationFlow = FlowStages.reviewCompletedFlow();
 
-        mockMvc.perform(post("/reservation/payment")
+        performPayment(post("/reservation/payment")
                 .sessionAttr("reservationFlow", reservationFlow)
                 .param("createdTime", LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME))
                 .param("creditCardType", PendingPayment.CreditCardType.MasterCard.name())
@@ -384,20 +456,187 @@ public class PaymentFlowTest {
     public void postPayment_Valid() throws Exception {
         ReservationFlow reservationFlow = FlowStages.reviewCompletedFlow();
 
-        mockMvc.perform(post("/reservation/payment")
-                .sessionAttr("reservationFlow", reservationFlow)
-                .param("createdTime", LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME))
-                .param("creditCardType", PendingPayment.CreditCardType.MasterCard.name())
-                .param("creditCardNumber", "1234567892")
-                .param("cvv", "123")
-                .param("cardHolderName", "john smith")
-                .param("cardExpiryYear", "2018")
-                .param("cardExpiryMonth", Month.DECEMBER.name()))
+        String paymentToken = paymentSubmissions.issue(reservationFlow.getReservation().getReservationId());
+
+        performPayment(validPayment(paymentToken)
+                .sessionAttr("reservationFlow", reservationFlow))
                 .andExpect(view().name("redirect:/reservation/completed"))
                 .andExpect(flash().attributeCount(0))
                 .andExpect(model().errorCount(0));
 
-        verify(roomRepository, times(1)).save(any(Room.class));
+        verify(bookingService, times(1)).book(any(Reservation.class));
+        verify(roomHoldService, times(1)).convert(reservationFlow.getReservation().getReservationId());
         verifyNoMoreInteractions(roomRepository);
     }
+
+    /**
+     * Another payment for the same nights won the race. The guest stays on the payment view with a global error and
+     * the hold is not converted.
+     */
+    @Test
+    public void postPayment_BookingConflict_RejectsPayment() throws Exception {
+        ReservationFlow reservationFlow = FlowStages.reviewCompletedFlow();
+
+        when(bookingService.book(any(Reservation.class)))
+                .thenThrow(new BookingConflictException("Some of the selected nights have just been booked"));
+
+        String paymentToken = paymentSubmissions.issue(reservationFlow.getReservation().getReservationId());
+
+        performPayment(validPayment(paymentToken)
+                .sessionAttr("reservationFlow", reservationFlow))
+                .andExpect(view().name("reservation/payment"))
+                .andExpect(model().errorCount(1))
+                .andExpect(model().attributeHasErrors("pendingPayment"))
+                .andExpect(FlowMatchers.modelHasIncompleteFlowStep(ReservationFlow.Step.Payment));
+
+        verify(roomHoldService, never()).convert(any(UUID.class));
+        verify(paymentProcessor).refund(any(PaymentReceipt.class));
+    }
+
+    /**
+     * Booking failed for a reason other than a conflict after the card was charged. The charge is refunded and the
+     * failure left to the error page.
+     */
+    @Test
+    public void postPayment_BookingFails_Refunded() throws Exception {
+        ReservationFlow reservationFlow = FlowStages.reviewCompletedFlow();
+        when(bookingService.book(any(Reservation.class)))
+                .thenThrow(new DataAccessResourceFailureException("Connection lost"));
+        String paymentToken = paymentSubmissions.issue(reservationFlow.getReservation().getReservationId());
+
+        MvcResult result = mockMvc.perform(validPayment(paymentToken)
+                .sessionAttr("reservationFlow", reservationFlow))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertThat(result.getAsyncResult(5000)).isInstanceOf(DataAccessResourceFailureException.class);
+        verify(roomHoldService, never()).convert(any(UUID.class));
+        verify(paymentProcessor).refund(any(PaymentReceipt.class));
+    }
+
+    /**
+     * A double click or retry resubmits the same token once the first submission has already ended the flow. The
+     * guest is sent to the same place without booking again.
+     */
+    @Test
+    public void postPayment_Resubmitted_BookedOnce() throws Exception {
+        ReservationFlow reservationFlow = FlowStages.reviewCompletedFlow();
+        String paymentToken = paymentSubmissions.issue(reservationFlow.getReservation().getReservationId());
+
+        performPayment(validPayment(paymentToken)
+                .sessionAttr("reservationFlow", reservationFlow))
+                .andExpect(view().name("redirect:/reservation/completed"));
+        performPayment(validPayment(paymentToken))
+                .andExpect(view().name("redirect:/reservation/completed"));
+
+        verify(bookingService, times(1)).book(any(Reservation.class));
+        verify(roomHoldService, times(1)).convert(reservationFlow.getReservation().getReservationId());
+    }
+
+    @Test
+    public void postPayment_ResubmittedAfterConflict_NotBookedAgain() throws Exception {
+        ReservationFlow reservationFlow = FlowStages.reviewCompletedFlow();
+        String paymentToken = paymentSubmissions.issue(reservationFlow.getReservation().getReservationId());
+        when(bookingService.book(any(Reservation.class)))
+                .thenThrow(new BookingConflictException("Some of the selected nights have just been booked"));
+
+        for (int i = 0; i < 2; i++) {
+            performPayment(validPayment(paymentToken)
+                    .sessionAttr("reservationFlow", reservationFlow))
+                    .andExpect(view().name("reservation/payment"))
+                    .andExpect(model().attributeHasErrors("pendingPayment"))
+                    .andExpect(model().attribute("paymentToken", Matchers.not(paymentToken)));
+        }
+
+        verify(bookingService, times(1)).book(any(Reservation.class));
+    }
+
+    /**
+     * Tokens are only accepted for the reservation they were issued for and until they expire. The form is shown
+     * again with a new token.
+     */
+    @Test
+    public void postPayment_UnknownToken_NotBooked() throws Exception {
+        ReservationFlow reservationFlow = FlowStages.reviewCompletedFlow();
+        String otherReservationToken = paymentSubmissions.issue(UUID.randomUUID());
+
+        for (String paymentToken : new String[]{"unknown", otherReservationToken}) {
+            performPayment(validPayment(paymentToken)
+                    .sessionAttr("reservationFlow", reservationFlow))
+                    .andExpect(view().name("reservation/payment"))
+                    .andExpect(model().errorCount(1))
+                    .andExpect(model().attribute("paymentToken", Matchers.not(paymentToken)))
+                    .andExpect(FlowMatchers.modelHasIncompleteFlowStep(ReservationFlow.Step.Payment));
+        }
+
+        verify(bookingService, never()).book(any(Reservation.class));
+    }
+
+    /**
+     * The charge is sent with the payment token as its idempotency key so a retry is never charged twice.
+     */
+    @Test
+    public void postPayment_ChargedWithPaymentToken() throws Exception {
+        ReservationFlow reservationFlow = FlowStages.reviewCompletedFlow();
+        Reservation reservation = reservationFlow.getReservation();
+        String paymentToken = paymentSubmissions.issue(reservation.getReservationId());
+
+        performPayment(validPayment(paymentToken)
+                .sessionAttr("reservationFlow", reservationFlow))
+                .andExpect(view().name("redirect:/reservation/completed"));
+
+        verify(paymentProcessor).charge(argThat(request -> request.getIdempotencyKey().equals(paymentToken)
+                && request.getReservationId().equals(reservation.getReservationId())
+                && request.getAmount().equals(reservation.getTotalCostIncludingTax())));
+    }
+
+    @Test
+    public void postPayment_Declined_NotBooked() throws Exception {
+        ReservationFlow reservationFlow = FlowStages.reviewCompletedFlow();
+        String paymentToken = paymentSubmissions.issue(reservationFlow.getReservation().getReservationId());
+        when(paymentProcessor.charge(any(PaymentRequest.class)))
+                .thenReturn(failed(new PaymentDeclinedException("The card was declined")));
+
+        performPayment(validPayment(paymentToken)
+                .sessionAttr("reservationFlow", reservationFlow))
+                .andExpect(view().name("reservation/payment"))
+                .andExpect(model().errorCount(1))
+                .andExpect(model().attribute("paymentToken", Matchers.not(paymentToken)))
+                .andExpect(FlowMatchers.modelHasIncompleteFlowStep(ReservationFlow.Step.Payment));
+
+        verify(bookingService, never()).book(any(Reservation.class));
+    }
+
+    /**
+     * The outcome of the charge is unknown so the form keeps its token. Submitting it again is safe since the
+     * provider charges the same idempotency key at most once.
+     */
+    @Test
+    public void postPayment_ProviderUnavailable_TokenCanBeSubmittedAgain() throws Exception {
+        ReservationFlow reservationFlow = FlowStages.reviewCompletedFlow();
+        String paymentToken = paymentSubmissions.issue(reservationFlow.getReservation().getReservationId());
+        when(paymentProcessor.charge(any(PaymentRequest.class)))
+                .thenReturn(failed(new PaymentUnavailableException("The payment provider did not answer in time")))
+                .thenReturn(CompletableFuture.completedFuture(new PaymentReceipt(UUID.randomUUID(), paymentToken)));
+
+        performPayment(validPayment(paymentToken)
+                .sessionAttr("reservationFlow", reservationFlow))
+                .andExpect(view().name("reservation/payment"))
+                .andExpect(model().errorCount(1))
+                .andExpect(model().attribute("paymentToken", paymentToken));
+
+        verify(bookingService, never()).book(any(Reservation.class));
+
+        performPayment(validPayment(paymentToken)
+                .sessionAttr("reservationFlow", reservationFlow))
+                .andExpect(view().name("redirect:/reservation/completed"));
+
+        verify(bookingService, times(1)).book(any(Reservation.class));
+    }
+
+    private static CompletableFuture<PaymentReceipt> failed(RuntimeException failure) {
+        CompletableFuture<PaymentReceipt> charge = new CompletableFuture<>();
+        charge.completeExceptionally(failure);
+        return charge;
+    }
 }
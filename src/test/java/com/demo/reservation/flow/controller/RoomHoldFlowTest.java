@@ -0,0 +1,231 @@
+package com.demo.reservation.flow.controller;
+
+import com.demo.TimeProvider;
+import com.demo.availability.AvailabilityService;
+import com.demo.availability.BookingService;
+import com.demo.availability.RoomHoldService;
+import com.demo.domain.PendingPayment;
+import com.demo.domain.Reservation;
+import com.demo.payment.PaymentProcessor;
+import com.demo.payment.PaymentRequest;
+import com.demo.persistance.RoomRepository;
+import com.demo.reservation.ExtrasService;
+import com.demo.reservation.flow.PaymentSubmissions;
+import com.demo.reservation.flow.ReservationController;
+import com.demo.reservation.flow.TestContextConfiguration;
+import com.demo.reservation.flow.forms.ReservationFlow;
+import com.demo.reservation.flow.helpers.FlowStages;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+import static com.demo.reservation.flow.helpers.FlowMatchers.modelHasActiveFlowStep;
+import static com.demo.reservation.flow.helpers.FlowMatchers.modelHasIncompleteFlowStep;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.model;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.view;
+
+/**
+ * The flow against real room holds. A guest who idles past the hold ttl while another guest holds the same nights is
+ * sent back to choose their dates rather than moving on, and is never charged.
+ */
+@RunWith(SpringRunner.class)
+@WebMvcTest(ReservationController.class)
+@Import({TestContextConfiguration.class, RoomHoldFlowTest.HoldConfiguration.class})
+@ActiveProfiles("test")
+public class RoomHoldFlowTest {
+    private static final Duration TTL = Duration.ofMinutes(15);
+
+    @TestConfiguration
+    static class HoldConfiguration {
+        @Bean
+        public MutableClock holdClock() {
+            return new MutableClock();
+        }
+
+        @Bean
+        public RoomHoldService roomHoldService(MutableClock holdClock) {
+            return new RoomHoldService(TTL, Duration.ofHours(1), new SimpleMeterRegistry(), holdClock);
+        }
+    }
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MutableClock clock;
+
+    @Autowired
+    private RoomHoldService roomHoldService;
+
+    @Autowired
+    private PaymentSubmissions paymentSubmissions;
+
+    @MockBean
+    private RoomRepository roomRepository;
+
+    @MockBean
+    private ExtrasService extrasService;
+
+    @MockBean
+    private TimeProvider timeProvider;
+
+    @MockBean
+    private AvailabilityService availabilityService;
+
+    @MockBean
+    private BookingService bookingService;
+
+    @MockBean
+    private PaymentProcessor paymentProcessor;
+
+    /**
+     * The context and so the holds are shared between tests, every hold left by an earlier test has expired.
+     */
+    @Before
+    public void expireEarlierHolds() {
+        clock.advance(TTL.plusMinutes(1));
+    }
+
+    /**
+     * Holds the room for the flow, lets the hold expire then has another guest hold the same nights.
+     */
+    private void holdTakenByAnotherGuest(ReservationFlow reservationFlow) {
+        Reservation reservation = reservationFlow.getReservation();
+        Long roomId = reservation.getRoom().getId();
+        assertThat(roomHoldService.tryHold(roomId, reservation.getReservationId(),
+                reservation.getDates().getCheckInDate(), reservation.getDates().getCheckOutDate())).isTrue();
+
+        clock.advance(TTL.plusMinutes(1));
+
+        assertThat(roomHoldService.tryHold(roomId, UUID.randomUUID(),
+                reservation.getDates().getCheckInDate(), reservation.getDates().getCheckOutDate())).isTrue();
+    }
+
+    @Test
+    public void getGuestForm_HoldStillActive_StepShown() throws Exception {
+        ReservationFlow reservationFlow = FlowStages.dateCompletedFlow();
+        Reservation reservation = reservationFlow.getReservation();
+        roomHoldService.tryHold(reservation.getRoom().getId(), reservation.getReservationId(),
+                reservation.getDates().getCheckInDate(), reservation.getDates().getCheckOutDate());
+
+        clock.advance(TTL.minusMinutes(1));
+
+        mockMvc.perform(get("/reservation/guests")
+                .sessionAttr("reservationFlow", reservationFlow))
+                .andExpect(view().name("reservation/guests"))
+                .andExpect(model().hasNoErrors());
+    }
+
+    @Test
+    public void getGuestForm_HoldTakenByAnotherGuest_BackToDates() throws Exception {
+        ReservationFlow reservationFlow = FlowStages.dateCompletedFlow();
+        holdTakenByAnotherGuest(reservationFlow);
+
+        mockMvc.perform(get("/reservation/guests")
+                .sessionAttr("reservationFlow", reservationFlow))
+                .andExpect(view().name("reservation/dates"))
+                .andExpect(model().errorCount(1))
+                .andExpect(model().attributeHasFieldErrorCode("reservationFlow", "reservation.dates",
+                        "dates.holdLost"))
+                .andExpect(modelHasActiveFlowStep(ReservationFlow.Step.Dates))
+                .andExpect(modelHasIncompleteFlowStep(ReservationFlow.Step.Dates));
+    }
+
+    @Test
+    public void getPayment_HoldTakenByAnotherGuest_BackToDates() throws Exception {
+        ReservationFlow reservationFlow = FlowStages.reviewCompletedFlow();
+        holdTakenByAnotherGuest(reservationFlow);
+
+        mockMvc.perform(get("/reservation/payment")
+                .sessionAttr("reservationFlow", reservationFlow))
+                .andExpect(view().name("reservation/dates"))
+                .andExpect(model().attributeHasFieldErrorCode("reservationFlow", "reservation.dates",
+                        "dates.holdLost"))
+                .andExpect(model().attributeDoesNotExist("paymentToken"))
+                .andExpect(modelHasActiveFlowStep(ReservationFlow.Step.Dates));
+    }
+
+    /**
+     * The hold is lost while the payment form is open. The card is not charged and nothing is booked.
+     */
+    @Test
+    public void postPayment_HoldTakenByAnotherGuest_NotCharged() throws Exception {
+        ReservationFlow reservationFlow = FlowStages.reviewCompletedFlow();
+        String paymentToken = paymentSubmissions.issue(reservationFlow.getReservation().getReservationId());
+        holdTakenByAnotherGuest(reservationFlow);
+
+        MvcResult result = mockMvc.perform(post("/reservation/payment")
+                .sessionAttr("reservationFlow", reservationFlow)
+                .param("paymentToken", paymentToken)
+                .param("createdTime", LocalDateTime.now().format(DateTimeFormatter.ISO_DATE_TIME))
+                .param("creditCardType", PendingPayment.CreditCardType.MasterCard.name())
+                .param("creditCardNumber", "1234567892")
+                .param("cvv", "123")
+                .param("cardHolderName", "john smith")
+                .param("cardExpiryYear", "2018")
+                .param("cardExpiryMonth", Month.DECEMBER.name()))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(view().name("reservation/dates"))
+                .andExpect(model().attributeHasFieldErrorCode("reservationFlow", "reservation.dates",
+                        "dates.holdLost"))
+                .andExpect(modelHasActiveFlowStep(ReservationFlow.Step.Dates));
+
+        verify(paymentProcessor, never()).charge(any(PaymentRequest.class));
+        verify(bookingService, never()).book(any(Reservation.class));
+    }
+
+    static class MutableClock extends Clock {
+        private volatile Instant now = Instant.parse("2030-05-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
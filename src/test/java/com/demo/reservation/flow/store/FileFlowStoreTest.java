@@ -0,0 +1,103 @@
+package com.demo.reservation.flow.store;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+public class FileFlowStoreTest {
+
+    private static final long NOW = 1_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private FileFlowStore store;
+
+    @Before
+    public void setup() {
+        directory = folder.getRoot().toPath();
+        store = new FileFlowStore(directory);
+    }
+
+    private static String flowId() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Test
+    public void save_OnlyChangedAttributes_KeepsOthers() {
+        String flowId = flowId();
+        store.save(flowId, Map.of("a", new byte[]{1}, "b", new byte[]{2}), NOW + 100);
+        store.save(flowId, Map.of("b", new byte[]{9}), NOW + 200);
+
+        StoredFlow flow = store.load(flowId, NOW).get();
+        assertThat(flow.getExpiresAtMillis()).isEqualTo(NOW + 200);
+        assertThat(flow.getAttributes().get("a")).isEqualTo(new byte[]{1});
+        assertThat(flow.getAttributes().get("b")).isEqualTo(new byte[]{9});
+    }
+
+    /**
+     * Extending the expiry rewrites the header in place.
+     */
+    @Test
+    public void save_NoAttributes_ExtendsExpiry() throws Exception {
+        String flowId = flowId();
+        store.save(flowId, Map.of("a", new byte[]{1}), NOW + 100);
+        long size = Files.size(directory.resolve(flowId + ".flow"));
+
+        store.save(flowId, Map.of(), NOW + 500);
+
+        assertThat(Files.size(directory.resolve(flowId + ".flow"))).isEqualTo(size);
+        assertThat(store.load(flowId, NOW + 200).get().getAttributes().get("a")).isEqualTo(new byte[]{1});
+    }
+
+    @Test
+    public void load_Expired_Empty() {
+        String flowId = flowId();
+        store.save(flowId, Map.of("a", new byte[]{1}), NOW);
+
+        assertThat(store.load(flowId, NOW)).isEmpty();
+    }
+
+    @Test
+    public void load_CorruptFile_Empty() throws Exception {
+        String flowId = flowId();
+        Files.write(directory.resolve(flowId + ".flow"), new byte[]{1, 2, 3});
+
+        assertThat(store.load(flowId, NOW)).isEmpty();
+    }
+
+    @Test
+    public void deleteExpired_RemovesExpiredAndCorruptFiles() throws Exception {
+        String expired = flowId();
+        String live = flowId();
+        store.save(expired, Map.of("a", new byte[]{1}), NOW - 1);
+        store.save(live, Map.of("a", new byte[]{1}), NOW + 1);
+        Files.write(directory.resolve(flowId() + ".flow"), new byte[]{1, 2, 3});
+
+        assertThat(store.deleteExpired(NOW)).isEqualTo(2);
+        assertThat(store.load(live, NOW)).isPresent();
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.count()).isEqualTo(1);
+        }
+    }
+
+    /**
+     * Flow ids arrive in a cookie so they must never escape the directory.
+     */
+    @Test
+    public void load_MalformedFlowId_Rejected() {
+        assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> store.load("../../etc/passwd", NOW));
+    }
+}
@@ -0,0 +1,99 @@
+package com.demo.reservation.flow.store;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@JdbcTest
+public class JdbcFlowStoreTest {
+
+    private static final long NOW = 1_000_000L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private JdbcFlowStore store;
+
+    @Before
+    public void setup() {
+        store = new JdbcFlowStore(jdbcTemplate, transactionManager);
+        store.initializeSchema();
+    }
+
+    private static String flowId() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Test
+    public void save_ThenLoad_ReturnsAttributes() {
+        String flowId = flowId();
+        store.save(flowId, Map.of("a", new byte[]{1, 2}, "b", new byte[]{3}), NOW + 100);
+
+        StoredFlow flow = store.load(flowId, NOW).get();
+        assertThat(flow.getExpiresAtMillis()).isEqualTo(NOW + 100);
+        assertThat(flow.getAttributes()).containsOnlyKeys("a", "b");
+        assertThat(flow.getAttributes().get("a")).isEqualTo(new byte[]{1, 2});
+    }
+
+    /**
+     * Attributes that are not passed in keep their stored value.
+     */
+    @Test
+    public void save_OnlyChangedAttributes_KeepsOthers() {
+        String flowId = flowId();
+        store.save(flowId, Map.of("a", new byte[]{1}, "b", new byte[]{2}), NOW + 100);
+        store.save(flowId, Map.of("b", new byte[]{9}), NOW + 200);
+        store.save(flowId, Map.of(), NOW + 300);
+
+        StoredFlow flow = store.load(flowId, NOW).get();
+        assertThat(flow.getExpiresAtMillis()).isEqualTo(NOW + 300);
+        assertThat(flow.getAttributes().get("a")).isEqualTo(new byte[]{1});
+        assertThat(flow.getAttributes().get("b")).isEqualTo(new byte[]{9});
+    }
+
+    @Test
+    public void load_ExpiredOrUnknown_Empty() {
+        String flowId = flowId();
+        store.save(flowId, Map.of("a", new byte[]{1}), NOW);
+
+        assertThat(store.load(flowId, NOW)).isEmpty();
+        assertThat(store.load(flowId(), NOW)).isEmpty();
+    }
+
+    @Test
+    public void deleteExpired_RemovesOnlyExpiredFlowsAndTheirAttributes() {
+        String expired = flowId();
+        String live = flowId();
+        store.save(expired, Map.of("a", new byte[]{1}), NOW - 1);
+        store.save(live, Map.of("a", new byte[]{1}), NOW + 1);
+
+        assertThat(store.deleteExpired(NOW)).isEqualTo(1);
+        assertThat(store.load(live, NOW)).isPresent();
+        assertThat(jdbcTemplate.queryForObject(
+                "select count(*) from reservation_flow_attribute where flow_id = ?", Integer.class, expired))
+                .isZero();
+    }
+
+    @Test
+    public void delete_RemovesFlow() {
+        String flowId = flowId();
+        store.save(flowId, Map.of("a", new byte[]{1}), NOW + 100);
+        store.delete(flowId);
+
+        assertThat(store.load(flowId, NOW)).isEmpty();
+    }
+}
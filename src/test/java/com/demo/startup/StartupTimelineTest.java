@@ -0,0 +1,67 @@
+package com.demo.startup;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StartupTimelineTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private StartupTimeline timeline;
+
+    @Before
+    public void setup() {
+        meterRegistry = new SimpleMeterRegistry();
+        timeline = new StartupTimeline();
+        timeline.bindTo(meterRegistry);
+    }
+
+    private double phase(String phase) {
+        return meterRegistry.get("startup.phase").tag("phase", phase).timeGauge().value(TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void record_PublishedAsPhaseGauge() {
+        assertThat(phase(StartupTimeline.IMPORT)).isNaN();
+
+        timeline.record(StartupTimeline.IMPORT, Duration.ofMillis(1500));
+
+        assertThat(phase(StartupTimeline.IMPORT)).isEqualTo(1500);
+    }
+
+    /**
+     * A phase is only recorded the first time, such as the first of several context refreshes.
+     */
+    @Test
+    public void record_Twice_FirstKept() {
+        timeline.record(StartupTimeline.CONTEXT_REFRESH, Duration.ofMillis(200));
+        timeline.record(StartupTimeline.CONTEXT_REFRESH, Duration.ofMillis(900));
+
+        assertThat(phase(StartupTimeline.CONTEXT_REFRESH)).isEqualTo(200);
+    }
+
+    @Test
+    public void postProcess_EntityManagerFactoryInitialization_JpaBootstrapRecorded() {
+        LocalContainerEntityManagerFactoryBean factory = new LocalContainerEntityManagerFactoryBean();
+
+        timeline.postProcessBeforeInitialization(factory, "entityManagerFactory");
+        timeline.postProcessAfterInitialization(factory, "entityManagerFactory");
+
+        assertThat(timeline.getPhases()).containsKey(StartupTimeline.JPA_BOOTSTRAP);
+        assertThat(phase(StartupTimeline.JPA_BOOTSTRAP)).isNotNaN();
+    }
+
+    @Test
+    public void reached_PublishedAsMilestoneSinceJvmStart() {
+        timeline.reached(StartupTimeline.READY);
+
+        assertThat(meterRegistry.get("startup.milestone").tag("milestone", StartupTimeline.READY).timeGauge()
+                .value(TimeUnit.MILLISECONDS)).isPositive();
+    }
+}